@@ -14,9 +14,6 @@ import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.ServiceException;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Component;
 
 
@@ -28,8 +25,6 @@ import org.springframework.stereotype.Component;
 @Component
 public class NamespaceAcquireLockAspect {
 
-    private static final Logger logger = LoggerFactory.getLogger(NamespaceAcquireLockAspect.class);
-
     private final NamespaceLockService namespaceLockService;
     private final NamespaceService namespaceService;
     private final ItemService itemService;
@@ -168,45 +163,10 @@ public class NamespaceAcquireLockAspect {
             throw new BadRequestException("namespace not exist.");
         }
 
-        long namespaceId = namespace.getId();
-
-        // 判断锁是否存在
-        NamespaceLock namespaceLock = namespaceLockService.findLock(namespaceId);
-        if (namespaceLock == null) {
-            try {
-                // 锁不存在尝试加锁
-                tryLock(namespaceId, currentUser);
-                //lock success
-            } catch (DataIntegrityViolationException e) {
-                // 保存失败，即锁定失败，唯一索引冲突
-                //lock fail
-                // 锁定失败，说明存在锁，查找到对应的锁记录
-                namespaceLock = namespaceLockService.findLock(namespaceId);
-                // 已存在锁，判断是否为管理员获取的锁
-                checkLock(namespace, namespaceLock, currentUser);
-            } catch (Exception e) {
-                logger.error("try lock error", e);
-                throw e;
-            }
-        } else {
-            //check lock owner is current user
-            // 已存在锁，检查是否为管理员获取的锁
-            checkLock(namespace, namespaceLock, currentUser);
-        }
-    }
-
-    /**
-     * 尝试获取锁
-     *
-     * @param namespaceId 命名空间id
-     * @param user        当前用户
-     */
-    private void tryLock(long namespaceId, String user) {
-        NamespaceLock lock = new NamespaceLock();
-        lock.setNamespaceId(namespaceId);
-        lock.setDataChangeCreatedBy(user);
-        lock.setDataChangeLastModifiedBy(user);
-        namespaceLockService.tryLock(lock);
+        // 获取锁，本地租约有效时不访问数据库，否则通过条件插入加锁
+        NamespaceLock namespaceLock = namespaceLockService.acquireLock(namespace.getId(), currentUser);
+        // 检查锁的拥有者是否为当前用户
+        checkLock(namespace, namespaceLock, currentUser);
     }
 
     /**
@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.adminservice.controller;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.service.InstanceCountService;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.common.dto.InstanceConfigDTO;
@@ -18,7 +19,6 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -43,10 +43,15 @@ public class InstanceConfigController {
       .trimResults();
   private final ReleaseService releaseService;
   private final InstanceService instanceService;
+  private final InstanceCountService instanceCountService;
 
-  public InstanceConfigController(final ReleaseService releaseService, final InstanceService instanceService) {
+  public InstanceConfigController(
+      final ReleaseService releaseService,
+      final InstanceService instanceService,
+      final InstanceCountService instanceCountService) {
     this.releaseService = releaseService;
     this.instanceService = instanceService;
+    this.instanceCountService = instanceCountService;
   }
 
   @GetMapping("/by-release")
@@ -101,17 +106,7 @@ public class InstanceConfigController {
                                               @RequestParam("clusterName") String clusterName,
                                               @RequestParam("namespaceName") String namespaceName,
                                               @RequestParam("releaseIds") String releaseIds) {
-    Set<Long> releaseIdSet = RELEASES_SPLITTER.splitToList(releaseIds).stream().map(Long::parseLong)
-        .collect(Collectors.toSet());
-
-    List<Release> releases = releaseService.findByReleaseIds(releaseIdSet);
-
-    if (CollectionUtils.isEmpty(releases)) {
-      throw new NotFoundException(String.format("releases not found for %s", releaseIds));
-    }
-
-    Set<String> releaseKeys = releases.stream().map(Release::getReleaseKey).collect(Collectors
-        .toSet());
+    Set<String> releaseKeys = findReleaseKeys(releaseIds);
 
     List<InstanceConfig> instanceConfigs = instanceService
         .findInstanceConfigsByNamespaceWithReleaseKeysNotIn(appId, clusterName, namespaceName,
@@ -182,8 +177,37 @@ public class InstanceConfigController {
   public long getInstancesCountByNamespace(@RequestParam("appId") String appId,
                                           @RequestParam("clusterName") String clusterName,
                                           @RequestParam("namespaceName") String namespaceName) {
-    Page<Instance> instances = instanceService.findInstancesByNamespace(appId, clusterName,
-        namespaceName, PageRequest.of(0, 1));
-    return instances.getTotalElements();
+    return instanceCountService.countInstances(appId, clusterName, namespaceName);
+  }
+
+  @GetMapping("/by-namespace-and-releases-not-in/count")
+  public long getInstancesCountByReleasesNotIn(@RequestParam("appId") String appId,
+                                               @RequestParam("clusterName") String clusterName,
+                                               @RequestParam("namespaceName") String namespaceName,
+                                               @RequestParam("releaseIds") String releaseIds) {
+    Set<String> releaseKeys = findReleaseKeys(releaseIds);
+
+    return instanceCountService.countInstancesWithReleaseKeysNotIn(appId, clusterName, namespaceName,
+        releaseKeys);
+  }
+
+  @GetMapping("/by-namespace/count-by-release-key")
+  public Map<String, Long> getInstancesCountByReleaseKey(@RequestParam("appId") String appId,
+                                                        @RequestParam("clusterName") String clusterName,
+                                                        @RequestParam("namespaceName") String namespaceName) {
+    return instanceCountService.countInstancesByReleaseKey(appId, clusterName, namespaceName);
+  }
+
+  private Set<String> findReleaseKeys(String releaseIds) {
+    Set<Long> releaseIdSet = RELEASES_SPLITTER.splitToList(releaseIds).stream().map(Long::parseLong)
+        .collect(Collectors.toSet());
+
+    List<Release> releases = releaseService.findByReleaseIds(releaseIdSet);
+
+    if (CollectionUtils.isEmpty(releases)) {
+      throw new NotFoundException(String.format("releases not found for %s", releaseIds));
+    }
+
+    return releases.stream().map(Release::getReleaseKey).collect(Collectors.toSet());
   }
 }
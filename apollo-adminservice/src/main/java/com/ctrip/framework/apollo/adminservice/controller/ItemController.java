@@ -14,11 +14,7 @@ import com.ctrip.framework.apollo.common.exception.NotFoundException;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 /**
  * adminservice的项处理API
@@ -152,15 +148,8 @@ public class ItemController {
     public List<ItemDTO> findDeletedItems(@PathVariable("appId") String appId,
                                           @PathVariable("clusterName") String clusterName,
                                           @PathVariable("namespaceName") String namespaceName) {
-        List<Commit> commits = commitService.find(appId, clusterName, namespaceName, null);
-        if (Objects.nonNull(commits)) {
-            List<Item> deletedItems = commits.stream()
-                    .map(item -> ConfigChangeContentBuilder.convertJsonString(item.getChangeSets()).getDeleteItems())
-                    .flatMap(Collection::stream)
-                    .collect(Collectors.toList());
-            return BeanUtils.batchTransform(ItemDTO.class, deletedItems);
-        }
-        return Collections.emptyList();
+        return BeanUtils.batchTransform(ItemDTO.class,
+                commitService.findDeletedItems(appId, clusterName, namespaceName));
     }
 
     @GetMapping("/items/{itemId}")
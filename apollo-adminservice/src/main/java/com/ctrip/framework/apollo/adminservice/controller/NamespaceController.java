@@ -1,14 +1,24 @@
 package com.ctrip.framework.apollo.adminservice.controller;
 
 import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.service.CommitService;
+import com.ctrip.framework.apollo.biz.service.ItemService;
 import com.ctrip.framework.apollo.biz.service.NamespaceService;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.common.constants.GsonType;
+import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceDetailDTO;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.NotFoundException;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
+import com.google.gson.Gson;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -18,10 +28,22 @@ import java.util.Map;
 @RestController
 public class NamespaceController {
 
-    private final NamespaceService namespaceService;
+    private static final Gson GSON = new Gson();
 
-    public NamespaceController(final NamespaceService namespaceService) {
+    private final NamespaceService namespaceService;
+    private final ItemService itemService;
+    private final ReleaseService releaseService;
+    private final CommitService commitService;
+
+    public NamespaceController(
+            final NamespaceService namespaceService,
+            final ItemService itemService,
+            final ReleaseService releaseService,
+            final CommitService commitService) {
         this.namespaceService = namespaceService;
+        this.itemService = itemService;
+        this.releaseService = releaseService;
+        this.commitService = commitService;
     }
 
     /**
@@ -69,6 +91,26 @@ public class NamespaceController {
         return BeanUtils.batchTransform(NamespaceDTO.class, groups);
     }
 
+    /**
+     * 获取集群下所有命名空间的详情，包含项、已删除的项和最后发布的配置
+     * 先查询组装完整的结果再写出，查询失败时返回错误状态码，而不是写出被截断的200响应
+     *
+     * @param appId       应用编号
+     * @param clusterName 集群名称
+     * @return 命名空间详情
+     */
+    @GetMapping("/apps/{appId}/clusters/{clusterName}/namespace-details")
+    public List<NamespaceDetailDTO> findDetails(@PathVariable("appId") String appId,
+                                                @PathVariable("clusterName") String clusterName) {
+        List<Namespace> namespaces = namespaceService.findNamespaces(appId, clusterName);
+
+        List<NamespaceDetailDTO> details = new ArrayList<>(namespaces.size());
+        for (Namespace namespace : namespaces) {
+            details.add(assembleNamespaceDetail(namespace));
+        }
+        return details;
+    }
+
     @GetMapping("/namespaces/{namespaceId}")
     public NamespaceDTO get(@PathVariable("namespaceId") Long namespaceId) {
         Namespace namespace = namespaceService.findOne(namespaceId);
@@ -111,5 +153,22 @@ public class NamespaceController {
         return namespaceService.namespacePublishInfo(appId);
     }
 
+    /**
+     * 组装命名空间详情
+     */
+    private NamespaceDetailDTO assembleNamespaceDetail(Namespace namespace) {
+        NamespaceDetailDTO detail = new NamespaceDetailDTO();
+        detail.setBaseInfo(BeanUtils.transform(NamespaceDTO.class, namespace));
+        detail.setItems(BeanUtils.batchTransform(ItemDTO.class, itemService.findItemsWithOrdered(namespace.getId())));
+        detail.setDeletedItems(BeanUtils.batchTransform(ItemDTO.class, commitService.findDeletedItems(
+                namespace.getAppId(), namespace.getClusterName(), namespace.getNamespaceName())));
+
+        Release latestRelease = releaseService.findLatestActiveRelease(namespace);
+        Map<String, String> releaseConfigurations = latestRelease == null ? null
+                : GSON.fromJson(latestRelease.getConfigurations(), GsonType.CONFIG);
+        detail.setReleaseConfigurations(releaseConfigurations == null
+                ? Collections.emptyMap() : releaseConfigurations);
+        return detail;
+    }
 
 }
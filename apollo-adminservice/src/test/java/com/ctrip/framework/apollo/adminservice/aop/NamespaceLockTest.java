@@ -15,10 +15,7 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
-import org.springframework.dao.DataIntegrityViolationException;
 
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -59,14 +56,13 @@ public class NamespaceLockTest {
 
     when(bizConfig.isNamespaceLockSwitchOff()).thenReturn(false);
     when(namespaceService.findOne(APP, CLUSTER, NAMESPACE)).thenReturn(mockNamespace());
-    when(namespaceLockService.findLock(anyLong())).thenReturn(null);
+    when(namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER)).thenReturn(mockNamespaceLock(CURRENT_USER));
 
     namespaceLockAspect.acquireLock(APP, CLUSTER, NAMESPACE, CURRENT_USER);
 
     verify(bizConfig).isNamespaceLockSwitchOff();
     verify(namespaceService).findOne(APP, CLUSTER, NAMESPACE);
-    verify(namespaceLockService).findLock(anyLong());
-    verify(namespaceLockService).tryLock(any());
+    verify(namespaceLockService).acquireLock(NAMESPACE_ID, CURRENT_USER);
 
   }
 
@@ -75,13 +71,13 @@ public class NamespaceLockTest {
 
     when(bizConfig.isNamespaceLockSwitchOff()).thenReturn(false);
     when(namespaceService.findOne(APP, CLUSTER, NAMESPACE)).thenReturn(mockNamespace());
-    when(namespaceLockService.findLock(NAMESPACE_ID)).thenReturn(mockNamespaceLock(ANOTHER_USER));
+    when(namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER)).thenReturn(mockNamespaceLock(ANOTHER_USER));
 
     namespaceLockAspect.acquireLock(APP, CLUSTER, NAMESPACE, CURRENT_USER);
 
     verify(bizConfig).isNamespaceLockSwitchOff();
     verify(namespaceService).findOne(APP, CLUSTER, NAMESPACE);
-    verify(namespaceLockService).findLock(NAMESPACE_ID);
+    verify(namespaceLockService).acquireLock(NAMESPACE_ID, CURRENT_USER);
   }
 
   @Test
@@ -89,13 +85,13 @@ public class NamespaceLockTest {
 
     when(bizConfig.isNamespaceLockSwitchOff()).thenReturn(false);
     when(namespaceService.findOne(APP, CLUSTER, NAMESPACE)).thenReturn(mockNamespace());
-    when(namespaceLockService.findLock(NAMESPACE_ID)).thenReturn(mockNamespaceLock(CURRENT_USER));
+    when(namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER)).thenReturn(mockNamespaceLock(CURRENT_USER));
 
     namespaceLockAspect.acquireLock(APP, CLUSTER, NAMESPACE, CURRENT_USER);
 
     verify(bizConfig).isNamespaceLockSwitchOff();
     verify(namespaceService).findOne(APP, CLUSTER, NAMESPACE);
-    verify(namespaceLockService).findLock(NAMESPACE_ID);
+    verify(namespaceLockService).acquireLock(NAMESPACE_ID, CURRENT_USER);
   }
 
   @Test
@@ -103,14 +99,13 @@ public class NamespaceLockTest {
 
     when(bizConfig.isNamespaceLockSwitchOff()).thenReturn(false);
     when(namespaceService.findOne(NAMESPACE_ID)).thenReturn(mockNamespace());
-    when(namespaceLockService.findLock(NAMESPACE_ID)).thenReturn(null);
+    when(namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER)).thenReturn(mockNamespaceLock(CURRENT_USER));
 
     namespaceLockAspect.acquireLock(NAMESPACE_ID, CURRENT_USER);
 
     verify(bizConfig).isNamespaceLockSwitchOff();
     verify(namespaceService).findOne(NAMESPACE_ID);
-    verify(namespaceLockService).findLock(NAMESPACE_ID);
-    verify(namespaceLockService).tryLock(any());
+    verify(namespaceLockService).acquireLock(NAMESPACE_ID, CURRENT_USER);
   }
 
   @Test(expected = ServiceException.class)
@@ -118,15 +113,13 @@ public class NamespaceLockTest {
 
     when(bizConfig.isNamespaceLockSwitchOff()).thenReturn(false);
     when(namespaceService.findOne(NAMESPACE_ID)).thenReturn(mockNamespace());
-    when(namespaceLockService.findLock(NAMESPACE_ID)).thenReturn(null);
-    when(namespaceLockService.tryLock(any())).thenThrow(DataIntegrityViolationException.class);
+    when(namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER)).thenReturn(null);
 
     namespaceLockAspect.acquireLock(NAMESPACE_ID, CURRENT_USER);
 
     verify(bizConfig).isNamespaceLockSwitchOff();
     verify(namespaceService).findOne(NAMESPACE_ID);
-    verify(namespaceLockService, times(2)).findLock(NAMESPACE_ID);
-    verify(namespaceLockService).tryLock(any());
+    verify(namespaceLockService).acquireLock(NAMESPACE_ID, CURRENT_USER);
 
   }
 
@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.adminservice.controller;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.service.InstanceCountService;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.common.dto.InstanceDTO;
@@ -21,14 +22,11 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -45,11 +43,15 @@ public class InstanceConfigControllerTest {
   @Mock
   private InstanceService instanceService;
 
+  @Mock
+  private InstanceCountService instanceCountService;
+
   private Pageable pageable;
 
   @Before
   public void setUp() throws Exception {
-    instanceConfigController = new InstanceConfigController(releaseService, instanceService);
+    instanceConfigController = new InstanceConfigController(releaseService, instanceService,
+        instanceCountService);
 
     pageable = PageRequest.of(0, 2);
   }
@@ -303,10 +305,8 @@ public class InstanceConfigControllerTest {
     String someClusterName = "someClusterName";
     String someNamespaceName = "someNamespaceName";
 
-    Page<Instance> instances = new PageImpl<>(Collections.emptyList(), pageable, 2);
-
-    when(instanceService.findInstancesByNamespace(eq(someAppId), eq(someClusterName),
-        eq(someNamespaceName), any(Pageable.class))).thenReturn(instances);
+    when(instanceCountService.countInstances(someAppId, someClusterName, someNamespaceName))
+        .thenReturn(2L);
 
     long result = instanceConfigController.getInstancesCountByNamespace(someAppId,
         someClusterName, someNamespaceName);
@@ -314,6 +314,32 @@ public class InstanceConfigControllerTest {
     assertEquals(2, result);
   }
 
+  @Test
+  public void testGetInstancesCountByReleasesNotIn() throws Exception {
+    String someAppId = "someAppId";
+    String someClusterName = "someClusterName";
+    String someNamespaceName = "someNamespaceName";
+    long someReleaseId = 1;
+    long anotherReleaseId = 2;
+    String someReleaseKey = "someReleaseKey";
+    String anotherReleaseKey = "anotherReleaseKey";
+
+    Release someRelease = new Release();
+    someRelease.setReleaseKey(someReleaseKey);
+    Release anotherRelease = new Release();
+    anotherRelease.setReleaseKey(anotherReleaseKey);
+
+    when(releaseService.findByReleaseIds(Sets.newHashSet(someReleaseId, anotherReleaseId)))
+        .thenReturn(Lists.newArrayList(someRelease, anotherRelease));
+    when(instanceCountService.countInstancesWithReleaseKeysNotIn(someAppId, someClusterName,
+        someNamespaceName, Sets.newHashSet(someReleaseKey, anotherReleaseKey))).thenReturn(3L);
+
+    long result = instanceConfigController.getInstancesCountByReleasesNotIn(someAppId,
+        someClusterName, someNamespaceName, Joiner.on(",").join(someReleaseId, anotherReleaseId));
+
+    assertEquals(3, result);
+  }
+
   private void verifyInstance(Instance instance, InstanceDTO instanceDTO) {
     assertEquals(instance.getId(), instanceDTO.getId());
     assertEquals(instance.getAppId(), instanceDTO.getAppId());
@@ -3,6 +3,8 @@ package com.ctrip.framework.apollo.biz.config;
 import com.ctrip.framework.apollo.biz.service.BizDBPropertySource;
 import com.ctrip.framework.apollo.common.config.RefreshableConfig;
 import com.ctrip.framework.apollo.common.config.RefreshablePropertySource;
+import com.ctrip.framework.apollo.core.ServiceNameConsts;
+import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
 import com.google.gson.Gson;
@@ -30,7 +32,10 @@ public class BizConfig extends RefreshableConfig {
      * 默认的项值长度限制
      */
     private static final int DEFAULT_ITEM_VALUE_LENGTH = 20000;
-    private static final int DEFAULT_APPNAMESPACE_CACHE_REBUILD_INTERVAL = 60; //60s
+    /**
+     * 应用命名空间缓存由变更记录增量刷新，全量重建只是兜底（如物理删除的数据）
+     */
+    private static final int DEFAULT_APPNAMESPACE_CACHE_REBUILD_INTERVAL = 3600; //3600s
     private static final int DEFAULT_GRAY_RELEASE_RULE_SCAN_INTERVAL = 60; //60s
     private static final int DEFAULT_APPNAMESPACE_CACHE_SCAN_INTERVAL = 1; //1s
     private static final int DEFAULT_ACCESSKEY_CACHE_SCAN_INTERVAL = 1; //1s
@@ -44,6 +49,19 @@ public class BizConfig extends RefreshableConfig {
     private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH = 100;
     private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI = 100;//100ms
     private static final int DEFAULT_LONG_POLLING_TIMEOUT = 60; //60s
+    private static final int DEFAULT_LONG_POLLING_SESSION_TTL = 300; //300s
+
+    /**
+     * 默认的发布消息压缩每批处理的消息内容（key）数量
+     */
+    private static final int DEFAULT_RELEASE_MESSAGE_COMPACTION_BATCH = 100;
+    private static final int DEFAULT_RELEASE_MESSAGE_COMPACTION_INTERVAL_IN_MS = 1000; //1000ms
+    private static final int DEFAULT_RELEASE_MESSAGE_COMPACTION_CATCH_UP_INTERVAL = 600; //600s
+    private static final int DEFAULT_NAMESPACE_LOCK_LEASE_TTL_IN_MS = 5000; //5000ms
+    private static final int DEFAULT_INSTANCE_COUNT_SCAN_INTERVAL = 10; //10s
+    private static final int DEFAULT_INSTANCE_COUNT_REBUILD_INTERVAL = 3600; //3600s
+    private static final int DEFAULT_CONFIG_SERVICE_WARM_UP_SIZE = 500;
+    private static final int DEFAULT_CONFIG_SERVICE_WARM_UP_TIMEOUT = 60; //60s
 
     private final Gson gson = new Gson();
 
@@ -56,6 +74,11 @@ public class BizConfig extends RefreshableConfig {
 
     private final BizDBPropertySource propertySource;
 
+    /**
+     * 热点配置的不可变快照，只在属性源发生变化后重建
+     */
+    private volatile BizConfigSnapshot snapshot;
+
     public BizConfig(final BizDBPropertySource propertySource) {
         this.propertySource = propertySource;
     }
@@ -65,6 +88,25 @@ public class BizConfig extends RefreshableConfig {
         return Collections.singletonList(propertySource);
     }
 
+    @Override
+    protected void onRefreshed() {
+        snapshot = new BizConfigSnapshot(this);
+    }
+
+    /**
+     * 获取热点配置的快照，请求路径上应该读取快照，避免每次都从环境中解析字符串
+     *
+     * @return 配置快照
+     */
+    public BizConfigSnapshot snapshot() {
+        BizConfigSnapshot current = snapshot;
+        if (current == null) {
+            current = new BizConfigSnapshot(this);
+            snapshot = current;
+        }
+        return current;
+    }
+
     /**
      * 获取eureka服务地址
      *
@@ -89,17 +131,36 @@ public class BizConfig extends RefreshableConfig {
     }
 
     public long longPollingTimeoutInMilli() {
+        return snapshot().longPollingTimeoutInMilli();
+    }
+
+    long loadLongPollingTimeoutInMilli() {
         int timeout = getIntProperty("long.polling.timeout", DEFAULT_LONG_POLLING_TIMEOUT);
         // java client's long polling timeout is 90 seconds, so server side long polling timeout must be less than 90
         return 1000 * checkInt(timeout, 1, 90, DEFAULT_LONG_POLLING_TIMEOUT);
     }
 
+    /**
+     * 长轮询会话的有效期，有效期内同一客户端的长轮询复用已解析的命名空间和 watch key
+     * 关联的公共命名空间变化后，最多延迟该时间生效
+     *
+     * @return 默认300s，0表示不使用会话
+     */
+    public int longPollingSessionTtl() {
+        int ttl = getIntProperty("long.polling.session.ttl", DEFAULT_LONG_POLLING_SESSION_TTL);
+        return checkInt(ttl, 0, 3600, DEFAULT_LONG_POLLING_SESSION_TTL);
+    }
+
     /**
      * 项键的长度限制，最小5，最大根据配置指定
      *
      * @return 处理后的值
      */
     public int itemKeyLengthLimit() {
+        return snapshot().itemKeyLengthLimit();
+    }
+
+    int loadItemKeyLengthLimit() {
         int limit = getIntProperty("item.key.length.limit", DEFAULT_ITEM_KEY_LENGTH);
         return checkInt(limit, 5, Integer.MAX_VALUE, DEFAULT_ITEM_KEY_LENGTH);
     }
@@ -110,6 +171,10 @@ public class BizConfig extends RefreshableConfig {
      * @return 处理后的值
      */
     public int itemValueLengthLimit() {
+        return snapshot().itemValueLengthLimit();
+    }
+
+    int loadItemValueLengthLimit() {
         int limit = getIntProperty("item.value.length.limit", DEFAULT_ITEM_VALUE_LENGTH);
         return checkInt(limit, 5, Integer.MAX_VALUE, DEFAULT_ITEM_VALUE_LENGTH);
     }
@@ -120,11 +185,22 @@ public class BizConfig extends RefreshableConfig {
      * @return 重写后的map
      */
     public Map<Long, Integer> namespaceValueLengthLimitOverride() {
+        return snapshot().namespaceValueLengthLimitOverride();
+    }
+
+    Map<Long, Integer> loadNamespaceValueLengthLimitOverride() {
         String namespaceValueLengthOverrideString = getValue("namespace.value.length.limit.override");
         Map<Long, Integer> namespaceValueLengthOverride = Maps.newHashMap();
         if (!Strings.isNullOrEmpty(namespaceValueLengthOverrideString)) {
-            namespaceValueLengthOverride =
-                    gson.fromJson(namespaceValueLengthOverrideString, NAMESPACE_VALUE_LENGTH_OVERRIDE_TYPE_REFERENCE);
+            try {
+                Map<Long, Integer> parsed =
+                        gson.fromJson(namespaceValueLengthOverrideString, NAMESPACE_VALUE_LENGTH_OVERRIDE_TYPE_REFERENCE);
+                if (parsed != null) {
+                    namespaceValueLengthOverride = parsed;
+                }
+            } catch (Throwable ex) {
+                Tracer.logError("Parse namespace.value.length.limit.override failed.", ex);
+            }
         }
 
         return namespaceValueLengthOverride;
@@ -136,6 +212,10 @@ public class BizConfig extends RefreshableConfig {
      * @return 默认关闭，true关闭，false开启
      */
     public boolean isNamespaceLockSwitchOff() {
+        return snapshot().isNamespaceLockSwitchOff();
+    }
+
+    boolean loadNamespaceLockSwitchOff() {
         return !getBooleanProperty("namespace.lock.switch", false);
     }
 
@@ -170,6 +250,15 @@ public class BizConfig extends RefreshableConfig {
         return TimeUnit.SECONDS;
     }
 
+    /**
+     * 应用命名空间缓存快照的文件路径，用于重启时快速预热，为空则不启用
+     *
+     * @return 快照文件路径
+     */
+    public String appNamespaceCacheSnapshotPath() {
+        return getValue("apollo.app-namespace-cache.snapshot.path", "");
+    }
+
     public int accessKeyCacheScanInterval() {
         int interval = getIntProperty("apollo.access-key-cache-scan.interval", DEFAULT_ACCESSKEY_CACHE_SCAN_INTERVAL);
         return checkInt(interval, 1, Integer.MAX_VALUE, DEFAULT_ACCESSKEY_CACHE_SCAN_INTERVAL);
@@ -213,6 +302,10 @@ public class BizConfig extends RefreshableConfig {
      * @return 默认100
      */
     public int releaseMessageNotificationBatch() {
+        return snapshot().releaseMessageNotificationBatch();
+    }
+
+    int loadReleaseMessageNotificationBatch() {
         int batch = getIntProperty("apollo.release-message.notification.batch",
                 DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH);
         return checkInt(batch, 1, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH);
@@ -224,17 +317,123 @@ public class BizConfig extends RefreshableConfig {
      * @return 默认100ms
      */
     public int releaseMessageNotificationBatchIntervalInMilli() {
+        return snapshot().releaseMessageNotificationBatchIntervalInMilli();
+    }
+
+    int loadReleaseMessageNotificationBatchIntervalInMilli() {
         int interval = getIntProperty("apollo.release-message.notification.batch.interval",
                 DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI);
         return checkInt(interval, 10, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI);
     }
 
+    /**
+     * 发布消息压缩每批处理的消息内容（key）数量
+     *
+     * @return 默认100
+     */
+    public int releaseMessageCompactionBatch() {
+        int batch = getIntProperty("apollo.release-message.compaction.batch",
+                DEFAULT_RELEASE_MESSAGE_COMPACTION_BATCH);
+        return checkInt(batch, 1, 1000, DEFAULT_RELEASE_MESSAGE_COMPACTION_BATCH);
+    }
+
+    /**
+     * 发布消息压缩的周期
+     *
+     * @return 默认1000ms
+     */
+    public int releaseMessageCompactionIntervalInMilli() {
+        int interval = getIntProperty("apollo.release-message.compaction.interval",
+                DEFAULT_RELEASE_MESSAGE_COMPACTION_INTERVAL_IN_MS);
+        return checkInt(interval, 100, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_COMPACTION_INTERVAL_IN_MS);
+    }
+
+    /**
+     * 是否执行发布消息压缩的补偿扫描，只有写发布消息的admin service需要执行，config service不重复扫描
+     *
+     * @return 当前是否为admin service
+     */
+    public boolean isReleaseMessageCompactionCatchUpEnabled() {
+        return ServiceNameConsts.APOLLO_ADMINSERVICE.equals(getValue("spring.application.name"));
+    }
+
+    /**
+     * 发布消息压缩补偿扫描的周期，用于补偿进程重启、事务未提交等原因遗漏的清理
+     *
+     * @return 默认600s
+     */
+    public int releaseMessageCompactionCatchUpInterval() {
+        int interval = getIntProperty("apollo.release-message.compaction.catch-up.interval",
+                DEFAULT_RELEASE_MESSAGE_COMPACTION_CATCH_UP_INTERVAL);
+        return checkInt(interval, 1, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_COMPACTION_CATCH_UP_INTERVAL);
+    }
+
+    public TimeUnit releaseMessageCompactionCatchUpIntervalTimeUnit() {
+        return TimeUnit.SECONDS;
+    }
+
+    /**
+     * 命名空间锁租约在本地缓存的有效期，有效期内同一用户重复修改不再访问数据库
+     * 多实例部署时，其它实例释放锁后本地租约最多延迟该时间失效
+     *
+     * @return 默认5000ms，0表示不缓存
+     */
+    public int namespaceLockLeaseTtlInMilli() {
+        int ttl = getIntProperty("namespace.lock.lease.ttl", DEFAULT_NAMESPACE_LOCK_LEASE_TTL_IN_MS);
+        return checkInt(ttl, 0, 60000, DEFAULT_NAMESPACE_LOCK_LEASE_TTL_IN_MS);
+    }
+
+    /**
+     * 实例数量聚合增量扫描实例配置的周期
+     *
+     * @return 默认10s
+     */
+    public int instanceCountScanInterval() {
+        int interval = getIntProperty("apollo.instance-count.scan.interval", DEFAULT_INSTANCE_COUNT_SCAN_INTERVAL);
+        return checkInt(interval, 1, Integer.MAX_VALUE, DEFAULT_INSTANCE_COUNT_SCAN_INTERVAL);
+    }
+
+    /**
+     * 实例数量聚合全量重建的周期，删除的实例配置无法增量发现，重建后生效
+     *
+     * @return 默认3600s
+     */
+    public int instanceCountRebuildInterval() {
+        int interval = getIntProperty("apollo.instance-count.rebuild.interval",
+                DEFAULT_INSTANCE_COUNT_REBUILD_INTERVAL);
+        return checkInt(interval, 60, Integer.MAX_VALUE, DEFAULT_INSTANCE_COUNT_REBUILD_INTERVAL);
+    }
+
+    /**
+     * config service 启动时预热缓存的命名空间数量，按有效实例数量从多到少选取，只在开启缓存时生效
+     *
+     * @return 默认500，0表示不预热
+     */
+    public int configServiceWarmUpSize() {
+        int size = getIntProperty("config-service.warm-up.size", DEFAULT_CONFIG_SERVICE_WARM_UP_SIZE);
+        return checkInt(size, 0, 100000, DEFAULT_CONFIG_SERVICE_WARM_UP_SIZE);
+    }
+
+    /**
+     * config service 启动时预热缓存的最长时间，超时后放弃剩余的命名空间，直接上报健康
+     *
+     * @return 默认60s
+     */
+    public int configServiceWarmUpTimeout() {
+        int timeout = getIntProperty("config-service.warm-up.timeout", DEFAULT_CONFIG_SERVICE_WARM_UP_TIMEOUT);
+        return checkInt(timeout, 1, Integer.MAX_VALUE, DEFAULT_CONFIG_SERVICE_WARM_UP_TIMEOUT);
+    }
+
     /**
      * 配置启用，默认false
      *
      * @return true启动
      */
     public boolean isConfigServiceCacheEnabled() {
+        return snapshot().isConfigServiceCacheEnabled();
+    }
+
+    boolean loadConfigServiceCacheEnabled() {
         return getBooleanProperty("config-service.cache.enabled", false);
     }
 
@@ -0,0 +1,68 @@
+package com.ctrip.framework.apollo.biz.config;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+/**
+ * 业务配置的不可变快照
+ * <p>
+ * 在 {@link BizConfig} 的属性源发生变化时整体重建，请求路径上直接读取解析好的字段，
+ * 不再每次通过 environment 查找并解析字符串
+ */
+public final class BizConfigSnapshot {
+
+    private final long longPollingTimeoutInMilli;
+    private final int itemKeyLengthLimit;
+    private final int itemValueLengthLimit;
+    private final Map<Long, Integer> namespaceValueLengthLimitOverride;
+    private final boolean namespaceLockSwitchOff;
+    private final int releaseMessageNotificationBatch;
+    private final int releaseMessageNotificationBatchIntervalInMilli;
+    private final boolean configServiceCacheEnabled;
+
+    BizConfigSnapshot(BizConfig bizConfig) {
+        this.longPollingTimeoutInMilli = bizConfig.loadLongPollingTimeoutInMilli();
+        this.itemKeyLengthLimit = bizConfig.loadItemKeyLengthLimit();
+        this.itemValueLengthLimit = bizConfig.loadItemValueLengthLimit();
+        this.namespaceValueLengthLimitOverride =
+                ImmutableMap.copyOf(bizConfig.loadNamespaceValueLengthLimitOverride());
+        this.namespaceLockSwitchOff = bizConfig.loadNamespaceLockSwitchOff();
+        this.releaseMessageNotificationBatch = bizConfig.loadReleaseMessageNotificationBatch();
+        this.releaseMessageNotificationBatchIntervalInMilli =
+                bizConfig.loadReleaseMessageNotificationBatchIntervalInMilli();
+        this.configServiceCacheEnabled = bizConfig.loadConfigServiceCacheEnabled();
+    }
+
+    public long longPollingTimeoutInMilli() {
+        return longPollingTimeoutInMilli;
+    }
+
+    public int itemKeyLengthLimit() {
+        return itemKeyLengthLimit;
+    }
+
+    public int itemValueLengthLimit() {
+        return itemValueLengthLimit;
+    }
+
+    public Map<Long, Integer> namespaceValueLengthLimitOverride() {
+        return namespaceValueLengthLimitOverride;
+    }
+
+    public boolean isNamespaceLockSwitchOff() {
+        return namespaceLockSwitchOff;
+    }
+
+    public int releaseMessageNotificationBatch() {
+        return releaseMessageNotificationBatch;
+    }
+
+    public int releaseMessageNotificationBatchIntervalInMilli() {
+        return releaseMessageNotificationBatchIntervalInMilli;
+    }
+
+    public boolean isConfigServiceCacheEnabled() {
+        return configServiceCacheEnabled;
+    }
+}
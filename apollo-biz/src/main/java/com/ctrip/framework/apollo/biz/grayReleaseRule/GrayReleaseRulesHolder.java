@@ -8,6 +8,7 @@ import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.repository.GrayReleaseRuleRepository;
 import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
 import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+import com.ctrip.framework.apollo.common.utils.CaseInsensitiveHashMap;
 import com.ctrip.framework.apollo.common.utils.GrayReleaseRuleItemTransformer;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
@@ -23,6 +24,7 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executors;
@@ -87,10 +89,12 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
 
     public GrayReleaseRulesHolder() {
         loadVersion = new AtomicLong();
+        // 键忽略大小写，值按自然顺序排序
         grayReleaseRuleCache = Multimaps.synchronizedSetMultimap(
-                TreeMultimap.create(String.CASE_INSENSITIVE_ORDER, Ordering.natural()));
+                Multimaps.newSetMultimap(new CaseInsensitiveHashMap<Collection<GrayReleaseRuleCache>>(),
+                        Sets::newTreeSet));
         reversedGrayReleaseRuleCache = Multimaps.synchronizedSetMultimap(
-                TreeMultimap.create(String.CASE_INSENSITIVE_ORDER, Ordering.natural()));
+                Multimaps.newSetMultimap(new CaseInsensitiveHashMap<Collection<Long>>(), Sets::newTreeSet));
         executorService = Executors.newScheduledThreadPool(
                 1, ApolloThreadFactory.create("GrayReleaseRulesHolder", true));
     }
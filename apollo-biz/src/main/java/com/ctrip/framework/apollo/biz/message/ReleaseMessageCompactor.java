@@ -0,0 +1,320 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 发布消息压缩服务
+ * <p>
+ * 同一个消息内容（key）只需要保留最新的一条消息，老消息由该服务在后台批量清理：
+ * 1）新发送的消息按消息内容合并到待压缩集合中，不会因为队列已满而丢弃；
+ * 2）每轮跨多个消息内容批量查询、批量删除，积压时自适应扩大每轮的批量；
+ * 3）admin service周期性增量补偿扫描，处理进程重启、事务未提交等原因遗漏的清理；
+ * 4）暴露表大小、待压缩数量、压缩延迟等指标。
+ */
+@Component
+public class ReleaseMessageCompactor implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReleaseMessageCompactor.class);
+
+    /**
+     * 每次查询、删除的消息数量
+     */
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    /**
+     * 积压时每轮批量最多扩大的倍数
+     */
+    private static final int MAX_BATCH_MULTIPLIER = 10;
+
+    /**
+     * 补偿扫描的启动延迟，避免和服务启动抢占数据库
+     */
+    private static final int CATCH_UP_INITIAL_DELAY_IN_SECONDS = 60;
+
+    private final ReleaseMessageRepository releaseMessageRepository;
+    private final BizConfig bizConfig;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 待压缩的消息，消息内容 -> 需要保留的最新消息
+     */
+    private final ConcurrentMap<String, PendingCompaction> pendingCompactions;
+
+    /**
+     * 压缩的定时任务
+     */
+    private final ScheduledExecutorService executorService;
+
+    /**
+     * 最近一次统计的表大小
+     */
+    private final AtomicLong tableSize;
+
+    /**
+     * 补偿扫描已处理的最大消息id，每次只扫描比它大的消息
+     */
+    private final AtomicLong maxIdScanned;
+
+    private Counter deletedCounter;
+
+    public ReleaseMessageCompactor(final ReleaseMessageRepository releaseMessageRepository,
+                                   final BizConfig bizConfig,
+                                   final MeterRegistry meterRegistry) {
+        this.releaseMessageRepository = releaseMessageRepository;
+        this.bizConfig = bizConfig;
+        this.meterRegistry = meterRegistry;
+        this.pendingCompactions = Maps.newConcurrentMap();
+        this.tableSize = new AtomicLong(-1);
+        this.maxIdScanned = new AtomicLong(0);
+        this.executorService = Executors.newScheduledThreadPool(1,
+                ApolloThreadFactory.create("ReleaseMessageCompactor", true));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        registerMetrics();
+
+        int compactionInterval = bizConfig.releaseMessageCompactionIntervalInMilli();
+        executorService.scheduleWithFixedDelay(() -> {
+            Transaction transaction = Tracer.newTransaction("Apollo.ReleaseMessageCompactor", "compact");
+            try {
+                compactPendingMessages();
+                transaction.setStatus(Transaction.SUCCESS);
+            } catch (Throwable ex) {
+                transaction.setStatus(ex);
+                logger.error("Compact release messages failed", ex);
+            } finally {
+                transaction.complete();
+            }
+        }, compactionInterval, compactionInterval, TimeUnit.MILLISECONDS);
+
+        // 只有写发布消息的admin service需要补偿扫描
+        if (!bizConfig.isReleaseMessageCompactionCatchUpEnabled()) {
+            return;
+        }
+        int catchUpInterval = bizConfig.releaseMessageCompactionCatchUpInterval();
+        TimeUnit catchUpIntervalTimeUnit = bizConfig.releaseMessageCompactionCatchUpIntervalTimeUnit();
+        // 启动延迟加上随机抖动，错开多个admin service节点的扫描
+        long catchUpInitialDelay = catchUpIntervalTimeUnit.convert(CATCH_UP_INITIAL_DELAY_IN_SECONDS, TimeUnit.SECONDS)
+                + ThreadLocalRandom.current().nextInt(catchUpInterval);
+        executorService.scheduleWithFixedDelay(() -> {
+            Transaction transaction = Tracer.newTransaction("Apollo.ReleaseMessageCompactor", "catchUp");
+            try {
+                catchUp();
+                transaction.setStatus(Transaction.SUCCESS);
+            } catch (Throwable ex) {
+                transaction.setStatus(ex);
+                logger.error("Catch up release message compaction failed", ex);
+            } finally {
+                transaction.complete();
+            }
+        }, catchUpInitialDelay, catchUpInterval, catchUpIntervalTimeUnit);
+    }
+
+    @Override
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 提交待压缩的消息，同一消息内容只保留最大的id，不会阻塞也不会丢弃
+     *
+     * @param message 消息内容
+     * @param id      消息id，小于该id的相同内容消息会被清理
+     */
+    public void submit(String message, long id) {
+        pendingCompactions.merge(message, new PendingCompaction(id, System.currentTimeMillis()),
+                PendingCompaction::merge);
+    }
+
+    /**
+     * @return 待压缩的消息内容数量
+     */
+    public int pendingCount() {
+        return pendingCompactions.size();
+    }
+
+    /**
+     * @return 最早的待压缩消息已等待的毫秒数，没有待压缩消息时为0
+     */
+    public long lagInMillis() {
+        long oldest = Long.MAX_VALUE;
+        for (PendingCompaction pending : pendingCompactions.values()) {
+            oldest = Math.min(oldest, pending.submitTime);
+        }
+        return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    /**
+     * @return 最近一次补偿扫描统计的表大小，尚未统计时为-1
+     */
+    public long tableSize() {
+        return tableSize.get();
+    }
+
+    /**
+     * 压缩所有待压缩的消息，积压时自适应扩大每轮的批量
+     */
+    void compactPendingMessages() {
+        int baseBatch = bizConfig.releaseMessageCompactionBatch();
+        int batch = baseBatch;
+        while (!pendingCompactions.isEmpty() && !Thread.currentThread().isInterrupted()) {
+            compact(drain(batch));
+            // 仍有积压，则扩大下一轮的批量
+            if (pendingCompactions.size() > batch) {
+                batch = Math.min(batch * 2, baseBatch * MAX_BATCH_MULTIPLIER);
+            }
+        }
+    }
+
+    /**
+     * 增量补偿扫描，找出上次扫描后出现过的消息内容，提交压缩，并统计表大小
+     * <p>
+     * 首次扫描覆盖全表，之后只扫描比已处理的最大id更大的消息
+     */
+    void catchUp() {
+        ReleaseMessage latest = releaseMessageRepository.findTopByOrderByIdDesc();
+        long scannedId = maxIdScanned.get();
+        if (latest != null && latest.getId() > scannedId) {
+            List<Object[]> latestMessages = releaseMessageRepository
+                    .findLatestReleaseMessagesGroupByMessagesInRange(scannedId, latest.getId());
+            for (Object[] o : latestMessages) {
+                try {
+                    submit((String) o[0], (Long) o[1]);
+                } catch (Exception ex) {
+                    Tracer.logError("Parsing LatestReleaseMessagesGroupByMessagesInRange failed", ex);
+                }
+            }
+            maxIdScanned.set(latest.getId());
+            Tracer.logEvent("Apollo.ReleaseMessageCompactor.CatchUp", String.valueOf(latestMessages.size()));
+        }
+        tableSize.set(releaseMessageRepository.count());
+    }
+
+    /**
+     * 取出最多 batch 个待压缩的消息
+     */
+    private Map<String, Long> drain(int batch) {
+        Map<String, Long> drained = Maps.newHashMapWithExpectedSize(batch);
+        Iterator<Map.Entry<String, PendingCompaction>> iterator = pendingCompactions.entrySet().iterator();
+        while (iterator.hasNext() && drained.size() < batch) {
+            Map.Entry<String, PendingCompaction> entry = iterator.next();
+            // 只有未被并发更新时才移除，否则留到下一轮
+            if (pendingCompactions.remove(entry.getKey(), entry.getValue())) {
+                drained.put(entry.getKey(), entry.getValue().id);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * 批量清理一批消息内容的老消息
+     *
+     * @param latestIds 消息内容 -> 需要保留的最新消息id
+     */
+    private void compact(Map<String, Long> latestIds) {
+        if (latestIds.isEmpty()) {
+            return;
+        }
+        // 仔细检查发布消息是否回滚，只清理最新消息确实存在的消息内容
+        // 因为发送消息的事务可能回滚，此时不能把老消息删掉
+        Map<String, Long> targets = Maps.newHashMapWithExpectedSize(latestIds.size());
+        for (ReleaseMessage existing : releaseMessageRepository.findAllById(latestIds.values())) {
+            if (Objects.equals(latestIds.get(existing.getMessage()), existing.getId())) {
+                targets.put(existing.getMessage(), existing.getId());
+            }
+        }
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        long maxId = Collections.max(targets.values());
+        long cursor = 0;
+        boolean hasMore = true;
+        while (hasMore && !Thread.currentThread().isInterrupted()) {
+            List<ReleaseMessage> messages = releaseMessageRepository
+                    .findFirst500ByMessageInAndIdGreaterThanAndIdLessThanOrderByIdAsc(targets.keySet(), cursor, maxId);
+            if (CollectionUtils.isEmpty(messages)) {
+                return;
+            }
+            List<Long> toDelete = Lists.newArrayListWithCapacity(messages.size());
+            for (ReleaseMessage message : messages) {
+                Long latestId = targets.get(message.getMessage());
+                if (latestId != null && message.getId() < latestId) {
+                    toDelete.add(message.getId());
+                }
+            }
+            if (!toDelete.isEmpty()) {
+                int deleted = releaseMessageRepository.batchDelete(toDelete);
+                if (deletedCounter != null) {
+                    deletedCounter.increment(deleted);
+                }
+                Tracer.logEvent("Apollo.ReleaseMessageCompactor.Deleted", String.valueOf(deleted));
+            }
+            cursor = messages.get(messages.size() - 1).getId();
+            hasMore = messages.size() == DELETE_BATCH_SIZE;
+        }
+    }
+
+    private void registerMetrics() {
+        if (meterRegistry == null) {
+            return;
+        }
+        meterRegistry.gauge("apollo.release-message.table.size", tableSize);
+        meterRegistry.gauge("apollo.release-message.compaction.pending", this,
+                ReleaseMessageCompactor::pendingCount);
+        meterRegistry.gauge("apollo.release-message.compaction.lag", this,
+                ReleaseMessageCompactor::lagInMillis);
+        deletedCounter = meterRegistry.counter("apollo.release-message.compaction.deleted");
+    }
+
+    /**
+     * 待压缩的消息
+     */
+    private static class PendingCompaction {
+        /**
+         * 需要保留的最新消息id
+         */
+        private final long id;
+        /**
+         * 最早提交的时间
+         */
+        private final long submitTime;
+
+        PendingCompaction(long id, long submitTime) {
+            this.id = id;
+            this.submitTime = submitTime;
+        }
+
+        PendingCompaction merge(PendingCompaction other) {
+            return new PendingCompaction(Math.max(id, other.id), Math.min(submitTime, other.submitTime));
+        }
+    }
+}
@@ -4,7 +4,9 @@ import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
@@ -46,6 +48,19 @@ public interface AppNamespaceRepository extends PagingAndSortingRepository<AppNa
      */
     List<AppNamespace> findFirst500ByIdGreaterThanOrderByIdAsc(long id);
 
+    /**
+     * 按 (最后修改时间, id) 增量拉取500条发生变化的应用命名空间，包含已删除的记录，用于缓存的增量刷新
+     *
+     * @param lastModifiedTime 上次拉取到的最后修改时间
+     * @param id               上次拉取到的id，最后修改时间相同时从该id之后开始
+     * @return 500条数据，按最后修改时间、id升序
+     */
+    @Query(value = "SELECT * FROM `AppNamespace` WHERE `DataChange_LastTime` > :lastModifiedTime " +
+            "OR (`DataChange_LastTime` = :lastModifiedTime AND `Id` > :id) " +
+            "ORDER BY `DataChange_LastTime` ASC, `Id` ASC LIMIT 500", nativeQuery = true)
+    List<AppNamespace> findFirst500ChangedAfter(@Param("lastModifiedTime") Date lastModifiedTime,
+                                                @Param("id") long id);
+
     @Modifying
     @Query("UPDATE AppNamespace SET IsDeleted=1,DataChange_LastModifiedBy = ?2 WHERE AppId=?1")
     int batchDeleteByAppId(String appId, String operator);
@@ -37,6 +37,51 @@ public interface InstanceConfigRepository extends PagingAndSortingRepository<Ins
     List<InstanceConfig> findByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfterAndReleaseKeyNotIn(
             String appId, String clusterName, String namespaceName, Date validDate, Set<String> releaseKey);
 
+    /**
+     * 按主键顺序分页查找命名空间下的有效实例配置
+     *
+     * @param appId         配置的应用编号
+     * @param clusterName   配置的集群名称
+     * @param namespaceName 配置的命名空间名称
+     * @param validDate     有效时间，修改时间在这之前的实例配置已失效
+     * @param id            上一页最后一条记录的主键
+     * @param pageable      分页，只使用页大小
+     * @return 实例配置
+     */
+    @Query("select c from InstanceConfig c where c.configAppId = :appId and c.configClusterName = :clusterName"
+            + " and c.configNamespaceName = :namespaceName and c.dataChangeLastModifiedTime > :validDate"
+            + " and c.id > :id order by c.id")
+    List<InstanceConfig> findActiveByNamespaceAndIdGreaterThan(
+            @Param("appId") String appId, @Param("clusterName") String clusterName,
+            @Param("namespaceName") String namespaceName, @Param("validDate") Date validDate,
+            @Param("id") long id, Pageable pageable);
+
+    /**
+     * 按（修改时间，主键）顺序分页查找修改时间在给定位置之后的实例配置
+     *
+     * @param modifiedTime 上一页最后一条记录的修改时间
+     * @param id           上一页最后一条记录的主键
+     * @param pageable     分页，只使用页大小
+     * @return 实例配置
+     */
+    @Query("select c from InstanceConfig c where c.dataChangeLastModifiedTime > :modifiedTime"
+            + " or (c.dataChangeLastModifiedTime = :modifiedTime and c.id > :id)"
+            + " order by c.dataChangeLastModifiedTime, c.id")
+    List<InstanceConfig> findModifiedAfter(@Param("modifiedTime") Date modifiedTime, @Param("id") long id,
+                                           Pageable pageable);
+
+    /**
+     * 按有效实例数量从多到少查找命名空间
+     *
+     * @param validDate 有效时间，修改时间在这之前的实例配置已失效
+     * @param pageable  分页，只使用页大小
+     * @return 配置的应用编号、集群名称、命名空间名称
+     */
+    @Query("select c.configAppId, c.configClusterName, c.configNamespaceName from InstanceConfig c"
+            + " where c.dataChangeLastModifiedTime > :validDate"
+            + " group by c.configAppId, c.configClusterName, c.configNamespaceName order by count(c) desc")
+    List<Object[]> findMostUsedNamespaces(@Param("validDate") Date validDate, Pageable pageable);
+
     /**
      * 删除实例的相关配置
      */
@@ -1,7 +1,13 @@
 package com.ctrip.framework.apollo.biz.repository;
 
 import com.ctrip.framework.apollo.biz.entity.NamespaceLock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
 
 /**
  * 命名空间锁数据层
@@ -24,4 +30,23 @@ public interface NamespaceLockRepository extends PagingAndSortingRepository<Name
      */
     Long deleteByNamespaceId(Long namespaceId);
 
+    /**
+     * 锁不存在时加锁，一条语句完成判断和插入
+     * 并发插入时仍可能触发唯一索引冲突，由调用方处理
+     *
+     * @param namespaceId 命名空间id
+     * @param operator    加锁人
+     * @param now         当前时间
+     * @return 插入的行数，1为加锁成功，0为锁已存在
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO NamespaceLock (NamespaceId, DataChange_CreatedBy, DataChange_CreatedTime, "
+            + "DataChange_LastModifiedBy, DataChange_LastTime, IsDeleted) "
+            + "SELECT :namespaceId, :operator, :now, :operator, :now, 0 FROM DUAL "
+            + "WHERE NOT EXISTS (SELECT 1 FROM NamespaceLock WHERE NamespaceId = :namespaceId)",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("namespaceId") long namespaceId, @Param("operator") String operator,
+                       @Param("now") Date now);
+
 }
@@ -1,9 +1,11 @@
 package com.ctrip.framework.apollo.biz.repository;
 
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
 import java.util.List;
@@ -49,4 +51,37 @@ public interface ReleaseMessageRepository extends PagingAndSortingRepository<Rel
 
     @Query("select message, max(id) as id from ReleaseMessage where message in :messages group by message")
     List<Object[]> findLatestReleaseMessagesGroupByMessages(@Param("messages") Collection<String> messages);
+
+    /**
+     * 获取一批消息内容在 (fromId, toId) 区间内的头500条消息，按照 id 升序，用于跨消息内容的批量清理
+     *
+     * @param messages 消息内容
+     * @param fromId   起始id（不包含）
+     * @param toId     结束id（不包含）
+     * @return 500条消息
+     */
+    List<ReleaseMessage> findFirst500ByMessageInAndIdGreaterThanAndIdLessThanOrderByIdAsc(
+            Collection<String> messages, long fromId, long toId);
+
+    /**
+     * 查找 (fromId, toId] 区间内出现过的消息内容及其最大id，用于增量补偿扫描
+     *
+     * @param fromId 起始id（不包含）
+     * @param toId   结束id（包含）
+     * @return message 与 max(id) 的数组
+     */
+    @Query("select message, max(id) as id from ReleaseMessage where id > :fromId and id <= :toId group by message")
+    List<Object[]> findLatestReleaseMessagesGroupByMessagesInRange(@Param("fromId") long fromId,
+                                                                  @Param("toId") long toId);
+
+    /**
+     * 根据id批量删除消息
+     *
+     * @param ids 消息id
+     * @return 删除的数量
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from ReleaseMessage where id in :ids")
+    int batchDelete(@Param("ids") Collection<Long> ids);
 }
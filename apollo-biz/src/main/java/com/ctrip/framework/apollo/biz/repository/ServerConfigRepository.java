@@ -10,4 +10,11 @@ import org.springframework.data.repository.PagingAndSortingRepository;
  */
 public interface ServerConfigRepository extends PagingAndSortingRepository<ServerConfig, Long> {
     ServerConfig findTopByKeyAndCluster(String key, String cluster);
+
+    /**
+     * 获取最后修改的服务配置，用于变更跟踪
+     *
+     * @return 最后修改的服务配置
+     */
+    ServerConfig findTopByOrderByDataChangeLastModifiedTimeDesc();
 }
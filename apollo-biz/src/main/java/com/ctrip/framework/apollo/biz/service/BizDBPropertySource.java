@@ -28,6 +28,16 @@ public class BizDBPropertySource extends RefreshablePropertySource {
     @Autowired
     private ServerConfigRepository serverConfigRepository;
 
+    /**
+     * 上次刷新时的变更标记，由最后修改时间和记录数组成，删除记录时记录数会变化
+     */
+    private volatile String lastChangeMarker;
+
+    /**
+     * 最近一次检查到的变更标记
+     */
+    private volatile String currentChangeMarker;
+
     public BizDBPropertySource(String name, Map<String, Object> source) {
         super(name, source);
     }
@@ -45,8 +55,22 @@ public class BizDBPropertySource extends RefreshablePropertySource {
         return Foundation.server().getDataCenter();
     }
 
+    /**
+     * 基于 ServerConfig 的最后修改时间和记录数跟踪变更，无变化时不做全量加载
+     */
+    @Override
+    protected boolean isChanged() {
+        ServerConfig latest = serverConfigRepository.findTopByOrderByDataChangeLastModifiedTimeDesc();
+        long lastModifiedTime = latest == null || latest.getDataChangeLastModifiedTime() == null
+                ? 0 : latest.getDataChangeLastModifiedTime().getTime();
+        currentChangeMarker = lastModifiedTime + "-" + serverConfigRepository.count();
+        return !Objects.equals(currentChangeMarker, lastChangeMarker);
+    }
+
     @Override
     protected void refresh() {
+        // 先记录变更标记，刷新期间发生的修改会在下次检查时被发现
+        String changeMarker = currentChangeMarker;
         Iterable<ServerConfig> dbConfigs = serverConfigRepository.findAll();
         Map<String, Object> newConfigs = Maps.newHashMap();
 
@@ -92,6 +116,7 @@ public class BizDBPropertySource extends RefreshablePropertySource {
 
         }
 
+        lastChangeMarker = changeMarker;
     }
 
 }
@@ -1,12 +1,18 @@
 package com.ctrip.framework.apollo.biz.service;
 
 import com.ctrip.framework.apollo.biz.entity.Commit;
+import com.ctrip.framework.apollo.biz.entity.Item;
 import com.ctrip.framework.apollo.biz.repository.CommitRepository;
+import com.ctrip.framework.apollo.biz.utils.ConfigChangeContentBuilder;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * 变更记录保存
@@ -38,6 +44,25 @@ public class CommitService {
                 namespaceName, page);
     }
 
+    /**
+     * 从变更记录中查找命名空间已删除的项
+     *
+     * @param appId         应用编号
+     * @param clusterName   集群名称
+     * @param namespaceName 命名空间名称
+     * @return 已删除的项，按变更记录从新到旧排列
+     */
+    public List<Item> findDeletedItems(String appId, String clusterName, String namespaceName) {
+        List<Commit> commits = find(appId, clusterName, namespaceName, null);
+        if (Objects.isNull(commits)) {
+            return Collections.emptyList();
+        }
+        return commits.stream()
+                .map(commit -> ConfigChangeContentBuilder.convertJsonString(commit.getChangeSets()).getDeleteItems())
+                .flatMap(Collection::stream)
+                .collect(Collectors.toList());
+    }
+
     /**
      * 批量删除指定集群的命名空间的变更记录
      */
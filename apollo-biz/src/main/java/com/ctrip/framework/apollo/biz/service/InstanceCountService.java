@@ -0,0 +1,314 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
+import com.ctrip.framework.apollo.biz.repository.InstanceConfigRepository;
+import com.ctrip.framework.apollo.common.exception.ServiceException;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 实例数量聚合服务
+ * <p>
+ * 按命名空间在内存中维护实例数量（按发布key计数），发布页的实例数量、灰度进度不需要再分页关联查询实例表：
+ * 1）命名空间第一次被查询时全量加载一次有效实例配置，之后只读内存；
+ * 2）实例配置由 config service 上报写入，这里定期按修改时间增量扫描，只更新已加载的命名空间；
+ * 3）超过有效期（1天+1小时）没有上报的实例在每轮扫描后移出计数；
+ * 4）删除、切换集群的实例配置无法增量发现，按 {@link BizConfig#instanceCountRebuildInterval()} 周期重新加载。
+ * <p>
+ * 没有查询时不会启动扫描，config service 中不产生额外开销。
+ */
+@Service
+public class InstanceCountService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstanceCountService.class);
+
+    private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+
+    /**
+     * 实例配置的有效期，和 {@link InstanceService} 保持一致
+     */
+    private static final long VALID_PERIOD_IN_MILLI = TimeUnit.HOURS.toMillis(25);
+
+    /**
+     * 每轮增量扫描都回退一段时间，覆盖服务器时间误差和扫描时尚未提交的上报
+     */
+    private static final long SCAN_LOOKBACK_IN_MILLI = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * 每次查询的实例配置数量
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * 最多聚合多少个命名空间
+     */
+    private static final int MAX_NAMESPACES = 1000;
+
+    private final InstanceConfigRepository instanceConfigRepository;
+    private final BizConfig bizConfig;
+
+    /**
+     * appId+cluster+namespace -> 实例数量
+     */
+    private final Cache<String, NamespaceInstanceCounts> namespaceInstanceCounts;
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    /**
+     * 已扫描到的最大修改时间
+     */
+    private volatile Date scannedModifiedTime;
+
+    private ScheduledExecutorService scanExecutor;
+
+    public InstanceCountService(final InstanceConfigRepository instanceConfigRepository,
+                                final BizConfig bizConfig) {
+        this.instanceConfigRepository = instanceConfigRepository;
+        this.bizConfig = bizConfig;
+        this.namespaceInstanceCounts = CacheBuilder.newBuilder()
+                .maximumSize(MAX_NAMESPACES)
+                .expireAfterWrite(bizConfig.instanceCountRebuildInterval(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 查询命名空间的有效实例数量
+     *
+     * @param appId         配置的应用编号
+     * @param clusterName   配置的集群名称
+     * @param namespaceName 配置的命名空间名称
+     * @return 实例数量
+     */
+    public long countInstances(String appId, String clusterName, String namespaceName) {
+        return getOrLoad(appId, clusterName, namespaceName).count();
+    }
+
+    /**
+     * 查询命名空间下还没有使用给定发布的有效实例数量，用于展示灰度、全量发布的进度
+     *
+     * @param appId         配置的应用编号
+     * @param clusterName   配置的集群名称
+     * @param namespaceName 配置的命名空间名称
+     * @param releaseKeys   发布key
+     * @return 实例数量
+     */
+    public long countInstancesWithReleaseKeysNotIn(String appId, String clusterName, String namespaceName,
+                                                   Collection<String> releaseKeys) {
+        return getOrLoad(appId, clusterName, namespaceName).countWithReleaseKeysNotIn(releaseKeys);
+    }
+
+    /**
+     * 查询命名空间下每个发布key的有效实例数量
+     *
+     * @param appId         配置的应用编号
+     * @param clusterName   配置的集群名称
+     * @param namespaceName 配置的命名空间名称
+     * @return 发布key -> 实例数量
+     */
+    public Map<String, Long> countInstancesByReleaseKey(String appId, String clusterName, String namespaceName) {
+        return getOrLoad(appId, clusterName, namespaceName).countByReleaseKey();
+    }
+
+    @Override
+    public void destroy() {
+        if (scanExecutor != null) {
+            scanExecutor.shutdownNow();
+        }
+    }
+
+    private NamespaceInstanceCounts getOrLoad(String appId, String clusterName, String namespaceName) {
+        startIfNecessary();
+        String key = STRING_JOINER.join(appId, clusterName, namespaceName);
+        try {
+            // 同一个命名空间并发查询时只加载一次
+            return namespaceInstanceCounts.get(key, () -> load(appId, clusterName, namespaceName));
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            throw new ServiceException("Load instance counts failed for " + key, ex);
+        }
+    }
+
+    private NamespaceInstanceCounts load(String appId, String clusterName, String namespaceName) {
+        Transaction transaction = Tracer.newTransaction("Apollo.InstanceCountService", "load");
+        try {
+            NamespaceInstanceCounts counts = new NamespaceInstanceCounts();
+            Date validDate = new Date(System.currentTimeMillis() - VALID_PERIOD_IN_MILLI);
+            long id = 0;
+            List<InstanceConfig> instanceConfigs;
+            do {
+                instanceConfigs = instanceConfigRepository.findActiveByNamespaceAndIdGreaterThan(appId, clusterName,
+                        namespaceName, validDate, id, PageRequest.of(0, BATCH_SIZE));
+                for (InstanceConfig instanceConfig : instanceConfigs) {
+                    counts.update(instanceConfig);
+                    id = instanceConfig.getId();
+                }
+            } while (instanceConfigs.size() == BATCH_SIZE);
+            transaction.setStatus(Transaction.SUCCESS);
+            return counts;
+        } catch (RuntimeException ex) {
+            transaction.setStatus(ex);
+            throw ex;
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    private void startIfNecessary() {
+        if (started.get() || !started.compareAndSet(false, true)) {
+            return;
+        }
+        // 在第一次加载之前确定扫描起点，加载期间的上报由增量扫描补上
+        scannedModifiedTime = new Date();
+
+        int interval = bizConfig.instanceCountScanInterval();
+        scanExecutor = Executors.newSingleThreadScheduledExecutor(
+                ApolloThreadFactory.create("InstanceCountService", true));
+        scanExecutor.scheduleWithFixedDelay(() -> {
+            Transaction transaction = Tracer.newTransaction("Apollo.InstanceCountService", "scan");
+            try {
+                scan();
+                transaction.setStatus(Transaction.SUCCESS);
+            } catch (Throwable ex) {
+                transaction.setStatus(ex);
+                logger.error("Scan instance configs failed", ex);
+            } finally {
+                transaction.complete();
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 增量扫描一轮，更新已加载的命名空间，并移除过期的实例
+     */
+    synchronized void scan() {
+        ConcurrentMap<String, NamespaceInstanceCounts> loaded = namespaceInstanceCounts.asMap();
+
+        Date modifiedTime = new Date(scannedModifiedTime.getTime() - SCAN_LOOKBACK_IN_MILLI);
+        Date maxModifiedTime = scannedModifiedTime;
+        long id = 0;
+        List<InstanceConfig> instanceConfigs;
+        do {
+            instanceConfigs = instanceConfigRepository.findModifiedAfter(modifiedTime, id,
+                    PageRequest.of(0, BATCH_SIZE));
+            for (InstanceConfig instanceConfig : instanceConfigs) {
+                NamespaceInstanceCounts counts = loaded.get(STRING_JOINER.join(instanceConfig.getConfigAppId(),
+                        instanceConfig.getConfigClusterName(), instanceConfig.getConfigNamespaceName()));
+                if (counts != null) {
+                    counts.update(instanceConfig);
+                }
+                modifiedTime = instanceConfig.getDataChangeLastModifiedTime();
+                id = instanceConfig.getId();
+                if (modifiedTime.after(maxModifiedTime)) {
+                    maxModifiedTime = modifiedTime;
+                }
+            }
+        } while (instanceConfigs.size() == BATCH_SIZE);
+        scannedModifiedTime = maxModifiedTime;
+
+        long validTime = System.currentTimeMillis() - VALID_PERIOD_IN_MILLI;
+        for (NamespaceInstanceCounts counts : loaded.values()) {
+            counts.expire(validTime);
+        }
+    }
+
+    /**
+     * 一个命名空间的实例数量
+     */
+    private static class NamespaceInstanceCounts {
+
+        /**
+         * 实例配置id -> 实例配置的状态
+         */
+        private final Map<Long, InstanceConfigState> instanceConfigs = Maps.newHashMap();
+
+        /**
+         * 发布key -> 实例数量
+         */
+        private final Map<String, Long> releaseKeyCounts = Maps.newHashMap();
+
+        /**
+         * 更新实例配置，重复扫描或者乱序到达的旧记录被忽略
+         */
+        synchronized void update(InstanceConfig instanceConfig) {
+            long modifiedTime = instanceConfig.getDataChangeLastModifiedTime().getTime();
+            InstanceConfigState previous = instanceConfigs.get(instanceConfig.getId());
+            if (previous != null) {
+                if (previous.modifiedTime > modifiedTime) {
+                    return;
+                }
+                decrease(previous.releaseKey);
+            }
+            instanceConfigs.put(instanceConfig.getId(),
+                    new InstanceConfigState(instanceConfig.getReleaseKey(), modifiedTime));
+            releaseKeyCounts.merge(instanceConfig.getReleaseKey(), 1L, Long::sum);
+        }
+
+        synchronized void expire(long validTime) {
+            Iterator<InstanceConfigState> iterator = instanceConfigs.values().iterator();
+            while (iterator.hasNext()) {
+                InstanceConfigState state = iterator.next();
+                if (state.modifiedTime <= validTime) {
+                    iterator.remove();
+                    decrease(state.releaseKey);
+                }
+            }
+        }
+
+        synchronized long count() {
+            return instanceConfigs.size();
+        }
+
+        synchronized long countWithReleaseKeysNotIn(Collection<String> releaseKeys) {
+            long count = instanceConfigs.size();
+            for (String releaseKey : releaseKeys) {
+                count -= releaseKeyCounts.getOrDefault(releaseKey, 0L);
+            }
+            return count;
+        }
+
+        synchronized Map<String, Long> countByReleaseKey() {
+            return Maps.newHashMap(releaseKeyCounts);
+        }
+
+        private void decrease(String releaseKey) {
+            releaseKeyCounts.computeIfPresent(releaseKey, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * 实例配置的状态，不可变
+     */
+    private static class InstanceConfigState {
+        private final String releaseKey;
+        private final long modifiedTime;
+
+        InstanceConfigState(String releaseKey, long modifiedTime) {
+            this.releaseKey = releaseKey;
+            this.modifiedTime = modifiedTime;
+        }
+    }
+}
@@ -4,10 +4,12 @@ import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.repository.InstanceConfigRepository;
 import com.ctrip.framework.apollo.biz.repository.InstanceRepository;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -81,6 +83,23 @@ public class InstanceService {
                 instanceId, configAppId, configNamespaceName);
     }
 
+    /**
+     * 查找有效实例最多的命名空间，用于 config service 启动时预热缓存
+     *
+     * @param limit 最多返回的数量
+     * @return 命名空间的发布消息key（appId+cluster+namespace），按有效实例数量从多到少排列
+     */
+    public List<String> findMostUsedNamespaceKeys(int limit) {
+        List<Object[]> namespaces = instanceConfigRepository.findMostUsedNamespaces(getValidInstanceConfigDate(),
+                PageRequest.of(0, limit));
+        List<String> keys = Lists.newArrayListWithCapacity(namespaces.size());
+        for (Object[] namespace : namespaces) {
+            keys.add(ReleaseMessageKeyGenerator.generate((String) namespace[0], (String) namespace[1],
+                    (String) namespace[2]));
+        }
+        return keys;
+    }
+
     public Page<InstanceConfig> findActiveInstanceConfigsByReleaseKey(String releaseKey, Pageable
             pageable) {
         Page<InstanceConfig> instanceConfigs = instanceConfigRepository
@@ -1,22 +1,70 @@
 package com.ctrip.framework.apollo.biz.service;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.NamespaceLock;
 import com.ctrip.framework.apollo.biz.repository.NamespaceLockRepository;
+import com.google.common.collect.Maps;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 命名空间锁服务
  * <p>
  * NamespaceLock 的 Service 逻辑给 Admin Service 和 Config Service
+ * <p>
+ * 加锁成功后在本地缓存租约，有效期内同一用户重复修改同一命名空间时省去条件插入；
+ * 租约只用于省去插入，每次加锁仍会查询锁记录并比较拥有者，其它实例解锁后由其他用户加的锁不会被租约绕过
  */
 @Service
 public class NamespaceLockService {
 
+    /**
+     * 租约数量超过该值时清理过期的租约
+     */
+    private static final int LEASE_CLEAN_THRESHOLD = 10000;
+
+    /**
+     * 条件插入的最大尝试次数
+     */
+    private static final int MAX_INSERT_ATTEMPTS = 2;
+
     private final NamespaceLockRepository namespaceLockRepository;
+    private final BizConfig bizConfig;
 
-    public NamespaceLockService(final NamespaceLockRepository namespaceLockRepository) {
+    /**
+     * 本地租约，命名空间id -> 租约
+     */
+    private final ConcurrentMap<Long, Lease> leases = Maps.newConcurrentMap();
+
+    private final Timer acquireTimer;
+    private final Counter conflictCounter;
+    private final Counter leaseHitCounter;
+
+    public NamespaceLockService(final NamespaceLockRepository namespaceLockRepository,
+                                final BizConfig bizConfig,
+                                final MeterRegistry meterRegistry) {
         this.namespaceLockRepository = namespaceLockRepository;
+        this.bizConfig = bizConfig;
+        if (meterRegistry != null) {
+            this.acquireTimer = meterRegistry.timer("apollo.namespace-lock.acquire");
+            this.conflictCounter = meterRegistry.counter("apollo.namespace-lock.conflict");
+            this.leaseHitCounter = meterRegistry.counter("apollo.namespace-lock.lease.hit");
+        } else {
+            this.acquireTimer = null;
+            this.conflictCounter = null;
+            this.leaseHitCounter = null;
+        }
     }
 
     /**
@@ -40,13 +88,129 @@ public class NamespaceLockService {
         return namespaceLockRepository.save(lock);
     }
 
+    /**
+     * 为用户获取命名空间锁
+     * <p>
+     * 本地租约有效且属于该用户时，先查询锁记录，锁记录仍属于该用户则省去插入；
+     * 否则通过一条条件插入语句加锁，锁已存在时查询锁记录。锁记录是持有锁的唯一依据。
+     *
+     * @param namespaceId 命名空间id
+     * @param user        当前用户
+     * @return 当前持有锁的记录，拥有者可能不是该用户；并发解锁导致无法确定时返回null
+     */
+    public NamespaceLock acquireLock(long namespaceId, String user) {
+        long now = System.currentTimeMillis();
+        long start = System.nanoTime();
+        try {
+            NamespaceLock lock = null;
+            Lease lease = leases.get(namespaceId);
+            if (lease != null && lease.expireTime > now && lease.owner.equals(user)) {
+                lock = findLock(namespaceId);
+                if (lock != null && user.equals(lock.getDataChangeCreatedBy())) {
+                    if (leaseHitCounter != null) {
+                        leaseHitCounter.increment();
+                    }
+                    return lock;
+                }
+                // 锁已被其它实例解锁或由其他用户持有，租约失效
+                leases.remove(namespaceId);
+            }
+            if (lock == null) {
+                if (insertIfAbsent(namespaceId, user, new Date(now))) {
+                    lock = new Lease(user, 0).toNamespaceLock(namespaceId);
+                } else {
+                    // 锁已存在，查找到对应的锁记录
+                    lock = findLock(namespaceId);
+                }
+            }
+            if (lock != null && user.equals(lock.getDataChangeCreatedBy())) {
+                int ttl = bizConfig.namespaceLockLeaseTtlInMilli();
+                if (ttl > 0) {
+                    if (leases.size() > LEASE_CLEAN_THRESHOLD) {
+                        leases.values().removeIf(expired -> expired.expireTime <= now);
+                    }
+                    leases.put(namespaceId, new Lease(user, now + ttl));
+                }
+            } else {
+                leases.remove(namespaceId);
+                if (conflictCounter != null) {
+                    conflictCounter.increment();
+                }
+            }
+            return lock;
+        } finally {
+            if (acquireTimer != null) {
+                acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
     /**
      * 解锁
+     * <p>
+     * 租约在事务提交后再失效一次，避免并发加锁在删除提交前读到旧的锁记录并重新缓存租约
      *
      * @param namespaceId 命名空间id
      */
     @Transactional
     public void unlock(Long namespaceId) {
+        leases.remove(namespaceId);
         namespaceLockRepository.deleteByNamespaceId(namespaceId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    leases.remove(namespaceId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 锁不存在时加锁，并发加锁导致死锁或等待锁超时时重试一次
+     *
+     * @return true加锁成功，false锁已存在或无法确定
+     */
+    private boolean insertIfAbsent(long namespaceId, String user, Date now) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return namespaceLockRepository.insertIfAbsent(namespaceId, user, now) > 0;
+            } catch (DataIntegrityViolationException e) {
+                // 并发加锁，唯一索引冲突，说明锁已存在
+                return false;
+            } catch (PessimisticLockingFailureException e) {
+                // 死锁或等待锁超时，重试后仍失败则交由查询锁记录判断
+                if (attempt >= MAX_INSERT_ATTEMPTS) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * 本地租约
+     */
+    private static class Lease {
+        /**
+         * 锁拥有者
+         */
+        private final String owner;
+        /**
+         * 租约过期时间
+         */
+        private final long expireTime;
+
+        Lease(String owner, long expireTime) {
+            this.owner = owner;
+            this.expireTime = expireTime;
+        }
+
+        NamespaceLock toNamespaceLock(long namespaceId) {
+            NamespaceLock lock = new NamespaceLock();
+            lock.setNamespaceId(namespaceId);
+            lock.setDataChangeCreatedBy(owner);
+            lock.setDataChangeLastModifiedBy(owner);
+            return lock;
+        }
     }
 }
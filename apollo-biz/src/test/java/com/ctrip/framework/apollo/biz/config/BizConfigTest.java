@@ -62,6 +62,25 @@ public class BizConfigTest {
     assertEquals(defaultBatch, bizConfig.releaseMessageNotificationBatch());
   }
 
+  @Test
+  public void testSnapshotRebuiltOnlyAfterRefresh() throws Exception {
+    int someBatch = 20;
+    int anotherBatch = 30;
+    when(environment.getProperty("apollo.release-message.notification.batch")).thenReturn(String.valueOf(someBatch));
+
+    assertEquals(someBatch, bizConfig.releaseMessageNotificationBatch());
+
+    when(environment.getProperty("apollo.release-message.notification.batch"))
+        .thenReturn(String.valueOf(anotherBatch));
+
+    assertEquals(someBatch, bizConfig.releaseMessageNotificationBatch());
+
+    bizConfig.onRefreshed();
+
+    assertEquals(anotherBatch, bizConfig.releaseMessageNotificationBatch());
+    assertEquals(anotherBatch, bizConfig.snapshot().releaseMessageNotificationBatch());
+  }
+
   @Test
   public void testCheckInt() throws Exception {
     int someInvalidValue = 1;
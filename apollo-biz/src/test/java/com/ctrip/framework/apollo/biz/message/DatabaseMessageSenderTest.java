@@ -7,6 +7,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
@@ -18,10 +20,12 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest{
   private DatabaseMessageSender messageSender;
   @Mock
   private ReleaseMessageRepository releaseMessageRepository;
+  @Mock
+  private ReleaseMessageCompactor releaseMessageCompactor;
 
   @Before
   public void setUp() throws Exception {
-    messageSender = new DatabaseMessageSender(releaseMessageRepository);
+    messageSender = new DatabaseMessageSender(releaseMessageRepository, releaseMessageCompactor);
   }
 
   @Test
@@ -30,6 +34,7 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest{
     long someId = 1;
     ReleaseMessage someReleaseMessage = mock(ReleaseMessage.class);
     when(someReleaseMessage.getId()).thenReturn(someId);
+    when(someReleaseMessage.getMessage()).thenReturn(someMessage);
     when(releaseMessageRepository.save(any(ReleaseMessage.class))).thenReturn(someReleaseMessage);
 
     ArgumentCaptor<ReleaseMessage> captor = ArgumentCaptor.forClass(ReleaseMessage.class);
@@ -38,6 +43,32 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest{
 
     verify(releaseMessageRepository, times(1)).save(captor.capture());
     assertEquals(someMessage, captor.getValue().getMessage());
+    verify(releaseMessageCompactor, times(1)).submit(someMessage, someId);
+  }
+
+  @Test
+  public void testSendMessageSubmitsCompactionAfterCommit() throws Exception {
+    String someMessage = "some-message";
+    long someId = 1;
+    ReleaseMessage someReleaseMessage = mock(ReleaseMessage.class);
+    when(someReleaseMessage.getId()).thenReturn(someId);
+    when(someReleaseMessage.getMessage()).thenReturn(someMessage);
+    when(releaseMessageRepository.save(any(ReleaseMessage.class))).thenReturn(someReleaseMessage);
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      messageSender.sendMessage(someMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+      verify(releaseMessageCompactor, never()).submit(anyString(), anyLong());
+
+      for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCommit();
+      }
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    verify(releaseMessageCompactor, times(1)).submit(someMessage, someId);
   }
 
   @Test
@@ -48,6 +79,7 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest{
     messageSender.sendMessage(someMessage, someUnsupportedTopic);
 
     verify(releaseMessageRepository, never()).save(any(ReleaseMessage.class));
+    verify(releaseMessageCompactor, never()).submit(anyString(), anyLong());
   }
 
   @Test(expected = RuntimeException.class)
@@ -0,0 +1,119 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.AbstractUnitTest;
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReleaseMessageCompactorTest extends AbstractUnitTest {
+  private ReleaseMessageCompactor releaseMessageCompactor;
+  @Mock
+  private ReleaseMessageRepository releaseMessageRepository;
+  @Mock
+  private BizConfig bizConfig;
+
+  private String someMessage;
+  private String anotherMessage;
+
+  @Before
+  public void setUp() throws Exception {
+    releaseMessageCompactor = new ReleaseMessageCompactor(releaseMessageRepository, bizConfig, null);
+    someMessage = "someAppId+someCluster+someNamespace";
+    anotherMessage = "anotherAppId+someCluster+someNamespace";
+  }
+
+  @Test
+  public void testCompactAcrossMessagesInOneBatch() throws Exception {
+    when(bizConfig.releaseMessageCompactionBatch()).thenReturn(100);
+    releaseMessageCompactor.submit(someMessage, 5);
+    releaseMessageCompactor.submit(someMessage, 10);
+    releaseMessageCompactor.submit(anotherMessage, 8);
+
+    assertEquals(2, releaseMessageCompactor.pendingCount());
+
+    when(releaseMessageRepository.findAllById(anyCollection())).thenReturn(
+        Lists.newArrayList(assembleReleaseMessage(10, someMessage), assembleReleaseMessage(8, anotherMessage)));
+    when(releaseMessageRepository.findFirst500ByMessageInAndIdGreaterThanAndIdLessThanOrderByIdAsc(
+        Sets.newHashSet(someMessage, anotherMessage), 0, 10)).thenReturn(Lists.newArrayList(
+        assembleReleaseMessage(1, someMessage), assembleReleaseMessage(2, anotherMessage),
+        assembleReleaseMessage(5, someMessage), assembleReleaseMessage(8, anotherMessage),
+        assembleReleaseMessage(9, anotherMessage)));
+
+    releaseMessageCompactor.compactPendingMessages();
+
+    verify(releaseMessageRepository, times(1)).batchDelete(Lists.newArrayList(1L, 2L, 5L));
+    assertEquals(0, releaseMessageCompactor.pendingCount());
+    assertEquals(0, releaseMessageCompactor.lagInMillis());
+  }
+
+  @Test
+  public void testCompactRolledBackMessage() throws Exception {
+    when(bizConfig.releaseMessageCompactionBatch()).thenReturn(100);
+    releaseMessageCompactor.submit(someMessage, 10);
+
+    when(releaseMessageRepository.findAllById(anyCollection())).thenReturn(Lists.newArrayList());
+
+    releaseMessageCompactor.compactPendingMessages();
+
+    verify(releaseMessageRepository, never())
+        .findFirst500ByMessageInAndIdGreaterThanAndIdLessThanOrderByIdAsc(anyCollection(), anyLong(), anyLong());
+    verify(releaseMessageRepository, never()).batchDelete(anyCollection());
+  }
+
+  @Test
+  public void testCatchUp() throws Exception {
+    long someTableSize = 100;
+    when(releaseMessageRepository.findTopByOrderByIdDesc()).thenReturn(assembleReleaseMessage(20, someMessage));
+    when(releaseMessageRepository.findLatestReleaseMessagesGroupByMessagesInRange(0, 20))
+        .thenReturn(Lists.<Object[]>newArrayList(new Object[]{anotherMessage, 15L}));
+    when(releaseMessageRepository.count()).thenReturn(someTableSize);
+
+    releaseMessageCompactor.catchUp();
+
+    assertEquals(1, releaseMessageCompactor.pendingCount());
+    assertEquals(someTableSize, releaseMessageCompactor.tableSize());
+    assertTrue(releaseMessageCompactor.lagInMillis() >= 0);
+  }
+
+  @Test
+  public void testCatchUpOnlyScansNewMessages() throws Exception {
+    when(releaseMessageRepository.findTopByOrderByIdDesc()).thenReturn(assembleReleaseMessage(20, someMessage));
+    when(releaseMessageRepository.findLatestReleaseMessagesGroupByMessagesInRange(0, 20))
+        .thenReturn(Lists.<Object[]>newArrayList(new Object[]{someMessage, 20L}));
+
+    releaseMessageCompactor.catchUp();
+    // nothing new since the last scan
+    releaseMessageCompactor.catchUp();
+
+    verify(releaseMessageRepository, times(1)).findLatestReleaseMessagesGroupByMessagesInRange(anyLong(), anyLong());
+
+    when(releaseMessageRepository.findTopByOrderByIdDesc()).thenReturn(assembleReleaseMessage(30, anotherMessage));
+    when(releaseMessageRepository.findLatestReleaseMessagesGroupByMessagesInRange(20, 30))
+        .thenReturn(Lists.<Object[]>newArrayList(new Object[]{anotherMessage, 30L}));
+
+    releaseMessageCompactor.catchUp();
+
+    verify(releaseMessageRepository, times(1)).findLatestReleaseMessagesGroupByMessagesInRange(20, 30);
+    assertEquals(2, releaseMessageCompactor.pendingCount());
+  }
+
+  private ReleaseMessage assembleReleaseMessage(long id, String message) {
+    ReleaseMessage releaseMessage = new ReleaseMessage(message);
+    releaseMessage.setId(id);
+    return releaseMessage;
+  }
+}
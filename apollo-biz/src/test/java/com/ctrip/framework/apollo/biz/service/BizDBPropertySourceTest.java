@@ -14,10 +14,13 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Date;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
@@ -100,5 +103,23 @@ public class BizDBPropertySourceTest extends AbstractUnitTest {
     assertNull(propertySource.getProperty("noKey"));
   }
 
+  @Test
+  public void testIsChanged() {
+    ServerConfig latest = MockBeanFactory.mockServerConfig(defaultKey, defaultValue, ConfigConsts.CLUSTER_NAME_DEFAULT);
+    latest.setDataChangeLastModifiedTime(new Date(1000));
+    when(serverConfigRepository.findTopByOrderByDataChangeLastModifiedTimeDesc()).thenReturn(latest);
+    when(serverConfigRepository.count()).thenReturn(6L);
+
+    assertTrue(propertySource.isChanged());
+
+    propertySource.refresh();
+
+    assertFalse(propertySource.isChanged());
+
+    latest.setDataChangeLastModifiedTime(new Date(2000));
+
+    assertTrue(propertySource.isChanged());
+  }
+
 
 }
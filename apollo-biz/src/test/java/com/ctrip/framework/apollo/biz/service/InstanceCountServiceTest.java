@@ -0,0 +1,116 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.AbstractUnitTest;
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
+import com.ctrip.framework.apollo.biz.repository.InstanceConfigRepository;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InstanceCountServiceTest extends AbstractUnitTest {
+  @Mock
+  private InstanceConfigRepository instanceConfigRepository;
+  @Mock
+  private BizConfig bizConfig;
+
+  private InstanceCountService instanceCountService;
+
+  private String someAppId = "someAppId";
+  private String someClusterName = "someClusterName";
+  private String someNamespaceName = "someNamespaceName";
+  private String someReleaseKey = "someReleaseKey";
+  private String anotherReleaseKey = "anotherReleaseKey";
+
+  @Before
+  public void setUp() throws Exception {
+    when(bizConfig.instanceCountRebuildInterval()).thenReturn(3600);
+    when(bizConfig.instanceCountScanInterval()).thenReturn(3600);
+    instanceCountService = new InstanceCountService(instanceConfigRepository, bizConfig);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    instanceCountService.destroy();
+  }
+
+  @Test
+  public void testCountInstances() throws Exception {
+    Date now = new Date();
+    when(instanceConfigRepository.findActiveByNamespaceAndIdGreaterThan(eq(someAppId), eq(someClusterName),
+        eq(someNamespaceName), any(Date.class), eq(0L), any(Pageable.class))).thenReturn(Lists.newArrayList(
+        assembleInstanceConfig(1, someNamespaceName, someReleaseKey, now),
+        assembleInstanceConfig(2, someNamespaceName, someReleaseKey, now),
+        assembleInstanceConfig(3, someNamespaceName, anotherReleaseKey, now)));
+
+    assertEquals(3, instanceCountService.countInstances(someAppId, someClusterName, someNamespaceName));
+    assertEquals(1, instanceCountService.countInstancesWithReleaseKeysNotIn(someAppId, someClusterName,
+        someNamespaceName, Sets.newHashSet(someReleaseKey)));
+    assertEquals(0, instanceCountService.countInstancesWithReleaseKeysNotIn(someAppId, someClusterName,
+        someNamespaceName, Sets.newHashSet(someReleaseKey, anotherReleaseKey)));
+    assertEquals(ImmutableMap.of(someReleaseKey, 2L, anotherReleaseKey, 1L),
+        instanceCountService.countInstancesByReleaseKey(someAppId, someClusterName, someNamespaceName));
+
+    verify(instanceConfigRepository, times(1)).findActiveByNamespaceAndIdGreaterThan(eq(someAppId),
+        eq(someClusterName), eq(someNamespaceName), any(Date.class), anyLong(), any(Pageable.class));
+  }
+
+  @Test
+  public void testScanUpdatesLoadedNamespaces() throws Exception {
+    Date someTime = new Date(System.currentTimeMillis() - 10000);
+    Date expiredTime = new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(26));
+    String anotherNamespaceName = "anotherNamespaceName";
+    when(instanceConfigRepository.findActiveByNamespaceAndIdGreaterThan(eq(someAppId), eq(someClusterName),
+        eq(someNamespaceName), any(Date.class), eq(0L), any(Pageable.class))).thenReturn(Lists.newArrayList(
+        assembleInstanceConfig(1, someNamespaceName, someReleaseKey, someTime),
+        assembleInstanceConfig(2, someNamespaceName, someReleaseKey, someTime),
+        assembleInstanceConfig(3, someNamespaceName, someReleaseKey, expiredTime)));
+
+    assertEquals(3, instanceCountService.countInstances(someAppId, someClusterName, someNamespaceName));
+
+    Date newTime = new Date();
+    when(instanceConfigRepository.findModifiedAfter(any(Date.class), anyLong(), any(Pageable.class)))
+        .thenReturn(Lists.newArrayList(
+            // stale record scanned again is ignored
+            assembleInstanceConfig(1, someNamespaceName, anotherReleaseKey, expiredTime),
+            assembleInstanceConfig(2, someNamespaceName, anotherReleaseKey, newTime),
+            assembleInstanceConfig(4, someNamespaceName, anotherReleaseKey, newTime),
+            assembleInstanceConfig(5, anotherNamespaceName, anotherReleaseKey, newTime)));
+
+    instanceCountService.scan();
+
+    assertEquals(3, instanceCountService.countInstances(someAppId, someClusterName, someNamespaceName));
+    assertEquals(ImmutableMap.of(someReleaseKey, 1L, anotherReleaseKey, 2L),
+        instanceCountService.countInstancesByReleaseKey(someAppId, someClusterName, someNamespaceName));
+    assertEquals(1, instanceCountService.countInstancesWithReleaseKeysNotIn(someAppId, someClusterName,
+        someNamespaceName, Sets.newHashSet(anotherReleaseKey)));
+  }
+
+  private InstanceConfig assembleInstanceConfig(long id, String namespaceName, String releaseKey,
+                                                Date modifiedTime) {
+    InstanceConfig instanceConfig = new InstanceConfig();
+    instanceConfig.setId(id);
+    instanceConfig.setConfigAppId(someAppId);
+    instanceConfig.setConfigClusterName(someClusterName);
+    instanceConfig.setConfigNamespaceName(namespaceName);
+    instanceConfig.setReleaseKey(releaseKey);
+    instanceConfig.setDataChangeLastModifiedTime(modifiedTime);
+    return instanceConfig;
+  }
+}
@@ -6,6 +6,7 @@ import com.google.common.collect.Sets;
 import com.ctrip.framework.apollo.biz.AbstractIntegrationTest;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
 
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -237,6 +238,32 @@ public class InstanceServiceTest extends AbstractIntegrationTest {
     assertEquals(Lists.newArrayList(someInstanceConfig, anotherInstanceConfig), instanceConfigs);
   }
 
+  @Test
+  @Rollback
+  public void testFindMostUsedNamespaceKeys() throws Exception {
+    String someConfigAppId = "someConfigAppId";
+    String someConfigClusterName = "someConfigClusterName";
+    String someConfigNamespaceName = "someConfigNamespaceName";
+    String anotherConfigNamespaceName = "anotherConfigNamespaceName";
+    String someReleaseKey = "someReleaseKey";
+    Date someValidDate = new Date();
+
+    prepareInstanceConfigForInstance(1, someConfigAppId, someConfigClusterName,
+        anotherConfigNamespaceName, someReleaseKey, someValidDate);
+    prepareInstanceConfigForInstance(2, someConfigAppId, someConfigClusterName,
+        anotherConfigNamespaceName, someReleaseKey, someValidDate);
+    prepareInstanceConfigForInstance(3, someConfigAppId, someConfigClusterName,
+        someConfigNamespaceName, someReleaseKey, someValidDate);
+
+    List<String> keys = instanceService.findMostUsedNamespaceKeys(10);
+
+    assertEquals(Lists.newArrayList(
+        ReleaseMessageKeyGenerator.generate(someConfigAppId, someConfigClusterName, anotherConfigNamespaceName),
+        ReleaseMessageKeyGenerator.generate(someConfigAppId, someConfigClusterName, someConfigNamespaceName)),
+        keys);
+    assertEquals(1, instanceService.findMostUsedNamespaceKeys(1).size());
+  }
+
   private InstanceConfig prepareInstanceConfigForInstance(long instanceId, String configAppId,
                                                           String configClusterName, String
                                                               configNamespace, String releaseKey,
@@ -0,0 +1,147 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.AbstractUnitTest;
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.NamespaceLock;
+import com.ctrip.framework.apollo.biz.repository.NamespaceLockRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NamespaceLockServiceTest extends AbstractUnitTest {
+  private static final long NAMESPACE_ID = 100;
+  private static final String CURRENT_USER = "user-test";
+  private static final String ANOTHER_USER = "user-test2";
+
+  private NamespaceLockService namespaceLockService;
+  @Mock
+  private NamespaceLockRepository namespaceLockRepository;
+  @Mock
+  private BizConfig bizConfig;
+
+  @Before
+  public void setUp() throws Exception {
+    namespaceLockService = new NamespaceLockService(namespaceLockRepository, bizConfig, null);
+  }
+
+  @Test
+  public void testAcquireLockWithLease() throws Exception {
+    when(bizConfig.namespaceLockLeaseTtlInMilli()).thenReturn(60000);
+    when(namespaceLockRepository.insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class))).thenReturn(1);
+    when(namespaceLockRepository.findByNamespaceId(NAMESPACE_ID)).thenReturn(assembleLock(CURRENT_USER));
+
+    NamespaceLock lock = namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER);
+    NamespaceLock anotherLock = namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER);
+
+    assertEquals(CURRENT_USER, lock.getDataChangeCreatedBy());
+    assertEquals(CURRENT_USER, anotherLock.getDataChangeCreatedBy());
+    verify(namespaceLockRepository, times(1)).insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class));
+    verify(namespaceLockRepository, times(1)).findByNamespaceId(NAMESPACE_ID);
+  }
+
+  @Test
+  public void testAcquireLockRecreatesLockDeletedByAnotherInstance() throws Exception {
+    when(bizConfig.namespaceLockLeaseTtlInMilli()).thenReturn(60000);
+    when(namespaceLockRepository.insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class))).thenReturn(1);
+    // the lock row is deleted elsewhere between the two acquisitions
+    when(namespaceLockRepository.findByNamespaceId(NAMESPACE_ID)).thenReturn(null);
+
+    namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER);
+    NamespaceLock lock = namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER);
+
+    assertEquals(CURRENT_USER, lock.getDataChangeCreatedBy());
+    verify(namespaceLockRepository, times(2)).insertIfAbsent(eq(NAMESPACE_ID), eq(CURRENT_USER), any(Date.class));
+  }
+
+  @Test
+  public void testAcquireLockWithLeaseTakenOverByAnotherUser() throws Exception {
+    when(bizConfig.namespaceLockLeaseTtlInMilli()).thenReturn(60000);
+    when(namespaceLockRepository.insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class))).thenReturn(1);
+    // unlocked elsewhere on publish, then locked by another user
+    when(namespaceLockRepository.findByNamespaceId(NAMESPACE_ID)).thenReturn(assembleLock(ANOTHER_USER));
+
+    namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER);
+    NamespaceLock lock = namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER);
+
+    assertEquals(ANOTHER_USER, lock.getDataChangeCreatedBy());
+    verify(namespaceLockRepository, times(1)).insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class));
+  }
+
+  @Test
+  public void testAcquireLockAfterUnlock() throws Exception {
+    when(bizConfig.namespaceLockLeaseTtlInMilli()).thenReturn(60000);
+    when(namespaceLockRepository.insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class))).thenReturn(1);
+
+    namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER);
+    namespaceLockService.unlock(NAMESPACE_ID);
+    namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER);
+
+    verify(namespaceLockRepository, times(2)).insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class));
+  }
+
+  @Test
+  public void testAcquireLockHeldByAnotherUser() throws Exception {
+    when(namespaceLockRepository.insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class))).thenReturn(0);
+    when(namespaceLockRepository.findByNamespaceId(NAMESPACE_ID)).thenReturn(assembleLock(ANOTHER_USER));
+
+    NamespaceLock lock = namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER);
+    NamespaceLock anotherLock = namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER);
+
+    assertEquals(ANOTHER_USER, lock.getDataChangeCreatedBy());
+    assertEquals(ANOTHER_USER, anotherLock.getDataChangeCreatedBy());
+    verify(namespaceLockRepository, times(2)).findByNamespaceId(NAMESPACE_ID);
+  }
+
+  @Test
+  public void testAcquireLockWithConcurrentInsert() throws Exception {
+    when(namespaceLockRepository.insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class)))
+        .thenThrow(DataIntegrityViolationException.class);
+    when(namespaceLockRepository.findByNamespaceId(NAMESPACE_ID)).thenReturn(null);
+
+    assertNull(namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER));
+  }
+
+  @Test
+  public void testAcquireLockRetriesOnLockWaitTimeout() throws Exception {
+    when(namespaceLockRepository.insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class)))
+        .thenThrow(CannotAcquireLockException.class).thenReturn(1);
+
+    NamespaceLock lock = namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER);
+
+    assertEquals(CURRENT_USER, lock.getDataChangeCreatedBy());
+    verify(namespaceLockRepository, times(2)).insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class));
+  }
+
+  @Test
+  public void testAcquireLockFallsBackToFindLockOnRepeatedDeadlock() throws Exception {
+    when(namespaceLockRepository.insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class)))
+        .thenThrow(DeadlockLoserDataAccessException.class);
+    when(namespaceLockRepository.findByNamespaceId(NAMESPACE_ID)).thenReturn(assembleLock(ANOTHER_USER));
+
+    NamespaceLock lock = namespaceLockService.acquireLock(NAMESPACE_ID, CURRENT_USER);
+
+    assertEquals(ANOTHER_USER, lock.getDataChangeCreatedBy());
+    verify(namespaceLockRepository, times(2)).insertIfAbsent(eq(NAMESPACE_ID), anyString(), any(Date.class));
+  }
+
+  private NamespaceLock assembleLock(String owner) {
+    NamespaceLock lock = new NamespaceLock();
+    lock.setNamespaceId(NAMESPACE_ID);
+    lock.setDataChangeCreatedBy(owner);
+    return lock;
+  }
+}
@@ -18,12 +18,18 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.escape.Escaper;
+import com.google.common.io.Files;
 import com.google.common.net.UrlEscapers;
+import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
@@ -52,6 +58,18 @@ public class ConfigServiceLocator {
      */
     private final AtomicReference<List<ServiceDTO>> configServices;
 
+    /**
+     * 配置服务地址列表的 ETag，用于向元数据服务发起条件请求
+     */
+    private volatile String configServicesETag;
+
+    /**
+     * 持久化的配置服务地址文件，用于冷启动时直接使用上次获取到的地址
+     */
+    private final File localServicesFile;
+
+    private final Gson gson;
+
     /**
      * http请求返回序列化类型
      */
@@ -69,6 +87,8 @@ public class ConfigServiceLocator {
 
     private static final Escaper queryParamEscaper = UrlEscapers.urlFormParameterEscaper();
 
+    private static final String CONFIG_DIR = "/config-cache";
+
     public ConfigServiceLocator() {
         List<ServiceDTO> initial = Lists.newArrayList();
         configServices = new AtomicReference<>(initial);
@@ -76,6 +96,8 @@ public class ConfigServiceLocator {
         }.getType();
         httpUtil = ApolloInjector.getInstance(HttpUtil.class);
         configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+        gson = new Gson();
+        localServicesFile = assembleLocalServicesFile();
         executorService = Executors.newScheduledThreadPool(
                 1, ApolloThreadFactory.create("ConfigServiceLocator", true));
 
@@ -95,8 +117,18 @@ public class ConfigServiceLocator {
             return;
         }
 
-        // 尝试更新配置服务
-        this.tryUpdateConfigServices();
+        // 有持久化的配置服务地址时直接使用，并在后台更新；否则同步更新
+        if (loadLocalConfigServices()) {
+            this.executorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    tryUpdateConfigServices();
+                }
+            });
+        } else {
+            // 尝试更新配置服务
+            this.tryUpdateConfigServices();
+        }
 
         // 启动定时刷新任务
         this.schedulePeriodicRefresh();
@@ -195,6 +227,11 @@ public class ConfigServiceLocator {
         String url = assembleMetaServiceUrl();
 
         HttpRequest request = new HttpRequest(url);
+        // 带上上次的 ETag，服务列表未变化时元数据服务返回 304
+        String eTag = configServicesETag;
+        if (!Strings.isNullOrEmpty(eTag) && !configServices.get().isEmpty()) {
+            request.setHeaders(Collections.singletonMap("If-None-Match", eTag));
+        }
         int maxRetries = 2;
         Throwable exception = null;
 
@@ -205,14 +242,21 @@ public class ConfigServiceLocator {
                 // 执行get请求
                 HttpResponse<List<ServiceDTO>> response = httpUtil.doGet(request, responseType);
                 transaction.setStatus(Transaction.SUCCESS);
+                if (response.getStatusCode() == 304) {
+                    logger.debug("Config services not modified");
+                    Tracer.logEvent("Apollo.MetaService", "notModified");
+                    return;
+                }
                 List<ServiceDTO> services = response.getBody();
                 if (services == null || services.isEmpty()) {
                     logConfigService("Empty response!");
                     continue;
                 }
 
-                // 缓存配置服务地址
+                // 缓存配置服务地址，并持久化到本地
                 setConfigServices(services);
+                configServicesETag = response.getHeader("ETag");
+                persistLocalConfigServices(services, configServicesETag);
                 return;
             } catch (Throwable ex) {
                 Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
@@ -243,6 +287,71 @@ public class ConfigServiceLocator {
         logConfigServices(services);
     }
 
+    /**
+     * 从本地文件加载上次持久化的配置服务地址
+     *
+     * @return true加载成功，false无可用的持久化地址
+     */
+    private boolean loadLocalConfigServices() {
+        if (localServicesFile == null || !localServicesFile.isFile()) {
+            return false;
+        }
+        try {
+            LocalConfigServices local = gson.fromJson(
+                    Files.toString(localServicesFile, StandardCharsets.UTF_8), LocalConfigServices.class);
+            if (local == null || local.services == null || local.services.isEmpty()) {
+                return false;
+            }
+            logger.debug("Loaded config services from local file {}", localServicesFile.getAbsolutePath());
+            Tracer.logEvent("Apollo.MetaService", "loadLocalServices");
+            setConfigServices(local.services);
+            configServicesETag = local.eTag;
+            return true;
+        } catch (Throwable ex) {
+            logger.warn("Load local config services file {} failed, reason: {}.",
+                    localServicesFile.getAbsolutePath(), ExceptionUtil.getDetailMessage(ex));
+        }
+        return false;
+    }
+
+    /**
+     * 持久化配置服务地址到本地文件
+     *
+     * @param services 配置服务dto
+     * @param eTag     服务列表的 ETag
+     */
+    private void persistLocalConfigServices(List<ServiceDTO> services, String eTag) {
+        if (localServicesFile == null) {
+            return;
+        }
+        LocalConfigServices local = new LocalConfigServices();
+        local.services = services;
+        local.eTag = eTag;
+        try {
+            Files.createParentDirs(localServicesFile);
+            Files.write(gson.toJson(local), localServicesFile, StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            logger.warn("Persist local config services file {} failed, reason: {}.",
+                    localServicesFile.getAbsolutePath(), ExceptionUtil.getDetailMessage(ex));
+        }
+    }
+
+    /**
+     * 组装持久化的配置服务地址文件，按环境区分
+     *
+     * @return 文件File，无法获取缓存目录时返回null
+     */
+    private File assembleLocalServicesFile() {
+        try {
+            String fileName = String.format("%s+%s.json", ServiceNameConsts.APOLLO_CONFIGSERVICE,
+                    configUtil.getApolloEnv());
+            return new File(configUtil.getDefaultLocalCacheDir() + CONFIG_DIR, fileName);
+        } catch (Throwable ex) {
+            //ignore
+        }
+        return null;
+    }
+
     /**
      * 组装配置服务地址
      *
@@ -272,4 +381,14 @@ public class ConfigServiceLocator {
     private void logConfigService(String serviceUrl) {
         Tracer.logEvent("Apollo.Config.Services", serviceUrl);
     }
+
+    /**
+     * 持久化的配置服务地址
+     */
+    private static class LocalConfigServices {
+
+        private String eTag;
+
+        private List<ServiceDTO> services;
+    }
 }
@@ -234,6 +234,9 @@ public class RemoteConfigLongPollService {
     private void doLongPollingRefresh(String appId, String cluster, String dataCenter, String secret) {
         final Random random = new Random();
         ServiceDTO lastServiceDto = null;
+        // 服务端签发的长轮询会话，服务端可以跳过命名空间的解析，会话失效时服务端自动重新解析；
+        // 还没有会话时告知服务端会带回令牌
+        String session = ConfigConsts.LONG_POLL_SESSION_OPT_IN;
 
         // 如果长轮询未停止，且线程未中断，执行长轮询任务
         while (!longPollingStopped.get() && !Thread.currentThread().isInterrupted()) {
@@ -258,7 +261,7 @@ public class RemoteConfigLongPollService {
 
                 // 组装长轮询url
                 url = assembleLongPollRefreshUrl(lastServiceDto.getHomepageUrl(), appId, cluster, dataCenter,
-                        notifications);
+                        notifications, session);
 
                 logger.debug("Long polling from {}", url);
 
@@ -277,6 +280,10 @@ public class RemoteConfigLongPollService {
                         httpUtil.doGet(request, responseType);
 
                 logger.debug("Long polling response: {}, url: {}", response.getStatusCode(), url);
+                String responseSession = response.getHeader(ConfigConsts.LONG_POLL_SESSION_HEADER);
+                if (!Strings.isNullOrEmpty(responseSession)) {
+                    session = responseSession;
+                }
                 // 如果返回码为200，则有新的通知，刷新本地缓存
                 if (response.getStatusCode() == 200
                         && response.getBody() != null) {
@@ -431,6 +438,17 @@ public class RemoteConfigLongPollService {
      */
     String assembleLongPollRefreshUrl(String uri, String appId, String cluster, String dataCenter,
                                       Map<String, Long> notificationsMap) {
+        return assembleLongPollRefreshUrl(uri, appId, cluster, dataCenter, notificationsMap, null);
+    }
+
+    /**
+     * 组装长轮询url，带上服务端签发的长轮询会话
+     *
+     * @param session 长轮询会话，为空时不带
+     * @return 长轮询url
+     */
+    String assembleLongPollRefreshUrl(String uri, String appId, String cluster, String dataCenter,
+                                      Map<String, Long> notificationsMap, String session) {
         Map<String, String> queryParams = Maps.newHashMap();
         queryParams.put("appId", queryParamEscaper.escape(appId));
         queryParams.put("cluster", queryParamEscaper.escape(cluster));
@@ -444,6 +462,9 @@ public class RemoteConfigLongPollService {
         if (!Strings.isNullOrEmpty(localIp)) {
             queryParams.put("ip", queryParamEscaper.escape(localIp));
         }
+        if (!Strings.isNullOrEmpty(session)) {
+            queryParams.put("session", queryParamEscaper.escape(session));
+        }
 
         String params = MAP_JOINER.join(queryParams);
         if (!uri.endsWith("/")) {
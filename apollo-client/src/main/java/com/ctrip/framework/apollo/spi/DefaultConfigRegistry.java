@@ -35,4 +35,14 @@ public class DefaultConfigRegistry implements ConfigRegistry {
     public ConfigFactory getFactory(String namespace) {
         return instances.get(namespace);
     }
+
+    /**
+     * 移除指定命名空间注册的配置工厂，用于测试结束后恢复注册
+     *
+     * @param namespace 命名空间
+     * @return 移除的配置工厂，未注册时返回null
+     */
+    public ConfigFactory unregister(String namespace) {
+        return instances.remove(namespace);
+    }
 }
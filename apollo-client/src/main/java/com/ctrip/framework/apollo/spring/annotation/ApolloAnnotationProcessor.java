@@ -21,6 +21,16 @@ import java.util.Set;
  */
 public class ApolloAnnotationProcessor extends ApolloProcessor {
 
+    @Override
+    protected boolean isCandidateField(Field field) {
+        return AnnotationUtils.getAnnotation(field, ApolloConfig.class) != null;
+    }
+
+    @Override
+    protected boolean isCandidateMethod(Method method) {
+        return AnnotationUtils.findAnnotation(method, ApolloConfigChangeListener.class) != null;
+    }
+
     @Override
     protected void processField(Object bean, String beanName, Field field) {
         // 处理配置注解
@@ -46,6 +46,16 @@ public class ApolloJsonValueProcessor extends ApolloProcessor implements BeanFac
         springValueRegistry = SpringInjector.getInstance(SpringValueRegistry.class);
     }
 
+    @Override
+    protected boolean isCandidateField(Field field) {
+        return AnnotationUtils.getAnnotation(field, ApolloJsonValue.class) != null;
+    }
+
+    @Override
+    protected boolean isCandidateMethod(Method method) {
+        return AnnotationUtils.getAnnotation(method, ApolloJsonValue.class) != null;
+    }
+
     @Override
     protected void processField(Object bean, String beanName, Field field) {
         ApolloJsonValue apolloJsonValue = AnnotationUtils.getAnnotation(field, ApolloJsonValue.class);
@@ -4,29 +4,47 @@ import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.core.Ordered;
 import org.springframework.core.PriorityOrdered;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.ReflectionUtils;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Apollo 处理器抽象类，封装了在 Spring Bean 初始化之前，处理属性和方法
  * <p>
+ * 每个类只反射遍历一次域和方法，按 {@link #isCandidateField(Field)}、{@link #isCandidateMethod(Method)}
+ * 过滤后缓存，同一个类的其它 bean（原型 bean、同类的多个 bean）直接使用缓存；
+ * 没有候选域和方法的类直接跳过。
+ * <p>
  * Create by zhangzheng on 2018/2/6
  */
 public abstract class ApolloProcessor implements BeanPostProcessor, PriorityOrdered {
 
+    /**
+     * 类 -> 需要处理的域和方法，默认软引用：内存不足时可回收，不会一直阻止类卸载
+     * <p>
+     * 不使用弱引用，ConcurrentReferenceHashMap 弱引用的是整个条目而不是 key，每次 GC 都会清空缓存
+     */
+    private final ConcurrentMap<Class<?>, ProcessorMetadata> metadataCache =
+            new ConcurrentReferenceHashMap<>();
+
     @Override
     public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
-        Class clazz = bean.getClass();
+        ProcessorMetadata metadata = this.findMetadata(bean.getClass());
+        if (metadata.isEmpty()) {
+            return bean;
+        }
         // 遍历处理域
-        for (Field field : this.findAllField(clazz)) {
+        for (Field field : metadata.fields) {
             processField(bean, beanName, field);
         }
         // 遍历处理方法
-        for (Method method : this.findAllMethod(clazz)) {
+        for (Method method : metadata.methods) {
             processMethod(bean, beanName, method);
         }
         return bean;
@@ -47,6 +65,22 @@ public abstract class ApolloProcessor implements BeanPostProcessor, PriorityOrde
      */
     protected abstract void processMethod(Object bean, String beanName, Method method);
 
+    /**
+     * 子类覆盖，判断域是否需要处理，结果按类缓存，只能依赖域本身（比如注解）
+     * 默认处理所有域
+     */
+    protected boolean isCandidateField(Field field) {
+        return true;
+    }
+
+    /**
+     * 子类覆盖，判断方法是否需要处理，结果按类缓存，只能依赖方法本身（比如注解）
+     * 默认处理所有方法
+     */
+    protected boolean isCandidateMethod(Method method) {
+        return true;
+    }
+
 
     @Override
     public int getOrder() {
@@ -55,36 +89,75 @@ public abstract class ApolloProcessor implements BeanPostProcessor, PriorityOrde
     }
 
     /**
-     * 获取一个类中的所有域集合
+     * 获取一个类中需要处理的域和方法，第一次获取时构建并缓存
+     *
+     * @param clazz 类
+     * @return 需要处理的域和方法
+     */
+    private ProcessorMetadata findMetadata(Class<?> clazz) {
+        ProcessorMetadata metadata = metadataCache.get(clazz);
+        if (metadata == null) {
+            // 并发构建的结果相同，不需要加锁
+            metadata = new ProcessorMetadata(this.findCandidateFields(clazz), this.findCandidateMethods(clazz));
+            metadataCache.put(clazz, metadata);
+        }
+        return metadata;
+    }
+
+    /**
+     * 获取一个类中需要处理的域集合
      *
      * @param clazz 类
      * @return 域集合
      */
-    private List<Field> findAllField(Class clazz) {
-        final List<Field> res = new LinkedList<>();
+    private List<Field> findCandidateFields(Class<?> clazz) {
+        final List<Field> res = new ArrayList<>();
         ReflectionUtils.doWithFields(clazz, new ReflectionUtils.FieldCallback() {
             @Override
             public void doWith(Field field) throws IllegalArgumentException {
-                res.add(field);
+                if (isCandidateField(field)) {
+                    res.add(field);
+                }
             }
         });
-        return res;
+        return res.isEmpty() ? Collections.<Field>emptyList() : res;
     }
 
     /**
-     * 获取一个类中所有的方法集合
+     * 获取一个类中需要处理的方法集合
      *
      * @param clazz 类
      * @return 方法集合
      */
-    private List<Method> findAllMethod(Class clazz) {
-        final List<Method> res = new LinkedList<>();
+    private List<Method> findCandidateMethods(Class<?> clazz) {
+        final List<Method> res = new ArrayList<>();
         ReflectionUtils.doWithMethods(clazz, new ReflectionUtils.MethodCallback() {
             @Override
             public void doWith(Method method) throws IllegalArgumentException {
-                res.add(method);
+                if (isCandidateMethod(method)) {
+                    res.add(method);
+                }
             }
         });
-        return res;
+        return res.isEmpty() ? Collections.<Method>emptyList() : res;
+    }
+
+    /**
+     * 一个类中需要处理的域和方法，构建后不再修改
+     */
+    private static class ProcessorMetadata {
+
+        private final List<Field> fields;
+
+        private final List<Method> methods;
+
+        ProcessorMetadata(List<Field> fields, List<Method> methods) {
+            this.fields = fields;
+            this.methods = methods;
+        }
+
+        boolean isEmpty() {
+            return fields.isEmpty() && methods.isEmpty();
+        }
     }
 }
@@ -77,6 +77,17 @@ public class SpringValueProcessor extends ApolloProcessor implements BeanFactory
         return bean;
     }
 
+    @Override
+    protected boolean isCandidateField(Field field) {
+        return field.isAnnotationPresent(Value.class);
+    }
+
+    @Override
+    protected boolean isCandidateMethod(Method method) {
+        // 跳过配置类中 @Bean 注解标注的方法
+        return method.isAnnotationPresent(Value.class) && !method.isAnnotationPresent(Bean.class);
+    }
+
     @Override
     protected void processField(Object bean, String beanName, Field field) {
         // 获取域上的 @Value 注解
@@ -2,13 +2,16 @@ package com.ctrip.framework.apollo.spring.boot;
 
 import com.ctrip.framework.apollo.Config;
 import com.ctrip.framework.apollo.ConfigService;
+import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.spring.config.ConfigPropertySourceFactory;
 import com.ctrip.framework.apollo.spring.config.PropertySourcesConstants;
 import com.ctrip.framework.apollo.spring.util.SpringInjector;
+import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.factory.PropertiesFactory;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
@@ -18,6 +21,7 @@ import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.Ordered;
 import org.springframework.core.env.CompositePropertySource;
 import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.PropertySource;
 
 import java.util.List;
 
@@ -116,16 +120,27 @@ public class ApolloApplicationContextInitializer
         List<String> namespaceList = NAMESPACE_SPLITTER.splitToList(namespaces);
 
         // 组装这些命名空间的属性源，添加到属性工厂中（并缓存）
-        CompositePropertySource composite =
-                new CompositePropertySource(PropertySourcesConstants.APOLLO_BOOTSTRAP_PROPERTY_SOURCE_NAME);
-        for (String namespace : namespaceList) {
-            Config config = ConfigService.getConfig(namespace);
-
-            composite.addPropertySource(configPropertySourceFactory.getConfigPropertySource(namespace, config));
+        PropertySource<?> propertySource;
+        if (ApolloInjector.getInstance(ConfigUtil.class).isMergedPropertySourceEnabled()) {
+            List<Config> configs = Lists.newArrayListWithCapacity(namespaceList.size());
+            for (String namespace : namespaceList) {
+                configs.add(ConfigService.getConfig(namespace));
+            }
+            propertySource = configPropertySourceFactory.getMergedConfigPropertySource(
+                    PropertySourcesConstants.APOLLO_BOOTSTRAP_PROPERTY_SOURCE_NAME, configs);
+        } else {
+            CompositePropertySource composite =
+                    new CompositePropertySource(PropertySourcesConstants.APOLLO_BOOTSTRAP_PROPERTY_SOURCE_NAME);
+            for (String namespace : namespaceList) {
+                Config config = ConfigService.getConfig(namespace);
+
+                composite.addPropertySource(configPropertySourceFactory.getConfigPropertySource(namespace, config));
+            }
+            propertySource = composite;
         }
 
         // 添加为第一个属性源
-        environment.getPropertySources().addFirst(composite);
+        environment.getPropertySources().addFirst(propertySource);
     }
 
     /**
@@ -15,6 +15,11 @@ public class ConfigPropertySourceFactory {
      */
     private final List<ConfigPropertySource> configPropertySources = Lists.newLinkedList();
 
+    /**
+     * 合并的配置属性源集合
+     */
+    private final List<MergedConfigPropertySource> mergedConfigPropertySources = Lists.newLinkedList();
+
     /**
      * 包装成配置属性源，同时添加到配置属性源集合中
      *
@@ -30,6 +35,21 @@ public class ConfigPropertySourceFactory {
         return configPropertySource;
     }
 
+    /**
+     * 把多个命名空间的配置合并成一个属性源，同时添加到合并的配置属性源集合中
+     *
+     * @param name    属性源名
+     * @param configs 配置对象，按优先级从高到低排列
+     * @return 合并的配置属性源
+     */
+    public MergedConfigPropertySource getMergedConfigPropertySource(String name, List<Config> configs) {
+        MergedConfigPropertySource mergedConfigPropertySource = new MergedConfigPropertySource(name, configs);
+
+        mergedConfigPropertySources.add(mergedConfigPropertySource);
+
+        return mergedConfigPropertySource;
+    }
+
     /**
      * 获取所有的配置属性源
      *
@@ -38,4 +58,13 @@ public class ConfigPropertySourceFactory {
     public List<ConfigPropertySource> getAllConfigPropertySources() {
         return Lists.newLinkedList(configPropertySources);
     }
+
+    /**
+     * 获取所有合并的配置属性源
+     *
+     * @return 合并的配置属性源集合
+     */
+    public List<MergedConfigPropertySource> getAllMergedConfigPropertySources() {
+        return Lists.newLinkedList(mergedConfigPropertySources);
+    }
 }
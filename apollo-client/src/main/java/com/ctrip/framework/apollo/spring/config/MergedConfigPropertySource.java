@@ -0,0 +1,130 @@
+package com.ctrip.framework.apollo.spring.config;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.EnumerablePropertySource;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 合并的配置属性源，通过 apollo.property.source.merged 开启
+ * <p>
+ * 默认每个命名空间一个 {@link ConfigPropertySource}，组合在 {@link CompositePropertySource} 中：
+ * 查询不存在的属性时要遍历所有命名空间，每个命名空间还会查一次系统属性和环境变量；
+ * 获取属性名时每个命名空间都重新构建一次属性名集合。
+ * <p>
+ * 合并的属性源把所有命名空间按优先级合并成一个不可变的 Map，并缓存属性名数组，只在配置变化时重建：
+ * 1）排在前面的命名空间优先，和组合属性源一致；
+ * 2）命名空间中的属性按 {@link Config#getProperty(String, String)} 取值，系统属性仍然优先；
+ * 3）命名空间中不存在的属性直接返回 null，交给后面的系统属性、环境变量属性源处理。
+ *
+ * @see ConfigPropertySourceFactory#getMergedConfigPropertySource(String, List)
+ */
+public class MergedConfigPropertySource extends EnumerablePropertySource<List<Config>> {
+
+    private static final Logger logger = LoggerFactory.getLogger(MergedConfigPropertySource.class);
+
+    /**
+     * 属性源名空数组
+     */
+    private static final String[] EMPTY_ARRAY = new String[0];
+
+    /**
+     * 重建之后再通知的配置改变监听器
+     */
+    private final List<ConfigChangeListener> listeners = Lists.newCopyOnWriteArrayList();
+
+    /**
+     * 合并后的属性
+     */
+    private volatile Map<String, String> properties = ImmutableMap.of();
+
+    /**
+     * 合并后的属性名
+     */
+    private volatile String[] propertyNames = EMPTY_ARRAY;
+
+    /**
+     * @param name    属性源名
+     * @param configs 配置对象，按优先级从高到低排列
+     */
+    MergedConfigPropertySource(String name, List<Config> configs) {
+        super(name, ImmutableList.copyOf(configs));
+
+        // 先注册监听器再构建，构建期间的变化不会丢失
+        ConfigChangeListener rebuildListener = new ConfigChangeListener() {
+            @Override
+            public void onChange(ConfigChangeEvent changeEvent) {
+                rebuild();
+                for (ConfigChangeListener listener : listeners) {
+                    try {
+                        listener.onChange(changeEvent);
+                    } catch (Throwable ex) {
+                        Tracer.logError(ex);
+                        logger.error("Failed to invoke config change listener {}", listener.getClass().getName(), ex);
+                    }
+                }
+            }
+        };
+        for (Config config : source) {
+            config.addChangeListener(rebuildListener);
+        }
+        rebuild();
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return propertyNames;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return properties.get(name);
+    }
+
+    @Override
+    public boolean containsProperty(String name) {
+        return properties.containsKey(name);
+    }
+
+    /**
+     * 添加配置改变监听器，监听器在属性源重建之后才被调用，可以直接从环境中读取新的值
+     *
+     * @param listener 配置改变监听器
+     */
+    public void addChangeListener(ConfigChangeListener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * 按优先级重新合并所有命名空间
+     */
+    synchronized void rebuild() {
+        Map<String, String> merged = Maps.newLinkedHashMap();
+        for (Config config : source) {
+            for (String propertyName : config.getPropertyNames()) {
+                if (merged.containsKey(propertyName)) {
+                    continue;
+                }
+                String value = config.getProperty(propertyName, null);
+                if (value != null) {
+                    merged.put(propertyName, value);
+                }
+            }
+        }
+        properties = ImmutableMap.copyOf(merged);
+        propertyNames = merged.keySet().toArray(new String[merged.size()]);
+    }
+}
@@ -8,6 +8,7 @@ import com.ctrip.framework.apollo.spring.util.SpringInjector;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import org.springframework.beans.BeansException;
@@ -120,6 +121,12 @@ public class PropertySourcesProcessor implements BeanFactoryPostProcessor, Envir
             return;
         }
 
+        // 开启合并时，所有命名空间合并成一个属性源
+        if (configUtil.isMergedPropertySourceEnabled()) {
+            addApolloPropertySource(initializeMergedPropertySource());
+            return;
+        }
+
         // 组合的属性源
         CompositePropertySource composite =
                 new CompositePropertySource(PropertySourcesConstants.APOLLO_PROPERTY_SOURCE_NAME);
@@ -146,6 +153,33 @@ public class PropertySourcesProcessor implements BeanFactoryPostProcessor, Envir
         // 全部生成完成后，清空命名空间缓存
         NAMESPACE_NAMES.clear();
 
+        addApolloPropertySource(composite);
+    }
+
+    /**
+     * 按order递增的顺序把所有命名空间合并成一个属性源
+     *
+     * @return 合并的配置属性源
+     */
+    private PropertySource<?> initializeMergedPropertySource() {
+        List<Config> configs = Lists.newArrayList();
+        for (int order : ImmutableSortedSet.copyOf(NAMESPACE_NAMES.keySet())) {
+            for (String namespace : NAMESPACE_NAMES.get(order)) {
+                configs.add(ConfigService.getConfig(namespace));
+            }
+        }
+        NAMESPACE_NAMES.clear();
+
+        return configPropertySourceFactory.getMergedConfigPropertySource(
+                PropertySourcesConstants.APOLLO_PROPERTY_SOURCE_NAME, configs);
+    }
+
+    /**
+     * 添加apollo属性源
+     *
+     * @param propertySource apollo属性源
+     */
+    private void addApolloPropertySource(PropertySource<?> propertySource) {
         // add after the bootstrap property source or to the first
         // 如果包含apollo外部化配置启动属性源，添加到后面；如果没有添加到最前面
         if (environment.getPropertySources().contains(PropertySourcesConstants.APOLLO_BOOTSTRAP_PROPERTY_SOURCE_NAME)) {
@@ -155,9 +189,9 @@ public class PropertySourcesProcessor implements BeanFactoryPostProcessor, Envir
 
             // 把命名空间属性源插入到apollo初始化属性源的后面
             environment.getPropertySources().addAfter(
-                    PropertySourcesConstants.APOLLO_BOOTSTRAP_PROPERTY_SOURCE_NAME, composite);
+                    PropertySourcesConstants.APOLLO_BOOTSTRAP_PROPERTY_SOURCE_NAME, propertySource);
         } else {
-            environment.getPropertySources().addFirst(composite);
+            environment.getPropertySources().addFirst(propertySource);
         }
     }
 
@@ -205,6 +239,12 @@ public class PropertySourcesProcessor implements BeanFactoryPostProcessor, Envir
         for (ConfigPropertySource configPropertySource : configPropertySources) {
             configPropertySource.addChangeListener(autoUpdateConfigChangeListener);
         }
+
+        // 合并的属性源重建之后再通知，保证监听器读到的是新值
+        for (MergedConfigPropertySource mergedConfigPropertySource :
+                configPropertySourceFactory.getAllMergedConfigPropertySources()) {
+            mergedConfigPropertySource.addChangeListener(autoUpdateConfigChangeListener);
+        }
     }
 
     @Override
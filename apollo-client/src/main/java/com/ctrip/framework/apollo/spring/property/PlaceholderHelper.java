@@ -1,6 +1,9 @@
 package com.ctrip.framework.apollo.spring.property;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanExpressionContext;
@@ -25,6 +28,18 @@ public class PlaceholderHelper {
     private static final String EXPRESSION_PREFIX = "#{";
     private static final String EXPRESSION_SUFFIX = "}";
 
+    /**
+     * 最多缓存多少个占位符的解析结果
+     */
+    private static final int MAX_CACHED_PLACEHOLDERS = 10000;
+
+    /**
+     * 占位符 -> 解析出的key，同一个 @Value 在每个 bean 实例上都会解析，缓存之后只解析一次
+     */
+    private final Cache<String, Set<String>> placeholderKeysCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_PLACEHOLDERS)
+            .build();
+
     /**
      * 解析占位符属性
      * <p>
@@ -85,8 +100,22 @@ public class PlaceholderHelper {
      * <li>${${some.key}:${another.key}} => "some.key", "another.key"</li>
      * <li>#{new java.text.SimpleDateFormat('${some.key}').parse('${another.key}')} => "some.key", "another.key"</li>
      * </ul>
+     * 返回的集合不可修改
      */
     public Set<String> extractPlaceholderKeys(String propertyString) {
+        if (Strings.isNullOrEmpty(propertyString)) {
+            return ImmutableSet.of();
+        }
+        Set<String> placeholderKeys = placeholderKeysCache.getIfPresent(propertyString);
+        if (placeholderKeys == null) {
+            // 并发解析的结果相同，不需要加锁
+            placeholderKeys = ImmutableSet.copyOf(this.doExtractPlaceholderKeys(propertyString));
+            placeholderKeysCache.put(propertyString, placeholderKeys);
+        }
+        return placeholderKeys;
+    }
+
+    private Set<String> doExtractPlaceholderKeys(String propertyString) {
         Set<String> placeholderKeys = Sets.newHashSet();
 
         if (Strings.isNullOrEmpty(propertyString) || (!isNormalizedPlaceholder(propertyString) && !isExpressionWithPlaceholder(propertyString))) {
@@ -62,6 +62,11 @@ public class ConfigUtil {
      */
     private boolean propertiesOrdered = false;
 
+    /**
+     * 是否把所有命名空间合并成一个spring属性源，默认未开启
+     */
+    private boolean mergedPropertySourceEnabled = false;
+
     public ConfigUtil() {
         warnLogRateLimiter = RateLimiter.create(0.017); // 1 warning log output per minute
         initRefreshInterval();
@@ -73,6 +78,7 @@ public class ConfigUtil {
         initLongPollingInitialDelayInMills();
         initAutoUpdateInjectedSpringProperties();
         initPropertiesOrdered();
+        initMergedPropertySource();
     }
 
     /**
@@ -391,4 +397,21 @@ public class ConfigUtil {
     public boolean isPropertiesOrderEnabled() {
         return propertiesOrdered;
     }
+
+    /**
+     * 初始化是否合并spring属性源，先读取系统属性，再读取 app.properties
+     */
+    private void initMergedPropertySource() {
+        String enableMerged = System.getProperty("apollo.property.source.merged");
+        if (Strings.isNullOrEmpty(enableMerged)) {
+            enableMerged = Foundation.app().getProperty("apollo.property.source.merged", null);
+        }
+        if (!Strings.isNullOrEmpty(enableMerged)) {
+            mergedPropertySourceEnabled = Boolean.parseBoolean(enableMerged.trim());
+        }
+    }
+
+    public boolean isMergedPropertySourceEnabled() {
+        return mergedPropertySourceEnabled;
+    }
 }
@@ -1,5 +1,9 @@
 package com.ctrip.framework.apollo.util.http;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 /**
  * http请求返回
  *
@@ -11,9 +15,19 @@ public class HttpResponse<T> {
 
     private final T body;
 
+    /**
+     * 响应头，key：响应头名称，value：响应头的值
+     */
+    private final Map<String, List<String>> headers;
+
     public HttpResponse(int statusCode, T body) {
+        this(statusCode, body, Collections.<String, List<String>>emptyMap());
+    }
+
+    public HttpResponse(int statusCode, T body, Map<String, List<String>> headers) {
         this.statusCode = statusCode;
         this.body = body;
+        this.headers = headers == null ? Collections.<String, List<String>>emptyMap() : headers;
     }
 
     public int getStatusCode() {
@@ -23,4 +37,19 @@ public class HttpResponse<T> {
     public T getBody() {
         return body;
     }
+
+    /**
+     * 获取响应头的第一个值，响应头名称不区分大小写
+     *
+     * @param name 响应头名称
+     * @return 响应头的值，不存在时返回 null
+     */
+    public String getHeader(String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
 }
@@ -150,12 +150,12 @@ public class HttpUtil {
 
             // 200返回码
             if (statusCode == 200) {
-                return new HttpResponse<>(statusCode, serializeFunction.apply(response));
+                return new HttpResponse<>(statusCode, serializeFunction.apply(response), conn.getHeaderFields());
             }
 
             // 304返回码
             if (statusCode == 304) {
-                return new HttpResponse<>(statusCode, null);
+                return new HttpResponse<>(statusCode, null, conn.getHeaderFields());
             }
         } catch (ApolloConfigStatusCodeException ex) {
             throw ex;
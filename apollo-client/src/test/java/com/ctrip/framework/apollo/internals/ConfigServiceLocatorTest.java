@@ -1,17 +1,44 @@
 package com.ctrip.framework.apollo.internals;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.ServiceNameConsts;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.core.enums.Env;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.http.HttpRequest;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.ctrip.framework.apollo.util.http.HttpUtil;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import java.io.File;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.junit.After;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 public class ConfigServiceLocatorTest {
 
+  private File someCacheDir;
+
   @After
   public void tearDown() throws Exception {
     System.clearProperty("apollo.configService");
+    MockInjector.reset();
+    MockInjector.setDelegate(new DefaultInjector());
   }
 
   @Test
@@ -30,4 +57,87 @@ public class ConfigServiceLocatorTest {
     assertEquals(someConfigServiceUrl.trim(), result.get(0).getHomepageUrl());
     assertEquals(anotherConfigServiceUrl.trim(), result.get(1).getHomepageUrl());
   }
+
+  @Test
+  public void testGetConfigServicesPersistedAndReusedWithETag() throws Exception {
+    String someConfigServiceUrl = "http://someConfigService";
+    String someETag = "\"someETag\"";
+    HttpUtil httpUtil = mockInjectedDependencies();
+
+    ServiceDTO someService = new ServiceDTO();
+    someService.setAppName(ServiceNameConsts.APOLLO_CONFIGSERVICE);
+    someService.setInstanceId(someConfigServiceUrl);
+    someService.setHomepageUrl(someConfigServiceUrl);
+    HttpResponse<List<ServiceDTO>> someResponse = new HttpResponse<List<ServiceDTO>>(200,
+        Lists.newArrayList(someService), ImmutableMap.<String, List<String>>of("ETag",
+        Collections.singletonList(someETag)));
+    when(httpUtil.<List<ServiceDTO>>doGet(any(HttpRequest.class), any(Type.class))).thenReturn(someResponse);
+
+    List<ServiceDTO> result = new ConfigServiceLocator().getConfigServices();
+
+    assertEquals(1, result.size());
+    assertEquals(someConfigServiceUrl, result.get(0).getHomepageUrl());
+
+    File localServicesFile = new File(someCacheDir, "config-cache/" + ServiceNameConsts.APOLLO_CONFIGSERVICE + "+"
+        + Env.DEV + ".json");
+    assertTrue(localServicesFile.isFile());
+
+    HttpUtil anotherHttpUtil = mockInjectedDependencies(someCacheDir);
+    HttpResponse<List<ServiceDTO>> notModifiedResponse = new HttpResponse<>(304, null);
+    when(anotherHttpUtil.<List<ServiceDTO>>doGet(any(HttpRequest.class), any(Type.class)))
+        .thenReturn(notModifiedResponse);
+
+    List<ServiceDTO> anotherResult = new ConfigServiceLocator().getConfigServices();
+
+    assertEquals(1, anotherResult.size());
+    assertEquals(someConfigServiceUrl, anotherResult.get(0).getHomepageUrl());
+
+    ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(anotherHttpUtil, timeout(1000)).doGet(requestCaptor.capture(), any(Type.class));
+    Map<String, String> headers = requestCaptor.getValue().getHeaders();
+    assertEquals(someETag, headers.get("If-None-Match"));
+  }
+
+  @Test
+  public void testGetConfigServicesFromLocalFileWhenMetaServiceUnavailable() throws Exception {
+    String someConfigServiceUrl = "http://someConfigService";
+    HttpUtil httpUtil = mockInjectedDependencies();
+    when(httpUtil.<List<ServiceDTO>>doGet(any(HttpRequest.class), any(Type.class)))
+        .thenThrow(new RuntimeException("meta service unavailable"));
+
+    File localServicesFile = new File(someCacheDir, "config-cache/" + ServiceNameConsts.APOLLO_CONFIGSERVICE + "+"
+        + Env.DEV + ".json");
+    Files.createParentDirs(localServicesFile);
+    Files.write("{\"services\":[{\"appName\":\"" + ServiceNameConsts.APOLLO_CONFIGSERVICE + "\",\"homepageUrl\":\""
+        + someConfigServiceUrl + "\"}]}", localServicesFile, StandardCharsets.UTF_8);
+
+    List<ServiceDTO> result = new ConfigServiceLocator().getConfigServices();
+
+    assertEquals(1, result.size());
+    assertEquals(someConfigServiceUrl, result.get(0).getHomepageUrl());
+  }
+
+  private HttpUtil mockInjectedDependencies() throws Exception {
+    return mockInjectedDependencies(java.nio.file.Files.createTempDirectory("apollo-services").toFile());
+  }
+
+  private HttpUtil mockInjectedDependencies(File cacheDir) {
+    someCacheDir = cacheDir;
+
+    ConfigUtil configUtil = mock(ConfigUtil.class);
+    when(configUtil.getAppId()).thenReturn("someAppId");
+    when(configUtil.getApolloEnv()).thenReturn(Env.DEV);
+    when(configUtil.getMetaServerDomainName()).thenReturn("http://someMetaServer");
+    when(configUtil.getDefaultLocalCacheDir()).thenReturn(cacheDir.getAbsolutePath());
+    when(configUtil.getRefreshInterval()).thenReturn(5);
+    when(configUtil.getRefreshIntervalTimeUnit()).thenReturn(TimeUnit.MINUTES);
+    when(configUtil.getOnErrorRetryInterval()).thenReturn(1L);
+    when(configUtil.getOnErrorRetryIntervalTimeUnit()).thenReturn(TimeUnit.MILLISECONDS);
+    HttpUtil httpUtil = mock(HttpUtil.class);
+
+    MockInjector.reset();
+    MockInjector.setInstance(ConfigUtil.class, configUtil);
+    MockInjector.setInstance(HttpUtil.class, httpUtil);
+    return httpUtil;
+  }
 }
@@ -0,0 +1,76 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.http.HttpUtil;
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Long poll session handling of {@link RemoteConfigLongPollService}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class RemoteConfigLongPollServiceSessionTest {
+  private RemoteConfigLongPollService remoteConfigLongPollService;
+  @Mock
+  private HttpUtil httpUtil;
+  @Mock
+  private ConfigServiceLocator configServiceLocator;
+
+  private String someServerUrl;
+  private String someAppId;
+  private String someCluster;
+  private Map<String, Long> someNotificationsMap;
+
+  @Before
+  public void setUp() throws Exception {
+    MockInjector.reset();
+    MockInjector.setInstance(HttpUtil.class, httpUtil);
+    MockInjector.setInstance(ConfigServiceLocator.class, configServiceLocator);
+    MockInjector.setInstance(ConfigUtil.class, new RemoteConfigLongPollServiceTest.MockConfigUtil());
+
+    remoteConfigLongPollService = new RemoteConfigLongPollService();
+
+    someServerUrl = "http://someServer";
+    someAppId = "someAppId";
+    someCluster = "someCluster";
+    someNotificationsMap = ImmutableMap.of("someName", 1L);
+  }
+
+  @Test
+  public void testAssembleLongPollRefreshUrlWithSession() throws Exception {
+    String someSession = "someSession";
+
+    String longPollRefreshUrl = remoteConfigLongPollService
+        .assembleLongPollRefreshUrl(someServerUrl, someAppId, someCluster, null, someNotificationsMap,
+            someSession);
+
+    assertTrue(longPollRefreshUrl.contains("session=" + someSession));
+  }
+
+  @Test
+  public void testAssembleLongPollRefreshUrlWithSessionOptIn() throws Exception {
+    String longPollRefreshUrl = remoteConfigLongPollService
+        .assembleLongPollRefreshUrl(someServerUrl, someAppId, someCluster, null, someNotificationsMap,
+            ConfigConsts.LONG_POLL_SESSION_OPT_IN);
+
+    assertTrue(longPollRefreshUrl.contains("session=" + ConfigConsts.LONG_POLL_SESSION_OPT_IN));
+  }
+
+  @Test
+  public void testAssembleLongPollRefreshUrlWithoutSession() throws Exception {
+    String longPollRefreshUrl = remoteConfigLongPollService
+        .assembleLongPollRefreshUrl(someServerUrl, someAppId, someCluster, null, someNotificationsMap);
+
+    assertFalse(longPollRefreshUrl.contains("session="));
+  }
+}
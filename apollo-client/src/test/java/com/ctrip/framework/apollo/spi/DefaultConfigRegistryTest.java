@@ -42,6 +42,18 @@ public class DefaultConfigRegistryTest {
     assertNull(defaultConfigRegistry.getFactory(someUnregisteredNamespace));
   }
 
+  @Test
+  public void testUnregister() throws Exception {
+    String someNamespace = "someName";
+    ConfigFactory someConfigFactory = new MockConfigFactory();
+
+    defaultConfigRegistry.register(someNamespace, someConfigFactory);
+
+    assertThat(defaultConfigRegistry.unregister(someNamespace), equalTo(someConfigFactory));
+    assertNull(defaultConfigRegistry.getFactory(someNamespace));
+    assertNull(defaultConfigRegistry.unregister(someNamespace));
+  }
+
   public static class MockConfigFactory implements ConfigFactory {
 
     @Override
@@ -0,0 +1,117 @@
+package com.ctrip.framework.apollo.spring.annotation;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Post processes a bean the way every Apollo processor does during startup, walking all fields and
+ * methods of the bean class per bean, and with the per class metadata of {@link ApolloProcessor}.
+ * <p>
+ * Run with {@code main} from the IDE, or {@code java -cp <test classpath> org.openjdk.jmh.Main ApolloProcessorBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApolloProcessorBenchmark {
+
+  private SomeBean bean;
+  private ApolloProcessor processor;
+
+  @Setup
+  public void setUp() {
+    bean = new SomeBean();
+    processor = new NoOpProcessor();
+  }
+
+  @Benchmark
+  public void walkAllMembers(final Blackhole blackhole) {
+    ReflectionUtils.doWithFields(bean.getClass(), new ReflectionUtils.FieldCallback() {
+      @Override
+      public void doWith(Field field) {
+        blackhole.consume(field.isAnnotationPresent(Value.class));
+      }
+    });
+    ReflectionUtils.doWithMethods(bean.getClass(), new ReflectionUtils.MethodCallback() {
+      @Override
+      public void doWith(Method method) {
+        blackhole.consume(method.isAnnotationPresent(Value.class));
+      }
+    });
+  }
+
+  @Benchmark
+  public Object processWithMetadata() {
+    return processor.postProcessBeforeInitialization(bean, "someBean");
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(ApolloProcessorBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+
+  private static class NoOpProcessor extends ApolloProcessor {
+
+    @Override
+    protected boolean isCandidateField(Field field) {
+      return field.isAnnotationPresent(Value.class);
+    }
+
+    @Override
+    protected boolean isCandidateMethod(Method method) {
+      return method.isAnnotationPresent(Value.class);
+    }
+
+    @Override
+    protected void processField(Object bean, String beanName, Field field) {
+    }
+
+    @Override
+    protected void processMethod(Object bean, String beanName, Method method) {
+    }
+  }
+
+  private static class SomeBean {
+
+    @Value("${someKey}")
+    private String someField;
+    private String field1;
+    private String field2;
+    private String field3;
+    private String field4;
+    private String field5;
+
+    @Value("${anotherKey:100}")
+    public void setSomeValue(int someValue) {
+    }
+
+    public void method1() {
+    }
+
+    public void method2() {
+    }
+
+    public void method3() {
+    }
+  }
+}
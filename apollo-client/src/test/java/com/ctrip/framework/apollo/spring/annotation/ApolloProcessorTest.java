@@ -0,0 +1,94 @@
+package com.ctrip.framework.apollo.spring.annotation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Value;
+
+public class ApolloProcessorTest {
+
+  private CountingProcessor processor;
+
+  @Before
+  public void setUp() throws Exception {
+    processor = new CountingProcessor();
+  }
+
+  @Test
+  public void testProcessCandidateMembers() throws Exception {
+    processor.postProcessBeforeInitialization(new SomeBean(), "someBean");
+
+    assertEquals(Lists.newArrayList("someField"), processor.processedFields);
+    assertEquals(Lists.newArrayList("setSomeValue"), processor.processedMethods);
+  }
+
+  @Test
+  public void testInspectClassOnlyOnce() throws Exception {
+    processor.postProcessBeforeInitialization(new SomeBean(), "someBean");
+    int inspectedMembers = processor.inspectedMembers;
+
+    processor.postProcessBeforeInitialization(new SomeBean(), "anotherBean");
+
+    assertEquals(inspectedMembers, processor.inspectedMembers);
+    assertEquals(2, processor.processedFields.size());
+    assertEquals(2, processor.processedMethods.size());
+  }
+
+  @Test
+  public void testSkipClassWithoutCandidates() throws Exception {
+    processor.postProcessBeforeInitialization(new Object(), "someBean");
+
+    assertTrue(processor.processedFields.isEmpty());
+    assertTrue(processor.processedMethods.isEmpty());
+  }
+
+  private static class CountingProcessor extends ApolloProcessor {
+
+    private final List<String> processedFields = Lists.newArrayList();
+    private final List<String> processedMethods = Lists.newArrayList();
+    private int inspectedMembers;
+
+    @Override
+    protected boolean isCandidateField(Field field) {
+      inspectedMembers++;
+      return field.isAnnotationPresent(Value.class);
+    }
+
+    @Override
+    protected boolean isCandidateMethod(Method method) {
+      inspectedMembers++;
+      return method.isAnnotationPresent(Value.class);
+    }
+
+    @Override
+    protected void processField(Object bean, String beanName, Field field) {
+      processedFields.add(field.getName());
+    }
+
+    @Override
+    protected void processMethod(Object bean, String beanName, Method method) {
+      processedMethods.add(method.getName());
+    }
+  }
+
+  private static class SomeBean {
+
+    @Value("${someKey}")
+    private String someField;
+
+    private String anotherField;
+
+    @Value("${someValue}")
+    public void setSomeValue(String someValue) {
+    }
+
+    public void setAnotherValue(String anotherValue) {
+    }
+  }
+}
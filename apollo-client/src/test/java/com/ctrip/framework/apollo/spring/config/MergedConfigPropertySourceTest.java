@@ -0,0 +1,109 @@
+package com.ctrip.framework.apollo.spring.config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MergedConfigPropertySourceTest {
+
+  private static final String SOME_NAME = "someName";
+
+  @Mock
+  private Config someConfig;
+  @Mock
+  private Config anotherConfig;
+
+  private List<ConfigChangeListener> configListeners;
+
+  @Before
+  public void setUp() throws Exception {
+    configListeners = Lists.newArrayList();
+    Answer<Void> addListener = new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        configListeners.add(invocation.getArgumentAt(0, ConfigChangeListener.class));
+        return null;
+      }
+    };
+    doAnswer(addListener).when(someConfig).addChangeListener(any(ConfigChangeListener.class));
+    doAnswer(addListener).when(anotherConfig).addChangeListener(any(ConfigChangeListener.class));
+  }
+
+  @Test
+  public void testMergeByPrecedence() throws Exception {
+    mockConfig(someConfig, "someKey", "someValue", "sharedKey", "someSharedValue");
+    mockConfig(anotherConfig, "sharedKey", "anotherSharedValue", "anotherKey", "anotherValue");
+
+    MergedConfigPropertySource propertySource = new MergedConfigPropertySource(SOME_NAME,
+        Lists.newArrayList(someConfig, anotherConfig));
+
+    assertArrayEquals(new String[]{"someKey", "sharedKey", "anotherKey"}, propertySource.getPropertyNames());
+    assertEquals("someSharedValue", propertySource.getProperty("sharedKey"));
+    assertEquals("anotherValue", propertySource.getProperty("anotherKey"));
+    assertTrue(propertySource.containsProperty("someKey"));
+    assertFalse(propertySource.containsProperty("missingKey"));
+    assertNull(propertySource.getProperty("missingKey"));
+  }
+
+  @Test
+  public void testRebuildBeforeNotifyingListeners() throws Exception {
+    mockConfig(someConfig, "someKey", "someValue");
+    mockConfig(anotherConfig);
+
+    final MergedConfigPropertySource propertySource = new MergedConfigPropertySource(SOME_NAME,
+        Lists.newArrayList(someConfig, anotherConfig));
+    final AtomicReference<Object> valueSeenByListener = new AtomicReference<>();
+    propertySource.addChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        valueSeenByListener.set(propertySource.getProperty("someKey"));
+      }
+    });
+
+    assertEquals(2, configListeners.size());
+
+    mockConfig(someConfig, "someKey", "newValue");
+    configListeners.get(0).onChange(new ConfigChangeEvent("someNamespace",
+        ImmutableMap.of("someKey", new ConfigChange("someNamespace", "someKey", "someValue", "newValue", null))));
+
+    assertEquals("newValue", propertySource.getProperty("someKey"));
+    assertEquals("newValue", valueSeenByListener.get());
+  }
+
+  private void mockConfig(Config config, String... keyValues) {
+    if (keyValues.length == 0) {
+      when(config.getPropertyNames()).thenReturn(Collections.<String>emptySet());
+      return;
+    }
+    List<String> keys = Lists.newArrayList();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      keys.add(keyValues[i]);
+      when(config.getProperty(keyValues[i], null)).thenReturn(keyValues[i + 1]);
+    }
+    when(config.getPropertyNames()).thenReturn(Sets.newLinkedHashSet(keys));
+  }
+}
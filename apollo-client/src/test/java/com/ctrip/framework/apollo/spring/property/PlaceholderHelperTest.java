@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.spring.property;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.Sets;
@@ -56,6 +57,15 @@ public class PlaceholderHelperTest {
     assertTrue(placeholderHelper.extractPlaceholderKeys("some.key:100").isEmpty());
   }
 
+  @Test
+  public void testExtractPlaceholderKeysCached() throws Exception {
+    String propertyString = "${some.key:${some.other.key}}";
+
+    assertSame(placeholderHelper.extractPlaceholderKeys(propertyString),
+        placeholderHelper.extractPlaceholderKeys(propertyString));
+    assertTrue(placeholderHelper.extractPlaceholderKeys(null).isEmpty());
+  }
+
   private void check(String propertyString, String... expectedPlaceholders) {
     assertEquals(Sets.newHashSet(expectedPlaceholders), placeholderHelper.extractPlaceholderKeys(propertyString));
   }
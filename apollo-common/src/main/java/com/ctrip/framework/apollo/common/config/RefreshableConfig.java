@@ -34,9 +34,9 @@ public abstract class RefreshableConfig {
     protected Splitter splitter = Splitter.on(LIST_SEPARATOR).omitEmptyStrings().trimResults();
 
     /**
-     * 配置刷新周期
+     * 配置变更检查周期，属性源只有在发生变化时才会真正刷新
      */
-    private static final int CONFIG_REFRESH_INTERVAL = 60;
+    private static final int CONFIG_CHANGE_CHECK_INTERVAL = 5;
 
     @Autowired
     private ConfigurableEnvironment environment;
@@ -62,23 +62,36 @@ public abstract class RefreshableConfig {
 
         // 遍历属性源并刷新，添加属性源到环境变量的最后
         for (RefreshablePropertySource propertySource : propertySources) {
-            propertySource.refresh();
+            propertySource.refreshIfChanged();
             environment.getPropertySources().addLast(propertySource);
         }
+        onRefreshed();
 
         // 用于更新配置的线程池
         ScheduledExecutorService executorService = Executors.newScheduledThreadPool(
                 1, ApolloThreadFactory.create("ConfigRefresher", true));
 
-        // 提交定时任务，定时刷新配置
+        // 提交定时任务，定时检查配置变更，有变化时才刷新
         executorService.scheduleWithFixedDelay(() -> {
             try {
-                propertySources.forEach(RefreshablePropertySource::refresh);
+                boolean refreshed = false;
+                for (RefreshablePropertySource propertySource : propertySources) {
+                    refreshed |= propertySource.refreshIfChanged();
+                }
+                if (refreshed) {
+                    onRefreshed();
+                }
             } catch (Throwable t) {
                 logger.error("Refresh configs failed.", t);
                 Tracer.logError("Refresh configs failed.", t);
             }
-        }, CONFIG_REFRESH_INTERVAL, CONFIG_REFRESH_INTERVAL, TimeUnit.SECONDS);
+        }, CONFIG_CHANGE_CHECK_INTERVAL, CONFIG_CHANGE_CHECK_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 属性源刷新后的回调，子类可以在此重建基于配置的快照
+     */
+    protected void onRefreshed() {
     }
 
     /**
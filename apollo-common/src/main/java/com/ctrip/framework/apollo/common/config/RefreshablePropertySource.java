@@ -3,12 +3,23 @@ package com.ctrip.framework.apollo.common.config;
 import org.springframework.core.env.MapPropertySource;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 抽象的属性源，实现刷新方法
  */
 public abstract class RefreshablePropertySource extends MapPropertySource {
 
+    /**
+     * 未实现变更跟踪时的默认刷新周期
+     */
+    private static final long DEFAULT_REFRESH_INTERVAL_IN_MILLI = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * 上次刷新的时间
+     */
+    private volatile long lastRefreshTime;
+
     public RefreshablePropertySource(String name, Map<String, Object> source) {
         super(name, source);
     }
@@ -24,4 +35,28 @@ public abstract class RefreshablePropertySource extends MapPropertySource {
      */
     protected abstract void refresh();
 
+    /**
+     * 属性源自上次刷新后是否可能发生了变化
+     * 默认按固定周期认为有变化，子类可以基于变更跟踪（如最后修改时间）重写，避免无变化时的全量刷新
+     *
+     * @return true有变化，需要刷新
+     */
+    protected boolean isChanged() {
+        return System.currentTimeMillis() - lastRefreshTime >= DEFAULT_REFRESH_INTERVAL_IN_MILLI;
+    }
+
+    /**
+     * 有变化时才刷新
+     *
+     * @return 是否执行了刷新
+     */
+    boolean refreshIfChanged() {
+        if (!isChanged()) {
+            return false;
+        }
+        refresh();
+        lastRefreshTime = System.currentTimeMillis();
+        return true;
+    }
+
 }
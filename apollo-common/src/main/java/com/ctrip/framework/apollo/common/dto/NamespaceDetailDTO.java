@@ -0,0 +1,65 @@
+package com.ctrip.framework.apollo.common.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 命名空间详情dto
+ * <p>
+ * 包含命名空间的基础信息、当前的项、已删除的项和最后发布的配置，
+ * portal 据此一次性计算出命名空间的修改状态，不需要再逐个请求 admin service
+ */
+public class NamespaceDetailDTO {
+
+    /**
+     * 命名空间基础信息
+     */
+    private NamespaceDTO baseInfo;
+
+    /**
+     * 当前的项，已排序
+     */
+    private List<ItemDTO> items;
+
+    /**
+     * 从变更记录中找到的已删除的项
+     */
+    private List<ItemDTO> deletedItems;
+
+    /**
+     * 最后一次有效发布的配置，未发布时为空
+     */
+    private Map<String, String> releaseConfigurations;
+
+    public NamespaceDTO getBaseInfo() {
+        return baseInfo;
+    }
+
+    public void setBaseInfo(NamespaceDTO baseInfo) {
+        this.baseInfo = baseInfo;
+    }
+
+    public List<ItemDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ItemDTO> items) {
+        this.items = items;
+    }
+
+    public List<ItemDTO> getDeletedItems() {
+        return deletedItems;
+    }
+
+    public void setDeletedItems(List<ItemDTO> deletedItems) {
+        this.deletedItems = deletedItems;
+    }
+
+    public Map<String, String> getReleaseConfigurations() {
+        return releaseConfigurations;
+    }
+
+    public void setReleaseConfigurations(Map<String, String> releaseConfigurations) {
+        this.releaseConfigurations = releaseConfigurations;
+    }
+}
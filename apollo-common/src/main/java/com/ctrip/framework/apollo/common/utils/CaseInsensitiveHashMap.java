@@ -0,0 +1,323 @@
+package com.ctrip.framework.apollo.common.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 键忽略大小写的哈希表
+ * <p>
+ * 直接按字符折叠大小写后计算哈希、比较键，查询时不需要 toLowerCase 生成新字符串，
+ * 也不需要像 {@link String#CASE_INSENSITIVE_ORDER} 的 TreeMap 那样做 O(log n) 次字符串比较。
+ * <p>
+ * 读操作无锁，写操作串行：链表节点不可变，写入时复制受影响的链表前缀后再发布，
+ * 因此读线程总能看到一致的链表。适用于读多写少的缓存场景，不允许 null 键和 null 值。
+ * <p>
+ * 保留第一次写入时的键，与 {@link java.util.HashMap} 一致。
+ *
+ * @param <V> 值类型
+ */
+public class CaseInsensitiveHashMap<V> extends AbstractMap<String, V> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * 哈希桶，扩容时整体替换
+     */
+    private volatile AtomicReferenceArray<Node<V>> table;
+
+    private volatile int size;
+
+    /**
+     * 扩容阈值，只在写锁内访问
+     */
+    private int threshold;
+
+    private transient Set<Map.Entry<String, V>> entrySet;
+
+    public CaseInsensitiveHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public CaseInsensitiveHashMap(int initialCapacity) {
+        int capacity = tableSizeFor(Math.max(initialCapacity, 1));
+        this.table = new AtomicReferenceArray<>(capacity);
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String name = (String) key;
+        int hash = hash(name);
+        AtomicReferenceArray<Node<V>> tab = table;
+        for (Node<V> node = tab.get(hash & (tab.length() - 1)); node != null; node = node.next) {
+            if (node.hash == hash && keyEquals(node.key, name)) {
+                return node.value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized V put(String key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        AtomicReferenceArray<Node<V>> tab = table;
+        int index = hash & (tab.length() - 1);
+        Node<V> head = tab.get(index);
+        for (Node<V> node = head; node != null; node = node.next) {
+            if (node.hash == hash && keyEquals(node.key, key)) {
+                // 替换已有节点：复制前缀，新节点接上原来的后缀
+                tab.set(index, copyPrefix(head, node, new Node<>(node.key, hash, value, node.next)));
+                return node.value;
+            }
+        }
+        tab.set(index, new Node<>(key, hash, value, head));
+        if (++size > threshold) {
+            resize();
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized V remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String name = (String) key;
+        int hash = hash(name);
+        AtomicReferenceArray<Node<V>> tab = table;
+        int index = hash & (tab.length() - 1);
+        Node<V> head = tab.get(index);
+        for (Node<V> node = head; node != null; node = node.next) {
+            if (node.hash == hash && keyEquals(node.key, name)) {
+                tab.set(index, copyPrefix(head, node, node.next));
+                size--;
+                return node.value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void clear() {
+        table = new AtomicReferenceArray<>(table.length());
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        Set<Map.Entry<String, V>> es = entrySet;
+        return es == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    /**
+     * 忽略大小写的哈希，与 {@link #keyEquals(String, String)} 保持一致
+     */
+    static int hash(String key) {
+        int h = 0;
+        for (int i = 0, length = key.length(); i < length; i++) {
+            h = 31 * h + fold(key.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 忽略大小写比较，不分配内存
+     */
+    static boolean keyEquals(String a, String b) {
+        if (a == b) {
+            return true;
+        }
+        int length = a.length();
+        if (length != b.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c1 = a.charAt(i);
+            char c2 = b.charAt(i);
+            if (c1 != c2 && fold(c1) != fold(c2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 折叠大小写，ASCII 字符走快速路径
+     */
+    private static char fold(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * 复制 head 到 target 之间的节点，并接上 tail
+     */
+    private static <V> Node<V> copyPrefix(Node<V> head, Node<V> target, Node<V> tail) {
+        if (head == target) {
+            return tail;
+        }
+        return new Node<>(head.key, head.hash, head.value, copyPrefix(head.next, target, tail));
+    }
+
+    private void resize() {
+        AtomicReferenceArray<Node<V>> oldTable = table;
+        int oldCapacity = oldTable.length();
+        if (oldCapacity >= MAXIMUM_CAPACITY) {
+            threshold = Integer.MAX_VALUE;
+            return;
+        }
+        int newCapacity = oldCapacity << 1;
+        AtomicReferenceArray<Node<V>> newTable = new AtomicReferenceArray<>(newCapacity);
+        for (int i = 0; i < oldCapacity; i++) {
+            for (Node<V> node = oldTable.get(i); node != null; node = node.next) {
+                int index = node.hash & (newCapacity - 1);
+                newTable.set(index, new Node<>(node.key, node.hash, node.value, newTable.get(index)));
+            }
+        }
+        threshold = (int) (newCapacity * LOAD_FACTOR);
+        table = newTable;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Integer.highestOneBit(capacity - 1) << 1;
+        return n <= 0 ? 1 : Math.min(n, MAXIMUM_CAPACITY);
+    }
+
+    private static final class Node<V> implements Map.Entry<String, V> {
+        private final String key;
+        private final int hash;
+        private final V value;
+        private final Node<V> next;
+
+        Node(String key, int hash, V value, Node<V> next) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<String, V>> {
+        @Override
+        public Iterator<Map.Entry<String, V>> iterator() {
+            return new EntryIterator(table);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            CaseInsensitiveHashMap.this.clear();
+        }
+    }
+
+    /**
+     * 基于迭代开始时的哈希表快照，弱一致
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, V>> {
+        private final AtomicReferenceArray<Node<V>> tab;
+        private int index;
+        private Node<V> next;
+        private Node<V> last;
+
+        EntryIterator(AtomicReferenceArray<Node<V>> tab) {
+            this.tab = tab;
+            advance();
+        }
+
+        private void advance() {
+            if (next != null) {
+                next = next.next;
+            }
+            while (next == null && index < tab.length()) {
+                next = tab.get(index++);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            CaseInsensitiveHashMap.this.remove(last.key);
+            last = null;
+        }
+    }
+}
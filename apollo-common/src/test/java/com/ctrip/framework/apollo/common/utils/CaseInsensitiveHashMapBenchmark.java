@@ -0,0 +1,97 @@
+package com.ctrip.framework.apollo.common.utils;
+
+import com.google.common.collect.Maps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares case insensitive lookups of app namespace style keys:
+ * lower-casing into a ConcurrentHashMap, a TreeMap ordered by {@link String#CASE_INSENSITIVE_ORDER}
+ * and {@link CaseInsensitiveHashMap}.
+ * <p>
+ * Run with {@code main} from the IDE, or {@code java -cp <test classpath> org.openjdk.jmh.Main CaseInsensitiveHashMapBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaseInsensitiveHashMapBenchmark {
+
+  @Param({"1000", "300000"})
+  private int size;
+
+  private Map<String, Object> lowerCaseMap;
+  private Map<String, Object> treeMap;
+  private Map<String, Object> caseInsensitiveHashMap;
+
+  private String[] lookupKeys;
+
+  @Setup
+  public void setUp() {
+    lowerCaseMap = Maps.newConcurrentMap();
+    treeMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    caseInsensitiveHashMap = new CaseInsensitiveHashMap<>();
+
+    for (int i = 0; i < size; i++) {
+      String key = String.format("SomeAppId%d+application.Namespace%d", i, i % 50);
+      Object value = new Object();
+      lowerCaseMap.put(key.toLowerCase(), value);
+      treeMap.put(key, value);
+      caseInsensitiveHashMap.put(key, value);
+    }
+
+    lookupKeys = new String[1024];
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < lookupKeys.length; i++) {
+      int index = random.nextInt(size);
+      lookupKeys[i] = String.format("someappid%d+APPLICATION.namespace%d", index, index % 50);
+    }
+  }
+
+  @Benchmark
+  public void lowerCaseConcurrentHashMap(Blackhole blackhole) {
+    for (String key : lookupKeys) {
+      blackhole.consume(lowerCaseMap.get(key.toLowerCase()));
+    }
+  }
+
+  @Benchmark
+  public void caseInsensitiveTreeMap(Blackhole blackhole) {
+    for (String key : lookupKeys) {
+      blackhole.consume(treeMap.get(key));
+    }
+  }
+
+  @Benchmark
+  public void caseInsensitiveHashMap(Blackhole blackhole) {
+    for (String key : lookupKeys) {
+      blackhole.consume(caseInsensitiveHashMap.get(key));
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(CaseInsensitiveHashMapBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -0,0 +1,116 @@
+package com.ctrip.framework.apollo.common.utils;
+
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CaseInsensitiveHashMapTest {
+  private CaseInsensitiveHashMap<Object> caseInsensitiveHashMap;
+
+  @Before
+  public void setUp() throws Exception {
+    caseInsensitiveHashMap = new CaseInsensitiveHashMap<>();
+  }
+
+  @Test
+  public void testGetIgnoreCase() throws Exception {
+    String someKey = "someAppId+someNamespace";
+    Object someValue = new Object();
+
+    caseInsensitiveHashMap.put(someKey, someValue);
+
+    assertEquals(someValue, caseInsensitiveHashMap.get(someKey));
+    assertEquals(someValue, caseInsensitiveHashMap.get(someKey.toLowerCase()));
+    assertEquals(someValue, caseInsensitiveHashMap.get(someKey.toUpperCase()));
+    assertTrue(caseInsensitiveHashMap.containsKey("SOMEappid+someNAMESPACE"));
+    assertNull(caseInsensitiveHashMap.get("someAppId+anotherNamespace"));
+    assertNull(caseInsensitiveHashMap.get(1));
+  }
+
+  @Test
+  public void testPutKeepsFirstKey() throws Exception {
+    String someKey = "someKey";
+    Object someValue = new Object();
+    Object anotherValue = new Object();
+
+    assertNull(caseInsensitiveHashMap.put(someKey, someValue));
+    assertEquals(someValue, caseInsensitiveHashMap.put(someKey.toUpperCase(), anotherValue));
+
+    assertEquals(1, caseInsensitiveHashMap.size());
+    assertEquals(anotherValue, caseInsensitiveHashMap.get(someKey));
+    assertEquals(someKey, caseInsensitiveHashMap.keySet().iterator().next());
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    String someKey = "someKey";
+    Object someValue = new Object();
+
+    caseInsensitiveHashMap.put(someKey, someValue);
+
+    assertEquals(someValue, caseInsensitiveHashMap.remove("SOMEKEY"));
+    assertNull(caseInsensitiveHashMap.get(someKey));
+    assertTrue(caseInsensitiveHashMap.isEmpty());
+  }
+
+  @Test
+  public void testResizeAndIterate() throws Exception {
+    int someSize = 1000;
+    for (int i = 0; i < someSize; i++) {
+      caseInsensitiveHashMap.put("Key" + i, i);
+    }
+
+    assertEquals(someSize, caseInsensitiveHashMap.size());
+    for (int i = 0; i < someSize; i++) {
+      assertEquals(i, caseInsensitiveHashMap.get("KEY" + i));
+    }
+
+    int iterated = 0;
+    Iterator<Map.Entry<String, Object>> iterator = caseInsensitiveHashMap.entrySet().iterator();
+    while (iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+      iterated++;
+    }
+    assertEquals(someSize, iterated);
+    assertTrue(caseInsensitiveHashMap.isEmpty());
+  }
+
+  @Test
+  public void testAsMultimapBackingMap() throws Exception {
+    SetMultimap<String, String> multimap =
+        Multimaps.newSetMultimap(new CaseInsensitiveHashMap<Collection<String>>(), Sets::newTreeSet);
+
+    multimap.put("someKey", "b");
+    multimap.put("SOMEKEY", "a");
+
+    assertTrue(multimap.containsKey("somekey"));
+    assertEquals(Sets.newHashSet("a", "b"), multimap.get("SomeKey"));
+
+    multimap.remove("someKey", "a");
+    multimap.remove("someKey", "b");
+
+    assertFalse(multimap.containsKey("someKey"));
+  }
+
+  @Test
+  public void testKeyEqualsConsistentWithHash() throws Exception {
+    String someKey = "Apollo.Ünicode";
+    String anotherKey = "apollo.üNICODE";
+
+    assertTrue(CaseInsensitiveHashMap.keyEquals(someKey, anotherKey));
+    assertEquals(CaseInsensitiveHashMap.hash(someKey), CaseInsensitiveHashMap.hash(anotherKey));
+    assertFalse(CaseInsensitiveHashMap.keyEquals(someKey, "apollo.unicode"));
+  }
+}
@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.configservice;
 
 import com.ctrip.framework.apollo.biz.service.AppService;
+import com.ctrip.framework.apollo.configservice.service.ConfigCacheWarmUpService;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.data.domain.PageRequest;
@@ -10,14 +11,24 @@ import org.springframework.stereotype.Component;
 public class ConfigServiceHealthIndicator implements HealthIndicator {
 
   private final AppService appService;
+  private final ConfigCacheWarmUpService configCacheWarmUpService;
 
-  public ConfigServiceHealthIndicator(final AppService appService) {
+  public ConfigServiceHealthIndicator(final AppService appService,
+      final ConfigCacheWarmUpService configCacheWarmUpService) {
     this.appService = appService;
+    this.configCacheWarmUpService = configCacheWarmUpService;
   }
 
   @Override
   public Health health() {
     check();
+    // not ready to serve until the cache is warmed up
+    if (!configCacheWarmUpService.isFinished()) {
+      return Health.outOfService()
+          .withDetail("warmedUp", configCacheWarmUpService.getWarmedUpCount())
+          .withDetail("total", configCacheWarmUpService.getTotalCount())
+          .build();
+    }
     return Health.up().build();
   }
 
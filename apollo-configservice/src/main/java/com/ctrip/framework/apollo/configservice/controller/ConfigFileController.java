@@ -36,12 +36,16 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -53,12 +57,19 @@ public class ConfigFileController implements ReleaseMessageListener {
   private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
   private static final Splitter X_FORWARDED_FOR_SPLITTER = Splitter.on(",").omitEmptyStrings()
       .trimResults();
+  private static final Splitter HEADER_VALUE_SPLITTER = Splitter.on(",").omitEmptyStrings()
+      .trimResults();
+  private static final List<String> VARY_HEADERS = Lists.newArrayList(HttpHeaders.ACCEPT_ENCODING);
   private static final long MAX_CACHE_SIZE = 50 * 1024 * 1024; // 50MB
   private static final long EXPIRE_AFTER_WRITE = 30;
+  // smaller files are not worth compressing
+  private static final int GZIP_MIN_SIZE = 1024;
+  private static final String GZIP = "gzip";
+  private static final String GZIP_ETAG_SUFFIX = "--gzip";
   private final HttpHeaders propertiesResponseHeaders;
   private final HttpHeaders jsonResponseHeaders;
-  private final ResponseEntity<String> NOT_FOUND_RESPONSE;
-  private Cache<String, String> localCache;
+  private final ResponseEntity<byte[]> NOT_FOUND_RESPONSE;
+  private Cache<String, ConfigFile> localCache;
   private final Multimap<String, String>
       watchedKeys2CacheKey = Multimaps.synchronizedSetMultimap(HashMultimap.create());
   private final Multimap<String, String>
@@ -77,7 +88,7 @@ public class ConfigFileController implements ReleaseMessageListener {
       final GrayReleaseRulesHolder grayReleaseRulesHolder) {
     localCache = CacheBuilder.newBuilder()
         .expireAfterWrite(EXPIRE_AFTER_WRITE, TimeUnit.MINUTES)
-        .weigher((Weigher<String, String>) (key, value) -> value == null ? 0 : value.length())
+        .weigher((Weigher<String, ConfigFile>) (key, value) -> value == null ? 0 : value.weight())
         .maximumWeight(MAX_CACHE_SIZE)
         .removalListener(notification -> {
           String cacheKey = notification.getKey();
@@ -106,7 +117,7 @@ public class ConfigFileController implements ReleaseMessageListener {
   }
 
   @GetMapping(value = "/{appId}/{clusterName}/{namespace:.+}")
-  public ResponseEntity<String> queryConfigAsProperties(@PathVariable String appId,
+  public ResponseEntity<byte[]> queryConfigAsProperties(@PathVariable String appId,
                                                         @PathVariable String clusterName,
                                                         @PathVariable String namespace,
                                                         @RequestParam(value = "dataCenter", required = false) String dataCenter,
@@ -115,7 +126,7 @@ public class ConfigFileController implements ReleaseMessageListener {
                                                         HttpServletResponse response)
       throws IOException {
 
-    String result =
+    ConfigFile result =
         queryConfig(ConfigFileOutputFormat.PROPERTIES, appId, clusterName, namespace, dataCenter,
             clientIp, request, response);
 
@@ -123,11 +134,11 @@ public class ConfigFileController implements ReleaseMessageListener {
       return NOT_FOUND_RESPONSE;
     }
 
-    return new ResponseEntity<>(result, propertiesResponseHeaders, HttpStatus.OK);
+    return assembleResponse(result, propertiesResponseHeaders, request);
   }
 
   @GetMapping(value = "/json/{appId}/{clusterName}/{namespace:.+}")
-  public ResponseEntity<String> queryConfigAsJson(@PathVariable String appId,
+  public ResponseEntity<byte[]> queryConfigAsJson(@PathVariable String appId,
                                                   @PathVariable String clusterName,
                                                   @PathVariable String namespace,
                                                   @RequestParam(value = "dataCenter", required = false) String dataCenter,
@@ -135,7 +146,7 @@ public class ConfigFileController implements ReleaseMessageListener {
                                                   HttpServletRequest request,
                                                   HttpServletResponse response) throws IOException {
 
-    String result =
+    ConfigFile result =
         queryConfig(ConfigFileOutputFormat.JSON, appId, clusterName, namespace, dataCenter,
             clientIp, request, response);
 
@@ -143,10 +154,61 @@ public class ConfigFileController implements ReleaseMessageListener {
       return NOT_FOUND_RESPONSE;
     }
 
-    return new ResponseEntity<>(result, jsonResponseHeaders, HttpStatus.OK);
+    return assembleResponse(result, jsonResponseHeaders, request);
+  }
+
+  /**
+   * Writes the pre-encoded content as is, answers 304 if the client already has it
+   */
+  private ResponseEntity<byte[]> assembleResponse(ConfigFile configFile, HttpHeaders contentHeaders,
+                                                  HttpServletRequest request) {
+    boolean gzip = configFile.hasGzipContent() && acceptsGzip(request);
+    String etag = gzip ? configFile.getGzipEtag() : configFile.getEtag();
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag(etag);
+    headers.setVary(VARY_HEADERS);
+
+    if (matchesIfNoneMatch(request, configFile)) {
+      return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+    }
+
+    headers.putAll(contentHeaders);
+    if (gzip) {
+      headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+      return new ResponseEntity<>(configFile.getGzipContent(), headers, HttpStatus.OK);
+    }
+    return new ResponseEntity<>(configFile.getContent(), headers, HttpStatus.OK);
+  }
+
+  private boolean acceptsGzip(HttpServletRequest request) {
+    Enumeration<String> acceptEncodings = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+    while (acceptEncodings != null && acceptEncodings.hasMoreElements()) {
+      for (String encoding : HEADER_VALUE_SPLITTER.split(acceptEncodings.nextElement())) {
+        // gzip;q=0 means gzip is not acceptable
+        if (encoding.startsWith(GZIP) && !encoding.replace(" ", "").endsWith(";q=0")) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean matchesIfNoneMatch(HttpServletRequest request, ConfigFile configFile) {
+    Enumeration<String> ifNoneMatches = request.getHeaders(HttpHeaders.IF_NONE_MATCH);
+    while (ifNoneMatches != null && ifNoneMatches.hasMoreElements()) {
+      for (String etag : HEADER_VALUE_SPLITTER.split(ifNoneMatches.nextElement())) {
+        // the same content is not modified whichever encoding the client got it in
+        if ("*".equals(etag) || etag.equals(configFile.getEtag())
+            || (configFile.hasGzipContent() && etag.equals(configFile.getGzipEtag()))) {
+          return true;
+        }
+      }
+    }
+    return false;
   }
 
-  String queryConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
+  ConfigFile queryConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
                      String namespace, String dataCenter, String clientIp,
                      HttpServletRequest request,
                      HttpServletResponse response) throws IOException {
@@ -173,10 +235,10 @@ public class ConfigFileController implements ReleaseMessageListener {
     }
 
     //3. if not gray release, check weather cache exists, if exists, return
-    String result = localCache.getIfPresent(cacheKey);
+    ConfigFile result = localCache.getIfPresent(cacheKey);
 
     //4. if not exists, load from ConfigController
-    if (Strings.isNullOrEmpty(result)) {
+    if (result == null) {
       Tracer.logEvent("ConfigFile.Cache.Miss", cacheKey);
       result = loadConfig(outputFormat, appId, clusterName, namespace, dataCenter, clientIp,
           request, response);
@@ -211,7 +273,7 @@ public class ConfigFileController implements ReleaseMessageListener {
     return result;
   }
 
-  private String loadConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
+  private ConfigFile loadConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
                             String namespace, String dataCenter, String clientIp,
                             HttpServletRequest request,
                             HttpServletResponse response) throws IOException {
@@ -222,20 +284,29 @@ public class ConfigFileController implements ReleaseMessageListener {
       return null;
     }
 
-    String result = null;
+    String content = null;
 
     switch (outputFormat) {
       case PROPERTIES:
         Properties properties = new Properties();
         properties.putAll(apolloConfig.getConfigurations());
-        result = PropertiesUtil.toString(properties);
+        content = PropertiesUtil.toString(properties);
         break;
       case JSON:
-        result = gson.toJson(apolloConfig.getConfigurations());
+        content = gson.toJson(apolloConfig.getConfigurations());
         break;
     }
 
-    return result;
+    return new ConfigFile(content.getBytes(StandardCharsets.UTF_8),
+        assembleEtag(outputFormat, apolloConfig.getReleaseKey()));
+  }
+
+  /**
+   * Strong etag of the content, the merged release key identifies the configurations and the format
+   * identifies how they are rendered
+   */
+  private String assembleEtag(ConfigFileOutputFormat outputFormat, String releaseKey) {
+    return "\"" + outputFormat.getValue() + "-" + releaseKey + "\"";
   }
 
   String assembleCacheKey(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
@@ -285,6 +356,61 @@ public class ConfigFileController implements ReleaseMessageListener {
     }
   }
 
+  /**
+   * A rendered config file, encoded once and served as is until the release changes
+   */
+  static class ConfigFile {
+    private final byte[] content;
+    private final String etag;
+    private final byte[] gzipContent;
+    private final String gzipEtag;
+
+    ConfigFile(byte[] content, String etag) {
+      this.content = content;
+      this.etag = etag;
+      this.gzipContent = content.length >= GZIP_MIN_SIZE ? gzip(content) : null;
+      // the gzip representation has different bytes, so it needs its own strong etag
+      this.gzipEtag = gzipContent == null ? null
+          : etag.substring(0, etag.length() - 1) + GZIP_ETAG_SUFFIX + "\"";
+    }
+
+    byte[] getContent() {
+      return content;
+    }
+
+    String getEtag() {
+      return etag;
+    }
+
+    boolean hasGzipContent() {
+      return gzipContent != null;
+    }
+
+    byte[] getGzipContent() {
+      return gzipContent;
+    }
+
+    String getGzipEtag() {
+      return gzipEtag;
+    }
+
+    int weight() {
+      return content.length + (gzipContent == null ? 0 : gzipContent.length);
+    }
+
+    private static byte[] gzip(byte[] content) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+      try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+        gzipOut.write(content);
+      } catch (IOException ex) {
+        // never happens when writing to memory, just serve the content uncompressed
+        logger.warn("Compress config file failed", ex);
+        return null;
+      }
+      return out.toByteArray();
+    }
+  }
+
   private String tryToGetClientIp(HttpServletRequest request) {
     String forwardedFor = request.getHeader("X-FORWARDED-FOR");
     if (!Strings.isNullOrEmpty(forwardedFor)) {
@@ -6,6 +6,7 @@ import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.ctrip.framework.apollo.common.utils.CaseInsensitiveHashMap;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
@@ -16,6 +17,8 @@ import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.*;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -30,10 +33,12 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.async.DeferredResult;
 
+import javax.servlet.http.HttpServletResponse;
 import java.lang.reflect.Type;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -52,7 +57,8 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
      * 监控key和返回结果的map，get请求无结果通知时，则暂时挂起
      */
     private final Multimap<String, DeferredResultWrapper> deferredResults =
-            Multimaps.synchronizedSetMultimap(TreeMultimap.create(String.CASE_INSENSITIVE_ORDER, Ordering.natural()));
+            Multimaps.synchronizedSetMultimap(Multimaps.newSetMultimap(
+                    new CaseInsensitiveHashMap<Collection<DeferredResultWrapper>>(), Sets::newTreeSet));
 
     /**
      * +号分割
@@ -67,6 +73,11 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             new TypeToken<List<ApolloConfigNotification>>() {
             }.getType();
 
+    /**
+     * 最多缓存的长轮询会话数量
+     */
+    private static final int MAX_LONG_POLL_SESSIONS = 100000;
+
     /**
      * 大量通知批量执行线程池
      */
@@ -79,6 +90,11 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
     private final Gson gson;
     private final BizConfig bizConfig;
 
+    /**
+     * 长轮询会话，key：会话令牌，value：已解析的命名空间和 watch key，为 null 表示不使用会话
+     */
+    private final Cache<String, LongPollSession> longPollSessions;
+
     @Autowired
     public NotificationControllerV2(
             final WatchKeysUtil watchKeysUtil,
@@ -95,6 +111,11 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         this.namespaceUtil = namespaceUtil;
         this.gson = gson;
         this.bizConfig = bizConfig;
+        int sessionTtl = bizConfig.longPollingSessionTtl();
+        this.longPollSessions = sessionTtl <= 0 ? null : CacheBuilder.newBuilder()
+                .maximumSize(MAX_LONG_POLL_SESSIONS)
+                .expireAfterWrite(sessionTtl, TimeUnit.SECONDS)
+                .build();
     }
 
     /**
@@ -105,6 +126,9 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
      * @param notificationsAsString 客户端本地的配置通知信息
      * @param dataCenter            数据中心
      * @param clientIp              ip地址
+     * @param sessionToken          上次长轮询返回的会话令牌，还没有会话时为 {@link ConfigConsts#LONG_POLL_SESSION_OPT_IN}，
+     *                              不带该参数的客户端（老版本、非 Java 客户端）不会带回令牌，不为其缓存会话
+     * @param response              响应，用于返回会话令牌
      * @return 返回通知
      */
     @GetMapping
@@ -113,7 +137,9 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             @RequestParam(value = "cluster") String cluster,
             @RequestParam(value = "notifications") String notificationsAsString,
             @RequestParam(value = "dataCenter", required = false) String dataCenter,
-            @RequestParam(value = "ip", required = false) String clientIp) {
+            @RequestParam(value = "ip", required = false) String clientIp,
+            @RequestParam(value = "session", required = false) String sessionToken,
+            HttpServletResponse response) {
         // 转换客户端本地的通知字符串为实体类
         List<ApolloConfigNotification> notifications = null;
         try {
@@ -127,6 +153,17 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             throw new BadRequestException("Invalid format of notifications: " + notificationsAsString);
         }
 
+        // 同一个客户端每次长轮询的命名空间不变，会话有效时复用上次解析的命名空间和 watch key，否则重新解析
+        LongPollSession session = findSession(sessionToken, appId, cluster, dataCenter, notifications);
+        if (session == null) {
+            session = createSession(appId, cluster, dataCenter, notifications, notificationsAsString,
+                    sessionToken != null);
+            sessionToken = session.token;
+        }
+        if (sessionToken != null && response != null) {
+            response.setHeader(ConfigConsts.LONG_POLL_SESSION_HEADER, sessionToken);
+        }
+
         // 延迟结果包装类
         DeferredResultWrapper deferredResultWrapper = new DeferredResultWrapper(bizConfig.longPollingTimeoutInMilli());
         // 命名空间集合
@@ -134,7 +171,8 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         // 客户端的通知，key为命名空间名称，value为通知id
         Map<String, Long> clientSideNotifications = Maps.newHashMap();
         // 过滤该应用要的通知项，key为命名空间名称，value为客户端的通知
-        Map<String, ApolloConfigNotification> filteredNotifications = filterNotifications(appId, notifications);
+        Map<String, ApolloConfigNotification> filteredNotifications =
+                filterNotifications(notifications, session.resolvedNamespaces);
 
         // 遍历过滤后应该要通知的选项
         for (Map.Entry<String, ApolloConfigNotification> notificationEntry : filteredNotifications.entrySet()) {
@@ -158,10 +196,9 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             throw new BadRequestException("Invalid format of notifications: " + notificationsAsString);
         }
 
-        // 获取要监听的key的集合（包括自己应用的命名空间，以及关联的公共命名空间）
-        Multimap<String, String> watchedKeysMap =
-                watchKeysUtil.assembleAllWatchKeys(appId, cluster, namespaces, dataCenter);
-        Set<String> watchedKeys = Sets.newHashSet(watchedKeysMap.values());
+        // 要监听的key的集合（包括自己应用的命名空间，以及关联的公共命名空间）
+        Multimap<String, String> watchedKeysMap = session.watchedKeysMap;
+        Set<String> watchedKeys = session.watchedKeys;
 
         /*
          * 1、set deferredResult before the check, for avoid more waiting
@@ -230,27 +267,79 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
     }
 
     /**
-     * 过滤该应用需要的通知
+     * 查找有效的长轮询会话，会话必须是同一个应用、集群、数据中心，并且命名空间完全相同
+     *
+     * @return 会话，不存在（过期、被淘汰、其它节点签发）或者不匹配时返回 null
+     */
+    private LongPollSession findSession(String sessionToken, String appId, String cluster, String dataCenter,
+                                        List<ApolloConfigNotification> notifications) {
+        if (longPollSessions == null || Strings.isNullOrEmpty(sessionToken)
+                || ConfigConsts.LONG_POLL_SESSION_OPT_IN.equals(sessionToken)) {
+            return null;
+        }
+        LongPollSession session = longPollSessions.getIfPresent(sessionToken);
+        if (session == null || !session.matches(appId, cluster, dataCenter, notifications)) {
+            Tracer.logEvent("Apollo.LongPoll.SessionMiss", appId);
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * 解析命名空间和 watch key，创建新的长轮询会话
+     *
+     * @param cacheable 客户端是否会带回会话令牌，否则会话只用于本次请求，不签发令牌也不缓存
+     */
+    private LongPollSession createSession(String appId, String cluster, String dataCenter,
+                                          List<ApolloConfigNotification> notifications,
+                                          String notificationsAsString, boolean cacheable) {
+        Map<String, ResolvedNamespace> resolvedNamespaces = resolveNamespaces(appId, notifications);
+        Set<String> normalizedNamespaces = Sets.newHashSet();
+        for (ResolvedNamespace resolvedNamespace : resolvedNamespaces.values()) {
+            normalizedNamespaces.add(resolvedNamespace.normalizedNamespace);
+        }
+
+        // 要通知的命名空间为空，直接400
+        if (normalizedNamespaces.isEmpty()) {
+            throw new BadRequestException("Invalid format of notifications: " + notificationsAsString);
+        }
+
+        // 获取要监听的key的集合（包括自己应用的命名空间，以及关联的公共命名空间）
+        Multimap<String, String> watchedKeysMap =
+                watchKeysUtil.assembleAllWatchKeys(appId, cluster, normalizedNamespaces, dataCenter);
+
+        String token = longPollSessions == null || !cacheable ? null : Long.toString(ThreadLocalRandom.current().nextLong()
+                & Long.MAX_VALUE, Character.MAX_RADIX);
+        LongPollSession session = new LongPollSession(token, appId, cluster, dataCenter, resolvedNamespaces,
+                watchedKeysMap);
+        if (token != null) {
+            longPollSessions.put(token, session);
+        }
+        return session;
+    }
+
+    /**
+     * 解析客户端的命名空间名称
      *
      * @param appId         应用编号
      * @param notifications 客户端要的通知
-     * @return 返回命名空间和相同的配置通知的map
+     * @return key：客户端的命名空间名称，value：原始的和归一化的命名空间名称
      */
-    private Map<String, ApolloConfigNotification> filterNotifications(String appId,
-                                                                      List<ApolloConfigNotification> notifications) {
-        Map<String, ApolloConfigNotification> filteredNotifications = Maps.newHashMap();
+    private Map<String, ResolvedNamespace> resolveNamespaces(String appId,
+                                                             List<ApolloConfigNotification> notifications) {
+        Map<String, ResolvedNamespace> resolvedNamespaces = Maps.newHashMap();
         for (ApolloConfigNotification notification : notifications) {
-            if (Strings.isNullOrEmpty(notification.getNamespaceName())) {
+            String clientNamespace = notification.getNamespaceName();
+            if (Strings.isNullOrEmpty(clientNamespace) || resolvedNamespaces.containsKey(clientNamespace)) {
                 continue;
             }
             /*
              * strip out .properties suffix
              *
-             * 移除 .properties的尾缀，并设置到通知中，即原始的命名空间
+             * 移除 .properties的尾缀，即原始的命名空间
              * 例如 application.properties => application
              */
-            String originalNamespace = namespaceUtil.filterNamespaceName(notification.getNamespaceName());
-            notification.setNamespaceName(originalNamespace);
+            String originalNamespace = namespaceUtil.filterNamespaceName(clientNamespace);
 
             /*
              * fix the character case issue, such as FX.apollo <-> fx.apollo
@@ -264,6 +353,30 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
              */
             String normalizedNamespace = namespaceUtil.normalizeNamespace(appId, originalNamespace);
 
+            resolvedNamespaces.put(clientNamespace, new ResolvedNamespace(originalNamespace, normalizedNamespace));
+        }
+        return resolvedNamespaces;
+    }
+
+    /**
+     * 过滤该应用需要的通知
+     *
+     * @param notifications      客户端要的通知
+     * @param resolvedNamespaces 已解析的命名空间名称
+     * @return 返回命名空间和相同的配置通知的map
+     */
+    private Map<String, ApolloConfigNotification> filterNotifications(
+            List<ApolloConfigNotification> notifications, Map<String, ResolvedNamespace> resolvedNamespaces) {
+        Map<String, ApolloConfigNotification> filteredNotifications = Maps.newHashMap();
+        for (ApolloConfigNotification notification : notifications) {
+            if (Strings.isNullOrEmpty(notification.getNamespaceName())) {
+                continue;
+            }
+            ResolvedNamespace resolvedNamespace = resolvedNamespaces.get(notification.getNamespaceName());
+            // 设置原始的命名空间到通知中
+            notification.setNamespaceName(resolvedNamespace.originalNamespace);
+            String normalizedNamespace = resolvedNamespace.normalizedNamespace;
+
             /*
              * in case client side namespace name has character case issue and has difference notification ids
              * such as FX.apollo = 1 but fx.apollo = 2, we should let FX.apollo have the chance to update its
@@ -388,10 +501,13 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
 
         //do async notification if too many clients
         // 如果存在太多客户端连接，执行异步通知，即一部分一部分的通知，避免 惊群效应
-        if (results.size() > bizConfig.releaseMessageNotificationBatch()) {
+        // 一次通知内只读取一次配置
+        int notificationBatch = bizConfig.releaseMessageNotificationBatch();
+        if (results.size() > notificationBatch) {
             largeNotificationBatchExecutorService.submit(() -> {
+                int notificationBatchInterval = bizConfig.releaseMessageNotificationBatchIntervalInMilli();
                 logger.debug("Async notify {} clients for key {} with batch {}", results.size(), content,
-                        bizConfig.releaseMessageNotificationBatch());
+                        notificationBatch);
                 // 遍历客户端挂起的 result，再提交
                 for (int i = 0; i < results.size(); i++) {
                     /*
@@ -400,9 +516,9 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
                      * 就会导致这 10W 台机器一下子都来请求配置，这动静就有点大了，而且对 Config Service 的压力也会比较大。
                      * 所以每下发一定配置是，就等待一会
                      */
-                    if (i > 0 && i % bizConfig.releaseMessageNotificationBatch() == 0) {
+                    if (i > 0 && i % notificationBatch == 0) {
                         try {
-                            TimeUnit.MILLISECONDS.sleep(bizConfig.releaseMessageNotificationBatchIntervalInMilli());
+                            TimeUnit.MILLISECONDS.sleep(notificationBatchInterval);
                         } catch (InterruptedException e) {
                             //ignore
                         }
@@ -445,4 +561,78 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             Tracer.logEvent(eventName, watchedKey);
         }
     }
+
+    /**
+     * 客户端命名空间名称解析的结果
+     */
+    private static class ResolvedNamespace {
+
+        /**
+         * 移除 .properties 尾缀的命名空间名称
+         */
+        private final String originalNamespace;
+
+        /**
+         * 归一化的命名空间名称
+         */
+        private final String normalizedNamespace;
+
+        ResolvedNamespace(String originalNamespace, String normalizedNamespace) {
+            this.originalNamespace = originalNamespace;
+            this.normalizedNamespace = normalizedNamespace;
+        }
+    }
+
+    /**
+     * 长轮询会话，创建后不再修改
+     */
+    private static class LongPollSession {
+
+        private final String token;
+        private final String appId;
+        private final String cluster;
+        private final String dataCenter;
+
+        /**
+         * key：客户端的命名空间名称，value：解析的结果
+         */
+        private final Map<String, ResolvedNamespace> resolvedNamespaces;
+
+        /**
+         * key：归一化的命名空间名称，value：watch key
+         */
+        private final Multimap<String, String> watchedKeysMap;
+
+        private final Set<String> watchedKeys;
+
+        LongPollSession(String token, String appId, String cluster, String dataCenter,
+                        Map<String, ResolvedNamespace> resolvedNamespaces,
+                        Multimap<String, String> watchedKeysMap) {
+            this.token = token;
+            this.appId = appId;
+            this.cluster = cluster;
+            this.dataCenter = dataCenter;
+            this.resolvedNamespaces = ImmutableMap.copyOf(resolvedNamespaces);
+            this.watchedKeysMap = ImmutableSetMultimap.copyOf(watchedKeysMap);
+            this.watchedKeys = ImmutableSet.copyOf(watchedKeysMap.values());
+        }
+
+        /**
+         * 是否是同一个应用、集群、数据中心，并且命名空间完全相同
+         */
+        boolean matches(String appId, String cluster, String dataCenter,
+                        List<ApolloConfigNotification> notifications) {
+            if (!Objects.equals(this.appId, appId) || !Objects.equals(this.cluster, cluster)
+                    || !Objects.equals(this.dataCenter, dataCenter)) {
+                return false;
+            }
+            Set<String> clientNamespaces = Sets.newHashSetWithExpectedSize(notifications.size());
+            for (ApolloConfigNotification notification : notifications) {
+                if (!Strings.isNullOrEmpty(notification.getNamespaceName())) {
+                    clientNamespaces.add(notification.getNamespaceName());
+                }
+            }
+            return clientNamespaces.equals(resolvedNamespaces.keySet());
+        }
+    }
 }
@@ -1,11 +1,11 @@
 package com.ctrip.framework.apollo.configservice.filter;
 
 import com.ctrip.framework.apollo.configservice.util.AccessKeyUtil;
+import com.ctrip.framework.apollo.core.signature.HmacSha1Signer;
 import com.ctrip.framework.apollo.core.signature.Signature;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
 import java.io.IOException;
 import java.util.List;
-import java.util.Objects;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -50,8 +50,8 @@ public class ClientAuthenticationFilter implements Filter {
       return;
     }
 
-    List<String> availableSecrets = accessKeyUtil.findAvailableSecret(appId);
-    if (!CollectionUtils.isEmpty(availableSecrets)) {
+    List<HmacSha1Signer> availableSigners = accessKeyUtil.findAvailableSigners(appId);
+    if (!CollectionUtils.isEmpty(availableSigners)) {
       String timestamp = request.getHeader(Signature.HTTP_HEADER_TIMESTAMP);
       String authorization = request.getHeader(Signature.HTTP_HEADER_AUTHORIZATION);
 
@@ -65,7 +65,7 @@ public class ClientAuthenticationFilter implements Filter {
       // check signature
       String path = request.getServletPath();
       String query = request.getQueryString();
-      if (!checkAuthorization(authorization, availableSecrets, timestamp, path, query)) {
+      if (!checkAuthorization(authorization, availableSigners, timestamp, path, query)) {
         logger.warn("Invalid authorization. appId={},authorization={}", appId, authorization);
         response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Unauthorized");
         return;
@@ -92,7 +92,7 @@ public class ClientAuthenticationFilter implements Filter {
     return x >= -TIMESTAMP_INTERVAL && x <= TIMESTAMP_INTERVAL;
   }
 
-  private boolean checkAuthorization(String authorization, List<String> availableSecrets,
+  private boolean checkAuthorization(String authorization, List<HmacSha1Signer> availableSigners,
       String timestamp, String path, String query) {
 
     String signature = null;
@@ -103,9 +103,8 @@ public class ClientAuthenticationFilter implements Filter {
       }
     }
 
-    for (String secret : availableSecrets) {
-      String availableSignature = accessKeyUtil.buildSignature(path, query, timestamp, secret);
-      if (Objects.equals(signature, availableSignature)) {
+    for (HmacSha1Signer signer : availableSigners) {
+      if (accessKeyUtil.verifySignature(path, query, timestamp, signature, signer)) {
         return true;
       }
     }
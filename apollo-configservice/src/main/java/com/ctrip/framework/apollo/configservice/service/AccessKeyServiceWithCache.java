@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.configservice.service;
 import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.AccessKey;
 import com.ctrip.framework.apollo.biz.repository.AccessKeyRepository;
+import com.ctrip.framework.apollo.core.signature.HmacSha1Signer;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
@@ -16,6 +17,7 @@ import com.google.common.collect.Sets.SetView;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
@@ -49,6 +51,10 @@ public class AccessKeyServiceWithCache implements InitializingBean {
 
   private ListMultimap<String, AccessKey> accessKeyCache;
   private ConcurrentMap<Long, AccessKey> accessKeyIdCache;
+  /**
+   * pre-keyed signers by access key id, rebuilt only when the secret changes
+   */
+  private ConcurrentMap<Long, HmacSha1Signer> accessKeySignerCache;
 
   @Autowired
   public AccessKeyServiceWithCache(AccessKeyRepository accessKeyRepository, BizConfig bizConfig) {
@@ -67,6 +73,7 @@ public class AccessKeyServiceWithCache implements InitializingBean {
         .arrayListValues().build();
     accessKeyCache = Multimaps.synchronizedListMultimap(multimap);
     accessKeyIdCache = Maps.newConcurrentMap();
+    accessKeySignerCache = Maps.newConcurrentMap();
   }
 
   public List<String> getAvailableSecrets(String appId) {
@@ -81,6 +88,19 @@ public class AccessKeyServiceWithCache implements InitializingBean {
         .collect(Collectors.toList());
   }
 
+  public List<HmacSha1Signer> getAvailableSigners(String appId) {
+    List<AccessKey> accessKeys = accessKeyCache.get(appId);
+    if (CollectionUtils.isEmpty(accessKeys)) {
+      return Collections.emptyList();
+    }
+
+    return accessKeys.stream()
+        .filter(AccessKey::isEnabled)
+        .map(accessKey -> accessKeySignerCache.computeIfAbsent(accessKey.getId(),
+            id -> new HmacSha1Signer(accessKey.getSecret())))
+        .collect(Collectors.toList());
+  }
+
   @Override
   public void afterPropertiesSet() throws Exception {
     populateDataBaseInterval();
@@ -151,6 +171,9 @@ public class AccessKeyServiceWithCache implements InitializingBean {
     for (AccessKey accessKey : accessKeys) {
       AccessKey thatInCache = accessKeyIdCache.get(accessKey.getId());
 
+      if (thatInCache == null || !Objects.equals(thatInCache.getSecret(), accessKey.getSecret())) {
+        refreshSigner(accessKey);
+      }
       accessKeyIdCache.put(accessKey.getId(), accessKey);
       accessKeyCache.put(accessKey.getAppId(), accessKey);
 
@@ -162,6 +185,18 @@ public class AccessKeyServiceWithCache implements InitializingBean {
     }
   }
 
+  private void refreshSigner(AccessKey accessKey) {
+    try {
+      accessKeySignerCache.put(accessKey.getId(), new HmacSha1Signer(accessKey.getSecret()));
+    } catch (IllegalArgumentException ex) {
+      // keep the key cached so its app still fails closed on lookup, but don't abort the refresh
+      accessKeySignerCache.remove(accessKey.getId());
+      logger.error("Invalid secret of AccessKey, id: {}, appId: {}", accessKey.getId(),
+          accessKey.getAppId(), ex);
+      Tracer.logError(ex);
+    }
+  }
+
   private void deleteAccessKeyCache() {
     List<Long> ids = Lists.newArrayList(accessKeyIdCache.keySet());
     if (CollectionUtils.isEmpty(ids)) {
@@ -189,6 +224,7 @@ public class AccessKeyServiceWithCache implements InitializingBean {
     }
     for (Long deletedId : deletedIds) {
       AccessKey deleted = accessKeyIdCache.remove(deletedId);
+      accessKeySignerCache.remove(deletedId);
       if (deleted == null) {
         continue;
       }
@@ -0,0 +1,133 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.common.entity.AppNamespace;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 应用命名空间缓存的紧凑快照，gzip 压缩的 json，只保存缓存需要的字段
+ * <p>
+ * 启动时先从快照加载缓存，再从快照的位置增量追赶，避免全量扫描数据库
+ */
+class AppNamespaceCacheSnapshot {
+
+    private static final Gson GSON = new Gson();
+
+    /**
+     * 扫描到的最大id
+     */
+    private long maxIdScanned;
+
+    /**
+     * 增量刷新的最后修改时间位置
+     */
+    private long changeScanTime;
+
+    private List<Record> appNamespaces;
+
+    AppNamespaceCacheSnapshot(long maxIdScanned, long changeScanTime, Collection<AppNamespace> appNamespaces) {
+        this.maxIdScanned = maxIdScanned;
+        this.changeScanTime = changeScanTime;
+        this.appNamespaces = Lists.newArrayListWithCapacity(appNamespaces.size());
+        for (AppNamespace appNamespace : appNamespaces) {
+            this.appNamespaces.add(new Record(appNamespace));
+        }
+    }
+
+    long getMaxIdScanned() {
+        return maxIdScanned;
+    }
+
+    long getChangeScanTime() {
+        return changeScanTime;
+    }
+
+    List<AppNamespace> getAppNamespaces() {
+        List<AppNamespace> result = Lists.newArrayListWithCapacity(appNamespaces == null ? 0 : appNamespaces.size());
+        if (appNamespaces != null) {
+            for (Record record : appNamespaces) {
+                result.add(record.toAppNamespace());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 写入快照，先写临时文件再替换，避免读到写了一半的文件
+     */
+    void writeTo(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(temp)),
+                StandardCharsets.UTF_8)) {
+            GSON.toJson(this, writer);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取快照
+     *
+     * @return 快照，文件不存在时返回 null
+     */
+    static AppNamespaceCacheSnapshot readFrom(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(path)),
+                StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, AppNamespaceCacheSnapshot.class);
+        }
+    }
+
+    /**
+     * 单条应用命名空间，字段名尽量短
+     */
+    private static class Record {
+        private long i;
+        private String a;
+        private String n;
+        private String f;
+        private boolean p;
+        private long t;
+
+        Record(AppNamespace appNamespace) {
+            this.i = appNamespace.getId();
+            this.a = appNamespace.getAppId();
+            this.n = appNamespace.getName();
+            this.f = appNamespace.getFormat();
+            this.p = appNamespace.isPublic();
+            this.t = appNamespace.getDataChangeLastModifiedTime() == null
+                    ? 0 : appNamespace.getDataChangeLastModifiedTime().getTime();
+        }
+
+        AppNamespace toAppNamespace() {
+            AppNamespace appNamespace = new AppNamespace();
+            appNamespace.setId(i);
+            appNamespace.setAppId(a);
+            appNamespace.setName(n);
+            appNamespace.setFormat(f);
+            appNamespace.setPublic(p);
+            appNamespace.setDataChangeLastModifiedTime(new Date(t));
+            return appNamespace;
+        }
+    }
+}
@@ -3,7 +3,7 @@ package com.ctrip.framework.apollo.configservice.service;
 import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.repository.AppNamespaceRepository;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
-import com.ctrip.framework.apollo.configservice.wrapper.CaseInsensitiveMapWrapper;
+import com.ctrip.framework.apollo.common.utils.CaseInsensitiveHashMap;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
@@ -21,9 +21,12 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -41,6 +44,11 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
 
     private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).skipNulls();
 
+    /**
+     * 增量刷新的回看窗口，覆盖事务提交延迟导致的最后修改时间乱序
+     */
+    private static final long CHANGE_SCAN_LOOKBACK_IN_MILLI = TimeUnit.SECONDS.toMillis(10);
+
     private final AppNamespaceRepository appNamespaceRepository;
 
     private final BizConfig bizConfig;
@@ -75,13 +83,19 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
      */
     private long maxIdScanned;
 
+    /**
+     * 增量刷新扫描到的最后修改时间
+     */
+    private long changeScanTime;
+
     /**
      * 公共命名空间缓存
      * store namespaceName -> AppNamespace
      * key：namespaceName
      * value：AppNameSpace
+     * 不区分大小写
      */
-    private CaseInsensitiveMapWrapper<AppNamespace> publicAppNamespaceCache;
+    private Map<String, AppNamespace> publicAppNamespaceCache;
 
     /**
      * 应用命名空间缓存：
@@ -90,7 +104,7 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
      * value：AppNameSpace
      * 不区分大小写
      */
-    private CaseInsensitiveMapWrapper<AppNamespace> appNamespaceCache;
+    private Map<String, AppNamespace> appNamespaceCache;
 
     /**
      * 应用命名空间id缓存
@@ -110,15 +124,23 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
      * 启动时初始化缓存
      */
     private void initialize() {
-        maxIdScanned = 0;
-        publicAppNamespaceCache = new CaseInsensitiveMapWrapper<>(Maps.newConcurrentMap());
-        appNamespaceCache = new CaseInsensitiveMapWrapper<>(Maps.newConcurrentMap());
-        appNamespaceIdCache = Maps.newConcurrentMap();
+        initializeCache();
         scheduledExecutorService = Executors.newScheduledThreadPool(
                 1,
                 ApolloThreadFactory.create("AppNamespaceServiceWithCache", true));
     }
 
+    /**
+     * 初始化空的缓存
+     */
+    private void initializeCache() {
+        maxIdScanned = 0;
+        changeScanTime = 0;
+        publicAppNamespaceCache = new CaseInsensitiveHashMap<>();
+        appNamespaceCache = new CaseInsensitiveHashMap<>();
+        appNamespaceIdCache = Maps.newConcurrentMap();
+    }
+
     /**
      * 获取命名空间（忽视大小写）
      *
@@ -192,15 +214,22 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
     public void afterPropertiesSet() {
         // 填充基础定时任务数据
         populateDataBaseInterval();
-        // 阻塞直到加载完成，全量初始化
+        // 优先从快照预热，再从快照的位置增量追赶
+        boolean warmStarted = loadSnapshot();
+        // 阻塞直到加载完成，冷启动时全量初始化
         scanNewAppNamespaces();
+        if (warmStarted) {
+            scanChangedAppNamespaces();
+        }
+        writeSnapshot();
         scheduledExecutorService.scheduleAtFixedRate(() -> {
             Transaction transaction = Tracer.newTransaction(
                     "Apollo.AppNamespaceServiceWithCache",
                     "rebuildCache");
             try {
-                // 重建缓存
+                // 兜底重建缓存，处理物理删除等变更记录无法覆盖的情况
                 this.updateAndDeleteCache();
+                this.writeSnapshot();
                 transaction.setStatus(Transaction.SUCCESS);
             } catch (Throwable ex) {
                 transaction.setStatus(ex);
@@ -210,9 +239,12 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
             }
         }, rebuildInterval, rebuildInterval, rebuildIntervalTimeUnit);
 
-        scheduledExecutorService.scheduleWithFixedDelay(
-                // 扫描新缓存，即增量
-                this::scanNewAppNamespaces,
+        scheduledExecutorService.scheduleWithFixedDelay(() -> {
+                    // 扫描新缓存，即增量
+                    this.scanNewAppNamespaces();
+                    // 扫描更新和删除，只处理发生变化的记录
+                    this.scanChangedAppNamespaces();
+                },
                 scanInterval,
                 scanInterval,
                 scanIntervalTimeUnit);
@@ -260,6 +292,74 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
         }
     }
 
+    /**
+     * 扫描发生变化的应用命名空间
+     */
+    private void scanChangedAppNamespaces() {
+        Transaction transaction = Tracer.newTransaction("Apollo.AppNamespaceServiceWithCache",
+                "scanChangedAppNamespaces");
+        try {
+            this.loadChangedAppNamespaces();
+            transaction.setStatus(Transaction.SUCCESS);
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            logger.error("Load changed app namespaces failed", ex);
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    /**
+     * 按最后修改时间增量加载更新和删除的应用命名空间，复杂度与变更数量相关，而不是缓存大小
+     * 每次从上次位置回看一个窗口，重复处理是幂等的
+     */
+    private void loadChangedAppNamespaces() {
+        Date lastModifiedTime = new Date(Math.max(0, changeScanTime - CHANGE_SCAN_LOOKBACK_IN_MILLI));
+        long lastId = 0;
+        boolean hasMore = true;
+        while (hasMore && !Thread.currentThread().isInterrupted()) {
+            List<AppNamespace> appNamespaces =
+                    appNamespaceRepository.findFirst500ChangedAfter(lastModifiedTime, lastId);
+            if (CollectionUtils.isEmpty(appNamespaces)) {
+                break;
+            }
+            for (AppNamespace appNamespace : appNamespaces) {
+                applyChangedAppNamespace(appNamespace);
+            }
+            AppNamespace last = appNamespaces.get(appNamespaces.size() - 1);
+            lastModifiedTime = last.getDataChangeLastModifiedTime();
+            lastId = last.getId();
+            changeScanTime = Math.max(changeScanTime, lastModifiedTime.getTime());
+            hasMore = appNamespaces.size() == 500;
+        }
+    }
+
+    /**
+     * 应用一条变更记录
+     *
+     * @param appNamespace 数据库中的应用命名空间，可能已被删除
+     */
+    private void applyChangedAppNamespace(AppNamespace appNamespace) {
+        AppNamespace thatInCache = appNamespaceIdCache.get(appNamespace.getId());
+        if (appNamespace.isDeleted()) {
+            if (thatInCache != null) {
+                handleDeletedAppNamespaces(Collections.singleton(appNamespace.getId()));
+            }
+            return;
+        }
+        if (thatInCache == null) {
+            mergeAppNamespaces(Collections.singletonList(appNamespace));
+            return;
+        }
+        // 最后修改时间精度有限，同一时间内的修改通过字段比较识别
+        if (appNamespace.getDataChangeLastModifiedTime().after(thatInCache.getDataChangeLastModifiedTime())
+                || !Objects.equals(appNamespace.getAppId(), thatInCache.getAppId())
+                || !Objects.equals(appNamespace.getName(), thatInCache.getName())
+                || appNamespace.isPublic() != thatInCache.isPublic()) {
+            updateAppNamespace(thatInCache, appNamespace);
+        }
+    }
+
     /**
      * 合并新缓存到当前缓存中
      *
@@ -267,6 +367,11 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
      */
     private void mergeAppNamespaces(List<AppNamespace> appNamespaces) {
         for (AppNamespace appNamespace : appNamespaces) {
+            // 冷启动时以加载到的最后修改时间作为增量刷新的起点，与数据库时钟保持一致
+            if (appNamespace.getDataChangeLastModifiedTime() != null
+                    && appNamespace.getDataChangeLastModifiedTime().getTime() > changeScanTime) {
+                changeScanTime = appNamespace.getDataChangeLastModifiedTime().getTime();
+            }
             // appId+appNamespaceName，命名空间
             appNamespaceCache.put(assembleAppNamespaceKey(appNamespace), appNamespace);
             // 命名空间id，命名空间
@@ -320,37 +425,47 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
             // 缓存中存在该命名空间，并且数据库的修改时间比较新，分别更新三份缓存
             if (thatInCache != null
                     && appNamespace.getDataChangeLastModifiedTime().after(thatInCache.getDataChangeLastModifiedTime())) {
-                // id缓存
-                appNamespaceIdCache.put(appNamespace.getId(), appNamespace);
-
-                // appid+name缓存，先存，不同则删除老的
-                String oldKey = assembleAppNamespaceKey(thatInCache);
-                String newKey = assembleAppNamespaceKey(appNamespace);
-                appNamespaceCache.put(newKey, appNamespace);
-                //in case appId or namespaceName changes
-                if (!newKey.equals(oldKey)) {
-                    appNamespaceCache.remove(oldKey);
-                }
-
-                // 公共缓存，加新的删老的
-                if (appNamespace.isPublic()) {
-                    publicAppNamespaceCache.put(appNamespace.getName(), appNamespace);
-
-                    //in case namespaceName changes
-                    if (!appNamespace.getName().equals(thatInCache.getName()) && thatInCache.isPublic()) {
-                        publicAppNamespaceCache.remove(thatInCache.getName());
-                    }
-                } else if (thatInCache.isPublic()) {
-                    // 新的并不是公共缓存，老的需要移除掉
-                    //just in case isPublic changes
-                    publicAppNamespaceCache.remove(thatInCache.getName());
-                }
-                logger.info("Found AppNamespace changes, old: {}, new: {}", thatInCache, appNamespace);
+                updateAppNamespace(thatInCache, appNamespace);
             }
         }
         return foundIds;
     }
 
+    /**
+     * 更新缓存中的应用命名空间
+     *
+     * @param thatInCache  缓存中的应用命名空间
+     * @param appNamespace 数据库中的应用命名空间
+     */
+    private void updateAppNamespace(AppNamespace thatInCache, AppNamespace appNamespace) {
+        // id缓存
+        appNamespaceIdCache.put(appNamespace.getId(), appNamespace);
+
+        // appid+name缓存，先存，不同则删除老的
+        String oldKey = assembleAppNamespaceKey(thatInCache);
+        String newKey = assembleAppNamespaceKey(appNamespace);
+        appNamespaceCache.put(newKey, appNamespace);
+        //in case appId or namespaceName changes
+        if (!newKey.equalsIgnoreCase(oldKey)) {
+            appNamespaceCache.remove(oldKey);
+        }
+
+        // 公共缓存，加新的删老的
+        if (appNamespace.isPublic()) {
+            publicAppNamespaceCache.put(appNamespace.getName(), appNamespace);
+
+            //in case namespaceName changes
+            if (!appNamespace.getName().equalsIgnoreCase(thatInCache.getName()) && thatInCache.isPublic()) {
+                publicAppNamespaceCache.remove(thatInCache.getName());
+            }
+        } else if (thatInCache.isPublic()) {
+            // 新的并不是公共缓存，老的需要移除掉
+            //just in case isPublic changes
+            publicAppNamespaceCache.remove(thatInCache.getName());
+        }
+        logger.info("Found AppNamespace changes, old: {}, new: {}", thatInCache, appNamespace);
+    }
+
     /**
      * 删除缓存
      *
@@ -367,7 +482,11 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
             if (deleted == null) {
                 continue;
             }
-            appNamespaceCache.remove(assembleAppNamespaceKey(deleted));
+            String key = assembleAppNamespaceKey(deleted);
+            // 相同的 appId+namespaceName 可能已被重新创建
+            if (appNamespaceCache.get(key) == deleted) {
+                appNamespaceCache.remove(key);
+            }
             if (deleted.isPublic()) {
                 AppNamespace publicAppNamespace = publicAppNamespaceCache.get(deleted.getName());
                 // in case there is some dirty data, e.g. public namespace deleted in some app and now created in
@@ -391,6 +510,52 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
         return STRING_JOINER.join(appNamespace.getAppId(), appNamespace.getName());
     }
 
+    /**
+     * 从快照预热缓存
+     *
+     * @return 是否从快照预热成功
+     */
+    private boolean loadSnapshot() {
+        String snapshotPath = bizConfig.appNamespaceCacheSnapshotPath();
+        if (Strings.isNullOrEmpty(snapshotPath)) {
+            return false;
+        }
+        try {
+            AppNamespaceCacheSnapshot snapshot = AppNamespaceCacheSnapshot.readFrom(Paths.get(snapshotPath));
+            if (snapshot == null) {
+                return false;
+            }
+            mergeAppNamespaces(snapshot.getAppNamespaces());
+            maxIdScanned = snapshot.getMaxIdScanned();
+            changeScanTime = snapshot.getChangeScanTime();
+            logger.info("Loaded {} app namespaces from snapshot {}", appNamespaceIdCache.size(), snapshotPath);
+            return true;
+        } catch (Throwable ex) {
+            // 快照损坏时退回冷启动
+            Tracer.logError("Load app namespace cache snapshot failed", ex);
+            logger.warn("Load app namespace cache snapshot {} failed, fallback to full load", snapshotPath, ex);
+            initializeCache();
+            return false;
+        }
+    }
+
+    /**
+     * 将缓存写入快照
+     */
+    private void writeSnapshot() {
+        String snapshotPath = bizConfig.appNamespaceCacheSnapshotPath();
+        if (Strings.isNullOrEmpty(snapshotPath)) {
+            return;
+        }
+        try {
+            new AppNamespaceCacheSnapshot(maxIdScanned, changeScanTime, appNamespaceIdCache.values())
+                    .writeTo(Paths.get(snapshotPath));
+        } catch (Throwable ex) {
+            Tracer.logError("Write app namespace cache snapshot failed", ex);
+            logger.warn("Write app namespace cache snapshot {} failed", snapshotPath, ex);
+        }
+    }
+
     /**
      * 填充基础定时任务数据
      */
@@ -0,0 +1,126 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.service.InstanceService;
+import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
+import com.ctrip.framework.apollo.configservice.service.config.ConfigServiceWithCache;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 配置缓存预热服务
+ * <p>
+ * 新启动的 config service 缓存是空的，滚动发布时所有客户端的请求都会落到数据库。
+ * 开启缓存时，启动后先按有效实例数量从多到少加载最常用的命名空间，
+ * 预热完成（或超时）之前 {@link com.ctrip.framework.apollo.configservice.ConfigServiceHealthIndicator}
+ * 上报 OUT_OF_SERVICE，注册中心不会把客户端请求分配过来。
+ * <p>
+ * 实例配置表记录了每个命名空间最近被哪些实例读取，直接作为访问频率的统计，不需要另外持久化。
+ */
+@Service
+public class ConfigCacheWarmUpService implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigCacheWarmUpService.class);
+
+    private final ConfigService configService;
+    private final InstanceService instanceService;
+    private final BizConfig bizConfig;
+
+    /**
+     * 已预热的命名空间数量
+     */
+    private final AtomicInteger warmedUpCount = new AtomicInteger();
+
+    /**
+     * 需要预热的命名空间数量，查询出来之前为0
+     */
+    private volatile int totalCount;
+
+    /**
+     * 是否预热结束
+     */
+    private volatile boolean finished;
+
+    /**
+     * 预热截止时间，超过后不再等待预热
+     */
+    private volatile long deadline;
+
+    public ConfigCacheWarmUpService(final ConfigService configService,
+                                    final InstanceService instanceService,
+                                    final BizConfig bizConfig) {
+        this.configService = configService;
+        this.instanceService = instanceService;
+        this.bizConfig = bizConfig;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // 没有开启缓存，不需要预热
+        if (!(configService instanceof ConfigServiceWithCache) || bizConfig.configServiceWarmUpSize() == 0) {
+            finished = true;
+            return;
+        }
+        deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(bizConfig.configServiceWarmUpTimeout());
+        Thread thread = ApolloThreadFactory.create("ConfigCacheWarmUpService", true).newThread(this::warmUp);
+        thread.start();
+    }
+
+    /**
+     * 是否可以对外服务，预热结束或者超时
+     */
+    public boolean isFinished() {
+        return finished || System.currentTimeMillis() > deadline;
+    }
+
+    public int getWarmedUpCount() {
+        return warmedUpCount.get();
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 预热最常用的命名空间，单个命名空间失败不影响其它命名空间
+     */
+    void warmUp() {
+        Transaction transaction = Tracer.newTransaction("Apollo.ConfigCacheWarmUp", "warmUp");
+        try {
+            ConfigServiceWithCache configServiceWithCache = (ConfigServiceWithCache) configService;
+            List<String> keys = instanceService.findMostUsedNamespaceKeys(bizConfig.configServiceWarmUpSize());
+            totalCount = keys.size();
+            for (String key : keys) {
+                if (System.currentTimeMillis() > deadline) {
+                    logger.warn("Config cache warm up timed out, {}/{} namespaces warmed up", warmedUpCount.get(),
+                            totalCount);
+                    break;
+                }
+                try {
+                    configServiceWithCache.warmUp(key);
+                } catch (Throwable ex) {
+                    Tracer.logError(ex);
+                    logger.error("Warm up config cache failed for {}", key, ex);
+                }
+                warmedUpCount.incrementAndGet();
+            }
+            transaction.setStatus(Transaction.SUCCESS);
+            logger.info("Config cache warmed up, {}/{} namespaces", warmedUpCount.get(), totalCount);
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            logger.error("Warm up config cache failed", ex);
+        } finally {
+            finished = true;
+            transaction.complete();
+        }
+    }
+}
@@ -16,6 +16,8 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +25,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import javax.annotation.PostConstruct;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -46,6 +51,7 @@ public class ConfigServiceWithCache extends AbstractConfigService {
     private static final String TRACER_EVENT_CACHE_LOAD_ID = "ConfigCache.LoadFromDBById";
     private static final String TRACER_EVENT_CACHE_GET = "ConfigCache.Get";
     private static final String TRACER_EVENT_CACHE_GET_ID = "ConfigCache.GetById";
+    private static final String TRACER_EVENT_CACHE_RELOAD_JOINED = "ConfigCache.ReloadJoined";
 
     private static final Splitter STRING_SPLITTER =
             Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
@@ -72,6 +78,15 @@ public class ConfigServiceWithCache extends AbstractConfigService {
      */
     private LoadingCache<Long, Optional<Release>> configIdCache;
 
+    /**
+     * 正在进行中的重新加载
+     * <p>
+     * key：Watch Key
+     * value：重新加载的结果，同一个 key 同时只会有一个重新加载
+     */
+    private final ConcurrentMap<String, CompletableFuture<ConfigCacheEntry>> inFlightReloads =
+            Maps.newConcurrentMap();
+
     /**
      * 无 ConfigCacheEntry 占位对象
      */
@@ -179,14 +194,80 @@ public class ConfigServiceWithCache extends AbstractConfigService {
                 && clientMessages.has(key) &&
                 clientMessages.get(key) > cacheEntry.getNotificationId()) {
             //invalidate the cache and try to load from db again
-            invalidate(key);
-            // 重新从 DB 中加载
-            cacheEntry = configCache.getUnchecked(key);
+            // 重新从 DB 中加载，并发的请求共享同一次加载
+            cacheEntry = reload(key, clientMessages.get(key));
         }
 
         return cacheEntry.getRelease();
     }
 
+    /**
+     * 预热缓存，已经缓存的不会重新加载
+     *
+     * @param key 缓存key，appId+cluster+namespace
+     */
+    public void warmUp(String key) {
+        configCache.getUnchecked(key);
+    }
+
+    /**
+     * 过期指定缓存并重新从 DB 中加载，同一个 key 同时只会有一个重新加载在进行。
+     * <p>
+     * 若已有重新加载在进行，直接等待其结果；只有其结果仍旧于 notificationId（加载开始时新消息尚未写入）时，
+     * 才会再发起一次新的加载，且不会在更新的加载进行中时再发起加载。
+     *
+     * @param key            缓存key
+     * @param notificationId 需要的最小通知id
+     * @return 重新加载后的缓存对象
+     */
+    private ConfigCacheEntry reload(String key, long notificationId) {
+        ConfigCacheEntry cacheEntry = null;
+        // 最多两轮：加入已在进行的加载，若其结果不够新，再自己发起（或加入）一次更新的加载
+        for (int attempt = 0; attempt < 2; attempt++) {
+            CompletableFuture<ConfigCacheEntry> reload = new CompletableFuture<>();
+            CompletableFuture<ConfigCacheEntry> inFlight = inFlightReloads.putIfAbsent(key, reload);
+            if (inFlight == null) {
+                try {
+                    // 等待期间其他请求可能已完成了足够新的加载
+                    cacheEntry = configCache.getIfPresent(key);
+                    if (cacheEntry == null || cacheEntry.getNotificationId() < notificationId) {
+                        invalidate(key);
+                        cacheEntry = configCache.getUnchecked(key);
+                    }
+                } catch (Throwable ex) {
+                    inFlightReloads.remove(key, reload);
+                    reload.completeExceptionally(ex);
+                    throw ex;
+                }
+                // 先移除再完成，结果不够新的等待者再次发起加载时不会拿到这个已完成的加载
+                inFlightReloads.remove(key, reload);
+                reload.complete(cacheEntry);
+                return cacheEntry;
+            }
+
+            Tracer.logEvent(TRACER_EVENT_CACHE_RELOAD_JOINED, key);
+            cacheEntry = await(inFlight);
+            if (cacheEntry.getNotificationId() >= notificationId) {
+                return cacheEntry;
+            }
+        }
+        return cacheEntry;
+    }
+
+    private ConfigCacheEntry await(CompletableFuture<ConfigCacheEntry> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new UncheckedExecutionException(ex.getCause());
+        }
+    }
+
     /**
      * 先根据消息内容，即 watch key把指定缓存过期掉
      *
@@ -208,12 +289,9 @@ public class ConfigServiceWithCache extends AbstractConfigService {
         }
 
         try {
-            // 先根据消息内容，即 watch key把指定缓存过期掉
-            invalidate(message.getMessage());
-
-            //warm up the cache
-            // 再进行预热缓存，即根据消息内容，读取 ConfigCacheEntry 对象，重新从 DB 中加载
-            configCache.getUnchecked(message.getMessage());
+            //invalidate and warm up the cache
+            // 根据消息内容，即 watch key 过期缓存并重新从 DB 中加载，与并发的请求共享同一次加载
+            reload(message.getMessage(), message.getId());
         } catch (Throwable ex) {
             //ignore
         }
@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.configservice.util;
 
 import com.ctrip.framework.apollo.configservice.service.AccessKeyServiceWithCache;
+import com.ctrip.framework.apollo.core.signature.HmacSha1Signer;
 import com.ctrip.framework.apollo.core.signature.Signature;
 import com.google.common.base.Strings;
 import java.util.List;
@@ -30,6 +31,10 @@ public class AccessKeyUtil {
     return accessKeyServiceWithCache.getAvailableSecrets(appId);
   }
 
+  public List<HmacSha1Signer> findAvailableSigners(String appId) {
+    return accessKeyServiceWithCache.getAvailableSigners(appId);
+  }
+
   public String extractAppIdFromRequest(HttpServletRequest request) {
     String appId = null;
     String servletPath = request.getServletPath();
@@ -48,11 +53,19 @@ public class AccessKeyUtil {
   }
 
   public String buildSignature(String path, String query, String timestampString, String secret) {
+    return Signature.signature(timestampString, buildPathWithQuery(path, query), secret);
+  }
+
+  public boolean verifySignature(String path, String query, String timestampString,
+      String signature, HmacSha1Signer signer) {
+    return Signature.verify(timestampString, buildPathWithQuery(path, query), signature, signer);
+  }
+
+  private String buildPathWithQuery(String path, String query) {
     String pathWithQuery = path;
     if (!Strings.isNullOrEmpty(query)) {
       pathWithQuery += "?" + query;
     }
-
-    return Signature.signature(timestampString, pathWithQuery, secret);
+    return pathWithQuery;
   }
 }
@@ -6,7 +6,10 @@ import java.util.Map;
  * 委托包装，内部一个map
  *
  * @author Jason Song(song_s@ctrip.com)
+ * @deprecated 每次访问都会 toLowerCase 生成新字符串，
+ * 请使用 {@link com.ctrip.framework.apollo.common.utils.CaseInsensitiveHashMap}
  */
+@Deprecated
 public class CaseInsensitiveMapWrapper<T> {
     private final Map<String, T> delegate;
 
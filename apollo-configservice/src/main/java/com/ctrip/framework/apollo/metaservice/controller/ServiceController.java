@@ -1,80 +1,77 @@
 package com.ctrip.framework.apollo.metaservice.controller;
 
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
-import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
-import com.netflix.appinfo.InstanceInfo;
+import com.ctrip.framework.apollo.metaservice.service.DiscoveryServiceWithCache;
+import com.ctrip.framework.apollo.metaservice.service.DiscoveryServiceWithCache.ServiceList;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * configservice服务地址API
+ * <p>
+ * 返回预先构建好的服务列表，并带上 ETag，请求带上相同的 If-None-Match 时返回 304
  */
 @RestController
 @RequestMapping("/services")
 public class ServiceController {
 
-    private final DiscoveryService discoveryService;
+    private final DiscoveryServiceWithCache discoveryServiceWithCache;
 
-    /**
-     * 转换实例配置为服务dto
-     */
-    private static Function<InstanceInfo, ServiceDTO> instanceInfoToServiceDTOFunc = instance -> {
-        ServiceDTO service = new ServiceDTO();
-        service.setAppName(instance.getAppName());
-        service.setInstanceId(instance.getInstanceId());
-        service.setHomepageUrl(instance.getHomePageUrl());
-        return service;
-    };
-
-    public ServiceController(final DiscoveryService discoveryService) {
-        this.discoveryService = discoveryService;
+    public ServiceController(final DiscoveryServiceWithCache discoveryServiceWithCache) {
+        this.discoveryServiceWithCache = discoveryServiceWithCache;
     }
 
     /**
      * 获取元数据服务列表，该接口无用，因为metaService和configService在一个服务中。
      *
+     * @param ifNoneMatch 客户端上次获取到的 ETag
      * @return 元数据服务列表
      */
     @RequestMapping("/meta")
-    public List<ServiceDTO> getMetaService() {
-        List<InstanceInfo> instances = discoveryService.getMetaServiceInstances();
-        return instances.stream()
-                .map(instanceInfoToServiceDTOFunc)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<ServiceDTO>> getMetaService(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return assembleResponse(discoveryServiceWithCache.getMetaServices(), ifNoneMatch);
     }
 
     /**
      * 获取配置服务列表
      *
-     * @param appId    应用编号
-     * @param clientIp 客户端ip
+     * @param appId       应用编号
+     * @param clientIp    客户端ip
+     * @param ifNoneMatch 客户端上次获取到的 ETag
      * @return 配置服务列表
      */
     @RequestMapping("/config")
-    public List<ServiceDTO> getConfigService(
+    public ResponseEntity<List<ServiceDTO>> getConfigService(
             @RequestParam(value = "appId", defaultValue = "") String appId,
-            @RequestParam(value = "ip", required = false) String clientIp) {
-        List<InstanceInfo> instances = discoveryService.getConfigServiceInstances();
-        return instances.stream()
-                .map(instanceInfoToServiceDTOFunc)
-                .collect(Collectors.toList());
+            @RequestParam(value = "ip", required = false) String clientIp,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return assembleResponse(discoveryServiceWithCache.getConfigServices(), ifNoneMatch);
     }
 
     /**
      * 获取admin服务列表
      *
+     * @param ifNoneMatch 客户端上次获取到的 ETag
      * @return admin服务列表
      */
     @RequestMapping("/admin")
-    public List<ServiceDTO> getAdminService() {
-        List<InstanceInfo> instances = discoveryService.getAdminServiceInstances();
-        return instances.stream()
-                .map(instanceInfoToServiceDTOFunc)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<ServiceDTO>> getAdminService(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return assembleResponse(discoveryServiceWithCache.getAdminServices(), ifNoneMatch);
+    }
+
+    private ResponseEntity<List<ServiceDTO>> assembleResponse(ServiceList serviceList, String ifNoneMatch) {
+        if (serviceList.getETag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(serviceList.getETag()).build();
+        }
+        return ResponseEntity.ok().eTag(serviceList.getETag()).body(serviceList.getServices());
     }
 }
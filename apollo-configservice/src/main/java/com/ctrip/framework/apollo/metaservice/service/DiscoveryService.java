@@ -5,6 +5,7 @@ import com.ctrip.framework.apollo.tracer.Tracer;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.EurekaClient;
 import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
@@ -65,4 +66,14 @@ public class DiscoveryService {
         }
         return application != null ? application.getInstances() : Collections.emptyList();
     }
+
+    /**
+     * 获取本地注册表版本，注册表中实例数量或状态变化时会改变
+     *
+     * @return 注册表版本，即 eureka 的 apps hash code
+     */
+    public String getRegistryVersion() {
+        Applications applications = eurekaClient.getApplications();
+        return applications != null ? applications.getAppsHashCode() : null;
+    }
 }
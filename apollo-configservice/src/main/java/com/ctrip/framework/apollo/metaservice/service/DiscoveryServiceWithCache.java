@@ -0,0 +1,159 @@
+package com.ctrip.framework.apollo.metaservice.service;
+
+import com.ctrip.framework.apollo.core.ServiceNameConsts;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.netflix.appinfo.InstanceInfo;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 带缓存的发现服务，预先构建好各服务的 {@link ServiceDTO} 列表及其 ETag，
+ * 只有 eureka 注册表版本变化或缓存超过最大存活时间时才重新构建。
+ * <p>
+ * eureka 的注册表版本只反映实例数量和状态，实例替换但数量状态不变时不会变化，
+ * 因此还需要按最大存活时间（与 eureka 客户端默认拉取注册表间隔一致）重新构建。
+ */
+@Service
+public class DiscoveryServiceWithCache {
+
+    private static final long MAX_SERVICE_LIST_AGE_IN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final String TRACER_EVENT_REBUILD = "Apollo.MetaService.RebuildServiceList";
+
+    private final DiscoveryService discoveryService;
+
+    /**
+     * 服务列表缓存
+     * <p>
+     * key：服务名称
+     * value：服务列表
+     */
+    private final ConcurrentMap<String, ServiceList> serviceListCache = Maps.newConcurrentMap();
+
+    public DiscoveryServiceWithCache(final DiscoveryService discoveryService) {
+        this.discoveryService = discoveryService;
+    }
+
+    /**
+     * 获取配置服务列表
+     *
+     * @return 配置服务列表
+     */
+    public ServiceList getConfigServices() {
+        return getServices(ServiceNameConsts.APOLLO_CONFIGSERVICE, discoveryService::getConfigServiceInstances);
+    }
+
+    /**
+     * 获取元数据服务列表
+     *
+     * @return 元数据服务列表
+     */
+    public ServiceList getMetaServices() {
+        return getServices(ServiceNameConsts.APOLLO_METASERVICE, discoveryService::getMetaServiceInstances);
+    }
+
+    /**
+     * 获取admin服务列表
+     *
+     * @return admin服务列表
+     */
+    public ServiceList getAdminServices() {
+        return getServices(ServiceNameConsts.APOLLO_ADMINSERVICE, discoveryService::getAdminServiceInstances);
+    }
+
+    private ServiceList getServices(String serviceName, Supplier<List<InstanceInfo>> instancesSupplier) {
+        String registryVersion = discoveryService.getRegistryVersion();
+        long now = System.currentTimeMillis();
+
+        ServiceList cached = serviceListCache.get(serviceName);
+        if (cached != null && cached.isFresh(registryVersion, now)) {
+            return cached;
+        }
+
+        ServiceList rebuilt = buildServiceList(registryVersion, now, instancesSupplier.get());
+        // 内容未变化时沿用原来的列表，ETag 保持不变
+        if (cached != null && cached.getETag().equals(rebuilt.getETag())) {
+            rebuilt = new ServiceList(registryVersion, now, cached.getServices(), cached.getETag());
+        } else {
+            Tracer.logEvent(TRACER_EVENT_REBUILD, serviceName);
+        }
+        serviceListCache.put(serviceName, rebuilt);
+
+        return rebuilt;
+    }
+
+    private ServiceList buildServiceList(String registryVersion, long builtAt, List<InstanceInfo> instances) {
+        ImmutableList.Builder<ServiceDTO> services = ImmutableList.builder();
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (InstanceInfo instance : instances) {
+            ServiceDTO service = new ServiceDTO();
+            service.setAppName(instance.getAppName());
+            service.setInstanceId(instance.getInstanceId());
+            service.setHomepageUrl(instance.getHomePageUrl());
+            services.add(service);
+
+            hasher.putString(Strings.nullToEmpty(service.getAppName()), StandardCharsets.UTF_8).putChar('\n')
+                    .putString(Strings.nullToEmpty(service.getInstanceId()), StandardCharsets.UTF_8).putChar('\n')
+                    .putString(Strings.nullToEmpty(service.getHomepageUrl()), StandardCharsets.UTF_8).putChar('\n');
+        }
+        return new ServiceList(registryVersion, builtAt, services.build(), "\"" + hasher.hash() + "\"");
+    }
+
+    /**
+     * 预先构建好的服务列表
+     */
+    public static class ServiceList {
+
+        /**
+         * 构建时的注册表版本
+         */
+        private final String registryVersion;
+
+        /**
+         * 构建时间
+         */
+        private final long builtAt;
+
+        /**
+         * 服务列表，不可修改
+         */
+        private final List<ServiceDTO> services;
+
+        /**
+         * 服务列表内容的 ETag，内容不变则不变
+         */
+        private final String eTag;
+
+        ServiceList(String registryVersion, long builtAt, List<ServiceDTO> services, String eTag) {
+            this.registryVersion = registryVersion;
+            this.builtAt = builtAt;
+            this.services = services;
+            this.eTag = eTag;
+        }
+
+        boolean isFresh(String currentRegistryVersion, long now) {
+            return Objects.equals(registryVersion, currentRegistryVersion)
+                    && now - builtAt < MAX_SERVICE_LIST_AGE_IN_MILLIS;
+        }
+
+        public List<ServiceDTO> getServices() {
+            return services;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+    }
+}
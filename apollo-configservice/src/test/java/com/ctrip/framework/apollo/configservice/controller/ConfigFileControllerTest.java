@@ -9,8 +9,10 @@ import com.ctrip.framework.apollo.core.dto.ApolloConfig;
 import com.google.common.cache.Cache;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import org.junit.Before;
@@ -18,17 +20,23 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -103,6 +111,7 @@ public class ConfigFileControllerTest {
         ImmutableMap.of(someKey, someValue, anotherKey, anotherValue);
     ApolloConfig someApolloConfig = mock(ApolloConfig.class);
     when(someApolloConfig.getConfigurations()).thenReturn(configurations);
+    when(someApolloConfig.getReleaseKey()).thenReturn("someReleaseKey");
     when(configController
         .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
             someRequest, someResponse)).thenReturn(someApolloConfig);
@@ -110,7 +119,7 @@ public class ConfigFileControllerTest {
         .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
         .thenReturn(watchKeys);
 
-    ResponseEntity<String> response =
+    ResponseEntity<byte[]> response =
         configFileController
             .queryConfigAsProperties(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
@@ -123,15 +132,16 @@ public class ConfigFileControllerTest {
     assertTrue(cacheKey2WatchedKeys.containsEntry(cacheKey, anotherWatchKey));
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    assertTrue(response.getBody().contains(String.format("%s=%s", someKey, someValue)));
-    assertTrue(response.getBody().contains(String.format("%s=%s", anotherKey, anotherValue)));
+    assertTrue(bodyOf(response).contains(String.format("%s=%s", someKey, someValue)));
+    assertTrue(bodyOf(response).contains(String.format("%s=%s", anotherKey, anotherValue)));
 
-    ResponseEntity<String> anotherResponse =
+    ResponseEntity<byte[]> anotherResponse =
         configFileController
             .queryConfigAsProperties(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
 
     assertEquals(response, anotherResponse);
+    assertEquals("\"properties-someReleaseKey\"", response.getHeaders().getETag());
 
     verify(configController, times(1))
         .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
@@ -159,13 +169,13 @@ public class ConfigFileControllerTest {
         .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
         .thenReturn(watchKeys);
 
-    ResponseEntity<String> response =
+    ResponseEntity<byte[]> response =
         configFileController
             .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    assertEquals(configurations, gson.fromJson(response.getBody(), responseType));
+    assertEquals(configurations, gson.fromJson(bodyOf(response), responseType));
   }
 
   @Test
@@ -187,12 +197,12 @@ public class ConfigFileControllerTest {
         .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
             someRequest, someResponse)).thenReturn(someApolloConfig);
 
-    ResponseEntity<String> response =
+    ResponseEntity<byte[]> response =
         configFileController
             .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
 
-    ResponseEntity<String> anotherResponse =
+    ResponseEntity<byte[]> anotherResponse =
         configFileController
             .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
@@ -202,11 +212,72 @@ public class ConfigFileControllerTest {
             someRequest, someResponse);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    assertEquals(configurations, gson.fromJson(response.getBody(), responseType));
+    assertEquals(configurations, gson.fromJson(bodyOf(response), responseType));
     assertTrue(watchedKeys2CacheKey.isEmpty());
     assertTrue(cacheKey2WatchedKeys.isEmpty());
   }
 
+  @Test
+  public void testQueryConfigNotModified() throws Exception {
+    String someReleaseKey = "someReleaseKey";
+    String someEtag = "\"json-someReleaseKey\"";
+
+    ApolloConfig someApolloConfig = mock(ApolloConfig.class);
+    when(someApolloConfig.getConfigurations()).thenReturn(ImmutableMap.of("someKey", "someValue"));
+    when(someApolloConfig.getReleaseKey()).thenReturn(someReleaseKey);
+    when(configController
+        .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
+            someRequest, someResponse)).thenReturn(someApolloConfig);
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
+        .thenReturn(Sets.newHashSet("someWatchKey"));
+    when(someRequest.getHeaders(HttpHeaders.IF_NONE_MATCH))
+        .thenReturn(Collections.enumeration(Lists.newArrayList("\"anotherEtag\", " + someEtag)));
+
+    ResponseEntity<byte[]> response =
+        configFileController
+            .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+
+    assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    assertEquals(someEtag, response.getHeaders().getETag());
+    assertNull(response.getBody());
+  }
+
+  @Test
+  public void testQueryConfigWithGzip() throws Exception {
+    Map<String, String> configurations = Maps.newHashMap();
+    for (int i = 0; i < 100; i++) {
+      configurations.put("someKey" + i, "someValue" + i);
+    }
+
+    ApolloConfig someApolloConfig = mock(ApolloConfig.class);
+    when(someApolloConfig.getConfigurations()).thenReturn(configurations);
+    when(someApolloConfig.getReleaseKey()).thenReturn("someReleaseKey");
+    when(configController
+        .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
+            someRequest, someResponse)).thenReturn(someApolloConfig);
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
+        .thenReturn(Sets.newHashSet("someWatchKey"));
+    when(someRequest.getHeaders(HttpHeaders.ACCEPT_ENCODING))
+        .thenReturn(Collections.enumeration(Lists.newArrayList("gzip, deflate")));
+
+    ResponseEntity<byte[]> response =
+        configFileController
+            .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals("\"json-someReleaseKey--gzip\"", response.getHeaders().getETag());
+
+    GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()));
+    String body = new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+    Type responseType = new TypeToken<Map<String, String>>(){}.getType();
+    assertEquals(configurations, new Gson().fromJson(body, responseType));
+  }
+
   @Test
   public void testHandleMessage() throws Exception {
     String someWatchKey = "someWatchKey";
@@ -218,10 +289,13 @@ public class ConfigFileControllerTest {
     ReleaseMessage someReleaseMessage = mock(ReleaseMessage.class);
     when(someReleaseMessage.getMessage()).thenReturn(someWatchKey);
 
-    Cache<String, String> cache =
-        (Cache<String, String>) ReflectionTestUtils.getField(configFileController, "localCache");
-    cache.put(someCacheKey, someValue);
-    cache.put(anotherCacheKey, someValue);
+    Cache<String, ConfigFileController.ConfigFile> cache =
+        (Cache<String, ConfigFileController.ConfigFile>) ReflectionTestUtils
+            .getField(configFileController, "localCache");
+    ConfigFileController.ConfigFile someConfigFile =
+        new ConfigFileController.ConfigFile(someValue.getBytes(StandardCharsets.UTF_8), "\"someEtag\"");
+    cache.put(someCacheKey, someConfigFile);
+    cache.put(anotherCacheKey, someConfigFile);
 
     watchedKeys2CacheKey.putAll(someWatchKey, Lists.newArrayList(someCacheKey, anotherCacheKey));
     watchedKeys2CacheKey.putAll(anotherWatchKey, Lists.newArrayList(someCacheKey, anotherCacheKey));
@@ -234,4 +308,8 @@ public class ConfigFileControllerTest {
     assertTrue(watchedKeys2CacheKey.isEmpty());
     assertTrue(cacheKey2WatchedKeys.isEmpty());
   }
+
+  private String bodyOf(ResponseEntity<byte[]> response) {
+    return new String(response.getBody(), StandardCharsets.UTF_8);
+  }
 }
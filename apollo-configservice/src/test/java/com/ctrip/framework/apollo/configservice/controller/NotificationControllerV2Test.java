@@ -12,6 +12,7 @@ import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
@@ -20,6 +21,7 @@ import com.google.gson.Gson;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.HttpStatus;
@@ -27,6 +29,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.context.request.async.DeferredResult;
 
+import javax.servlet.http.HttpServletResponse;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -59,6 +62,8 @@ public class NotificationControllerV2Test {
   private WatchKeysUtil watchKeysUtil;
   @Mock
   private BizConfig bizConfig;
+  @Mock
+  private HttpServletResponse someResponse;
 
   private Gson gson;
 
@@ -111,7 +116,7 @@ public class NotificationControllerV2Test {
     DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
         deferredResult = controller
         .pollNotification(someAppId, someCluster, notificationAsString, someDataCenter,
-            someClientIp);
+            someClientIp, null, someResponse);
 
     assertEquals(watchKeysMap.size(), deferredResults.size());
 
@@ -140,7 +145,7 @@ public class NotificationControllerV2Test {
     DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
         deferredResult = controller
         .pollNotification(someAppId, someCluster, notificationAsString, someDataCenter,
-            someClientIp);
+            someClientIp, null, someResponse);
 
     assertEquals(watchKeysMap.size(), deferredResults.size());
 
@@ -184,7 +189,7 @@ public class NotificationControllerV2Test {
     DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
         deferredResult = controller
         .pollNotification(someAppId, someCluster, notificationAsString, someDataCenter,
-            someClientIp);
+            someClientIp, null, someResponse);
 
     assertEquals(watchKeysMap.size(), deferredResults.size());
 
@@ -233,7 +238,7 @@ public class NotificationControllerV2Test {
     DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
         deferredResult = controller
         .pollNotification(someAppId, someCluster, notificationAsString, someDataCenter,
-            someClientIp);
+            someClientIp, null, someResponse);
 
     ResponseEntity<List<ApolloConfigNotification>> result =
         (ResponseEntity<List<ApolloConfigNotification>>) deferredResult.getResult();
@@ -272,7 +277,7 @@ public class NotificationControllerV2Test {
     DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
         deferredResult = controller
         .pollNotification(someAppId, someCluster, notificationAsString, someDataCenter,
-            someClientIp);
+            someClientIp, null, someResponse);
 
     assertEquals(watchKeysMap.size(), deferredResults.size());
 
@@ -319,11 +324,11 @@ public class NotificationControllerV2Test {
     DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
         deferredResult = controller
         .pollNotification(someAppId, someCluster, notificationAsString, someDataCenter,
-            someClientIp);
+            someClientIp, null, someResponse);
     DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
         anotherDeferredResult = controller
         .pollNotification(someAppId, someCluster, notificationAsString, someDataCenter,
-            someClientIp);
+            someClientIp, null, someResponse);
 
     long someId = 1;
     ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
@@ -340,6 +345,86 @@ public class NotificationControllerV2Test {
     assertTrue(deferredResult.hasResult() && anotherDeferredResult.hasResult());
   }
 
+  @Test
+  public void testPollNotificationWithSession() throws Exception {
+    when(bizConfig.longPollingSessionTtl()).thenReturn(300);
+    controller = new NotificationControllerV2(
+        watchKeysUtil, releaseMessageService, entityManagerUtil, namespaceUtil, gson, bizConfig
+    );
+    deferredResults =
+        (Multimap<String, DeferredResultWrapper>) ReflectionTestUtils.getField(controller, "deferredResults");
+
+    String someWatchKey = "someKey";
+    Multimap<String, String> watchKeysMap =
+        assembleMultiMap(defaultNamespace, Lists.newArrayList(someWatchKey));
+
+    String notificationAsString =
+        transformApolloConfigNotificationsToString(defaultNamespace, someNotificationId);
+
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someCluster, Sets.newHashSet(defaultNamespace),
+            someDataCenter)).thenReturn(watchKeysMap);
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, defaultCluster, Sets.newHashSet(defaultNamespace),
+            someDataCenter)).thenReturn(watchKeysMap);
+
+    controller.pollNotification(someAppId, someCluster, notificationAsString, someDataCenter,
+        someClientIp, ConfigConsts.LONG_POLL_SESSION_OPT_IN, someResponse);
+
+    ArgumentCaptor<String> sessionCaptor = ArgumentCaptor.forClass(String.class);
+    verify(someResponse).setHeader(eq(ConfigConsts.LONG_POLL_SESSION_HEADER), sessionCaptor.capture());
+    String session = sessionCaptor.getValue();
+
+    DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
+        deferredResult = controller
+        .pollNotification(someAppId, someCluster, notificationAsString, someDataCenter,
+            someClientIp, session, someResponse);
+
+    assertWatchKeys(watchKeysMap, deferredResult);
+
+    // the session doesn't match another cluster, so the watch keys are resolved again
+    controller.pollNotification(someAppId, defaultCluster, notificationAsString, someDataCenter,
+        someClientIp, session, someResponse);
+
+    verify(watchKeysUtil, times(1)).assembleAllWatchKeys(someAppId, someCluster,
+        Sets.newHashSet(defaultNamespace), someDataCenter);
+    verify(watchKeysUtil, times(1)).assembleAllWatchKeys(someAppId, defaultCluster,
+        Sets.newHashSet(defaultNamespace), someDataCenter);
+    verify(namespaceUtil, times(2)).normalizeNamespace(someAppId, defaultNamespace);
+  }
+
+  @Test
+  public void testPollNotificationWithoutSessionOptIn() throws Exception {
+    when(bizConfig.longPollingSessionTtl()).thenReturn(300);
+    controller = new NotificationControllerV2(
+        watchKeysUtil, releaseMessageService, entityManagerUtil, namespaceUtil, gson, bizConfig
+    );
+
+    String someWatchKey = "someKey";
+    Multimap<String, String> watchKeysMap =
+        assembleMultiMap(defaultNamespace, Lists.newArrayList(someWatchKey));
+
+    String notificationAsString =
+        transformApolloConfigNotificationsToString(defaultNamespace, someNotificationId);
+
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someCluster, Sets.newHashSet(defaultNamespace),
+            someDataCenter)).thenReturn(watchKeysMap);
+
+    // legacy clients never send the session back, so no session is issued or cached for them
+    controller.pollNotification(someAppId, someCluster, notificationAsString, someDataCenter,
+        someClientIp, null, someResponse);
+    controller.pollNotification(someAppId, someCluster, notificationAsString, someDataCenter,
+        someClientIp, null, someResponse);
+
+    Cache<String, ?> longPollSessions =
+        (Cache<String, ?>) ReflectionTestUtils.getField(controller, "longPollSessions");
+    assertEquals(0, longPollSessions.size());
+    verify(someResponse, never()).setHeader(eq(ConfigConsts.LONG_POLL_SESSION_HEADER), anyString());
+    verify(watchKeysUtil, times(2)).assembleAllWatchKeys(someAppId, someCluster,
+        Sets.newHashSet(defaultNamespace), someDataCenter);
+  }
+
   @Test
   public void testPollNotificationWithIncorrectCase() throws Exception {
     String appIdWithIncorrectCase = someAppId.toUpperCase();
@@ -364,7 +449,7 @@ public class NotificationControllerV2Test {
     DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
         deferredResult = controller
         .pollNotification(appIdWithIncorrectCase, someCluster, notificationAsString, someDataCenter,
-            someClientIp);
+            someClientIp, null, someResponse);
 
     long someId = 1;
     ReleaseMessage someReleaseMessage = new ReleaseMessage(someMessage);
@@ -1,12 +1,14 @@
 package com.ctrip.framework.apollo.configservice.filter;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.ctrip.framework.apollo.configservice.util.AccessKeyUtil;
+import com.ctrip.framework.apollo.core.signature.HmacSha1Signer;
 import com.ctrip.framework.apollo.core.signature.Signature;
 import com.google.common.collect.Lists;
 import java.util.List;
@@ -54,11 +56,11 @@ public class ClientAuthenticationFilterTest {
   @Test
   public void testRequestTimeTooSkewed() throws Exception {
     String appId = "someAppId";
-    List<String> secrets = Lists.newArrayList("someSecret");
+    List<HmacSha1Signer> signers = Lists.newArrayList(new HmacSha1Signer("someSecret"));
     String oneMinAgoTimestamp = Long.toString(System.currentTimeMillis() - 61 * 1000);
 
     when(accessKeyUtil.extractAppIdFromRequest(any())).thenReturn(appId);
-    when(accessKeyUtil.findAvailableSecret(appId)).thenReturn(secrets);
+    when(accessKeyUtil.findAvailableSigners(appId)).thenReturn(signers);
     when(request.getHeader(Signature.HTTP_HEADER_TIMESTAMP)).thenReturn(oneMinAgoTimestamp);
 
     clientAuthenticationFilter.doFilter(request, response, filterChain);
@@ -70,11 +72,11 @@ public class ClientAuthenticationFilterTest {
   @Test
   public void testRequestTimeOneMinFasterThenCurrentTime() throws Exception {
     String appId = "someAppId";
-    List<String> secrets = Lists.newArrayList("someSecret");
+    List<HmacSha1Signer> signers = Lists.newArrayList(new HmacSha1Signer("someSecret"));
     String oneMinAfterTimestamp = Long.toString(System.currentTimeMillis() + 61 * 1000);
 
     when(accessKeyUtil.extractAppIdFromRequest(any())).thenReturn(appId);
-    when(accessKeyUtil.findAvailableSecret(appId)).thenReturn(secrets);
+    when(accessKeyUtil.findAvailableSigners(appId)).thenReturn(signers);
     when(request.getHeader(Signature.HTTP_HEADER_TIMESTAMP)).thenReturn(oneMinAfterTimestamp);
 
     clientAuthenticationFilter.doFilter(request, response, filterChain);
@@ -86,14 +88,14 @@ public class ClientAuthenticationFilterTest {
   @Test
   public void testUnauthorized() throws Exception {
     String appId = "someAppId";
-    String availableSignature = "someSignature";
-    List<String> secrets = Lists.newArrayList("someSecret");
+    String wrongSignature = "wrongSignature";
+    List<HmacSha1Signer> signers = Lists.newArrayList(new HmacSha1Signer("someSecret"));
     String oneMinAgoTimestamp = Long.toString(System.currentTimeMillis());
     String errorAuthorization = "Apollo someAppId:wrongSignature";
 
     when(accessKeyUtil.extractAppIdFromRequest(any())).thenReturn(appId);
-    when(accessKeyUtil.findAvailableSecret(appId)).thenReturn(secrets);
-    when(accessKeyUtil.buildSignature(any(), any(), any(), any())).thenReturn(availableSignature);
+    when(accessKeyUtil.findAvailableSigners(appId)).thenReturn(signers);
+    when(accessKeyUtil.verifySignature(any(), any(), any(), eq(wrongSignature), any())).thenReturn(false);
     when(request.getHeader(Signature.HTTP_HEADER_TIMESTAMP)).thenReturn(oneMinAgoTimestamp);
     when(request.getHeader(Signature.HTTP_HEADER_AUTHORIZATION)).thenReturn(errorAuthorization);
 
@@ -107,13 +109,13 @@ public class ClientAuthenticationFilterTest {
   public void testAuthorizedSuccessfully() throws Exception {
     String appId = "someAppId";
     String availableSignature = "someSignature";
-    List<String> secrets = Lists.newArrayList("someSecret");
+    List<HmacSha1Signer> signers = Lists.newArrayList(new HmacSha1Signer("someSecret"));
     String oneMinAgoTimestamp = Long.toString(System.currentTimeMillis());
     String correctAuthorization = "Apollo someAppId:someSignature";
 
     when(accessKeyUtil.extractAppIdFromRequest(any())).thenReturn(appId);
-    when(accessKeyUtil.findAvailableSecret(appId)).thenReturn(secrets);
-    when(accessKeyUtil.buildSignature(any(), any(), any(), any())).thenReturn(availableSignature);
+    when(accessKeyUtil.findAvailableSigners(appId)).thenReturn(signers);
+    when(accessKeyUtil.verifySignature(any(), any(), any(), eq(availableSignature), any())).thenReturn(true);
     when(request.getHeader(Signature.HTTP_HEADER_TIMESTAMP)).thenReturn(oneMinAgoTimestamp);
     when(request.getHeader(Signature.HTTP_HEADER_AUTHORIZATION)).thenReturn(correctAuthorization);
 
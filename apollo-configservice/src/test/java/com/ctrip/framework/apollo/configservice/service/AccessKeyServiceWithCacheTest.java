@@ -1,14 +1,18 @@
 package com.ctrip.framework.apollo.configservice.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
 
 import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.AccessKey;
 import com.ctrip.framework.apollo.biz.repository.AccessKeyRepository;
+import com.ctrip.framework.apollo.core.signature.HmacSha1Signer;
+import com.ctrip.framework.apollo.core.signature.HmacSha1Utils;
 import com.google.common.collect.Lists;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
@@ -102,6 +106,33 @@ public class AccessKeyServiceWithCacheTest {
 
     scanIntervalTimeUnit.sleep(scanInterval * 10);
     assertThat(accessKeyServiceWithCache.getAvailableSecrets(appId)).containsExactly("secret-3");
+    List<HmacSha1Signer> signers = accessKeyServiceWithCache.getAvailableSigners(appId);
+    assertThat(signers).hasSize(1);
+    assertThat(signers.get(0).verify("someString", HmacSha1Utils.signString("someString", "secret-3")))
+        .isTrue();
+  }
+
+  @Test
+  public void testInvalidSecretDoesNotBlockOtherAccessKeys() throws Exception {
+    String someAppId = "someAppId";
+    String anotherAppId = "anotherAppId";
+    AccessKey invalidAccessKey = assembleAccessKey(1L, someAppId, "", true, false, 1577808000000L);
+    AccessKey validAccessKey = assembleAccessKey(2L, anotherAppId, "secret-2", true, false,
+        1577808001000L);
+
+    when(accessKeyRepository.findFirst500ByDataChangeLastModifiedTimeGreaterThanOrderByDataChangeLastModifiedTimeAsc(new Date(0L)))
+        .thenReturn(Lists.newArrayList(invalidAccessKey, validAccessKey));
+    when(accessKeyRepository.findAllById(anyList()))
+        .thenReturn(Lists.newArrayList(invalidAccessKey, validAccessKey));
+
+    accessKeyServiceWithCache.afterPropertiesSet();
+
+    List<HmacSha1Signer> signers = accessKeyServiceWithCache.getAvailableSigners(anotherAppId);
+    assertThat(signers).hasSize(1);
+    assertThat(signers.get(0).verify("someString", HmacSha1Utils.signString("someString", "secret-2")))
+        .isTrue();
+    assertThatThrownBy(() -> accessKeyServiceWithCache.getAvailableSigners(someAppId))
+        .isInstanceOf(IllegalArgumentException.class);
   }
 
   public AccessKey assembleAccessKey(Long id, String appId, String secret, boolean enabled,
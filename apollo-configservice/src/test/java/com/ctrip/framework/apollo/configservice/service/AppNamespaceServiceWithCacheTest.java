@@ -6,11 +6,14 @@ import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.io.File;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
@@ -20,6 +23,10 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -34,6 +41,9 @@ public class AppNamespaceServiceWithCacheTest {
   @Mock
   private BizConfig bizConfig;
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private int scanInterval;
   private TimeUnit scanIntervalTimeUnit;
   private Comparator<AppNamespace> appNamespaceComparator = (o1, o2) -> (int) (o1.getId() -
@@ -243,6 +253,65 @@ public class AppNamespaceServiceWithCacheTest {
         .findByAppIdAndNamespaces(someAppIdNew, Sets.newHashSet(yetAnotherPrivateNamespace)));
   }
 
+  @Test
+  public void testIncrementalChangesAndWarmStartFromSnapshot() throws Exception {
+    String someAppId = "someAppId";
+    String somePublicNamespace = "somePublicNamespace";
+    String somePublicNamespaceNew = "somePublicNamespaceNew";
+    String somePrivateNamespace = "somePrivateNamespace";
+    long somePublicNamespaceId = 1;
+    long somePrivateNamespaceId = 2;
+    int sleepInterval = scanInterval * 10;
+    File snapshotFile = new File(temporaryFolder.getRoot(), "app-namespace-cache.snapshot");
+
+    AppNamespace somePublicAppNamespace = assembleAppNamespace(somePublicNamespaceId, someAppId,
+        somePublicNamespace, true);
+    AppNamespace somePrivateAppNamespace = assembleAppNamespace(somePrivateNamespaceId, someAppId,
+        somePrivateNamespace, false);
+
+    // only rely on incremental changes
+    when(bizConfig.appNamespaceCacheRebuildInterval()).thenReturn(1);
+    when(bizConfig.appNamespaceCacheRebuildIntervalTimeUnit()).thenReturn(TimeUnit.HOURS);
+    when(bizConfig.appNamespaceCacheSnapshotPath()).thenReturn(snapshotFile.getAbsolutePath());
+    when(appNamespaceRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0)).thenReturn(Lists
+        .newArrayList(somePublicAppNamespace, somePrivateAppNamespace));
+
+    appNamespaceServiceWithCache.afterPropertiesSet();
+
+    assertTrue(snapshotFile.exists());
+    assertEquals(somePublicAppNamespace, appNamespaceServiceWithCache.findPublicNamespaceByName(somePublicNamespace));
+    assertEquals(somePrivateAppNamespace,
+        appNamespaceServiceWithCache.findByAppIdAndNamespace(someAppId, somePrivateNamespace));
+
+    // rename 1 public namespace and delete 1 private namespace
+    AppNamespace somePublicAppNamespaceNew = assembleAppNamespace(somePublicNamespaceId, someAppId,
+        somePublicNamespaceNew, true);
+    somePublicAppNamespaceNew.setDataChangeLastModifiedTime(newDateWithDelta(
+        somePublicAppNamespace.getDataChangeLastModifiedTime(), 1));
+    AppNamespace somePrivateAppNamespaceDeleted = assembleAppNamespace(somePrivateNamespaceId, someAppId,
+        somePrivateNamespace, false);
+    somePrivateAppNamespaceDeleted.setDeleted(true);
+    when(appNamespaceRepository.findFirst500ChangedAfter(any(Date.class), anyLong())).thenReturn(Lists
+        .newArrayList(somePrivateAppNamespaceDeleted, somePublicAppNamespaceNew));
+
+    scanIntervalTimeUnit.sleep(sleepInterval);
+
+    assertNull(appNamespaceServiceWithCache.findPublicNamespaceByName(somePublicNamespace));
+    assertEquals(somePublicAppNamespaceNew,
+        appNamespaceServiceWithCache.findPublicNamespaceByName(somePublicNamespaceNew));
+    assertNull(appNamespaceServiceWithCache.findByAppIdAndNamespace(someAppId, somePrivateNamespace));
+
+    // warm start from the snapshot written on startup, then catch up with the changes
+    AppNamespaceServiceWithCache anotherAppNamespaceServiceWithCache =
+        new AppNamespaceServiceWithCache(appNamespaceRepository, bizConfig);
+    anotherAppNamespaceServiceWithCache.afterPropertiesSet();
+
+    verify(appNamespaceRepository, times(1)).findFirst500ByIdGreaterThanOrderByIdAsc(0);
+    assertEquals(somePublicNamespaceNew,
+        anotherAppNamespaceServiceWithCache.findPublicNamespaceByName(somePublicNamespaceNew).getName());
+    assertNull(anotherAppNamespaceServiceWithCache.findByAppIdAndNamespace(someAppId, somePrivateNamespace));
+  }
+
   private void check(List<AppNamespace> someList, List<AppNamespace> anotherList) {
     someList.sort(appNamespaceComparator);
     anotherList.sort(appNamespaceComparator);
@@ -0,0 +1,78 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.service.InstanceService;
+import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
+import com.ctrip.framework.apollo.configservice.service.config.ConfigServiceWithCache;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConfigCacheWarmUpServiceTest {
+  @Mock
+  private ConfigServiceWithCache configServiceWithCache;
+  @Mock
+  private InstanceService instanceService;
+  @Mock
+  private BizConfig bizConfig;
+
+  @Test
+  public void testWarmUp() throws Exception {
+    String someKey = "someKey";
+    String anotherKey = "anotherKey";
+    when(bizConfig.configServiceWarmUpSize()).thenReturn(10);
+    when(instanceService.findMostUsedNamespaceKeys(10)).thenReturn(Lists.newArrayList(someKey, anotherKey));
+    doThrow(new RuntimeException("someError")).when(configServiceWithCache).warmUp(someKey);
+
+    ConfigCacheWarmUpService configCacheWarmUpService =
+        new ConfigCacheWarmUpService(configServiceWithCache, instanceService, bizConfig);
+    ReflectionTestUtils.setField(configCacheWarmUpService, "deadline", Long.MAX_VALUE);
+
+    configCacheWarmUpService.warmUp();
+
+    verify(configServiceWithCache).warmUp(anotherKey);
+    assertTrue(configCacheWarmUpService.isFinished());
+    assertEquals(2, configCacheWarmUpService.getWarmedUpCount());
+    assertEquals(2, configCacheWarmUpService.getTotalCount());
+  }
+
+  @Test
+  public void testWarmUpTimeout() throws Exception {
+    when(bizConfig.configServiceWarmUpSize()).thenReturn(10);
+    when(instanceService.findMostUsedNamespaceKeys(10)).thenReturn(Lists.newArrayList("someKey"));
+
+    ConfigCacheWarmUpService configCacheWarmUpService =
+        new ConfigCacheWarmUpService(configServiceWithCache, instanceService, bizConfig);
+    ReflectionTestUtils.setField(configCacheWarmUpService, "deadline", System.currentTimeMillis() - 1);
+
+    configCacheWarmUpService.warmUp();
+
+    verify(configServiceWithCache, never()).warmUp("someKey");
+    assertTrue(configCacheWarmUpService.isFinished());
+    assertEquals(0, configCacheWarmUpService.getWarmedUpCount());
+  }
+
+  @Test
+  public void testNoWarmUpWithoutCache() throws Exception {
+    ConfigCacheWarmUpService configCacheWarmUpService =
+        new ConfigCacheWarmUpService(mock(ConfigService.class), instanceService, bizConfig);
+
+    configCacheWarmUpService.afterPropertiesSet();
+
+    assertTrue(configCacheWarmUpService.isFinished());
+    verify(instanceService, never()).findMostUsedNamespaceKeys(anyInt());
+  }
+}
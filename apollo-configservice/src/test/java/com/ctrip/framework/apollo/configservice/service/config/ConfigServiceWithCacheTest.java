@@ -17,8 +17,19 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -276,4 +287,120 @@ public class ConfigServiceWithCacheTest {
     verify(releaseMessageService, times(1)).findLatestReleaseMessageForMessages(Lists.newArrayList(someKey));
     verify(releaseService, times(1)).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
   }
+
+  @Test
+  public void testFindLatestActiveReleaseWithConcurrentDirtyRequests() throws Exception {
+    long someNewNotificationId = someNotificationId + 1;
+    int concurrency = 10;
+    ReleaseMessage anotherReleaseMessage = mock(ReleaseMessage.class);
+    Release anotherRelease = mock(Release.class);
+    CountDownLatch loadStarted = new CountDownLatch(1);
+    CountDownLatch releaseLoad = new CountDownLatch(1);
+
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey))).thenReturn
+        (someReleaseMessage);
+    when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName)).thenReturn
+        (someRelease);
+    when(someReleaseMessage.getId()).thenReturn(someNotificationId);
+
+    Release release = configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName,
+        someNotificationMessages);
+
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey))).thenAnswer(
+        invocation -> {
+          loadStarted.countDown();
+          releaseLoad.await(5, TimeUnit.SECONDS);
+          return anotherReleaseMessage;
+        });
+    when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName)).thenReturn
+        (anotherRelease);
+    when(anotherReleaseMessage.getId()).thenReturn(someNewNotificationId);
+
+    someNotificationMessages.put(someKey, someNewNotificationId);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(concurrency);
+    List<Future<Release>> futures = Lists.newArrayList();
+    for (int i = 0; i < concurrency; i++) {
+      futures.add(executorService.submit(() -> configServiceWithCache.findLatestActiveRelease(someAppId,
+          someClusterName, someNamespaceName, someNotificationMessages)));
+    }
+
+    assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+    TimeUnit.MILLISECONDS.sleep(100);
+    releaseLoad.countDown();
+
+    for (Future<Release> future : futures) {
+      assertEquals(anotherRelease, future.get(5, TimeUnit.SECONDS));
+    }
+    executorService.shutdown();
+
+    assertEquals(someRelease, release);
+
+    verify(releaseMessageService, times(2)).findLatestReleaseMessageForMessages(Lists.newArrayList(someKey));
+    verify(releaseService, times(2)).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFindLatestActiveReleaseRetriesAfterJoiningStaleReload() throws Exception {
+    long someNewNotificationId = someNotificationId + 1;
+    long anotherNewNotificationId = someNotificationId + 2;
+    ReleaseMessage anotherReleaseMessage = mock(ReleaseMessage.class);
+    Release anotherRelease = mock(Release.class);
+    CountDownLatch loadStarted = new CountDownLatch(1);
+    CountDownLatch releaseLoad = new CountDownLatch(1);
+    AtomicInteger loads = new AtomicInteger();
+
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey))).thenAnswer(
+        invocation -> {
+          int load = loads.getAndIncrement();
+          if (load == 1) {
+            // the first reload reads the database before the newer messages are visible
+            loadStarted.countDown();
+            releaseLoad.await(5, TimeUnit.SECONDS);
+          }
+          return load < 2 ? someReleaseMessage : anotherReleaseMessage;
+        });
+    when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName)).thenAnswer(
+        invocation -> loads.get() < 3 ? someRelease : anotherRelease);
+    when(someReleaseMessage.getId()).thenReturn(someNotificationId);
+    when(anotherReleaseMessage.getId()).thenReturn(anotherNewNotificationId);
+
+    configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName,
+        someNotificationMessages);
+
+    ApolloNotificationMessages someNewNotificationMessages = new ApolloNotificationMessages();
+    someNewNotificationMessages.put(someKey, someNewNotificationId);
+    ApolloNotificationMessages anotherNewNotificationMessages = new ApolloNotificationMessages();
+    anotherNewNotificationMessages.put(someKey, anotherNewNotificationId);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    Future<Release> owner = executorService.submit(() -> configServiceWithCache.findLatestActiveRelease(
+        someAppId, someClusterName, someNamespaceName, someNewNotificationMessages));
+    assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+    // hold the owner thread right after the stale reload completes, so the waiter retries within that window
+    Map<String, CompletableFuture<?>> inFlightReloads =
+        (Map<String, CompletableFuture<?>>) ReflectionTestUtils.getField(configServiceWithCache, "inFlightReloads");
+    inFlightReloads.get(someKey).whenComplete((entry, ex) -> sleepQuietly(200));
+
+    Future<Release> waiter = executorService.submit(() -> configServiceWithCache.findLatestActiveRelease(
+        someAppId, someClusterName, someNamespaceName, anotherNewNotificationMessages));
+    TimeUnit.MILLISECONDS.sleep(100);
+    releaseLoad.countDown();
+
+    assertEquals(someRelease, owner.get(5, TimeUnit.SECONDS));
+    assertEquals(anotherRelease, waiter.get(5, TimeUnit.SECONDS));
+    executorService.shutdown();
+
+    verify(releaseMessageService, times(3)).findLatestReleaseMessageForMessages(Lists.newArrayList(someKey));
+  }
+
+  private void sleepQuietly(long millis) {
+    try {
+      TimeUnit.MILLISECONDS.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
 }
@@ -5,6 +5,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.ctrip.framework.apollo.configservice.service.AccessKeyServiceWithCache;
+import com.ctrip.framework.apollo.core.signature.HmacSha1Signer;
 import com.google.common.collect.Lists;
 import java.util.List;
 import javax.servlet.http.HttpServletRequest;
@@ -94,4 +95,17 @@ public class AccessKeyUtilTest {
     String expectedSignature = "WYjjyJFei6DYiaMlwZjew2O/Yqk=";
     assertThat(actualSignature).isEqualTo(expectedSignature);
   }
+
+  @Test
+  public void verifySignature() {
+    String path = "/configs/someAppId/default/application";
+    String query = "ip=10.0.0.1";
+    String timestamp = "1575018989200";
+    HmacSha1Signer signer = new HmacSha1Signer("someSecret");
+
+    assertThat(accessKeyUtil.verifySignature(path, query, timestamp, "WYjjyJFei6DYiaMlwZjew2O/Yqk=",
+        signer)).isTrue();
+    assertThat(accessKeyUtil.verifySignature(path, null, timestamp, "WYjjyJFei6DYiaMlwZjew2O/Yqk=",
+        signer)).isFalse();
+  }
 }
\ No newline at end of file
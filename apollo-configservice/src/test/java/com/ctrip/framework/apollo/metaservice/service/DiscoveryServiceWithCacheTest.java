@@ -0,0 +1,97 @@
+package com.ctrip.framework.apollo.metaservice.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.metaservice.service.DiscoveryServiceWithCache.ServiceList;
+import com.google.common.collect.Lists;
+import com.netflix.appinfo.InstanceInfo;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DiscoveryServiceWithCacheTest {
+
+  private DiscoveryServiceWithCache discoveryServiceWithCache;
+
+  @Mock
+  private DiscoveryService discoveryService;
+  @Mock
+  private InstanceInfo someInstance;
+  @Mock
+  private InstanceInfo anotherInstance;
+
+  private String someAppName;
+  private String someRegistryVersion;
+
+  @Before
+  public void setUp() throws Exception {
+    discoveryServiceWithCache = new DiscoveryServiceWithCache(discoveryService);
+
+    someAppName = "someAppName";
+    someRegistryVersion = "UP_1_";
+
+    when(someInstance.getAppName()).thenReturn(someAppName);
+    when(someInstance.getInstanceId()).thenReturn("someInstanceId");
+    when(someInstance.getHomePageUrl()).thenReturn("http://someHost:8080/");
+  }
+
+  @Test
+  public void testGetConfigServices() throws Exception {
+    when(discoveryService.getRegistryVersion()).thenReturn(someRegistryVersion);
+    when(discoveryService.getConfigServiceInstances()).thenReturn(Lists.newArrayList(someInstance));
+
+    ServiceList serviceList = discoveryServiceWithCache.getConfigServices();
+    List<ServiceDTO> services = serviceList.getServices();
+
+    assertEquals(1, services.size());
+    assertEquals(someAppName, services.get(0).getAppName());
+    assertEquals("someInstanceId", services.get(0).getInstanceId());
+    assertEquals("http://someHost:8080/", services.get(0).getHomepageUrl());
+    assertSame(serviceList, discoveryServiceWithCache.getConfigServices());
+
+    verify(discoveryService, times(1)).getConfigServiceInstances();
+  }
+
+  @Test
+  public void testGetConfigServicesWithRegistryVersionChanged() throws Exception {
+    String anotherRegistryVersion = "UP_2_";
+
+    when(anotherInstance.getAppName()).thenReturn(someAppName);
+    when(anotherInstance.getInstanceId()).thenReturn("anotherInstanceId");
+    when(anotherInstance.getHomePageUrl()).thenReturn("http://anotherHost:8080/");
+    when(discoveryService.getRegistryVersion()).thenReturn(someRegistryVersion, anotherRegistryVersion);
+    when(discoveryService.getConfigServiceInstances()).thenReturn(Lists.newArrayList(someInstance),
+        Lists.newArrayList(someInstance, anotherInstance));
+
+    ServiceList serviceList = discoveryServiceWithCache.getConfigServices();
+    ServiceList anotherServiceList = discoveryServiceWithCache.getConfigServices();
+
+    assertEquals(1, serviceList.getServices().size());
+    assertEquals(2, anotherServiceList.getServices().size());
+    assertNotEquals(serviceList.getETag(), anotherServiceList.getETag());
+  }
+
+  @Test
+  public void testGetConfigServicesWithSameContentKeepsETag() throws Exception {
+    when(discoveryService.getRegistryVersion()).thenReturn(someRegistryVersion, "DOWN_1_");
+    when(discoveryService.getConfigServiceInstances()).thenReturn(Lists.newArrayList(someInstance));
+
+    ServiceList serviceList = discoveryServiceWithCache.getConfigServices();
+    ServiceList anotherServiceList = discoveryServiceWithCache.getConfigServices();
+
+    assertEquals(serviceList.getETag(), anotherServiceList.getETag());
+    assertSame(serviceList.getServices(), anotherServiceList.getServices());
+
+    verify(discoveryService, times(2)).getConfigServiceInstances();
+  }
+}
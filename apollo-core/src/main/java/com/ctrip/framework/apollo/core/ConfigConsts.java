@@ -44,4 +44,14 @@ public interface ConfigConsts {
      * 通知id替代符号
      */
     long NOTIFICATION_ID_PLACEHOLDER = -1;
+
+    /**
+     * 长轮询会话的响应头，客户端下次长轮询时通过 session 参数带回，服务端跳过命名空间和 watch key 的解析
+     */
+    String LONG_POLL_SESSION_HEADER = "Apollo-Long-Poll-Session";
+
+    /**
+     * 还没有长轮询会话时 session 参数的值，表示客户端会带回会话令牌，服务端只为带 session 参数的客户端缓存会话
+     */
+    String LONG_POLL_SESSION_OPT_IN = "new";
 }
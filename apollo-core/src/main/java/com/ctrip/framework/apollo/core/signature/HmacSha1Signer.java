@@ -0,0 +1,118 @@
+package com.ctrip.framework.apollo.core.signature;
+
+import com.google.common.io.BaseEncoding;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * HmacSHA1 signer bound to one secret.
+ * <p>
+ * {@link HmacSha1Utils#signString(String, String)} looks up and keys a new {@link Mac} for every
+ * call. A signer keys a prototype once and hands every thread its own copy, so signing only hashes
+ * the input. Verification compares the expected signature with the base64 one in constant time,
+ * without encoding the expected signature into a new string.
+ * <p>
+ * Signers are thread safe and meant to be cached for as long as the secret stays the same.
+ */
+public class HmacSha1Signer {
+
+  private static final String ALGORITHM_NAME = "HmacSHA1";
+  private static final int SIGNATURE_LENGTH = 20;
+  private static final int ENCODED_SIGNATURE_LENGTH = (SIGNATURE_LENGTH + 2) / 3 * 4;
+  private static final char[] BASE64_ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+  private static final char BASE64_PADDING = '=';
+
+  private static final ThreadLocal<byte[]> SIGNATURE_BUFFER = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[SIGNATURE_LENGTH];
+    }
+  };
+
+  private final ThreadLocal<Mac> macs;
+
+  public HmacSha1Signer(String secret) {
+    final SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8),
+        ALGORITHM_NAME);
+    // fail fast on invalid keys instead of on the first request
+    final Mac prototype = newMac(key);
+    this.macs = new ThreadLocal<Mac>() {
+      @Override
+      protected Mac initialValue() {
+        try {
+          return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+          return newMac(key);
+        }
+      }
+    };
+  }
+
+  /**
+   * @return base64 encoded signature of the string
+   */
+  public String sign(String stringToSign) {
+    byte[] signature = doFinal(stringToSign);
+    return BaseEncoding.base64().encode(signature, 0, SIGNATURE_LENGTH);
+  }
+
+  /**
+   * Checks the base64 encoded signature of the string in constant time.
+   *
+   * @return true if the signature matches
+   */
+  public boolean verify(String stringToSign, String signature) {
+    if (signature == null || signature.length() != ENCODED_SIGNATURE_LENGTH) {
+      return false;
+    }
+    byte[] expected = doFinal(stringToSign);
+
+    int diff = 0;
+    int position = 0;
+    for (int i = 0; i < SIGNATURE_LENGTH; i += 3) {
+      int remaining = SIGNATURE_LENGTH - i;
+      int chunk = (expected[i] & 0xff) << 16;
+      if (remaining > 1) {
+        chunk |= (expected[i + 1] & 0xff) << 8;
+      }
+      if (remaining > 2) {
+        chunk |= expected[i + 2] & 0xff;
+      }
+      diff |= signature.charAt(position++) ^ BASE64_ALPHABET[(chunk >>> 18) & 0x3f];
+      diff |= signature.charAt(position++) ^ BASE64_ALPHABET[(chunk >>> 12) & 0x3f];
+      diff |= signature.charAt(position++)
+          ^ (remaining > 1 ? BASE64_ALPHABET[(chunk >>> 6) & 0x3f] : BASE64_PADDING);
+      diff |= signature.charAt(position++)
+          ^ (remaining > 2 ? BASE64_ALPHABET[chunk & 0x3f] : BASE64_PADDING);
+    }
+    return diff == 0;
+  }
+
+  private byte[] doFinal(String stringToSign) {
+    Mac mac = macs.get();
+    byte[] signature = SIGNATURE_BUFFER.get();
+    try {
+      mac.update(stringToSign.getBytes(StandardCharsets.UTF_8));
+      mac.doFinal(signature, 0);
+    } catch (ShortBufferException e) {
+      mac.reset();
+      throw new IllegalStateException(e);
+    }
+    return signature;
+  }
+
+  private static Mac newMac(SecretKeySpec key) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM_NAME);
+      mac.init(key);
+      return mac;
+    } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+      throw new IllegalArgumentException(e.toString());
+    }
+  }
+}
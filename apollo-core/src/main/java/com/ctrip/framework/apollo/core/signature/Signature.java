@@ -1,6 +1,11 @@
 package com.ctrip.framework.apollo.core.signature;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Map;
@@ -19,9 +24,25 @@ public class Signature {
   public static final String HTTP_HEADER_AUTHORIZATION = "Authorization";
   public static final String HTTP_HEADER_TIMESTAMP = "Timestamp";
 
+  /**
+   * a client signs every request with the same few secrets
+   */
+  private static final LoadingCache<String, HmacSha1Signer> SIGNERS = CacheBuilder.newBuilder()
+      .maximumSize(100)
+      .build(new CacheLoader<String, HmacSha1Signer>() {
+        @Override
+        public HmacSha1Signer load(String secret) {
+          return new HmacSha1Signer(secret);
+        }
+      });
+
   public static String signature(String timestamp, String pathWithQuery, String secret) {
-    String stringToSign = timestamp + DELIMITER + pathWithQuery;
-    return HmacSha1Utils.signString(stringToSign, secret);
+    return signer(secret).sign(stringToSign(timestamp, pathWithQuery));
+  }
+
+  public static boolean verify(String timestamp, String pathWithQuery, String signature,
+      HmacSha1Signer signer) {
+    return signer.verify(stringToSign(timestamp, pathWithQuery), signature);
   }
 
   public static Map<String, String> buildHttpHeaders(String url, String appId, String secret) {
@@ -37,6 +58,20 @@ public class Signature {
     return headers;
   }
 
+  private static HmacSha1Signer signer(String secret) {
+    try {
+      return SIGNERS.getUnchecked(secret);
+    } catch (UncheckedExecutionException e) {
+      // keep the IllegalArgumentException thrown for an invalid secret
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static String stringToSign(String timestamp, String pathWithQuery) {
+    return timestamp + DELIMITER + pathWithQuery;
+  }
+
   private static String url2PathWithQuery(String urlString) {
     try {
       URL url = new URL(urlString);
@@ -0,0 +1,73 @@
+package com.ctrip.framework.apollo.core.signature;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Signs and verifies a long polling request, with {@link HmacSha1Utils} keying a new {@link
+ * javax.crypto.Mac} per call and with a pre-keyed {@link HmacSha1Signer}.
+ * <p>
+ * Run with {@code main} from the IDE, or {@code java -cp <test classpath> org.openjdk.jmh.Main HmacSha1SignerBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class HmacSha1SignerBenchmark {
+
+  private static final String SECRET = "df23df3f59884980844ff3dada30fa97";
+
+  private String stringToSign;
+  private String signature;
+  private HmacSha1Signer signer;
+
+  @Setup
+  public void setUp() {
+    stringToSign = "1576478257344\n/notifications/v2?cluster=default&appId=100004458&ip=10.0.0.1"
+        + "&notifications=%5B%7B%22namespaceName%22%3A%22application%22%2C%22notificationId%22%3A1%7D%5D";
+    signer = new HmacSha1Signer(SECRET);
+    signature = signer.sign(stringToSign);
+  }
+
+  @Benchmark
+  public String signWithNewMac() {
+    return HmacSha1Utils.signString(stringToSign, SECRET);
+  }
+
+  @Benchmark
+  public String signWithSigner() {
+    return signer.sign(stringToSign);
+  }
+
+  @Benchmark
+  public boolean verifyWithNewMac() {
+    return signature.equals(HmacSha1Utils.signString(stringToSign, SECRET));
+  }
+
+  @Benchmark
+  public boolean verifyWithSigner() {
+    return signer.verify(stringToSign, signature);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(HmacSha1SignerBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
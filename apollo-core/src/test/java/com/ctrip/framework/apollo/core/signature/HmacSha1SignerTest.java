@@ -0,0 +1,73 @@
+package com.ctrip.framework.apollo.core.signature;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class HmacSha1SignerTest {
+
+  private static final String STRING_TO_SIGN =
+      "1576478257344\n/configs/100004458/default/application?ip=10.0.0.1";
+  private static final String SECRET = "df23df3f59884980844ff3dada30fa97";
+  private static final String SIGNATURE = "EoKyziXvKqzHgwx+ijDJwgVTDgE=";
+
+  @Test
+  public void testSign() {
+    HmacSha1Signer signer = new HmacSha1Signer(SECRET);
+
+    assertEquals(SIGNATURE, signer.sign(STRING_TO_SIGN));
+    assertEquals(SIGNATURE, signer.sign(STRING_TO_SIGN));
+    assertEquals(HmacSha1Utils.signString("anotherString", SECRET), signer.sign("anotherString"));
+  }
+
+  @Test
+  public void testVerify() {
+    HmacSha1Signer signer = new HmacSha1Signer(SECRET);
+
+    assertTrue(signer.verify(STRING_TO_SIGN, SIGNATURE));
+    assertFalse(signer.verify(STRING_TO_SIGN, "EoKyziXvKqzHgwx+ijDJwgVTDgF="));
+    assertFalse(signer.verify(STRING_TO_SIGN, "EoKyziXvKqzHgwx+ijDJwgVTDgE"));
+    assertFalse(signer.verify(STRING_TO_SIGN, null));
+    assertFalse(signer.verify("anotherString", SIGNATURE));
+    assertFalse(new HmacSha1Signer("anotherSecret").verify(STRING_TO_SIGN, SIGNATURE));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptySecret() {
+    new HmacSha1Signer("");
+  }
+
+  @Test
+  public void testSignConcurrently() throws Exception {
+    final HmacSha1Signer signer = new HmacSha1Signer(SECRET);
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      Future<?>[] futures = new Future<?>[4];
+      for (int i = 0; i < futures.length; i++) {
+        final String stringToSign = STRING_TO_SIGN + i;
+        final String expected = HmacSha1Utils.signString(stringToSign, SECRET);
+        futures[i] = executorService.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            for (int j = 0; j < 1000; j++) {
+              assertEquals(expected, signer.sign(stringToSign));
+              assertTrue(signer.verify(stringToSign, expected));
+            }
+            return null;
+          }
+        });
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+}
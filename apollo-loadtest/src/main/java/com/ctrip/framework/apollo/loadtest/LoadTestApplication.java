@@ -0,0 +1,42 @@
+package com.ctrip.framework.apollo.loadtest;
+
+import com.ctrip.framework.apollo.biz.repository.AppNamespaceRepository;
+import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
+import com.ctrip.framework.apollo.biz.repository.ReleaseRepository;
+import com.ctrip.framework.apollo.configservice.ConfigServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * 压测入口：在进程内启动基于 H2 的 config service，再用虚拟客户端对其长轮询
+ * <p>
+ * 该模块不在默认构建中，通过 -Ploadtest 启用
+ * <p>
+ * 参数通过启动参数覆盖，如：--loadtest.clients=5000 --loadtest.releases=100
+ */
+public class LoadTestApplication {
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ConfigServiceApplication.class)
+                .run(args);
+        run(context);
+    }
+
+    /**
+     * 对已启动的 config service 执行压测，结束后关闭
+     *
+     * @param context config service 的上下文
+     * @return 压测结果
+     */
+    public static LoadTestReport run(ConfigurableApplicationContext context) throws InterruptedException {
+        try {
+            LoadTestOptions options = LoadTestOptions.from(context.getEnvironment());
+            String configServiceUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            LoadTestDataSeeder seeder = new LoadTestDataSeeder(context.getBean(AppNamespaceRepository.class),
+                    context.getBean(ReleaseRepository.class), context.getBean(ReleaseMessageRepository.class));
+            return new LoadTestHarness(options, seeder, configServiceUrl).run();
+        } finally {
+            context.close();
+        }
+    }
+}
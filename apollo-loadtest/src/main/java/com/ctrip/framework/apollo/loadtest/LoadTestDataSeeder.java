@@ -0,0 +1,111 @@
+package com.ctrip.framework.apollo.loadtest;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.repository.AppNamespaceRepository;
+import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
+import com.ctrip.framework.apollo.biz.repository.ReleaseRepository;
+import com.ctrip.framework.apollo.biz.utils.ReleaseKeyGenerator;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.ctrip.framework.apollo.common.entity.AppNamespace;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+
+import java.util.Map;
+
+/**
+ * 压测数据准备：公共命名空间、各命名空间的发布，以及发布消息
+ */
+public class LoadTestDataSeeder {
+
+    /**
+     * 公共命名空间所属的应用
+     */
+    static final String PUBLIC_NAMESPACE_APP_ID = "loadtest-public";
+
+    private static final String OPERATOR = "apollo-loadtest";
+    private static final int PROPERTIES_PER_RELEASE = 20;
+
+    private final AppNamespaceRepository appNamespaceRepository;
+    private final ReleaseRepository releaseRepository;
+    private final ReleaseMessageRepository releaseMessageRepository;
+    private final Gson gson = new Gson();
+
+    public LoadTestDataSeeder(AppNamespaceRepository appNamespaceRepository, ReleaseRepository releaseRepository,
+                              ReleaseMessageRepository releaseMessageRepository) {
+        this.appNamespaceRepository = appNamespaceRepository;
+        this.releaseRepository = releaseRepository;
+        this.releaseMessageRepository = releaseMessageRepository;
+    }
+
+    static String appIdOf(int app) {
+        return "loadtest-app-" + app;
+    }
+
+    static String privateNamespaceOf(int index) {
+        return "private-" + index;
+    }
+
+    static String sharedNamespaceOf(int index) {
+        return "shared-" + index;
+    }
+
+    /**
+     * 创建公共命名空间，并为所有命名空间创建一次发布
+     *
+     * @param options 压测参数
+     */
+    public void seed(LoadTestOptions options) {
+        for (int i = 0; i < options.getSharedNamespaces(); i++) {
+            AppNamespace appNamespace = new AppNamespace();
+            appNamespace.setAppId(PUBLIC_NAMESPACE_APP_ID);
+            appNamespace.setName(sharedNamespaceOf(i));
+            appNamespace.setFormat(ConfigFileFormat.Properties.getValue());
+            appNamespace.setPublic(true);
+            appNamespace.setDataChangeCreatedBy(OPERATOR);
+            appNamespaceRepository.save(appNamespace);
+
+            release(PUBLIC_NAMESPACE_APP_ID, sharedNamespaceOf(i), 0);
+        }
+
+        for (int app = 0; app < options.getApps(); app++) {
+            release(appIdOf(app), ConfigConsts.NAMESPACE_APPLICATION, 0);
+            for (int i = 0; i < options.getPrivateNamespacesPerApp(); i++) {
+                release(appIdOf(app), privateNamespaceOf(i), 0);
+            }
+        }
+    }
+
+    /**
+     * 发布公共命名空间，并写入发布消息
+     *
+     * @param namespace 公共命名空间
+     * @param revision  发布版本，用于生成不同的配置内容
+     * @return 发布消息，其编号即客户端收到的通知编号
+     */
+    public ReleaseMessage publishShared(String namespace, int revision) {
+        release(PUBLIC_NAMESPACE_APP_ID, namespace, revision);
+        return releaseMessageRepository.save(new ReleaseMessage(ReleaseMessageKeyGenerator.generate(
+                PUBLIC_NAMESPACE_APP_ID, ConfigConsts.CLUSTER_NAME_DEFAULT, namespace)));
+    }
+
+    private void release(String appId, String namespace, int revision) {
+        Map<String, String> configurations = Maps.newHashMap();
+        for (int i = 0; i < PROPERTIES_PER_RELEASE; i++) {
+            configurations.put("key" + i, String.format("%s-%s-value%d-rev%d", appId, namespace, i, revision));
+        }
+
+        Release release = new Release();
+        release.setReleaseKey(ReleaseKeyGenerator.generate(appId, ConfigConsts.CLUSTER_NAME_DEFAULT,
+                namespace));
+        release.setName("loadtest-rev" + revision);
+        release.setAppId(appId);
+        release.setClusterName(ConfigConsts.CLUSTER_NAME_DEFAULT);
+        release.setNamespaceName(namespace);
+        release.setConfigurations(gson.toJson(configurations));
+        release.setDataChangeCreatedBy(OPERATOR);
+        releaseRepository.save(release);
+    }
+}
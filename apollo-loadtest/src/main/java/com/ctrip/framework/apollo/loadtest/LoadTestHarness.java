@@ -0,0 +1,133 @@
+package com.ctrip.framework.apollo.loadtest;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测流程：准备数据，启动虚拟客户端并等待长连接建立，按间隔发布公共命名空间，等待通知扇出完成后输出报告
+ */
+public class LoadTestHarness {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestHarness.class);
+
+    /**
+     * 等待虚拟客户端建立长连接的最长时间，单位：秒
+     */
+    private static final long CONNECT_TIMEOUT_SECONDS = 60;
+
+    /**
+     * 长连接建立后，等待服务端挂起请求的时间，单位：毫秒
+     */
+    private static final long SETTLE_MILLIS = 1000;
+
+    /**
+     * 等待 AppNamespaceServiceWithCache 扫描到新建的公共命名空间的时间，单位：毫秒
+     */
+    private static final long APP_NAMESPACE_SCAN_MILLIS = 3000;
+
+    private final LoadTestOptions options;
+    private final LoadTestDataSeeder seeder;
+    private final String configServiceUrl;
+    private final LoadTestMetrics metrics = new LoadTestMetrics();
+
+    public LoadTestHarness(LoadTestOptions options, LoadTestDataSeeder seeder, String configServiceUrl) {
+        this.options = options;
+        this.seeder = seeder;
+        this.configServiceUrl = configServiceUrl;
+    }
+
+    public LoadTestReport run() throws InterruptedException {
+        logger.info("Starting load test with {} against {}", options, configServiceUrl);
+        seeder.seed(options);
+        TimeUnit.MILLISECONDS.sleep(APP_NAMESPACE_SCAN_MILLIS);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                metrics.logProgress();
+            }
+        }, options.getReportIntervalSeconds(), options.getReportIntervalSeconds(), TimeUnit.SECONDS);
+
+        // 每个公共命名空间的订阅客户端数
+        int[] subscribers = new int[options.getSharedNamespaces()];
+        List<VirtualClient> clients = Lists.newArrayListWithCapacity(options.getClients());
+        try {
+            for (int i = 0; i < options.getClients(); i++) {
+                VirtualClient client = new VirtualClient(configServiceUrl,
+                        LoadTestDataSeeder.appIdOf(i % options.getApps()), namespacesOf(i, subscribers), metrics);
+                clients.add(client);
+                Thread thread = new Thread(client, "VirtualClient-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+
+            awaitConnections();
+
+            long expectedNotifications = 0;
+            for (int i = 0; i < options.getReleases(); i++) {
+                int shared = i % options.getSharedNamespaces();
+                long publishNanos = System.nanoTime();
+                ReleaseMessage message = seeder.publishShared(LoadTestDataSeeder.sharedNamespaceOf(shared), i + 1);
+                metrics.published(message.getId(), publishNanos);
+                expectedNotifications += subscribers[shared];
+                TimeUnit.MILLISECONDS.sleep(options.getReleaseIntervalMs());
+            }
+
+            awaitFanOut(expectedNotifications);
+
+            LoadTestReport report = metrics.report(expectedNotifications);
+            logger.info("Load test finished: {}", report);
+            return report;
+        } finally {
+            for (VirtualClient client : clients) {
+                client.stop();
+            }
+            reporter.shutdownNow();
+        }
+    }
+
+    /**
+     * 客户端的命名空间：application、所属应用的私有命名空间，以及轮流分配的公共命名空间
+     */
+    private List<String> namespacesOf(int client, int[] subscribers) {
+        List<String> namespaces = Lists.newArrayList(ConfigConsts.NAMESPACE_APPLICATION);
+        for (int i = 0; i < options.getPrivateNamespacesPerApp(); i++) {
+            namespaces.add(LoadTestDataSeeder.privateNamespaceOf(i));
+        }
+        for (int i = 0; i < options.getSharedNamespacesPerClient(); i++) {
+            int shared = (client + i) % options.getSharedNamespaces();
+            namespaces.add(LoadTestDataSeeder.sharedNamespaceOf(shared));
+            subscribers[shared]++;
+        }
+        return namespaces;
+    }
+
+    private void awaitConnections() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CONNECT_TIMEOUT_SECONDS);
+        while (metrics.getOpenConnections() < options.getClients()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(String.format("Only %d of %d virtual clients connected in %ds",
+                        metrics.getOpenConnections(), options.getClients(), CONNECT_TIMEOUT_SECONDS));
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        TimeUnit.MILLISECONDS.sleep(SETTLE_MILLIS);
+        logger.info("{} virtual clients connected", metrics.getOpenConnections());
+    }
+
+    private void awaitFanOut(long expectedNotifications) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.getFanOutTimeoutSeconds());
+        while (metrics.getFanOutCount() < expectedNotifications && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+    }
+}
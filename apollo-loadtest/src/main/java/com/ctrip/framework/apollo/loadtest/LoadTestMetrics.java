@@ -0,0 +1,173 @@
+package com.ctrip.framework.apollo.loadtest;
+
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测指标：连接数、请求数、通知扇出延迟，以及进程的 CPU 和堆内存
+ * <p>
+ * 虚拟客户端与 config service 运行在同一个进程中，CPU 和堆内存是两者之和
+ */
+public class LoadTestMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestMetrics.class);
+
+    /**
+     * 发布时间，key：发布消息编号（即通知编号），value：写入发布前的 System.nanoTime()
+     */
+    private final ConcurrentMap<Long, Long> publishTimes = Maps.newConcurrentMap();
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger peakConnections = new AtomicInteger();
+    private final AtomicLong longPolls = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong configFetches = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong unmatchedNotifications = new AtomicLong();
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+    private volatile double peakCpuLoad;
+
+    /**
+     * 扇出延迟样本，单位：微秒
+     */
+    private long[] fanOutLatencies = new long[1024];
+    private int fanOutCount;
+
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    private final OperatingSystemMXBean operatingSystemMXBean = ManagementFactory.getOperatingSystemMXBean();
+
+    void published(long notificationId, long publishNanos) {
+        publishTimes.put(notificationId, publishNanos);
+    }
+
+    void connectionOpened() {
+        int current = openConnections.incrementAndGet();
+        int peak;
+        while (current > (peak = peakConnections.get())) {
+            if (peakConnections.compareAndSet(peak, current)) {
+                break;
+            }
+        }
+    }
+
+    void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    void longPollCompleted(boolean changed) {
+        longPolls.incrementAndGet();
+        if (!changed) {
+            notModified.incrementAndGet();
+        }
+    }
+
+    void configFetched() {
+        configFetches.incrementAndGet();
+    }
+
+    void error() {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * 客户端收到通知
+     *
+     * @param notificationId 通知编号
+     * @param receivedNanos  收到通知时的 System.nanoTime()
+     */
+    void notified(long notificationId, long receivedNanos) {
+        Long publishNanos = publishTimes.get(notificationId);
+        if (publishNanos == null) {
+            // 初始化阶段的通知，或者被合并掉的旧通知
+            unmatchedNotifications.incrementAndGet();
+            return;
+        }
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(receivedNanos - publishNanos);
+        synchronized (this) {
+            if (fanOutCount == fanOutLatencies.length) {
+                fanOutLatencies = Arrays.copyOf(fanOutLatencies, fanOutLatencies.length * 2);
+            }
+            fanOutLatencies[fanOutCount++] = latencyMicros;
+        }
+    }
+
+    int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    synchronized int getFanOutCount() {
+        return fanOutCount;
+    }
+
+    /**
+     * 采样 CPU 和堆内存，并记录峰值
+     */
+    void sample() {
+        long heapUsed = memoryMXBean.getHeapMemoryUsage().getUsed();
+        long peakHeap;
+        while (heapUsed > (peakHeap = peakHeapBytes.get())) {
+            if (peakHeapBytes.compareAndSet(peakHeap, heapUsed)) {
+                break;
+            }
+        }
+        double cpuLoad = processCpuLoad();
+        if (cpuLoad > peakCpuLoad) {
+            peakCpuLoad = cpuLoad;
+        }
+    }
+
+    private double processCpuLoad() {
+        if (operatingSystemMXBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) operatingSystemMXBean).getProcessCpuLoad();
+        }
+        // 非 HotSpot 虚拟机，退化为系统负载
+        return operatingSystemMXBean.getSystemLoadAverage() / operatingSystemMXBean.getAvailableProcessors();
+    }
+
+    void logProgress() {
+        sample();
+        logger.info("open connections: {}, long polls: {}, 304: {}, config fetches: {}, notifications: {}, "
+                        + "errors: {}, heap used: {}MB, process cpu: {}%",
+                openConnections.get(), longPolls.get(), notModified.get(), configFetches.get(),
+                getFanOutCount(), errors.get(), memoryMXBean.getHeapMemoryUsage().getUsed() >> 20,
+                Math.round(processCpuLoad() * 100));
+    }
+
+    /**
+     * 生成报告
+     *
+     * @param expectedNotifications 预期收到的通知数
+     * @return 报告
+     */
+    LoadTestReport report(long expectedNotifications) {
+        sample();
+        long[] latencies;
+        synchronized (this) {
+            latencies = Arrays.copyOf(fanOutLatencies, fanOutCount);
+        }
+        Arrays.sort(latencies);
+        return new LoadTestReport(expectedNotifications, latencies.length, unmatchedNotifications.get(),
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1],
+                peakConnections.get(), longPolls.get(), notModified.get(), configFetches.get(), errors.get(),
+                peakHeapBytes.get(), peakCpuLoad);
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
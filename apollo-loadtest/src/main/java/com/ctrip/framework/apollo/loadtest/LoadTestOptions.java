@@ -0,0 +1,126 @@
+package com.ctrip.framework.apollo.loadtest;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * 压测参数，从 loadtest.* 属性读取，可以通过启动参数覆盖，如 --loadtest.clients=5000
+ */
+public class LoadTestOptions {
+
+    /**
+     * 模拟的应用数量，客户端按顺序分配到各个应用
+     */
+    private int apps = 100;
+
+    /**
+     * 模拟的客户端数量，每个客户端一个长轮询连接
+     */
+    private int clients = 1000;
+
+    /**
+     * 每个应用除 application 外的私有命名空间数量
+     */
+    private int privateNamespacesPerApp = 2;
+
+    /**
+     * 公共命名空间数量，发布只发生在公共命名空间上，用于衡量通知扇出
+     */
+    private int sharedNamespaces = 10;
+
+    /**
+     * 每个客户端关联的公共命名空间数量
+     */
+    private int sharedNamespacesPerClient = 3;
+
+    /**
+     * 发布次数
+     */
+    private int releases = 20;
+
+    /**
+     * 发布间隔，单位：毫秒
+     */
+    private long releaseIntervalMs = 2000;
+
+    /**
+     * 最后一次发布后等待通知送达的最长时间，单位：秒
+     */
+    private long fanOutTimeoutSeconds = 30;
+
+    /**
+     * 输出进度的间隔，单位：秒
+     */
+    private long reportIntervalSeconds = 10;
+
+    public static LoadTestOptions from(Environment environment) {
+        LoadTestOptions options = new LoadTestOptions();
+        options.apps = environment.getProperty("loadtest.apps", Integer.class, options.apps);
+        options.clients = environment.getProperty("loadtest.clients", Integer.class, options.clients);
+        options.privateNamespacesPerApp = environment.getProperty("loadtest.private-namespaces-per-app",
+                Integer.class, options.privateNamespacesPerApp);
+        options.sharedNamespaces = environment.getProperty("loadtest.shared-namespaces", Integer.class,
+                options.sharedNamespaces);
+        options.sharedNamespacesPerClient = Math.min(options.sharedNamespaces,
+                environment.getProperty("loadtest.shared-namespaces-per-client", Integer.class,
+                        options.sharedNamespacesPerClient));
+        options.releases = environment.getProperty("loadtest.releases", Integer.class, options.releases);
+        options.releaseIntervalMs = environment.getProperty("loadtest.release-interval-ms", Long.class,
+                options.releaseIntervalMs);
+        options.fanOutTimeoutSeconds = environment.getProperty("loadtest.fan-out-timeout-seconds", Long.class,
+                options.fanOutTimeoutSeconds);
+        options.reportIntervalSeconds = environment.getProperty("loadtest.report-interval-seconds", Long.class,
+                options.reportIntervalSeconds);
+        return options;
+    }
+
+    public int getApps() {
+        return apps;
+    }
+
+    public int getClients() {
+        return clients;
+    }
+
+    public int getPrivateNamespacesPerApp() {
+        return privateNamespacesPerApp;
+    }
+
+    public int getSharedNamespaces() {
+        return sharedNamespaces;
+    }
+
+    public int getSharedNamespacesPerClient() {
+        return sharedNamespacesPerClient;
+    }
+
+    public int getReleases() {
+        return releases;
+    }
+
+    public long getReleaseIntervalMs() {
+        return releaseIntervalMs;
+    }
+
+    public long getFanOutTimeoutSeconds() {
+        return fanOutTimeoutSeconds;
+    }
+
+    public long getReportIntervalSeconds() {
+        return reportIntervalSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadTestOptions{" +
+                "apps=" + apps +
+                ", clients=" + clients +
+                ", privateNamespacesPerApp=" + privateNamespacesPerApp +
+                ", sharedNamespaces=" + sharedNamespaces +
+                ", sharedNamespacesPerClient=" + sharedNamespacesPerClient +
+                ", releases=" + releases +
+                ", releaseIntervalMs=" + releaseIntervalMs +
+                ", fanOutTimeoutSeconds=" + fanOutTimeoutSeconds +
+                ", reportIntervalSeconds=" + reportIntervalSeconds +
+                '}';
+    }
+}
@@ -0,0 +1,143 @@
+package com.ctrip.framework.apollo.loadtest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测结果
+ */
+public class LoadTestReport {
+
+    /**
+     * 预期收到的通知数，即每次发布的订阅客户端数之和
+     */
+    private final long expectedNotifications;
+
+    /**
+     * 实际收到的、能对应到发布的通知数
+     */
+    private final long receivedNotifications;
+
+    /**
+     * 无法对应到发布的通知数，如初始化阶段的通知
+     */
+    private final long unmatchedNotifications;
+
+    /**
+     * 扇出延迟，从写入发布到客户端收到通知，单位：微秒
+     */
+    private final long fanOutP50Micros;
+    private final long fanOutP90Micros;
+    private final long fanOutP99Micros;
+    private final long fanOutMaxMicros;
+
+    private final int peakConnections;
+    private final long longPolls;
+    private final long notModified;
+    private final long configFetches;
+    private final long errors;
+
+    /**
+     * 进程堆内存峰值，单位：字节
+     */
+    private final long peakHeapBytes;
+
+    /**
+     * 进程 CPU 使用率峰值，0 ~ 1
+     */
+    private final double peakCpuLoad;
+
+    LoadTestReport(long expectedNotifications, long receivedNotifications, long unmatchedNotifications,
+                   long fanOutP50Micros, long fanOutP90Micros, long fanOutP99Micros, long fanOutMaxMicros,
+                   int peakConnections, long longPolls, long notModified, long configFetches, long errors,
+                   long peakHeapBytes, double peakCpuLoad) {
+        this.expectedNotifications = expectedNotifications;
+        this.receivedNotifications = receivedNotifications;
+        this.unmatchedNotifications = unmatchedNotifications;
+        this.fanOutP50Micros = fanOutP50Micros;
+        this.fanOutP90Micros = fanOutP90Micros;
+        this.fanOutP99Micros = fanOutP99Micros;
+        this.fanOutMaxMicros = fanOutMaxMicros;
+        this.peakConnections = peakConnections;
+        this.longPolls = longPolls;
+        this.notModified = notModified;
+        this.configFetches = configFetches;
+        this.errors = errors;
+        this.peakHeapBytes = peakHeapBytes;
+        this.peakCpuLoad = peakCpuLoad;
+    }
+
+    public long getExpectedNotifications() {
+        return expectedNotifications;
+    }
+
+    public long getReceivedNotifications() {
+        return receivedNotifications;
+    }
+
+    public long getUnmatchedNotifications() {
+        return unmatchedNotifications;
+    }
+
+    public long getFanOutP50Micros() {
+        return fanOutP50Micros;
+    }
+
+    public long getFanOutP90Micros() {
+        return fanOutP90Micros;
+    }
+
+    public long getFanOutP99Micros() {
+        return fanOutP99Micros;
+    }
+
+    public long getFanOutMaxMicros() {
+        return fanOutMaxMicros;
+    }
+
+    public int getPeakConnections() {
+        return peakConnections;
+    }
+
+    public long getLongPolls() {
+        return longPolls;
+    }
+
+    public long getNotModified() {
+        return notModified;
+    }
+
+    public long getConfigFetches() {
+        return configFetches;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    public double getPeakCpuLoad() {
+        return peakCpuLoad;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadTestReport{" +
+                "notifications=" + receivedNotifications + "/" + expectedNotifications +
+                ", unmatchedNotifications=" + unmatchedNotifications +
+                ", fanOutP50=" + TimeUnit.MICROSECONDS.toMillis(fanOutP50Micros) + "ms" +
+                ", fanOutP90=" + TimeUnit.MICROSECONDS.toMillis(fanOutP90Micros) + "ms" +
+                ", fanOutP99=" + TimeUnit.MICROSECONDS.toMillis(fanOutP99Micros) + "ms" +
+                ", fanOutMax=" + TimeUnit.MICROSECONDS.toMillis(fanOutMaxMicros) + "ms" +
+                ", peakConnections=" + peakConnections +
+                ", longPolls=" + longPolls +
+                ", notModified=" + notModified +
+                ", configFetches=" + configFetches +
+                ", errors=" + errors +
+                ", peakHeap=" + (peakHeapBytes >> 20) + "MB" +
+                ", peakCpu=" + Math.round(peakCpuLoad * 100) + "%" +
+                '}';
+    }
+}
@@ -0,0 +1,206 @@
+package com.ctrip.framework.apollo.loadtest;
+
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.escape.Escaper;
+import com.google.common.io.CharStreams;
+import com.google.common.net.UrlEscapers;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 虚拟客户端，按照 apollo-client 的协议长轮询 /notifications/v2，收到通知后拉取 /configs
+ * <p>
+ * 每个虚拟客户端占用一个线程和一个长连接
+ */
+public class VirtualClient implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualClient.class);
+
+    private static final int CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * 长轮询读超时，需大于服务端 60 秒的挂起时间
+     */
+    private static final int LONG_POLL_READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(90);
+    private static final int QUERY_CONFIG_READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(5);
+    private static final long ERROR_BACKOFF_MILLIS = 1000;
+
+    private static final Escaper PATH_ESCAPER = UrlEscapers.urlPathSegmentEscaper();
+    private static final Escaper QUERY_PARAM_ESCAPER = UrlEscapers.urlFormParameterEscaper();
+    private static final Type NOTIFICATIONS_TYPE = new TypeToken<List<ApolloConfigNotification>>() {
+    }.getType();
+    private static final Gson GSON = new Gson();
+
+    private final String configServiceUrl;
+    private final String appId;
+    private final LoadTestMetrics metrics;
+
+    /**
+     * 通知编号，key：namespace，value：通知编号
+     */
+    private final Map<String, Long> notificationIds = Maps.newLinkedHashMap();
+
+    /**
+     * 发布 key，key：namespace，value：releaseKey
+     */
+    private final Map<String, String> releaseKeys = Maps.newHashMap();
+
+    private volatile boolean stopped;
+    private volatile HttpURLConnection currentConnection;
+
+    public VirtualClient(String configServiceUrl, String appId, List<String> namespaces, LoadTestMetrics metrics) {
+        this.configServiceUrl = configServiceUrl;
+        this.appId = appId;
+        this.metrics = metrics;
+        for (String namespace : namespaces) {
+            notificationIds.put(namespace, ConfigConsts.NOTIFICATION_ID_PLACEHOLDER);
+        }
+    }
+
+    @Override
+    public void run() {
+        // 启动时与 apollo-client 一样，先拉取一次所有 namespace 的配置
+        for (String namespace : notificationIds.keySet()) {
+            if (stopped) {
+                return;
+            }
+            try {
+                queryConfig(namespace);
+            } catch (IOException ex) {
+                onError(ex);
+            }
+        }
+
+        while (!stopped && !Thread.currentThread().isInterrupted()) {
+            try {
+                List<ApolloConfigNotification> notifications = longPoll();
+                if (notifications.isEmpty()) {
+                    continue;
+                }
+                long receivedNanos = System.nanoTime();
+                for (ApolloConfigNotification notification : notifications) {
+                    metrics.notified(notification.getNotificationId(), receivedNanos);
+                    notificationIds.put(notification.getNamespaceName(), notification.getNotificationId());
+                }
+                for (ApolloConfigNotification notification : notifications) {
+                    queryConfig(notification.getNamespaceName());
+                }
+            } catch (IOException ex) {
+                onError(ex);
+            }
+        }
+    }
+
+    /**
+     * 停止客户端，并断开正在进行的长轮询
+     */
+    public void stop() {
+        stopped = true;
+        HttpURLConnection connection = currentConnection;
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+    private List<ApolloConfigNotification> longPoll() throws IOException {
+        List<ApolloConfigNotification> notifications = Lists.newArrayListWithCapacity(notificationIds.size());
+        for (Map.Entry<String, Long> entry : notificationIds.entrySet()) {
+            notifications.add(new ApolloConfigNotification(entry.getKey(), entry.getValue()));
+        }
+        String url = String.format("%s/notifications/v2?cluster=%s&appId=%s&notifications=%s", configServiceUrl,
+                QUERY_PARAM_ESCAPER.escape(ConfigConsts.CLUSTER_NAME_DEFAULT), QUERY_PARAM_ESCAPER.escape(appId),
+                QUERY_PARAM_ESCAPER.escape(GSON.toJson(notifications)));
+
+        HttpURLConnection connection = open(url, LONG_POLL_READ_TIMEOUT);
+        currentConnection = connection;
+        metrics.connectionOpened();
+        try {
+            int statusCode = connection.getResponseCode();
+            if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                metrics.longPollCompleted(false);
+                return Collections.emptyList();
+            }
+            if (statusCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException(String.format("Long polling %s failed, status code: %d", url, statusCode));
+            }
+            List<ApolloConfigNotification> result = GSON.fromJson(readBody(connection), NOTIFICATIONS_TYPE);
+            metrics.longPollCompleted(true);
+            return result == null ? Collections.<ApolloConfigNotification>emptyList() : result;
+        } finally {
+            metrics.connectionClosed();
+            currentConnection = null;
+        }
+    }
+
+    private void queryConfig(String namespace) throws IOException {
+        StringBuilder url = new StringBuilder(configServiceUrl)
+                .append("/configs/").append(PATH_ESCAPER.escape(appId))
+                .append('/').append(PATH_ESCAPER.escape(ConfigConsts.CLUSTER_NAME_DEFAULT))
+                .append('/').append(PATH_ESCAPER.escape(namespace));
+        String releaseKey = releaseKeys.get(namespace);
+        if (releaseKey != null) {
+            url.append("?releaseKey=").append(QUERY_PARAM_ESCAPER.escape(releaseKey));
+        }
+
+        HttpURLConnection connection = open(url.toString(), QUERY_CONFIG_READ_TIMEOUT);
+        try {
+            int statusCode = connection.getResponseCode();
+            if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return;
+            }
+            if (statusCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException(String.format("Loading config %s failed, status code: %d", url, statusCode));
+            }
+            ApolloConfig config = GSON.fromJson(readBody(connection), ApolloConfig.class);
+            releaseKeys.put(namespace, config.getReleaseKey());
+            metrics.configFetched();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(String url, int readTimeout) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("GET");
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(readTimeout);
+        return connection;
+    }
+
+    private String readBody(HttpURLConnection connection) throws IOException {
+        try (InputStream inputStream = connection.getInputStream()) {
+            return CharStreams.toString(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        }
+    }
+
+    private void onError(IOException ex) {
+        if (stopped) {
+            return;
+        }
+        metrics.error();
+        logger.warn("Virtual client {} request failed: {}", appId, ex.getMessage());
+        try {
+            TimeUnit.MILLISECONDS.sleep(ERROR_BACKOFF_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.ctrip.framework.apollo.loadtest;
+
+import com.ctrip.framework.apollo.configservice.ConfigServiceApplication;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadTestHarnessIT {
+
+  @Test
+  public void testAllClientsReceiveEveryRelease() throws Exception {
+    LoadTestReport report = LoadTestApplication.run(new SpringApplicationBuilder(ConfigServiceApplication.class)
+        .run("--server.port=0",
+            "--loadtest.apps=5",
+            "--loadtest.clients=20",
+            "--loadtest.private-namespaces-per-app=1",
+            "--loadtest.shared-namespaces=3",
+            "--loadtest.shared-namespaces-per-client=2",
+            "--loadtest.releases=3",
+            "--loadtest.release-interval-ms=200",
+            "--loadtest.fan-out-timeout-seconds=10",
+            "--loadtest.report-interval-seconds=1"));
+
+    assertEquals(20, report.getPeakConnections());
+    assertTrue(report.getExpectedNotifications() > 0);
+    assertEquals(report.getExpectedNotifications(), report.getReceivedNotifications());
+    assertEquals(0, report.getErrors());
+    assertTrue(report.getFanOutP99Micros() <= report.getFanOutMaxMicros());
+  }
+}
@@ -1,21 +1,33 @@
 package com.ctrip.framework.apollo.mockserver;
 
 import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
 import com.ctrip.framework.apollo.core.utils.ResourceUtils;
+import com.ctrip.framework.apollo.internals.ConfigManager;
 import com.ctrip.framework.apollo.internals.ConfigServiceLocator;
+import com.ctrip.framework.apollo.internals.DefaultConfigManager;
+import com.ctrip.framework.apollo.spi.ConfigFactory;
+import com.ctrip.framework.apollo.spi.ConfigRegistry;
+import com.ctrip.framework.apollo.spi.DefaultConfigRegistry;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
@@ -26,21 +38,40 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Create by zhangzheng on 8/22/18 Email:zhangzheng@youzan.com
+ * <p>
+ * By default the configurations are served over http by a mock web server. Use {@link #inProcess(String...)} to serve
+ * them in process through the {@link com.ctrip.framework.apollo.spi.ConfigFactory} SPI instead.
  */
 public class EmbeddedApollo extends ExternalResource {
 
   private static final Logger logger = LoggerFactory.getLogger(EmbeddedApollo.class);
   private static final Type notificationType = new TypeToken<List<ApolloConfigNotification>>() {
   }.getType();
+  private static final long LONG_POLL_TIMEOUT_IN_MILLIS = TimeUnit.SECONDS.toMillis(60);
 
   private static Method CONFIG_SERVICE_LOCATOR_CLEAR;
   private static ConfigServiceLocator CONFIG_SERVICE_LOCATOR;
+  private static Field CONFIG_MANAGER_CONFIGS;
+  private static Field CONFIG_MANAGER_CONFIG_FILES;
 
   private final Gson gson = new Gson();
   private final Map<String, Map<String, String>> addedOrModifiedPropertiesOfNamespace = Maps.newConcurrentMap();
   private final Map<String, Set<String>> deletedKeysOfNamespace = Maps.newConcurrentMap();
+  private final Map<String, Map<String, String>> mockDataOfNamespace = Maps.newConcurrentMap();
+  private final Map<String, Long> notificationIdOfNamespace = Maps.newHashMap();
+  private final Object notificationLock = new Object();
+  private final Set<String> inProcessNamespaces = Sets.newConcurrentHashSet();
+  /**
+   * the factories registered before this rule took over the namespaces, restored when the rule ends
+   */
+  private final Map<String, Optional<ConfigFactory>> previousFactories = Maps.newConcurrentMap();
+  private final boolean inProcess;
+  private long initialNotificationId;
+  private int simulatedPropertiesPerNamespace;
+  private volatile boolean closed;
 
   private MockWebServer server;
+  private EmbeddedConfigFactory configFactory;
 
   static {
     try {
@@ -48,29 +79,86 @@ public class EmbeddedApollo extends ExternalResource {
       CONFIG_SERVICE_LOCATOR = ApolloInjector.getInstance(ConfigServiceLocator.class);
       CONFIG_SERVICE_LOCATOR_CLEAR = ConfigServiceLocator.class.getDeclaredMethod("initConfigServices");
       CONFIG_SERVICE_LOCATOR_CLEAR.setAccessible(true);
-    } catch (NoSuchMethodException e) {
+      CONFIG_MANAGER_CONFIGS = DefaultConfigManager.class.getDeclaredField("configs");
+      CONFIG_MANAGER_CONFIGS.setAccessible(true);
+      CONFIG_MANAGER_CONFIG_FILES = DefaultConfigManager.class.getDeclaredField("configFiles");
+      CONFIG_MANAGER_CONFIG_FILES.setAccessible(true);
+    } catch (NoSuchMethodException | NoSuchFieldException e) {
       e.printStackTrace();
     }
   }
 
+  public EmbeddedApollo() {
+    this(false);
+  }
+
+  private EmbeddedApollo(boolean inProcess) {
+    this.inProcess = inProcess;
+  }
+
+  /**
+   * Serve the configurations in process, the http transport and long polling are bypassed and the changes made by
+   * {@link #addOrModifyProperty} and {@link #deleteProperty} are applied before they return.
+   * <p>
+   * The application namespace, the given namespaces and the namespaces modified later are served in process. Configs
+   * of these namespaces must not have been created before this rule starts, as they are cached by the client. When the
+   * rule ends, the config factories registered before are restored and the configs it served are evicted from the
+   * client, so that later tests in the same jvm are not bound to it.
+   *
+   * @param namespaces the namespaces besides application to serve in process
+   */
+  public static EmbeddedApollo inProcess(String... namespaces) {
+    EmbeddedApollo embeddedApollo = new EmbeddedApollo(true);
+    embeddedApollo.inProcessNamespaces.add(ConfigConsts.NAMESPACE_APPLICATION);
+    embeddedApollo.inProcessNamespaces.addAll(Arrays.asList(namespaces));
+    return embeddedApollo;
+  }
+
+  /**
+   * Serve generated configurations for namespaces without mock data, the values contain the requesting app id so that
+   * many simulated apps could be served by one server when testing the client at scale. Changes made by {@link
+   * #addOrModifyProperty} and {@link #deleteProperty} apply to the namespace of all the simulated apps.
+   *
+   * @param propertiesPerNamespace the number of properties generated for each namespace
+   */
+  public EmbeddedApollo withSimulatedApps(int propertiesPerNamespace) {
+    this.simulatedPropertiesPerNamespace = propertiesPerNamespace;
+    return this;
+  }
+
   @Override
   protected void before() throws Throwable {
     clear();
+    closed = false;
+    // higher than the ids handed out by former servers, so that the clients long polling them are notified once
+    synchronized (notificationLock) {
+      notificationIdOfNamespace.clear();
+      initialNotificationId = System.currentTimeMillis();
+    }
+
+    if (inProcess) {
+      configFactory = new EmbeddedConfigFactory(this);
+      for (String namespace : inProcessNamespaces) {
+        registerInProcess(namespace);
+      }
+      super.before();
+      return;
+    }
+
     server = new MockWebServer();
     final Dispatcher dispatcher = new Dispatcher() {
       @Override
       public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
         if (request.getPath().startsWith("/notifications/v2")) {
           String notifications = request.getRequestUrl().queryParameter("notifications");
-          return new MockResponse().setResponseCode(200).setBody(mockLongPollBody(notifications));
+          return mockLongPollResponse(notifications);
         }
         if (request.getPath().startsWith("/configs")) {
           List<String> pathSegments = request.getRequestUrl().pathSegments();
-          // appId and cluster might be used in the future
           String appId = pathSegments.get(1);
           String cluster = pathSegments.get(2);
           String namespace = pathSegments.get(3);
-          return new MockResponse().setResponseCode(200).setBody(loadConfigFor(namespace));
+          return new MockResponse().setResponseCode(200).setBody(loadConfigFor(appId, cluster, namespace));
         }
         return new MockResponse().setResponseCode(404);
       }
@@ -87,8 +175,18 @@ public class EmbeddedApollo extends ExternalResource {
   @Override
   protected void after() {
     try {
+      // wake up the held long polls so that the server could shut down
+      synchronized (notificationLock) {
+        closed = true;
+        notificationLock.notifyAll();
+      }
       clear();
-      server.close();
+      if (configFactory != null) {
+        restoreRegistrations();
+      }
+      if (server != null) {
+        server.close();
+      }
     } catch (Exception e) {
       logger.error("stop apollo server error", e);
     }
@@ -104,28 +202,122 @@ public class EmbeddedApollo extends ExternalResource {
     CONFIG_SERVICE_LOCATOR_CLEAR.invoke(CONFIG_SERVICE_LOCATOR);
   }
 
-  private String loadConfigFor(String namespace) {
+  private void registerInProcess(String namespace) {
+    inProcessNamespaces.add(namespace);
+    if (configFactory != null && !previousFactories.containsKey(namespace)) {
+      ConfigRegistry configRegistry = ApolloInjector.getInstance(ConfigRegistry.class);
+      previousFactories.put(namespace, Optional.fromNullable(configRegistry.getFactory(namespace)));
+      configRegistry.register(namespace, configFactory);
+    }
+  }
+
+  private void restoreRegistrations() throws Exception {
+    ConfigRegistry configRegistry = ApolloInjector.getInstance(ConfigRegistry.class);
+    for (Map.Entry<String, Optional<ConfigFactory>> entry : previousFactories.entrySet()) {
+      if (entry.getValue().isPresent()) {
+        configRegistry.register(entry.getKey(), entry.getValue().get());
+      } else if (configRegistry instanceof DefaultConfigRegistry) {
+        ((DefaultConfigRegistry) configRegistry).unregister(entry.getKey());
+      }
+    }
+    previousFactories.clear();
+
+    // the configs served by this rule are cached by the client, evict them so that they are created again
+    ConfigManager configManager = ApolloInjector.getInstance(ConfigManager.class);
+    if (configManager instanceof DefaultConfigManager) {
+      Set<String> namespaces = configFactory.createdNamespaces();
+      ((Map<?, ?>) CONFIG_MANAGER_CONFIGS.get(configManager)).keySet().removeAll(namespaces);
+      ((Map<?, ?>) CONFIG_MANAGER_CONFIG_FILES.get(configManager)).keySet().removeAll(namespaces);
+    }
+    configFactory = null;
+  }
+
+  private String loadConfigFor(String appId, String cluster, String namespace) {
+    ApolloConfig apolloConfig = new ApolloConfig(appId, cluster, namespace, "someReleaseKey");
+    apolloConfig.setConfigurations(loadConfigurationsFor(appId, namespace));
+    return gson.toJson(apolloConfig);
+  }
+
+  Map<String, String> loadConfigurationsFor(String namespace) {
+    return loadConfigurationsFor(ApolloInjector.getInstance(ConfigUtil.class).getAppId(), namespace);
+  }
+
+  private Map<String, String> loadConfigurationsFor(String appId, String namespace) {
+    Map<String, String> configurations = Maps.newHashMap(loadMockDataFor(namespace));
+    if (configurations.isEmpty() && simulatedPropertiesPerNamespace > 0) {
+      for (int i = 0; i < simulatedPropertiesPerNamespace; i++) {
+        configurations.put("key" + i, String.format("%s-%s-value%d", appId, namespace, i));
+      }
+    }
+    return mergeOverriddenProperties(namespace, configurations);
+  }
+
+  /**
+   * the mock data files are read once per namespace
+   */
+  private Map<String, String> loadMockDataFor(String namespace) {
+    Map<String, String> mockData = mockDataOfNamespace.get(namespace);
+    if (mockData != null) {
+      return mockData;
+    }
+
     String filename = String.format("mockdata-%s.properties", namespace);
     final Properties prop = ResourceUtils.readConfigFile(filename, new Properties());
-    Map<String, String> configurations = Maps.newHashMap();
+    ImmutableMap.Builder<String, String> configurations = ImmutableMap.builder();
     for (String propertyName : prop.stringPropertyNames()) {
       configurations.put(propertyName, prop.getProperty(propertyName));
     }
-    ApolloConfig apolloConfig = new ApolloConfig("someAppId", "someCluster", namespace, "someReleaseKey");
+    mockData = configurations.build();
+    mockDataOfNamespace.put(namespace, mockData);
+    return mockData;
+  }
 
-    Map<String, String> mergedConfigurations = mergeOverriddenProperties(namespace, configurations);
-    apolloConfig.setConfigurations(mergedConfigurations);
-    return gson.toJson(apolloConfig);
+  /**
+   * Hold the long poll until any of the namespaces changes, like the real config service does
+   */
+  private MockResponse mockLongPollResponse(String notificationsStr) throws InterruptedException {
+    List<ApolloConfigNotification> clientNotifications = gson.fromJson(notificationsStr, notificationType);
+    long deadline = System.currentTimeMillis() + LONG_POLL_TIMEOUT_IN_MILLIS;
+
+    synchronized (notificationLock) {
+      while (true) {
+        List<ApolloConfigNotification> newNotifications = new ArrayList<>();
+        for (ApolloConfigNotification notification : clientNotifications) {
+          long notificationId = notificationIdOf(notification.getNamespaceName());
+          if (notificationId > notification.getNotificationId()) {
+            newNotifications.add(new ApolloConfigNotification(notification.getNamespaceName(), notificationId));
+          }
+        }
+        if (!newNotifications.isEmpty()) {
+          return new MockResponse().setResponseCode(200).setBody(gson.toJson(newNotifications));
+        }
+
+        long remaining = deadline - System.currentTimeMillis();
+        if (closed || remaining <= 0) {
+          return new MockResponse().setResponseCode(304);
+        }
+        notificationLock.wait(remaining);
+      }
+    }
+  }
+
+  private long notificationIdOf(String namespace) {
+    Long notificationId = notificationIdOfNamespace.get(namespace);
+    return notificationId == null ? initialNotificationId : notificationId;
   }
 
-  private String mockLongPollBody(String notificationsStr) {
-    List<ApolloConfigNotification> oldNotifications = gson.fromJson(notificationsStr, notificationType);
-    List<ApolloConfigNotification> newNotifications = new ArrayList<>();
-    for (ApolloConfigNotification notification : oldNotifications) {
-      newNotifications
-          .add(new ApolloConfigNotification(notification.getNamespaceName(), notification.getNotificationId() + 1));
+  /**
+   * Push the change of the namespace to the clients
+   */
+  private void notifyChanged(String namespace) {
+    synchronized (notificationLock) {
+      notificationIdOfNamespace.put(namespace, notificationIdOf(namespace) + 1);
+      notificationLock.notifyAll();
+    }
+
+    if (configFactory != null) {
+      configFactory.refresh(namespace);
     }
-    return gson.toJson(newNotifications);
   }
 
   /**
@@ -154,6 +346,10 @@ public class EmbeddedApollo extends ExternalResource {
       m.put(someKey, someValue);
       addedOrModifiedPropertiesOfNamespace.put(namespace, m);
     }
+    if (inProcess) {
+      registerInProcess(namespace);
+    }
+    notifyChanged(namespace);
   }
 
   /**
@@ -167,13 +363,22 @@ public class EmbeddedApollo extends ExternalResource {
       m.add(someKey);
       deletedKeysOfNamespace.put(namespace, m);
     }
+    if (inProcess) {
+      registerInProcess(namespace);
+    }
+    notifyChanged(namespace);
   }
 
   /**
    * reset overridden properties
    */
   public void resetOverriddenProperties() {
+    Set<String> namespaces = Sets.newHashSet(addedOrModifiedPropertiesOfNamespace.keySet());
+    namespaces.addAll(deletedKeysOfNamespace.keySet());
     addedOrModifiedPropertiesOfNamespace.clear();
     deletedKeysOfNamespace.clear();
+    for (String namespace : namespaces) {
+      notifyChanged(namespace);
+    }
   }
 }
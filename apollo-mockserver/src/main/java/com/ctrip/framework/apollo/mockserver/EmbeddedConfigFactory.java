@@ -0,0 +1,136 @@
+package com.ctrip.framework.apollo.mockserver;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.ConfigFile;
+import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.enums.ConfigSourceType;
+import com.ctrip.framework.apollo.internals.AbstractConfigRepository;
+import com.ctrip.framework.apollo.internals.ConfigRepository;
+import com.ctrip.framework.apollo.internals.DefaultConfig;
+import com.ctrip.framework.apollo.internals.JsonConfigFile;
+import com.ctrip.framework.apollo.internals.PropertiesConfigFile;
+import com.ctrip.framework.apollo.internals.TxtConfigFile;
+import com.ctrip.framework.apollo.internals.XmlConfigFile;
+import com.ctrip.framework.apollo.internals.YamlConfigFile;
+import com.ctrip.framework.apollo.internals.YmlConfigFile;
+import com.ctrip.framework.apollo.spi.ConfigFactory;
+import com.google.common.collect.Maps;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Config factory which reads configurations from {@link EmbeddedApollo} in process, without the http round trips
+ * of the remote config repository and the long polling.
+ */
+class EmbeddedConfigFactory implements ConfigFactory {
+
+  private final EmbeddedApollo embeddedApollo;
+  private final ConcurrentMap<String, EmbeddedConfigRepository> repositories = Maps.newConcurrentMap();
+
+  EmbeddedConfigFactory(EmbeddedApollo embeddedApollo) {
+    this.embeddedApollo = embeddedApollo;
+  }
+
+  @Override
+  public Config create(String namespace) {
+    return new DefaultConfig(namespace, getRepository(namespace));
+  }
+
+  @Override
+  public ConfigFile createConfigFile(String namespace, ConfigFileFormat configFileFormat) {
+    ConfigRepository configRepository = getRepository(namespace);
+    switch (configFileFormat) {
+      case Properties:
+        return new PropertiesConfigFile(namespace, configRepository);
+      case XML:
+        return new XmlConfigFile(namespace, configRepository);
+      case JSON:
+        return new JsonConfigFile(namespace, configRepository);
+      case YAML:
+        return new YamlConfigFile(namespace, configRepository);
+      case YML:
+        return new YmlConfigFile(namespace, configRepository);
+      case TXT:
+        return new TxtConfigFile(namespace, configRepository);
+      default:
+        break;
+    }
+
+    return null;
+  }
+
+  /**
+   * Reload the namespace and push the changes to its configs in the calling thread
+   */
+  void refresh(String namespace) {
+    EmbeddedConfigRepository repository = repositories.get(namespace);
+    if (repository != null) {
+      repository.sync();
+    }
+  }
+
+  /**
+   * The namespaces, including the config file names, which configs have been created for
+   */
+  Set<String> createdNamespaces() {
+    return repositories.keySet();
+  }
+
+  private EmbeddedConfigRepository getRepository(String namespace) {
+    EmbeddedConfigRepository repository = repositories.get(namespace);
+    if (repository == null) {
+      EmbeddedConfigRepository created = new EmbeddedConfigRepository(namespace);
+      repository = repositories.putIfAbsent(namespace, created);
+      if (repository == null) {
+        repository = created;
+      }
+    }
+    return repository;
+  }
+
+  private class EmbeddedConfigRepository extends AbstractConfigRepository {
+
+    private final String namespace;
+    private volatile Properties properties;
+
+    EmbeddedConfigRepository(String namespace) {
+      this.namespace = namespace;
+      sync();
+    }
+
+    @Override
+    protected synchronized void sync() {
+      Properties current = toProperties(embeddedApollo.loadConfigurationsFor(namespace));
+      if (current.equals(properties)) {
+        return;
+      }
+      properties = current;
+      fireRepositoryChange(namespace, getConfig());
+    }
+
+    @Override
+    public Properties getConfig() {
+      Properties result = propertiesFactory.getPropertiesInstance();
+      result.putAll(properties);
+      return result;
+    }
+
+    @Override
+    public void setUpstreamRepository(ConfigRepository upstreamConfigRepository) {
+      //no upstream
+    }
+
+    @Override
+    public ConfigSourceType getSourceType() {
+      return ConfigSourceType.REMOTE;
+    }
+
+    private Properties toProperties(Map<String, String> configurations) {
+      Properties result = propertiesFactory.getPropertiesInstance();
+      result.putAll(configurations);
+      return result;
+    }
+  }
+}
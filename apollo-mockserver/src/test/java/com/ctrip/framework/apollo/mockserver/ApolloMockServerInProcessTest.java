@@ -0,0 +1,93 @@
+package com.ctrip.framework.apollo.mockserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.ConfigService;
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.spi.ConfigFactory;
+import com.ctrip.framework.apollo.spi.ConfigRegistry;
+import com.ctrip.framework.apollo.spi.DefaultConfigRegistry;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class ApolloMockServerInProcessTest {
+
+  private static final String inProcessNamespace = "inProcessNamespace";
+
+  @ClassRule
+  public static EmbeddedApollo embeddedApollo = EmbeddedApollo.inProcess(inProcessNamespace);
+
+  @Test
+  public void testGetProperty() throws Exception {
+    Config config = ConfigService.getConfig(inProcessNamespace);
+
+    assertEquals("inProcessValue1", config.getProperty("key1", null));
+    assertEquals("inProcessValue2", config.getProperty("key2", null));
+  }
+
+  @Test
+  public void testUpdatePropertiesSynchronously() throws Exception {
+    String someNewValue = "someNewValue";
+
+    Config config = ConfigService.getConfig(inProcessNamespace);
+
+    final SettableFuture<ConfigChangeEvent> future = SettableFuture.create();
+
+    config.addChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        future.set(changeEvent);
+      }
+    });
+
+    embeddedApollo.addOrModifyProperty(inProcessNamespace, "key3", someNewValue);
+
+    assertEquals(someNewValue, config.getProperty("key3", null));
+
+    ConfigChangeEvent changeEvent = future.get(5, TimeUnit.SECONDS);
+
+    assertTrue(changeEvent.isChanged("key3"));
+
+    embeddedApollo.deleteProperty(inProcessNamespace, "key3");
+
+    assertNull(config.getProperty("key3", null));
+    assertEquals("inProcessValue1", config.getProperty("key1", null));
+  }
+
+  @Test
+  public void testRestoreRegistrationsAfterRule() throws Throwable {
+    String someNamespace = "someRestoredNamespace";
+    ConfigRegistry configRegistry = ApolloInjector.getInstance(ConfigRegistry.class);
+    ConfigFactory applicationFactory = configRegistry.getFactory(ConfigConsts.NAMESPACE_APPLICATION);
+
+    EmbeddedApollo anotherEmbeddedApollo = EmbeddedApollo.inProcess(someNamespace);
+    anotherEmbeddedApollo.before();
+    ConfigService.getConfig(someNamespace);
+    anotherEmbeddedApollo.after();
+
+    assertNull(configRegistry.getFactory(someNamespace));
+    assertSame(applicationFactory, configRegistry.getFactory(ConfigConsts.NAMESPACE_APPLICATION));
+
+    // the config served by the ended rule is evicted, so the namespace is created by its current factory
+    ConfigFactory someFactory = mock(ConfigFactory.class);
+    Config someConfig = mock(Config.class);
+    when(someFactory.create(someNamespace)).thenReturn(someConfig);
+    configRegistry.register(someNamespace, someFactory);
+    try {
+      assertSame(someConfig, ConfigService.getConfig(someNamespace));
+    } finally {
+      ((DefaultConfigRegistry) configRegistry).unregister(someNamespace);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package com.ctrip.framework.apollo.mockserver;
+
+import static org.junit.Assert.assertEquals;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.ConfigService;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class ApolloMockServerSimulatedAppsTest {
+
+  @ClassRule
+  public static EmbeddedApollo embeddedApollo = new EmbeddedApollo().withSimulatedApps(3);
+
+  @Test
+  public void testGetSimulatedProperty() throws Exception {
+    String someSimulatedNamespace = "someSimulatedNamespace";
+
+    Config simulatedConfig = ConfigService.getConfig(someSimulatedNamespace);
+
+    assertEquals(3, simulatedConfig.getPropertyNames().size());
+    assertEquals("someAppId-someSimulatedNamespace-value0", simulatedConfig.getProperty("key0", null));
+    assertEquals("someAppId-someSimulatedNamespace-value2", simulatedConfig.getProperty("key2", null));
+  }
+}
@@ -1,9 +1,12 @@
 package com.ctrip.framework.apollo.openapi.repository;
 
 import com.ctrip.framework.apollo.openapi.entity.ConsumerToken;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Date;
+import java.util.List;
 
 /**
  * 第三方应用token数据层
@@ -21,4 +24,13 @@ public interface ConsumerTokenRepository extends PagingAndSortingRepository<Cons
     ConsumerToken findTopByTokenAndExpiresAfter(String token, Date validDate);
 
     ConsumerToken findByConsumerId(Long consumerId);
+
+    /**
+     * 查找指定时间之后修改过的第三方应用token，包含已删除的token，用于增量刷新缓存
+     * 使用原生SQL，不受实体上 isDeleted = 0 条件的过滤
+     *
+     * @param date 修改时间，包含该时间
+     */
+    @Query(value = "SELECT * FROM `ConsumerToken` WHERE `DataChange_LastTime` >= :date", nativeQuery = true)
+    List<ConsumerToken> findChangedIncludingDeleted(@Param("date") Date date);
 }
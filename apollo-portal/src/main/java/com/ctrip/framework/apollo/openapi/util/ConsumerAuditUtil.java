@@ -7,6 +7,8 @@ import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.stereotype.Service;
 
@@ -18,6 +20,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 第三方应用审计工具类
@@ -27,6 +30,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Service
 public class ConsumerAuditUtil implements InitializingBean {
 
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerAuditUtil.class);
+
     /**
      * 最大第三方应用阻塞审计大笑
      */
@@ -48,9 +53,29 @@ public class ConsumerAuditUtil implements InitializingBean {
     private final AtomicBoolean auditStopped;
 
     /**
-     * 批量插入大小
+     * 批量插入最小大小，队列空闲时使用
+     */
+    private static final int MIN_BATCH_SIZE = 100;
+
+    /**
+     * 批量插入最大大小，队列积压时逐步增大到此值
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * 当前批量插入大小，只在审计线程中读写
      */
-    private final int BATCH_SIZE = 100;
+    private int batchSize = MIN_BATCH_SIZE;
+
+    /**
+     * 因队列已满或插入失败而丢弃的审计总数
+     */
+    private final AtomicLong droppedAudits = new AtomicLong();
+
+    /**
+     * 已报告的丢弃审计数，只在审计线程中读写
+     */
+    private long reportedDroppedAudits;
 
     /**
      * 批量读取等待超时时间
@@ -100,29 +125,68 @@ public class ConsumerAuditUtil implements InitializingBean {
         consumerAudit.setDataChangeLastModifiedTime(now);
 
         // 如果超过最大大小，则放弃审核
-        return audits.offer(consumerAudit);
+        if (!audits.offer(consumerAudit)) {
+            droppedAudits.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return 因队列已满或插入失败而丢弃的审计总数
+     */
+    public long getDroppedAudits() {
+        return droppedAudits.get();
     }
 
     @Override
     public void afterPropertiesSet() {
         auditExecutorService.submit(() -> {
             while (!auditStopped.get() && !Thread.currentThread().isInterrupted()) {
-                List<ConsumerAudit> toAudit = Lists.newArrayList();
+                List<ConsumerAudit> toAudit = Lists.newArrayListWithCapacity(batchSize);
                 try {
-                    // 从阻塞队列拿取任务，直到达到上限100条，或超时5S
-                    Queues.drain(audits, toAudit, BATCH_SIZE, BATCH_TIMEOUT, BATCH_TIMEUNIT);
+                    // 从阻塞队列拿取任务，直到达到批量大小，或超时5S
+                    Queues.drain(audits, toAudit, batchSize, BATCH_TIMEOUT, BATCH_TIMEUNIT);
 
                     // 批量插入
                     if (!toAudit.isEmpty()) {
                         consumerService.createConsumerAudits(toAudit);
                     }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
                 } catch (Throwable ex) {
+                    droppedAudits.addAndGet(toAudit.size());
                     Tracer.logError(ex);
                 }
+                adjustBatchSize(toAudit.size());
+                reportDroppedAudits();
             }
         });
     }
 
+    /**
+     * 拿满一批且队列仍有积压时加倍批量大小，减少插入次数；拿到不足一半时减半，直到最小值
+     */
+    private void adjustBatchSize(int drained) {
+        if (drained >= batchSize && !audits.isEmpty()) {
+            batchSize = Math.min(batchSize * 2, MAX_BATCH_SIZE);
+        } else if (drained < batchSize / 2) {
+            batchSize = Math.max(batchSize / 2, MIN_BATCH_SIZE);
+        }
+    }
+
+    /**
+     * 报告新丢弃的审计数
+     */
+    private void reportDroppedAudits() {
+        long dropped = droppedAudits.get();
+        if (dropped > reportedDroppedAudits) {
+            logger.warn("{} consumer audits dropped, {} in total", dropped - reportedDroppedAudits, dropped);
+            Tracer.logEvent("Apollo.OpenApi.ConsumerAuditDropped", String.valueOf(dropped - reportedDroppedAudits));
+            reportedDroppedAudits = dropped;
+        }
+    }
+
     /**
      * 停止审计定时任务
      */
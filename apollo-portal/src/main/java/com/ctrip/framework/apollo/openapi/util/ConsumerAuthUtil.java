@@ -1,6 +1,5 @@
 package com.ctrip.framework.apollo.openapi.util;
 
-import com.ctrip.framework.apollo.openapi.service.ConsumerService;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletRequest;
@@ -18,20 +17,20 @@ public class ConsumerAuthUtil {
      */
     static final String CONSUMER_ID = "ApolloConsumerId";
 
-    private final ConsumerService consumerService;
+    private final ConsumerTokenCache consumerTokenCache;
 
-    public ConsumerAuthUtil(final ConsumerService consumerService) {
-        this.consumerService = consumerService;
+    public ConsumerAuthUtil(final ConsumerTokenCache consumerTokenCache) {
+        this.consumerTokenCache = consumerTokenCache;
     }
 
     /**
-     * 通过token获取第三方应用id
+     * 通过token获取第三方应用id，优先从缓存中获取
      *
      * @param token token
      * @return 第三方应用id
      */
     public Long getConsumerId(String token) {
-        return consumerService.getConsumerIdByToken(token);
+        return consumerTokenCache.getConsumerId(token);
     }
 
     /**
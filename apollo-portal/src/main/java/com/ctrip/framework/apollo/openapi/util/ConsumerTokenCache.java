@@ -0,0 +1,208 @@
+package com.ctrip.framework.apollo.openapi.util;
+
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.openapi.entity.ConsumerToken;
+import com.ctrip.framework.apollo.openapi.repository.ConsumerTokenRepository;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 第三方应用 token 缓存
+ * <p>
+ * 1）启动时同步加载所有 token，之后按修改时间增量刷新，OpenAPI 认证不需要查询数据库；
+ * 2）缓存中没有的 token 查询一次数据库，不存在的 token 缓存一个刷新间隔，避免无效 token 反复查询；
+ * 3）增量刷新包含已删除的 token，删除最多延迟一个刷新间隔生效；
+ * 4）直接从数据库物理删除的记录无法增量发现，每 {@link #FULL_RELOAD_ROUNDS} 次刷新全量重新加载一次。
+ */
+@Component
+public class ConsumerTokenCache implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerTokenCache.class);
+
+    /**
+     * 每多少次增量刷新做一次全量加载
+     */
+    private static final int FULL_RELOAD_ROUNDS = 60;
+
+    /**
+     * 不存在的 token 最多缓存多少个
+     */
+    private static final int MAX_INVALID_TOKENS = 10000;
+
+    private final ConsumerTokenRepository consumerTokenRepository;
+    private final PortalConfig portalConfig;
+
+    /**
+     * 不存在或已过期的 token
+     */
+    private final Cache<String, Boolean> invalidTokens;
+
+    /**
+     * token -> 缓存的 token，加载完成之前为 null
+     */
+    private volatile ConcurrentMap<String, CachedToken> tokens;
+
+    /**
+     * 已加载的 token 中最大的修改时间，下次增量刷新从这个时间开始
+     */
+    private Date lastModifiedTime;
+
+    private int refreshRounds;
+
+    private ScheduledExecutorService refreshExecutor;
+
+    public ConsumerTokenCache(final ConsumerTokenRepository consumerTokenRepository,
+                              final PortalConfig portalConfig) {
+        this.consumerTokenRepository = consumerTokenRepository;
+        this.portalConfig = portalConfig;
+        this.invalidTokens = CacheBuilder.newBuilder()
+                .maximumSize(MAX_INVALID_TOKENS)
+                .expireAfterWrite(portalConfig.consumerTokenCacheRefreshInterval(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    @PostConstruct
+    private void initialize() {
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(
+                ApolloThreadFactory.create("ConsumerTokenCache", true));
+        // 启动时先加载一次，避免加载完成前的认证都查询数据库
+        safeRefresh();
+        int interval = portalConfig.consumerTokenCacheRefreshInterval();
+        refreshExecutor.scheduleWithFixedDelay(this::safeRefresh, interval, interval, TimeUnit.SECONDS);
+    }
+
+    private void safeRefresh() {
+        try {
+            refresh();
+        } catch (Throwable ex) {
+            logger.error("Refresh consumer token cache failed", ex);
+            Tracer.logError(ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 通过 token 获取第三方应用id
+     *
+     * @param token token
+     * @return 第三方应用id，token 不存在或已过期返回 null
+     */
+    public Long getConsumerId(String token) {
+        if (Strings.isNullOrEmpty(token)) {
+            return null;
+        }
+
+        ConcurrentMap<String, CachedToken> current = tokens;
+        if (current != null) {
+            CachedToken cached = current.get(token);
+            if (cached != null) {
+                return cached.expires > System.currentTimeMillis() ? cached.consumerId : null;
+            }
+        }
+        if (invalidTokens.getIfPresent(token) != null) {
+            return null;
+        }
+
+        // 缓存中没有，可能是其它 portal 实例刚创建的 token
+        ConsumerToken consumerToken = consumerTokenRepository.findTopByTokenAndExpiresAfter(token, new Date());
+        if (consumerToken == null) {
+            invalidTokens.put(token, Boolean.TRUE);
+            return null;
+        }
+        if (current != null) {
+            put(current, consumerToken);
+        }
+        return consumerToken.getConsumerId();
+    }
+
+    /**
+     * 刷新缓存，首次和每 {@link #FULL_RELOAD_ROUNDS} 次全量加载，其余增量加载
+     */
+    synchronized void refresh() {
+        if (tokens == null || ++refreshRounds >= FULL_RELOAD_ROUNDS) {
+            ConcurrentMap<String, CachedToken> loaded = Maps.newConcurrentMap();
+            Date maxModifiedTime = new Date(0);
+            for (ConsumerToken consumerToken : consumerTokenRepository.findAll()) {
+                put(loaded, consumerToken);
+                maxModifiedTime = max(maxModifiedTime, consumerToken.getDataChangeLastModifiedTime());
+            }
+            tokens = loaded;
+            lastModifiedTime = maxModifiedTime;
+            refreshRounds = 0;
+            invalidTokens.invalidateAll();
+            return;
+        }
+
+        // 数据库时间精度可能只到秒，包含上次的最大修改时间，重复加载不影响结果
+        Date maxModifiedTime = lastModifiedTime;
+        for (ConsumerToken consumerToken : consumerTokenRepository.findChangedIncludingDeleted(lastModifiedTime)) {
+            if (consumerToken.isDeleted()) {
+                remove(tokens, consumerToken);
+            } else {
+                put(tokens, consumerToken);
+                invalidTokens.invalidate(consumerToken.getToken());
+            }
+            maxModifiedTime = max(maxModifiedTime, consumerToken.getDataChangeLastModifiedTime());
+        }
+        lastModifiedTime = maxModifiedTime;
+    }
+
+    /**
+     * 同一个 token 有多条记录时保留过期时间最晚的
+     */
+    private void put(ConcurrentMap<String, CachedToken> target, ConsumerToken consumerToken) {
+        CachedToken cached = new CachedToken(consumerToken.getConsumerId(), consumerToken.getExpires().getTime(),
+                consumerToken.getId());
+        target.merge(consumerToken.getToken(), cached,
+                (previous, current) -> previous.id == current.id || current.expires > previous.expires
+                        ? current : previous);
+    }
+
+    /**
+     * 只移除同一条记录，同一个 token 的其它有效记录不受影响
+     */
+    private void remove(ConcurrentMap<String, CachedToken> target, ConsumerToken consumerToken) {
+        target.computeIfPresent(consumerToken.getToken(),
+                (token, cached) -> cached.id == consumerToken.getId() ? null : cached);
+    }
+
+    private Date max(Date date, Date another) {
+        return another != null && another.after(date) ? another : date;
+    }
+
+    /**
+     * 缓存的 token，不可变
+     */
+    private static class CachedToken {
+        private final long consumerId;
+        private final long expires;
+        private final long id;
+
+        CachedToken(long consumerId, long expires, long id) {
+            this.consumerId = consumerId;
+            this.expires = expires;
+            this.id = id;
+        }
+    }
+}
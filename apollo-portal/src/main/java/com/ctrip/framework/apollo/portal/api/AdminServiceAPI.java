@@ -88,6 +88,21 @@ public class AdminServiceAPI {
             return Arrays.asList(namespaceDTOs);
         }
 
+        /**
+         * 获取集群下所有命名空间的详情，包含项、已删除的项和最后发布的配置
+         *
+         * @param appId       应用编号
+         * @param env         环境
+         * @param clusterName 集群名称
+         * @return 命名空间详情
+         */
+        public List<NamespaceDetailDTO> findNamespaceDetailsByCluster(String appId, Env env, String clusterName) {
+            NamespaceDetailDTO[] namespaceDetails = restTemplate.get(env,
+                    "apps/{appId}/clusters/{clusterName}/namespace-details", NamespaceDetailDTO[].class, appId,
+                    clusterName);
+            return namespaceDetails == null ? Collections.emptyList() : Arrays.asList(namespaceDetails);
+        }
+
         /**
          * 获取命名空间dto
          *
@@ -582,6 +597,20 @@ public class AdminServiceAPI {
             }
             return count;
         }
+
+        public int getInstanceCountByReleasesNotIn(String appId, Env env, String clusterName, String namespaceName,
+                                                   Set<Long> releaseIds) {
+            Integer
+                    count =
+                    restTemplate.get(env,
+                            "/instances/by-namespace-and-releases-not-in/count?appId={appId}&clusterName={clusterName"
+                                    + "}&namespaceName={namespaceName}&releaseIds={releaseIds}",
+                            Integer.class, appId, clusterName, namespaceName, joiner.join(releaseIds));
+            if (count == null) {
+                return 0;
+            }
+            return count;
+        }
     }
 
     /**
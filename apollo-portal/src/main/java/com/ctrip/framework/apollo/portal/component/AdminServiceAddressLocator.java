@@ -79,15 +79,19 @@ public class AdminServiceAddressLocator {
 
     private final PortalMetaDomainService portalMetaDomainService;
 
+    private final EnvFanOutExecutor envFanOutExecutor;
+
     public AdminServiceAddressLocator(
             final HttpMessageConverters httpMessageConverters,
             final PortalSettings portalSettings,
             final RestTemplateFactory restTemplateFactory,
-            final PortalMetaDomainService portalMetaDomainService
+            final PortalMetaDomainService portalMetaDomainService,
+            final EnvFanOutExecutor envFanOutExecutor
     ) {
         this.portalSettings = portalSettings;
         this.restTemplateFactory = restTemplateFactory;
         this.portalMetaDomainService = portalMetaDomainService;
+        this.envFanOutExecutor = envFanOutExecutor;
     }
 
     @PostConstruct
@@ -130,9 +134,11 @@ public class AdminServiceAddressLocator {
         public void run() {
             boolean refreshSuccess = true;
             //refresh fail if get any env address fail
-            // 如果获取一个环境地址失败，则刷新失败
-            for (Env env : allEnvs) {
-                boolean currentEnvRefreshResult = refreshServerAddressCache(env);
+            // 并发刷新所有环境，如果获取一个环境地址失败或超时，则刷新失败
+            Map<Env, EnvFanOutExecutor.Result<Boolean>> results =
+                    envFanOutExecutor.invokeAll(allEnvs, env -> refreshServerAddressCache(env), false);
+            for (EnvFanOutExecutor.Result<Boolean> result : results.values()) {
+                boolean currentEnvRefreshResult = result.isSuccess() && result.getValue();
                 refreshSuccess = refreshSuccess && currentEnvRefreshResult;
             }
 
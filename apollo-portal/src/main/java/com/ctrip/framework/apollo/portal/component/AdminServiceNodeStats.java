@@ -0,0 +1,132 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import java.util.Arrays;
+
+/**
+ * 单个 admin service 节点的请求统计和熔断状态
+ * <p>
+ * 1）记录最近的请求耗时，用于节点排序和计算对冲请求的延迟；
+ * 2）连续失败后熔断，熔断期间不优先请求该节点，熔断结束后放行一个探测请求（半开）并重新计时，
+ * 探测成功则恢复，失败则继续熔断。
+ */
+class AdminServiceNodeStats {
+
+    /**
+     * 保留最近多少次请求的耗时
+     */
+    private static final int LATENCY_WINDOW_SIZE = 100;
+
+    /**
+     * 计算百分位所需的最少样本数
+     */
+    private static final int MIN_LATENCY_SAMPLES = 10;
+
+    /**
+     * 连续失败多少次后熔断
+     */
+    static final int FAILURE_THRESHOLD = 3;
+
+    /**
+     * 熔断持续时间
+     */
+    static final long OPEN_DURATION_IN_MILLI = 10 * 1000;
+
+    private final long[] latencies = new long[LATENCY_WINDOW_SIZE];
+    private int latencyCount;
+    private int latencyIndex;
+
+    private int consecutiveFailures;
+    private long openUntil;
+
+    /**
+     * 记录一次成功的请求，关闭熔断
+     *
+     * @param latencyInMilli 请求耗时
+     */
+    synchronized void recordSuccess(long latencyInMilli) {
+        latencies[latencyIndex] = latencyInMilli;
+        latencyIndex = (latencyIndex + 1) % LATENCY_WINDOW_SIZE;
+        latencyCount = Math.min(latencyCount + 1, LATENCY_WINDOW_SIZE);
+        consecutiveFailures = 0;
+        openUntil = 0;
+    }
+
+    /**
+     * 记录一次节点不可用的失败（连接失败、超时），达到阈值或探测失败时熔断
+     *
+     * @param now 当前时间
+     * @return true本次失败导致熔断
+     */
+    synchronized boolean recordFailure(long now) {
+        consecutiveFailures++;
+        if (consecutiveFailures < FAILURE_THRESHOLD) {
+            return false;
+        }
+        openUntil = now + OPEN_DURATION_IN_MILLI;
+        return consecutiveFailures == FAILURE_THRESHOLD;
+    }
+
+    /**
+     * 是否可以请求该节点，熔断结束后放行一个探测请求，并重新计时，
+     * 探测请求没有结果之前其余请求继续跳过
+     *
+     * @param now 当前时间
+     * @return true可以请求
+     */
+    synchronized boolean allowRequest(long now) {
+        if (consecutiveFailures < FAILURE_THRESHOLD) {
+            return true;
+        }
+        if (openUntil > now) {
+            return false;
+        }
+        openUntil = now + OPEN_DURATION_IN_MILLI;
+        return true;
+    }
+
+    /**
+     * @return true连续失败达到阈值，{@link #allowRequest(long)} 放行的是探测请求
+     */
+    synchronized boolean isOpen() {
+        return consecutiveFailures >= FAILURE_THRESHOLD;
+    }
+
+    /**
+     * @return 连续失败次数，用于节点排序
+     */
+    synchronized int consecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * 最近请求耗时的百分位
+     *
+     * @param percentile 百分位，如 0.95
+     * @return 样本不足时返回 -1
+     */
+    synchronized long latencyPercentile(double percentile) {
+        if (latencyCount < MIN_LATENCY_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * latencyCount) - 1;
+        return sorted[Math.max(0, Math.min(index, latencyCount - 1))];
+    }
+
+    /**
+     * 最近请求的平均耗时，用于节点排序
+     *
+     * @return 没有样本时返回 0，即优先尝试新节点
+     */
+    synchronized long averageLatency() {
+        if (latencyCount == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < latencyCount; i++) {
+            total += latencies[i];
+        }
+        return total / latencyCount;
+    }
+}
@@ -0,0 +1,429 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.common.dto.PageDTO;
+import com.ctrip.framework.apollo.common.entity.App;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.listener.AppCreationEvent;
+import com.ctrip.framework.apollo.portal.listener.AppDeletionEvent;
+import com.ctrip.framework.apollo.portal.listener.AppInfoChangedEvent;
+import com.ctrip.framework.apollo.portal.repository.AppRepository;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 应用搜索索引
+ * <p>
+ * 在内存中对 appId、应用名称建立 1~3 个字符的 n-gram 倒排索引，对负责人建立精确索引，
+ * 代替数据库的 LIKE %query% 扫描：
+ * 1）启动后异步全量构建，构建完成之前由调用方回退到数据库查询；
+ * 2）本机创建、修改、删除应用时通过事件增量更新；
+ * 3）定时全量重建，合并增量，并同步其它 portal 实例的修改。
+ * <p>
+ * 搜索结果按匹配程度排序：appId 相同、appId 前缀、名称前缀、appId 包含、名称包含，同一级别按 appId 排序。
+ */
+@Component
+public class AppSearchIndex implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppSearchIndex.class);
+
+    private static final int MAX_GRAM_LENGTH = 3;
+
+    /**
+     * 匹配级别数量，见 {@link #rank(String, String, String)}
+     */
+    private static final int RANK_LEVELS = 5;
+
+    private static final int NO_MATCH = -1;
+
+    private static final int[] EMPTY_POSTINGS = new int[0];
+
+    private final AppRepository appRepository;
+    private final PortalConfig portalConfig;
+
+    private ScheduledExecutorService rebuildExecutor;
+
+    /**
+     * 最近一次全量构建的索引，构建完成之前为 null
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * 全量构建之后的增量修改，appId（小写）-> 修改
+     */
+    private final ConcurrentMap<String, Change> changes = Maps.newConcurrentMap();
+
+    private final AtomicLong changeSequence = new AtomicLong();
+
+    public AppSearchIndex(final AppRepository appRepository, final PortalConfig portalConfig) {
+        this.appRepository = appRepository;
+        this.portalConfig = portalConfig;
+    }
+
+    @PostConstruct
+    private void initialize() {
+        rebuildExecutor = Executors.newSingleThreadScheduledExecutor(
+                ApolloThreadFactory.create("AppSearchIndex", true));
+        int interval = portalConfig.appSearchIndexRebuildInterval();
+        rebuildExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (Throwable ex) {
+                logger.error("Rebuild app search index failed", ex);
+                Tracer.logError(ex);
+            }
+        }, 0, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (rebuildExecutor != null) {
+            rebuildExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return true索引已构建完成，可以查询
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * 按 appId 或应用名称模糊搜索，忽略大小写
+     *
+     * @param query    搜索词
+     * @param pageable 分页
+     * @return 排序后的分页结果
+     */
+    public PageDTO<App> search(String query, Pageable pageable) {
+        Snapshot current = snapshot;
+        String keyword = normalize(query);
+
+        List<List<App>> ranked = Lists.newArrayListWithCapacity(RANK_LEVELS);
+        for (int i = 0; i < RANK_LEVELS; i++) {
+            ranked.add(Lists.newArrayList());
+        }
+
+        // 全量索引中的匹配项，文档按 appId 排序，因此每个级别内天然有序
+        for (int doc : current.findCandidates(keyword)) {
+            String appId = current.appIds[doc];
+            if (changes.containsKey(appId)) {
+                continue;
+            }
+            int rank = rank(appId, current.names[doc], keyword);
+            if (rank != NO_MATCH) {
+                ranked.get(rank).add(current.apps[doc]);
+            }
+        }
+
+        // 增量修改中的匹配项
+        boolean[] changed = new boolean[RANK_LEVELS];
+        for (Change change : changes.values()) {
+            if (change.app == null) {
+                continue;
+            }
+            int rank = rank(normalize(change.app.getAppId()), normalize(change.app.getName()), keyword);
+            if (rank != NO_MATCH) {
+                ranked.get(rank).add(change.app);
+                changed[rank] = true;
+            }
+        }
+
+        long total = 0;
+        for (int i = 0; i < RANK_LEVELS; i++) {
+            if (changed[i]) {
+                ranked.get(i).sort(Comparator.comparing(app -> normalize(app.getAppId())));
+            }
+            total += ranked.get(i).size();
+        }
+
+        return new PageDTO<>(page(ranked, pageable), pageable, total);
+    }
+
+    /**
+     * 按负责人查找应用，忽略大小写
+     *
+     * @param ownerName 负责人
+     * @param pageable  分页
+     * @return 按 appId 排序的应用
+     */
+    public List<App> findByOwnerName(String ownerName, Pageable pageable) {
+        Snapshot current = snapshot;
+        String owner = normalize(ownerName);
+
+        List<App> apps = Lists.newArrayList();
+        for (int doc : current.owners.getOrDefault(owner, EMPTY_POSTINGS)) {
+            if (!changes.containsKey(current.appIds[doc])) {
+                apps.add(current.apps[doc]);
+            }
+        }
+        boolean changed = false;
+        for (Change change : changes.values()) {
+            if (change.app != null && owner.equals(normalize(change.app.getOwnerName()))) {
+                apps.add(change.app);
+                changed = true;
+            }
+        }
+        if (changed) {
+            apps.sort(Comparator.comparing(app -> normalize(app.getAppId())));
+        }
+
+        return page(Collections.singletonList(apps), pageable);
+    }
+
+    @EventListener
+    public void onAppCreation(AppCreationEvent event) {
+        App app = event.getApp();
+        recordChange(app.getAppId(), app);
+    }
+
+    @EventListener
+    public void onAppInfoChange(AppInfoChangedEvent event) {
+        App app = event.getApp();
+        recordChange(app.getAppId(), app);
+    }
+
+    @EventListener
+    public void onAppDeletion(AppDeletionEvent event) {
+        recordChange(event.getApp().getAppId(), null);
+    }
+
+    /**
+     * 从数据库全量构建索引，构建开始之前的增量修改已经包含在数据库中，构建完成后移除
+     */
+    void rebuild() {
+        Transaction transaction = Tracer.newTransaction("Apollo.Portal", "rebuildAppSearchIndex");
+        try {
+            long sequence = changeSequence.get();
+
+            List<App> apps = Lists.newArrayList(appRepository.findAll());
+            snapshot = new Snapshot(apps);
+
+            changes.entrySet().removeIf(entry -> entry.getValue().sequence <= sequence);
+
+            transaction.addData("Apps", apps.size());
+            transaction.setStatus(Transaction.SUCCESS);
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            throw ex;
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    private void recordChange(String appId, App app) {
+        changes.put(normalize(appId), new Change(app, changeSequence.incrementAndGet()));
+    }
+
+    /**
+     * 匹配级别
+     *
+     * @return 0 appId 相同，1 appId 前缀，2 名称前缀，3 appId 包含，4 名称包含，不匹配返回 -1
+     */
+    private static int rank(String appId, String name, String keyword) {
+        if (appId.startsWith(keyword)) {
+            return appId.length() == keyword.length() ? 0 : 1;
+        }
+        if (name.startsWith(keyword)) {
+            return 2;
+        }
+        if (appId.contains(keyword)) {
+            return 3;
+        }
+        if (name.contains(keyword)) {
+            return 4;
+        }
+        return NO_MATCH;
+    }
+
+    private static List<App> page(List<List<App>> ranked, Pageable pageable) {
+        long offset = pageable.getOffset();
+        int size = pageable.getPageSize();
+        List<App> content = Lists.newArrayListWithCapacity(Math.min(size, 100));
+        for (List<App> apps : ranked) {
+            if (offset >= apps.size()) {
+                offset -= apps.size();
+                continue;
+            }
+            for (int i = (int) offset; i < apps.size() && content.size() < size; i++) {
+                content.add(apps.get(i));
+            }
+            offset = 0;
+            if (content.size() >= size) {
+                break;
+            }
+        }
+        return content;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 增量修改，app 为 null 表示已删除
+     */
+    private static class Change {
+        private final App app;
+        private final long sequence;
+
+        Change(App app, long sequence) {
+            this.app = app;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * 不可变的全量索引，文档编号为按 appId 排序后的下标
+     */
+    private static class Snapshot {
+        private final App[] apps;
+        private final String[] appIds;
+        private final String[] names;
+
+        /**
+         * n-gram -> 包含该 n-gram 的文档编号，升序
+         */
+        private final Map<String, int[]> grams;
+
+        /**
+         * 负责人 -> 文档编号，升序
+         */
+        private final Map<String, int[]> owners;
+
+        Snapshot(List<App> source) {
+            source.sort(Comparator.comparing(app -> normalize(app.getAppId())));
+            int size = source.size();
+            apps = source.toArray(new App[size]);
+            appIds = new String[size];
+            names = new String[size];
+
+            Map<String, IntArrayBuilder> gramBuilders = Maps.newHashMap();
+            Map<String, IntArrayBuilder> ownerBuilders = Maps.newHashMap();
+            Set<String> docGrams = Sets.newHashSet();
+            for (int doc = 0; doc < size; doc++) {
+                appIds[doc] = normalize(apps[doc].getAppId());
+                names[doc] = normalize(apps[doc].getName());
+
+                docGrams.clear();
+                addGrams(appIds[doc], docGrams);
+                addGrams(names[doc], docGrams);
+                for (String gram : docGrams) {
+                    gramBuilders.computeIfAbsent(gram, key -> new IntArrayBuilder()).add(doc);
+                }
+                ownerBuilders.computeIfAbsent(normalize(apps[doc].getOwnerName()), key -> new IntArrayBuilder())
+                        .add(doc);
+            }
+
+            grams = build(gramBuilders);
+            owners = build(ownerBuilders);
+        }
+
+        /**
+         * 查找可能匹配的文档：搜索词不超过 n-gram 长度时直接返回其倒排表，
+         * 否则求所有 n-gram 倒排表的交集，由调用方再次校验
+         */
+        int[] findCandidates(String keyword) {
+            if (keyword.isEmpty()) {
+                int[] all = new int[apps.length];
+                Arrays.setAll(all, i -> i);
+                return all;
+            }
+            if (keyword.length() <= MAX_GRAM_LENGTH) {
+                return grams.getOrDefault(keyword, EMPTY_POSTINGS);
+            }
+
+            List<int[]> postings = Lists.newArrayList();
+            for (int i = 0; i + MAX_GRAM_LENGTH <= keyword.length(); i++) {
+                int[] posting = grams.get(keyword.substring(i, i + MAX_GRAM_LENGTH));
+                if (posting == null) {
+                    return EMPTY_POSTINGS;
+                }
+                postings.add(posting);
+            }
+            // 从最短的倒排表开始求交集
+            postings.sort(Comparator.comparingInt(posting -> posting.length));
+            int[] result = postings.get(0);
+            for (int i = 1; i < postings.size() && result.length > 0; i++) {
+                result = intersect(result, postings.get(i));
+            }
+            return result;
+        }
+
+        private static void addGrams(String value, Set<String> docGrams) {
+            for (int start = 0; start < value.length(); start++) {
+                for (int length = 1; length <= MAX_GRAM_LENGTH && start + length <= value.length(); length++) {
+                    docGrams.add(value.substring(start, start + length));
+                }
+            }
+        }
+
+        private static int[] intersect(int[] a, int[] b) {
+            int[] result = new int[Math.min(a.length, b.length)];
+            int count = 0;
+            for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+                if (a[i] == b[j]) {
+                    result[count++] = a[i];
+                    i++;
+                    j++;
+                } else if (a[i] < b[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+
+        private static Map<String, int[]> build(Map<String, IntArrayBuilder> builders) {
+            Map<String, int[]> result = Maps.newHashMapWithExpectedSize(builders.size());
+            for (Map.Entry<String, IntArrayBuilder> entry : builders.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().toArray());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 构建倒排表用的整型数组，避免装箱
+     */
+    private static class IntArrayBuilder {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.common.exception.ServiceException;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.environment.Env;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 多环境并发请求执行器
+ * <p>
+ * 1）同时请求所有环境，每个环境有独立的超时时间，慢环境不会拖慢整个页面；
+ * 2）返回每个环境各自的结果或异常，由调用方组装部分成功的结果；
+ * 3）按环境熔断，连续失败后一段时间内直接跳过该环境，之后放行一次请求探测是否恢复。
+ * <p>
+ * 请求在执行器的线程中运行，不能依赖请求线程的 ThreadLocal（如当前登录用户）
+ */
+@Component
+public class EnvFanOutExecutor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(EnvFanOutExecutor.class);
+
+    private static final int MAX_THREADS = 32;
+    private static final int MAX_QUEUE_SIZE = 1000;
+
+    /**
+     * 连续失败多少次后熔断
+     */
+    private static final int CIRCUIT_BREAKER_FAILURE_THRESHOLD = 3;
+
+    /**
+     * 熔断持续时间
+     */
+    private static final long CIRCUIT_BREAKER_OPEN_DURATION_IN_MILLI = 10 * 1000;
+
+    private final PortalConfig portalConfig;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 环境熔断状态
+     */
+    private final ConcurrentMap<Env, CircuitState> circuitStates = Maps.newConcurrentMap();
+
+    public EnvFanOutExecutor(final PortalConfig portalConfig) {
+        this.portalConfig = portalConfig;
+        this.executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUE_SIZE), ApolloThreadFactory.create("EnvFanOut", true));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 并发请求多个环境，熔断的环境直接跳过
+     *
+     * @param envs 环境
+     * @param call 对单个环境的请求
+     * @param <T>  结果类型
+     * @return 环境 -> 结果，顺序与传入的环境一致
+     */
+    public <T> Map<Env, Result<T>> invokeAll(Collection<Env> envs, Function<Env, T> call) {
+        return invokeAll(envs, call, true);
+    }
+
+    /**
+     * 并发请求多个环境
+     *
+     * @param envs                  环境
+     * @param call                  对单个环境的请求
+     * @param skipOpenCircuitEnvs   是否跳过熔断的环境，健康检查、刷新地址等探测类请求不应跳过
+     * @param <T>                   结果类型
+     * @return 环境 -> 结果，顺序与传入的环境一致
+     */
+    public <T> Map<Env, Result<T>> invokeAll(Collection<Env> envs, Function<Env, T> call,
+                                             boolean skipOpenCircuitEnvs) {
+        long start = System.currentTimeMillis();
+        Map<Env, Future<T>> futures = Maps.newLinkedHashMap();
+        Map<Env, Result<T>> results = Maps.newLinkedHashMap();
+        for (Env env : envs) {
+            if (skipOpenCircuitEnvs && !allowRequest(env)) {
+                results.put(env, Result.failure(new ServiceException(
+                        String.format("Env %s is temporarily skipped because of continuous failures.", env))));
+                continue;
+            }
+            try {
+                futures.put(env, executor.submit(() -> call.apply(env)));
+            } catch (RejectedExecutionException e) {
+                results.put(env, Result.failure(e));
+            }
+        }
+
+        for (Map.Entry<Env, Future<T>> entry : futures.entrySet()) {
+            Env env = entry.getKey();
+            Future<T> future = entry.getValue();
+            long remaining = start + portalConfig.fanOutTimeout(env) - System.currentTimeMillis();
+            Result<T> result;
+            try {
+                result = Result.success(future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS));
+            } catch (ExecutionException e) {
+                result = Result.failure(e.getCause());
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                Tracer.logEvent("Apollo.Portal.EnvFanOut.Timeout", env.name());
+                result = Result.failure(new ServiceException(
+                        String.format("Request to env %s timed out.", env), e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                result = Result.failure(e);
+            }
+            recordResult(env, result);
+            results.put(env, result);
+        }
+
+        // 按传入的顺序返回
+        Map<Env, Result<T>> ordered = Maps.newLinkedHashMap();
+        for (Env env : envs) {
+            Result<T> result = results.get(env);
+            if (result != null) {
+                ordered.put(env, result);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * 环境是否熔断
+     *
+     * @param env 环境
+     * @return true熔断中
+     */
+    public boolean isCircuitOpen(Env env) {
+        CircuitState state = circuitStates.get(env);
+        return state != null && state.openUntil > System.currentTimeMillis();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 熔断结束后只放行一次探测请求，其余请求继续跳过直到探测结束
+     */
+    private boolean allowRequest(Env env) {
+        CircuitState state = circuitStates.get(env);
+        if (state == null || state.consecutiveFailures < CIRCUIT_BREAKER_FAILURE_THRESHOLD) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (state.openUntil > now) {
+            return false;
+        }
+        return circuitStates.replace(env, state,
+                new CircuitState(state.consecutiveFailures, now + CIRCUIT_BREAKER_OPEN_DURATION_IN_MILLI));
+    }
+
+    private void recordResult(Env env, Result<?> result) {
+        if (result.isSuccess() || !isEnvFailure(result.getError())) {
+            circuitStates.remove(env);
+            return;
+        }
+        CircuitState state = circuitStates.merge(env, new CircuitState(1, 0),
+                (previous, ignored) -> previous.failed(System.currentTimeMillis()));
+        if (state.consecutiveFailures == CIRCUIT_BREAKER_FAILURE_THRESHOLD) {
+            logger.warn("Env {} is skipped for {} ms because of {} continuous failures", env,
+                    CIRCUIT_BREAKER_OPEN_DURATION_IN_MILLI, CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+            Tracer.logEvent("Apollo.Portal.EnvFanOut.CircuitOpen", env.name());
+        }
+    }
+
+    /**
+     * 只有超时、网络异常、服务端异常才认为环境不可用，4xx 等业务异常不计入熔断
+     */
+    private boolean isEnvFailure(Throwable error) {
+        return error instanceof ServiceException
+                || error instanceof ResourceAccessException
+                || error instanceof HttpServerErrorException;
+    }
+
+    /**
+     * 环境熔断状态，不可变
+     */
+    private static class CircuitState {
+        private final int consecutiveFailures;
+        private final long openUntil;
+
+        CircuitState(int consecutiveFailures, long openUntil) {
+            this.consecutiveFailures = consecutiveFailures;
+            this.openUntil = openUntil;
+        }
+
+        CircuitState failed(long now) {
+            int failures = consecutiveFailures + 1;
+            return new CircuitState(failures, failures >= CIRCUIT_BREAKER_FAILURE_THRESHOLD
+                    ? now + CIRCUIT_BREAKER_OPEN_DURATION_IN_MILLI : openUntil);
+        }
+    }
+
+    /**
+     * 单个环境的请求结果
+     *
+     * @param <T> 结果类型
+     */
+    public static class Result<T> {
+        private final T value;
+        private final Throwable error;
+
+        private Result(T value, Throwable error) {
+            this.value = value;
+            this.error = error;
+        }
+
+        static <T> Result<T> success(T value) {
+            return new Result<>(value, null);
+        }
+
+        static <T> Result<T> failure(Throwable error) {
+            return new Result<>(null, error);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * 中止调用线程中正在进行的 http 请求
+ * <p>
+ * 绑定到调用线程后，通过 {@link RestTemplateFactory} 创建的 RestTemplate 发出的请求会登记在此，
+ * 其它线程调用 {@link #abort()} 即可中止该请求，被中止的请求在调用线程中抛出异常
+ */
+public class HttpRequestAborter {
+
+  private static final ThreadLocal<HttpRequestAborter> CURRENT = new ThreadLocal<>();
+
+  private HttpUriRequest request;
+  private boolean aborted;
+
+  /**
+   * 绑定到调用线程，请求结束后需调用 {@link #unbind()}
+   */
+  HttpRequestAborter bind() {
+    CURRENT.set(this);
+    return this;
+  }
+
+  void unbind() {
+    if (CURRENT.get() == this) {
+      CURRENT.remove();
+    }
+  }
+
+  /**
+   * 登记调用线程发出的请求，调用线程没有绑定中止器时忽略
+   *
+   * @param request 请求
+   */
+  public static void register(HttpUriRequest request) {
+    HttpRequestAborter aborter = CURRENT.get();
+    if (aborter != null) {
+      aborter.setRequest(request);
+    }
+  }
+
+  /**
+   * @return 调用线程当前的请求是否已被中止
+   */
+  static boolean isCurrentAborted() {
+    HttpRequestAborter aborter = CURRENT.get();
+    return aborter != null && aborter.isAborted();
+  }
+
+  /**
+   * 中止请求，请求还未发出时，发出后立即中止
+   */
+  synchronized void abort() {
+    aborted = true;
+    if (request != null) {
+      request.abort();
+    }
+  }
+
+  synchronized boolean isAborted() {
+    return aborted;
+  }
+
+  private synchronized void setRequest(HttpUriRequest request) {
+    this.request = request;
+    if (aborted) {
+      request.abort();
+    }
+  }
+}
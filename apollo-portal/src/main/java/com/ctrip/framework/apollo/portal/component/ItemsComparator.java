@@ -2,12 +2,11 @@ package com.ctrip.framework.apollo.portal.component;
 
 import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
-import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -28,13 +27,9 @@ public class ItemsComparator {
      */
     public ItemChangeSets compareIgnoreBlankAndCommentItem(long baseNamespaceId, List<ItemDTO> baseItems,
                                                            List<ItemDTO> targetItems) {
-        // 过滤掉父子命名空间的空白和注释项
-        List<ItemDTO> filteredSourceItems = filterBlankAndCommentItem(baseItems);
-        List<ItemDTO> filteredTargetItems = filterBlankAndCommentItem(targetItems);
-
-        // 转换为键和对应项的集合
-        Map<String, ItemDTO> sourceItemMap = BeanUtils.mapByKey("key", filteredSourceItems);
-        Map<String, ItemDTO> targetItemMap = BeanUtils.mapByKey("key", filteredTargetItems);
+        // 过滤掉父子命名空间的空白和注释项，转换为键和对应项的集合
+        Map<String, ItemDTO> sourceItemMap = mapByKeyIgnoreBlankAndCommentItem(baseItems);
+        Map<String, ItemDTO> targetItemMap = mapByKeyIgnoreBlankAndCommentItem(targetItems);
 
         ItemChangeSets changeSets = new ItemChangeSets();
 
@@ -71,17 +66,17 @@ public class ItemsComparator {
     }
 
     /**
-     * 过滤掉项的空白和注释
+     * 过滤掉项的空白和注释，按键建立索引
      */
-    private List<ItemDTO> filterBlankAndCommentItem(List<ItemDTO> items) {
-        List<ItemDTO> result = new LinkedList<>();
+    private Map<String, ItemDTO> mapByKeyIgnoreBlankAndCommentItem(List<ItemDTO> items) {
         if (CollectionUtils.isEmpty(items)) {
-            return result;
+            return new HashMap<>();
         }
 
+        Map<String, ItemDTO> result = new HashMap<>(items.size() * 4 / 3 + 1);
         for (ItemDTO item : items) {
             if (!StringUtils.isEmpty(item.getKey())) {
-                result.add(item);
+                result.put(item.getKey(), item);
             }
         }
 
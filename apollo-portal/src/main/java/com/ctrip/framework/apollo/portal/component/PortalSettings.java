@@ -38,6 +38,8 @@ public class PortalSettings {
 
     private final PortalMetaDomainService portalMetaDomainService;
 
+    private final EnvFanOutExecutor envFanOutExecutor;
+
     /**
      * 所有环境
      */
@@ -51,11 +53,13 @@ public class PortalSettings {
     public PortalSettings(
             final ApplicationContext applicationContext,
             final PortalConfig portalConfig,
-            final PortalMetaDomainService portalMetaDomainService
+            final PortalMetaDomainService portalMetaDomainService,
+            final EnvFanOutExecutor envFanOutExecutor
     ) {
         this.applicationContext = applicationContext;
         this.portalConfig = portalConfig;
         this.portalMetaDomainService = portalMetaDomainService;
+        this.envFanOutExecutor = envFanOutExecutor;
     }
 
     @PostConstruct
@@ -143,10 +147,17 @@ public class PortalSettings {
 
         @Override
         public void run() {
+            // 并发检查所有环境，慢环境不影响其它环境的检查
+            Map<Env, EnvFanOutExecutor.Result<Boolean>> results =
+                    envFanOutExecutor.invokeAll(allEnvs, this::isUp, false);
             // 遍历所有环境
             for (Env env : allEnvs) {
-                try {
-                    if (isUp(env)) {
+                EnvFanOutExecutor.Result<Boolean> result = results.get(env);
+                if (result == null) {
+                    continue;
+                }
+                if (result.isSuccess()) {
+                    if (result.getValue()) {
                         // 如果在线，把map中标记为true，计数器重置为0
                         if (!envStatusMark.get(env)) {
                             envStatusMark.put(env, true);
@@ -160,11 +171,10 @@ public class PortalSettings {
                         // 如果不在线，处理环境下线
                         handleEnvDown(env);
                     }
-
-                } catch (Exception e) {
+                } else {
                     logger.error("Env health check failed, maybe because of meta server down "
                                     + "or configure wrong meta server address. env: {}, meta server address: {}", env,
-                            portalMetaDomainService.getDomain(env), e);
+                            portalMetaDomainService.getDomain(env), result.getError());
                     // 发生异常，处理环境下线
                     handleEnvDown(env);
                 }
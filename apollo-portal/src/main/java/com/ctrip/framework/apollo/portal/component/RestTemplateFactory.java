@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.portal.component;
 
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.springframework.beans.factory.FactoryBean;
@@ -36,11 +37,21 @@ public class RestTemplateFactory implements FactoryBean<RestTemplate>, Initializ
   }
 
   public void afterPropertiesSet() throws UnsupportedEncodingException {
-    CloseableHttpClient httpClient = HttpClientBuilder.create().build();
+    // the sync and export fan-outs share this client, size the pool for them instead of the default 2 per route
+    CloseableHttpClient httpClient = HttpClientBuilder.create()
+        .setMaxConnPerRoute(portalConfig.adminServiceMaxConnectionsPerRoute())
+        .setMaxConnTotal(portalConfig.adminServiceMaxConnectionsTotal())
+        .build();
 
     restTemplate = new RestTemplate(httpMessageConverters.getConverters());
     HttpComponentsClientHttpRequestFactory requestFactory =
-        new HttpComponentsClientHttpRequestFactory(httpClient);
+        new HttpComponentsClientHttpRequestFactory(httpClient) {
+          @Override
+          protected void postProcessHttpRequest(HttpUriRequest request) {
+            // a hedged GET which succeeds first aborts the request blocking the calling thread
+            HttpRequestAborter.register(request);
+          }
+        };
     requestFactory.setConnectTimeout(portalConfig.connectTimeout());
     requestFactory.setReadTimeout(portalConfig.readTimeout());
 
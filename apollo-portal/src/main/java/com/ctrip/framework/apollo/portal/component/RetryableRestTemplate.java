@@ -1,22 +1,31 @@
 package com.ctrip.framework.apollo.portal.component;
 
 import com.ctrip.framework.apollo.common.exception.ServiceException;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.portal.environment.PortalMetaDomainService;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.HttpHostConnectException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
@@ -24,13 +33,44 @@ import org.springframework.web.util.UriTemplateHandler;
 
 import javax.annotation.PostConstruct;
 import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * 封装RestTemplate. admin server集群在某些机器宕机或者超时的情况下轮询重试
+ * <p>
+ * 1）按节点统计请求耗时和连续失败次数，在随机的两个节点中优先请求更健康、响应快的节点，连续失败的节点熔断，
+ * 熔断结束后放行一个探测请求；
+ * 2）GET 请求在调用线程中执行，超过节点耗时的 p95 仍未返回时，在线程池中对冲请求下一个节点，取先成功的结果；
+ * 3）post,delete,put 请求不对冲，只在连接失败时重试。
  */
 @Component
-public class RetryableRestTemplate {
+public class RetryableRestTemplate implements DisposableBean {
+
+  /**
+   * 对冲请求的延迟取节点耗时的百分位
+   */
+  private static final double HEDGE_DELAY_PERCENTILE = 0.95;
+
+  /**
+   * 节点耗时样本不足时的对冲延迟
+   */
+  private static final long DEFAULT_HEDGE_DELAY_IN_MILLI = 1000;
+
+  private static final long MIN_HEDGE_DELAY_IN_MILLI = 20;
+
+  private static final int MAX_HEDGE_THREADS = 64;
 
   private Logger logger = LoggerFactory.getLogger(RetryableRestTemplate.class);
 
@@ -42,14 +82,63 @@ public class RetryableRestTemplate {
   private final AdminServiceAddressLocator adminServiceAddressLocator;
   private final PortalMetaDomainService portalMetaDomainService;
 
+  /**
+   * 节点地址 -> 节点统计，下线的节点一段时间后自动清理
+   */
+  private final LoadingCache<String, AdminServiceNodeStats> nodeStats = CacheBuilder.newBuilder()
+      .expireAfterAccess(1, TimeUnit.HOURS)
+      .build(new CacheLoader<String, AdminServiceNodeStats>() {
+        @Override
+        public AdminServiceNodeStats load(String key) {
+          return new AdminServiceNodeStats();
+        }
+      });
+
+  /**
+   * 对冲请求在此执行，线程用满时不再对冲
+   */
+  private final ThreadPoolExecutor hedgeExecutor;
+
+  /**
+   * 对冲请求的延迟计时
+   */
+  private final ScheduledThreadPoolExecutor hedgeTimer;
+
+  /**
+   * 连续失败次数少、平均耗时短的节点更健康
+   */
+  private final Comparator<ServiceDTO> healthOrder = Comparator
+      .comparingInt((ServiceDTO service) -> nodeStats.getUnchecked(service.getHomepageUrl()).consecutiveFailures())
+      .thenComparingLong(service -> nodeStats.getUnchecked(service.getHomepageUrl()).averageLatency());
+
+  private final Counter retryCounter;
+  private final Counter hedgeCounter;
+  private final Counter circuitOpenCounter;
+
   public RetryableRestTemplate(
       final @Lazy RestTemplateFactory restTemplateFactory,
       final @Lazy AdminServiceAddressLocator adminServiceAddressLocator,
-      final PortalMetaDomainService portalMetaDomainService
+      final PortalMetaDomainService portalMetaDomainService,
+      final MeterRegistry meterRegistry
   ) {
     this.restTemplateFactory = restTemplateFactory;
     this.adminServiceAddressLocator = adminServiceAddressLocator;
     this.portalMetaDomainService = portalMetaDomainService;
+    this.hedgeExecutor = new ThreadPoolExecutor(MAX_HEDGE_THREADS, MAX_HEDGE_THREADS, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), ApolloThreadFactory.create("AdminAPI", true));
+    this.hedgeExecutor.allowCoreThreadTimeOut(true);
+    this.hedgeTimer = new ScheduledThreadPoolExecutor(1, ApolloThreadFactory.create("AdminAPI-HedgeTimer", true));
+    // 大部分请求在对冲前返回，取消的计时需立即移除
+    this.hedgeTimer.setRemoveOnCancelPolicy(true);
+    if (meterRegistry != null) {
+      this.retryCounter = meterRegistry.counter("apollo.portal.admin-api.retry");
+      this.hedgeCounter = meterRegistry.counter("apollo.portal.admin-api.hedge");
+      this.circuitOpenCounter = meterRegistry.counter("apollo.portal.admin-api.circuit-open");
+    } else {
+      this.retryCounter = null;
+      this.hedgeCounter = null;
+      this.circuitOpenCounter = null;
+    }
   }
 
 
@@ -58,6 +147,12 @@ public class RetryableRestTemplate {
     restTemplate = restTemplateFactory.getObject();
   }
 
+  @Override
+  public void destroy() {
+    hedgeTimer.shutdownNow();
+    hedgeExecutor.shutdownNow();
+  }
+
   public <T> T get(Env env, String path, Class<T> responseType, Object... urlVariables)
       throws RestClientException {
     return execute(HttpMethod.GET, env, path, null, responseType, urlVariables);
@@ -94,12 +189,20 @@ public class RetryableRestTemplate {
     Transaction ct = Tracer.newTransaction("AdminAPI", uri);
     ct.addData("Env", env);
 
-    List<ServiceDTO> services = getAdminServices(env, ct);
+    List<ServiceDTO> services = orderByHealth(getAdminServices(env, ct));
+
+    String relativePath = path;
+    Function<ServiceDTO, T> call =
+        service -> doExecute(method, service, relativePath, request, responseType, uriVariables);
+
+    if (method == HttpMethod.GET) {
+      return executeHedged(env, uri, ct, services, call);
+    }
 
     for (ServiceDTO serviceDTO : services) {
       try {
 
-        T result = doExecute(method, serviceDTO, path, request, responseType, uriVariables);
+        T result = invoke(serviceDTO, call);
 
         ct.setStatus(Transaction.SUCCESS);
         ct.complete();
@@ -108,7 +211,7 @@ public class RetryableRestTemplate {
         logger.error("Http request failed, uri: {}, method: {}", uri, method, t);
         Tracer.logError(t);
         if (canRetry(t, method)) {
-          Tracer.logEvent(TracerEventType.API_RETRY, uri);
+          logRetry(uri);
         } else {//biz exception rethrow
           ct.setStatus(t);
           ct.complete();
@@ -118,12 +221,7 @@ public class RetryableRestTemplate {
     }
 
     //all admin server down
-    ServiceException e =
-        new ServiceException(String.format("Admin servers are unresponsive. meta server address: %s, admin servers: %s",
-                portalMetaDomainService.getDomain(env), services));
-    ct.setStatus(e);
-    ct.complete();
-    throw e;
+    throw allAdminServersDown(env, ct, services);
   }
 
   private <T> ResponseEntity<T> exchangeGet(Env env, String path, ParameterizedTypeReference<T> reference,
@@ -136,39 +234,268 @@ public class RetryableRestTemplate {
     Transaction ct = Tracer.newTransaction("AdminAPI", uri);
     ct.addData("Env", env);
 
-    List<ServiceDTO> services = getAdminServices(env, ct);
+    List<ServiceDTO> services = orderByHealth(getAdminServices(env, ct));
 
-    for (ServiceDTO serviceDTO : services) {
-      try {
+    String relativePath = path;
+    return executeHedged(env, uri, ct, services, service ->
+        restTemplate.exchange(parseHost(service) + relativePath, HttpMethod.GET, null, reference, uriVariables));
+  }
 
-        ResponseEntity<T> result =
-            restTemplate.exchange(parseHost(serviceDTO) + path, HttpMethod.GET, null, reference, uriVariables);
+  /**
+   * 执行 GET 请求：在调用线程中依次请求节点，节点失败且可以重试时请求下一个节点；
+   * 当前节点超过对冲延迟仍未返回时，在线程池中请求下一个节点（每次请求最多对冲一次），
+   * 对冲请求先成功时中止调用线程中的请求，取先成功的结果
+   */
+  private <T> T executeHedged(Env env, String uri, Transaction ct, List<ServiceDTO> services,
+                              Function<ServiceDTO, T> call) {
+    Hedge<T> hedge = null;
+    boolean hedged = false;
+    int next = 0;
+
+    try {
+      while (next < services.size()) {
+        ServiceDTO current = services.get(next++);
+        HttpRequestAborter aborter = new HttpRequestAborter().bind();
+        if (!hedged && next < services.size()) {
+          hedge = new Hedge<>(uri, services.get(next), call, aborter);
+          hedge.schedule(hedgeDelay(current));
+        }
 
-        ct.setStatus(Transaction.SUCCESS);
-        ct.complete();
-        return result;
-      } catch (Throwable t) {
-        logger.error("Http request failed, uri: {}, method: {}", uri, HttpMethod.GET, t);
-        Tracer.logError(t);
-        if (canRetry(t, HttpMethod.GET)) {
-          Tracer.logEvent(TracerEventType.API_RETRY, uri);
-        } else {// biz exception rethrow
-          ct.setStatus(t);
+        Throwable failure;
+        try {
+          T result = invoke(current, call);
+
+          ct.setStatus(Transaction.SUCCESS);
           ct.complete();
-          throw t;
+          return result;
+        } catch (Throwable t) {
+          failure = t;
+        } finally {
+          aborter.unbind();
+        }
+
+        if (hedge != null && !hedge.cancelIfNotSent()) {
+          // 对冲请求已发出，每次请求最多对冲一次
+          hedged = true;
+          // 调用线程中的请求被对冲请求中止，或者可以重试时，等待对冲请求的结果，对冲的节点不再重试
+          if (aborter.isAborted() || canRetry(failure, HttpMethod.GET)) {
+            next++;
+            try {
+              T result = hedge.result.get();
+
+              ct.setStatus(Transaction.SUCCESS);
+              ct.complete();
+              return result;
+            } catch (ExecutionException e) {
+              failure = e.getCause();
+            }
+          }
         }
+        // 对冲请求未发出时已取消，重试下一个节点时可以再对冲
+        hedge = null;
 
+        logger.error("Http request failed, uri: {}, method: {}", uri, HttpMethod.GET, failure);
+        Tracer.logError(failure);
+        if (!canRetry(failure, HttpMethod.GET)) {// biz exception rethrow
+          ct.setStatus(failure);
+          ct.complete();
+          throw propagate(failure);
+        }
+        if (next < services.size()) {
+          logRetry(uri);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      ServiceException ex = new ServiceException("Interrupted while requesting admin servers", e);
+      ct.setStatus(ex);
+      ct.complete();
+      throw ex;
+    } finally {
+      if (hedge != null) {
+        hedge.cancel();
       }
     }
 
     //all admin server down
+    throw allAdminServersDown(env, ct, services);
+  }
+
+  /**
+   * 一次 GET 请求的对冲：延迟到期后在线程池中请求下一个节点，成功时中止调用线程中的请求
+   */
+  private class Hedge<T> {
+
+    private final String uri;
+    private final ServiceDTO service;
+    private final Function<ServiceDTO, T> call;
+    private final HttpRequestAborter primary;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+
+    private final HttpRequestAborter aborter = new HttpRequestAborter();
+
+    private ScheduledFuture<?> timer;
+    private Future<?> request;
+    private boolean sent;
+    private boolean cancelled;
+
+    Hedge(String uri, ServiceDTO service, Function<ServiceDTO, T> call, HttpRequestAborter primary) {
+      this.uri = uri;
+      this.service = service;
+      this.call = call;
+      this.primary = primary;
+    }
+
+    synchronized void schedule(long delayInMilli) {
+      timer = hedgeTimer.schedule(this::send, delayInMilli, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void send() {
+      if (cancelled) {
+        return;
+      }
+      try {
+        request = hedgeExecutor.submit(() -> {
+          aborter.bind();
+          try {
+            result.complete(invoke(service, call));
+            primary.abort();
+          } catch (Throwable t) {
+            result.completeExceptionally(t);
+          } finally {
+            aborter.unbind();
+          }
+        });
+        sent = true;
+        logHedge(uri);
+      } catch (RejectedExecutionException e) {
+        // 线程用满，不再对冲
+        cancelled = true;
+      }
+    }
+
+    /**
+     * 对冲请求还未发出时取消
+     *
+     * @return true对冲请求未发出，已取消
+     */
+    synchronized boolean cancelIfNotSent() {
+      if (sent) {
+        return false;
+      }
+      cancel();
+      return true;
+    }
+
+    synchronized void cancel() {
+      cancelled = true;
+      if (timer != null) {
+        timer.cancel(false);
+      }
+      if (request != null) {
+        request.cancel(false);
+        aborter.abort();
+      }
+    }
+  }
+
+  /**
+   * 请求单个节点并记录节点的耗时和失败
+   */
+  private <T> T invoke(ServiceDTO service, Function<ServiceDTO, T> call) {
+    AdminServiceNodeStats stats = nodeStats.getUnchecked(service.getHomepageUrl());
+    long start = System.currentTimeMillis();
+    try {
+      T result = call.apply(service);
+      stats.recordSuccess(System.currentTimeMillis() - start);
+      return result;
+    } catch (RuntimeException e) {
+      // 被对冲请求中止的请求不计入统计
+      if (HttpRequestAborter.isCurrentAborted()) {
+        throw e;
+      }
+      // 只有网络异常认为节点不可用，4xx 等业务异常说明节点正常响应
+      if (!(e instanceof ResourceAccessException)) {
+        stats.recordSuccess(System.currentTimeMillis() - start);
+      } else if (stats.recordFailure(System.currentTimeMillis())) {
+        logger.warn("Admin server {} is skipped for {} ms because of {} continuous failures",
+            service.getHomepageUrl(), AdminServiceNodeStats.OPEN_DURATION_IN_MILLI,
+            AdminServiceNodeStats.FAILURE_THRESHOLD);
+        Tracer.logEvent(TracerEventType.API_CIRCUIT_OPEN, service.getHomepageUrl());
+        if (circuitOpenCounter != null) {
+          circuitOpenCounter.increment();
+        }
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * 节点排序：
+   * 1）熔断结束放行的探测请求最先请求，探测结果决定节点恢复还是继续熔断；
+   * 2）其余可以请求的节点保持地址列表随机打乱的顺序，前两个中连续失败次数少、平均耗时短的优先，
+   * 避免请求都集中到同一个节点；
+   * 3）熔断的节点放到最后，其他节点都不可用时仍然会请求。
+   */
+  private List<ServiceDTO> orderByHealth(List<ServiceDTO> services) {
+    long now = System.currentTimeMillis();
+    List<ServiceDTO> probes = Lists.newArrayList();
+    List<ServiceDTO> available = Lists.newArrayListWithCapacity(services.size());
+    List<ServiceDTO> open = Lists.newArrayList();
+    for (ServiceDTO service : services) {
+      AdminServiceNodeStats stats = nodeStats.getUnchecked(service.getHomepageUrl());
+      if (!stats.allowRequest(now)) {
+        open.add(service);
+      } else if (stats.isOpen()) {
+        probes.add(service);
+      } else {
+        available.add(service);
+      }
+    }
+    if (available.size() > 1 && healthOrder.compare(available.get(1), available.get(0)) < 0) {
+      Collections.swap(available, 0, 1);
+    }
+    probes.addAll(available);
+    probes.addAll(open);
+    return probes;
+  }
+
+  private long hedgeDelay(ServiceDTO service) {
+    long percentile = nodeStats.getUnchecked(service.getHomepageUrl()).latencyPercentile(HEDGE_DELAY_PERCENTILE);
+    return percentile < 0 ? DEFAULT_HEDGE_DELAY_IN_MILLI : Math.max(percentile, MIN_HEDGE_DELAY_IN_MILLI);
+  }
+
+  private void logRetry(String uri) {
+    Tracer.logEvent(TracerEventType.API_RETRY, uri);
+    if (retryCounter != null) {
+      retryCounter.increment();
+    }
+  }
+
+  private void logHedge(String uri) {
+    Tracer.logEvent(TracerEventType.API_HEDGE, uri);
+    if (hedgeCounter != null) {
+      hedgeCounter.increment();
+    }
+  }
+
+  private RuntimeException propagate(Throwable t) {
+    if (t instanceof RuntimeException) {
+      return (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    return new ServiceException(t.getMessage(), (Exception) t);
+  }
+
+  private ServiceException allAdminServersDown(Env env, Transaction ct, List<ServiceDTO> services) {
     ServiceException e =
         new ServiceException(String.format("Admin servers are unresponsive. meta server address: %s, admin servers: %s",
                 portalMetaDomainService.getDomain(env), services));
     ct.setStatus(e);
     ct.complete();
-    throw e;
-
+    return e;
   }
 
   private List<ServiceDTO> getAdminServices(Env env, Transaction ct) {
@@ -41,6 +41,12 @@ public class PortalConfig extends RefreshableConfig {
     private static final Type META_SERVERS = new TypeToken<Map<String, String>>() {
     }.getType();
 
+    /**
+     * 各环境的并发请求超时配置解析
+     */
+    private static final Type ENV_TIMEOUTS = new TypeToken<Map<String, Integer>>() {
+    }.getType();
+
     private final PortalDBPropertySource portalDBPropertySource;
 
     public PortalConfig(final PortalDBPropertySource portalDBPropertySource) {
@@ -142,6 +148,29 @@ public class PortalConfig extends RefreshableConfig {
         return getIntProperty("api.readTimeout", 10000);
     }
 
+    /**
+     * 并发请求多个环境时，单个环境的超时时间，超时后返回其它环境的结果
+     * 可通过 api.fanOut.envTimeouts 按环境单独配置，如 {"PRO":8000}
+     *
+     * @param env 环境
+     * @return 默认5000ms
+     */
+    public int fanOutTimeout(Env env) {
+        String envTimeouts = getValue("api.fanOut.envTimeouts");
+        if (!Strings.isNullOrEmpty(envTimeouts)) {
+            try {
+                Map<String, Integer> timeouts = gson.fromJson(envTimeouts, ENV_TIMEOUTS);
+                Integer timeout = timeouts == null ? null : timeouts.get(env.name());
+                if (timeout != null && timeout > 0) {
+                    return timeout;
+                }
+            } catch (Exception e) {
+                logger.error("wrong format with key: api.fanOut.envTimeouts");
+            }
+        }
+        return getIntProperty("api.fanOut.timeout", 5000);
+    }
+
     public List<Organization> organizations() {
 
         String organizations = getValue("organizations");
@@ -240,6 +269,78 @@ public class PortalConfig extends RefreshableConfig {
         return getBooleanProperty(SystemRoleManagerService.MANAGE_APP_MASTER_LIMIT_SWITCH_KEY, false);
     }
 
+    /**
+     * 用户权限快照的缓存时间，本机分配、移除角色时立即失效，其它 portal 实例最多延迟这么久生效
+     *
+     * @return 默认60秒，0表示不缓存
+     */
+    public int permissionCacheExpireSeconds() {
+        return getIntProperty("permission.cache.expireSeconds", 60);
+    }
+
+    /**
+     * 应用搜索索引全量重建的间隔，用于同步其它 portal 实例对应用的修改
+     *
+     * @return 默认300秒
+     */
+    public int appSearchIndexRebuildInterval() {
+        int interval = getIntProperty("app.search.index.rebuild.interval", 300);
+        return interval > 0 ? interval : 300;
+    }
+
+    /**
+     * 同步配置到多个集群时，每个环境同时比较、写入的命名空间数
+     *
+     * @return 默认4
+     */
+    public int itemSyncParallelismPerEnv() {
+        int parallelism = getIntProperty("item.sync.parallelism.perEnv", 4);
+        return parallelism > 0 ? parallelism : 4;
+    }
+
+    /**
+     * 导出配置时同时拉取的集群数
+     *
+     * @return 默认8
+     */
+    public int configsExportParallelism() {
+        int parallelism = getIntProperty("configs.export.parallelism", 8);
+        return parallelism > 0 ? parallelism : 8;
+    }
+
+    /**
+     * 访问 admin service 的 http 连接池中，单个地址的最大连接数
+     * <p>
+     * 不小于同步配置与导出配置的并发数之和，否则并发请求会排队等待连接，甚至获取连接超时
+     *
+     * @return 默认20
+     */
+    public int adminServiceMaxConnectionsPerRoute() {
+        int maxConnections = getIntProperty("api.connectionPool.maxPerRoute", 20);
+        return Math.max(maxConnections, itemSyncParallelismPerEnv() + configsExportParallelism());
+    }
+
+    /**
+     * 访问 admin service 的 http 连接池的最大连接数
+     *
+     * @return 默认100
+     */
+    public int adminServiceMaxConnectionsTotal() {
+        int maxConnections = getIntProperty("api.connectionPool.maxTotal", 100);
+        return Math.max(maxConnections, adminServiceMaxConnectionsPerRoute());
+    }
+
+    /**
+     * OpenAPI token 缓存增量刷新的间隔，其它 portal 实例新建、修改的 token 最多延迟这么久进入缓存，
+     * 不存在的 token 也缓存这么久
+     *
+     * @return 默认5秒
+     */
+    public int consumerTokenCacheRefreshInterval() {
+        int interval = getIntProperty("consumer.token.cache.refresh.interval", 5);
+        return interval > 0 ? interval : 5;
+    }
+
     /***
      * The following configurations are used in ctrip profile
      **/
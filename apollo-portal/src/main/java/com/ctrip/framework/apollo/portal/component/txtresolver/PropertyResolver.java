@@ -3,7 +3,6 @@ package com.ctrip.framework.apollo.portal.component.txtresolver;
 import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
-import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.google.common.base.Strings;
 import org.springframework.stereotype.Component;
 
@@ -30,37 +29,42 @@ public class PropertyResolver implements ConfigTextResolver {
     /**
      * 行号分隔符
      */
-    private static final String ITEM_SEPARATOR = "\n";
+    private static final char ITEM_SEPARATOR = '\n';
 
     @Override
     public ItemChangeSets resolve(long namespaceId, String configText, List<ItemDTO> baseItems) {
-        // 旧的数据，key 为 lineNum ，值为旧项
-        Map<Integer, ItemDTO> oldLineNumMapItem = BeanUtils.mapByKey("lineNum", baseItems);
-
-        // 旧键值对，key 为 键，值为旧项
-        Map<String, ItemDTO> oldKeyMapItem = BeanUtils.mapByKey("key", baseItems);
-        // 删除空白项
-        oldKeyMapItem.remove("");
-
-        // 按行分割
-        String[] newItems = configText.split(ITEM_SEPARATOR);
-        // 存在重复key抛400
-        if (isHasRepeatKey(newItems)) {
-            throw new BadRequestException("config text has repeat key please check.");
+        int baseSize = baseItems == null ? 0 : baseItems.size();
+        // 旧的数据，key 为 lineNum ，值为旧项，处理过的行会被移除，剩下的是新文本之外的行
+        Map<Integer, ItemDTO> oldLineNumMapItem = new HashMap<>(baseSize * 4 / 3 + 1);
+        // 旧键值对，key 为 键，值为旧项，不包含空白和注释项
+        Map<String, ItemDTO> oldKeyMapItem = new HashMap<>(baseSize * 4 / 3 + 1);
+        if (baseItems != null) {
+            for (ItemDTO item : baseItems) {
+                oldLineNumMapItem.put(item.getLineNum(), item);
+                if (!"".equals(item.getKey())) {
+                    oldKeyMapItem.put(item.getKey(), item);
+                }
+            }
         }
 
         ItemChangeSets changeSets = new ItemChangeSets();
-        // 用于删除空白和注释项，key行数，value每行数据
-        Map<Integer, String> newLineNumMapItem = new HashMap<>();
+        // 已出现的key，忽略大小写，用于判断重复key
+        Set<String> newKeys = new HashSet<>(baseSize * 4 / 3 + 1);
         int lineCounter = 1;
 
-        // 遍历新行
-        for (String newItem : newItems) {
-            newItem = newItem.trim();
-            newLineNumMapItem.put(lineCounter, newItem);
+        // 逐行遍历新文本，与 String#split 一致，忽略末尾的空行
+        int textEnd = textEnd(configText);
+        int lineStart = 0;
+        while (lineStart <= textEnd) {
+            int lineEnd = configText.indexOf(ITEM_SEPARATOR, lineStart);
+            if (lineEnd == -1 || lineEnd > textEnd) {
+                lineEnd = textEnd;
+            }
+            String newItem = configText.substring(lineStart, lineEnd).trim();
+            lineStart = lineEnd + 1;
 
             // 获取行对应的老行数据
-            ItemDTO oldItemByLine = oldLineNumMapItem.get(lineCounter);
+            ItemDTO oldItemByLine = oldLineNumMapItem.remove(lineCounter);
 
             if (isCommentItem(newItem)) {
                 // 新行是注释行
@@ -70,15 +74,21 @@ public class PropertyResolver implements ConfigTextResolver {
                 handleBlankLine(namespaceId, oldItemByLine, lineCounter, changeSets);
             } else {
                 // 新行是正常行
-                handleNormalLine(namespaceId, oldKeyMapItem, newItem, lineCounter, changeSets);
+                handleNormalLine(namespaceId, oldKeyMapItem, newKeys, newItem, lineCounter, changeSets);
             }
+            // 删除被新行替换的注释和空白项
+            deleteCommentAndBlankItem(oldItemByLine, newItem, changeSets);
 
             // 行新增
             lineCounter++;
         }
 
-        // 删除注释和空白项
-        deleteCommentAndBlankItem(oldLineNumMapItem, newLineNumMapItem, changeSets);
+        // 删除新文本之外的注释和空白项
+        for (ItemDTO oldItem : oldLineNumMapItem.values()) {
+            if (isCommentItem(oldItem) || isBlankItem(oldItem)) {
+                changeSets.addDeleteItem(oldItem);
+            }
+        }
         // 删除正常键值项
         deleteNormalKvItem(oldKeyMapItem, changeSets);
 
@@ -86,33 +96,22 @@ public class PropertyResolver implements ConfigTextResolver {
     }
 
     /**
-     * 判断是否有重复key
+     * 文本最后一个有效字符之后的位置
+     * <p>
+     * 与 String#split 一致：不含换行时整个文本是一行，否则忽略末尾的换行，全部是换行时没有任何行
      *
-     * @param newItems 每行数据
-     * @return true包含，false不包含，kv为null抛出400
+     * @param configText 配置文本
+     * @return 结束位置，没有任何行时返回 -1
      */
-    private boolean isHasRepeatKey(String[] newItems) {
-        Set<String> keys = new HashSet<>();
-        int lineCounter = 1;
-        int keyCount = 0;
-        for (String item : newItems) {
-            // 非注释或空白行
-            if (!isCommentItem(item)
-                    && !isBlankItem(item)) {
-                keyCount++;
-                // 解析后的键值对为null，抛400
-                String[] kv = parseKeyValueFromItem(item);
-                if (kv != null) {
-                    keys.add(kv[0].toLowerCase());
-                } else {
-                    throw new BadRequestException("line:" + lineCounter + " key value must separate by '='");
-                }
-            }
-            lineCounter++;
+    private int textEnd(String configText) {
+        if (configText.indexOf(ITEM_SEPARATOR) == -1) {
+            return configText.length();
         }
-
-        // 总行数大于去重后的，则存在重复
-        return keyCount > keys.size();
+        int end = configText.length();
+        while (end > 0 && configText.charAt(end - 1) == ITEM_SEPARATOR) {
+            end--;
+        }
+        return end == 0 ? -1 : end;
     }
 
     /**
@@ -176,12 +175,13 @@ public class PropertyResolver implements ConfigTextResolver {
      *
      * @param namespaceId   命名空间id
      * @param keyMapOldItem 老项的key-map
+     * @param newKeys       已出现的key，忽略大小写
      * @param newItem       新行
      * @param lineCounter   行号
      * @param changeSets    改变集合
      */
-    private void handleNormalLine(Long namespaceId, Map<String, ItemDTO> keyMapOldItem, String newItem,
-                                  int lineCounter, ItemChangeSets changeSets) {
+    private void handleNormalLine(Long namespaceId, Map<String, ItemDTO> keyMapOldItem, Set<String> newKeys,
+                                  String newItem, int lineCounter, ItemChangeSets changeSets) {
         // 解析一行的key和value
         String[] kv = parseKeyValueFromItem(newItem);
         // kv不存在抛400
@@ -190,6 +190,10 @@ public class PropertyResolver implements ConfigTextResolver {
         }
 
         String newKey = kv[0];
+        // 存在重复key抛400
+        if (!newKeys.add(newKey.toLowerCase())) {
+            throw new BadRequestException("config text has repeat key please check.");
+        }
         // 处理用户输入的换行符
         String newValue = kv[1].replace("\\n", "\n");
 
@@ -276,27 +280,17 @@ public class PropertyResolver implements ConfigTextResolver {
     /**
      * 删除注释和空白项
      *
-     * @param oldLineNumMapItem 旧行map
-     * @param newLineNumMapItem 新行map
-     * @param changeSets        改变集合
+     * @param oldItem    同一行的旧项
+     * @param newItem    新行
+     * @param changeSets 改变集合
      */
-    private void deleteCommentAndBlankItem(Map<Integer, ItemDTO> oldLineNumMapItem,
-                                           Map<Integer, String> newLineNumMapItem,
-                                           ItemChangeSets changeSets) {
-        for (Map.Entry<Integer, ItemDTO> entry : oldLineNumMapItem.entrySet()) {
-            int lineNum = entry.getKey();
-            ItemDTO oldItem = entry.getValue();
-            String newItem = newLineNumMapItem.get(lineNum);
-
-            // 添加删除项
-            // 老项空白，新项非空白
-            if ((isBlankItem(oldItem) && !isBlankItem(newItem))
-                    // 老项是注释项
-                    || isCommentItem(oldItem)
-                    // 新项为null 或 新项不等于老项的注释
-                    && (newItem == null || !newItem.equals(oldItem.getComment()))) {
-                changeSets.addDeleteItem(oldItem);
-            }
+    private void deleteCommentAndBlankItem(ItemDTO oldItem, String newItem, ItemChangeSets changeSets) {
+        // 添加删除项
+        // 老项空白，新项非空白
+        if ((isBlankItem(oldItem) && !isBlankItem(newItem))
+                // 老项是注释项，新项不等于老项的注释
+                || isCommentItem(oldItem) && !newItem.equals(oldItem.getComment())) {
+            changeSets.addDeleteItem(oldItem);
         }
     }
 
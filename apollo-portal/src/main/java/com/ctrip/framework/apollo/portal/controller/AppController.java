@@ -1,12 +1,14 @@
 package com.ctrip.framework.apollo.portal.controller;
 
 
+import com.ctrip.framework.apollo.common.dto.AppDTO;
 import com.ctrip.framework.apollo.common.dto.PageDTO;
 import com.ctrip.framework.apollo.common.entity.App;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.http.MultiResponseEntity;
 import com.ctrip.framework.apollo.common.http.RichResponseEntity;
 import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.portal.component.EnvFanOutExecutor;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.portal.entity.model.AppModel;
 import com.ctrip.framework.apollo.portal.entity.po.Role;
@@ -33,6 +35,7 @@ import org.springframework.web.client.HttpClientErrorException;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -58,19 +61,23 @@ public class AppController {
 
     private final RoleInitializationService roleInitializationService;
 
+    private final EnvFanOutExecutor envFanOutExecutor;
+
     public AppController(
             final UserInfoHolder userInfoHolder,
             final AppService appService,
             final PortalSettings portalSettings,
             final ApplicationEventPublisher publisher,
             final RolePermissionService rolePermissionService,
-            final RoleInitializationService roleInitializationService) {
+            final RoleInitializationService roleInitializationService,
+            final EnvFanOutExecutor envFanOutExecutor) {
         this.userInfoHolder = userInfoHolder;
         this.appService = appService;
         this.portalSettings = portalSettings;
         this.publisher = publisher;
         this.rolePermissionService = rolePermissionService;
         this.roleInitializationService = roleInitializationService;
+        this.envFanOutExecutor = envFanOutExecutor;
     }
 
     @GetMapping
@@ -154,13 +161,16 @@ public class AppController {
     public MultiResponseEntity<EnvClusterInfo> nav(@PathVariable String appId) {
 
         MultiResponseEntity<EnvClusterInfo> response = MultiResponseEntity.ok();
-        List<Env> envs = portalSettings.getActiveEnvs();
-        for (Env env : envs) {
-            try {
-                response.addResponseEntity(RichResponseEntity.ok(appService.createEnvNavNode(env, appId)));
-            } catch (Exception e) {
+        // 并发请求所有环境，单个环境失败或超时不影响其它环境
+        Map<Env, EnvFanOutExecutor.Result<EnvClusterInfo>> results = envFanOutExecutor.invokeAll(
+                portalSettings.getActiveEnvs(), env -> appService.createEnvNavNode(env, appId));
+        for (Map.Entry<Env, EnvFanOutExecutor.Result<EnvClusterInfo>> entry : results.entrySet()) {
+            EnvFanOutExecutor.Result<EnvClusterInfo> result = entry.getValue();
+            if (result.isSuccess()) {
+                response.addResponseEntity(RichResponseEntity.ok(result.getValue()));
+            } else {
                 response.addResponseEntity(RichResponseEntity.error(HttpStatus.INTERNAL_SERVER_ERROR,
-                        "load env:" + env.name() + " cluster error." + e
+                        "load env:" + entry.getKey().name() + " cluster error." + result.getError()
                                 .getMessage()));
             }
         }
@@ -196,19 +206,22 @@ public class AppController {
     public MultiResponseEntity<String> findMissEnvs(@PathVariable String appId) {
 
         MultiResponseEntity<String> response = MultiResponseEntity.ok();
-        for (Env env : portalSettings.getActiveEnvs()) {
-            try {
-                appService.load(env, appId);
-            } catch (Exception e) {
-                if (e instanceof HttpClientErrorException &&
-                        ((HttpClientErrorException) e).getStatusCode() == HttpStatus.NOT_FOUND) {
-                    response.addResponseEntity(RichResponseEntity.ok(env.toString()));
-                } else {
-                    response.addResponseEntity(RichResponseEntity.error(HttpStatus.INTERNAL_SERVER_ERROR,
-                            String.format("load appId:%s from env %s error.", appId,
-                                    env)
-                                    + e.getMessage()));
-                }
+        Map<Env, EnvFanOutExecutor.Result<AppDTO>> results = envFanOutExecutor.invokeAll(
+                portalSettings.getActiveEnvs(), env -> appService.load(env, appId));
+        for (Map.Entry<Env, EnvFanOutExecutor.Result<AppDTO>> entry : results.entrySet()) {
+            Env env = entry.getKey();
+            Throwable e = entry.getValue().getError();
+            if (e == null) {
+                continue;
+            }
+            if (e instanceof HttpClientErrorException &&
+                    ((HttpClientErrorException) e).getStatusCode() == HttpStatus.NOT_FOUND) {
+                response.addResponseEntity(RichResponseEntity.ok(env.toString()));
+            } else {
+                response.addResponseEntity(RichResponseEntity.error(HttpStatus.INTERNAL_SERVER_ERROR,
+                        String.format("load appId:%s from env %s error.", appId,
+                                env)
+                                + e.getMessage()));
             }
         }
 
@@ -3,16 +3,20 @@ package com.ctrip.framework.apollo.portal.controller;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.ServiceException;
-import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.portal.component.PermissionValidator;
+import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.entity.bo.NamespaceBO;
 import com.ctrip.framework.apollo.portal.entity.model.NamespaceTextModel;
+import com.ctrip.framework.apollo.portal.service.ConfigsExportService;
 import com.ctrip.framework.apollo.portal.service.ItemService;
 import com.ctrip.framework.apollo.portal.service.NamespaceService;
 import com.ctrip.framework.apollo.portal.util.ConfigToFileUtils;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -27,7 +31,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * jian.tan
@@ -39,11 +43,23 @@ public class ConfigsExportController {
 
   private final NamespaceService namespaceService;
 
+  private final ConfigsExportService configsExportService;
+
+  private final PermissionValidator permissionValidator;
+
+  private final PortalSettings portalSettings;
+
   public ConfigsExportController(
       final ItemService configService,
-      final @Lazy NamespaceService namespaceService) {
+      final @Lazy NamespaceService namespaceService,
+      final ConfigsExportService configsExportService,
+      final PermissionValidator permissionValidator,
+      final PortalSettings portalSettings) {
     this.configService = configService;
     this.namespaceService = namespaceService;
+    this.configsExportService = configsExportService;
+    this.permissionValidator = permissionValidator;
+    this.portalSettings = portalSettings;
   }
 
   @PreAuthorize(value = "@permissionValidator.hasModifyNamespacePermission(#appId, #namespaceName, #env)")
@@ -100,19 +116,7 @@ public class ConfigsExportController {
     //generate a file.
     res.setHeader("Content-Disposition", "attachment;filename=" + fileName);
 
-    List<String> fileItems = namespaceBO.getItems().stream().map(itemBO -> {
-      String key = itemBO.getItem().getKey();
-      String value = itemBO.getItem().getValue();
-      if (ConfigConsts.CONFIG_FILE_CONTENT_KEY.equals(key)) {
-        return value;
-      }
-
-      if ("".equals(key)) {
-        return Joiner.on("").join(itemBO.getItem().getKey(), itemBO.getItem().getValue());
-      }
-
-      return Joiner.on(" = ").join(itemBO.getItem().getKey(), itemBO.getItem().getValue());
-    }).collect(Collectors.toList());
+    List<String> fileItems = ConfigsExportService.toFileLines(namespaceBO);
 
     try {
       ConfigToFileUtils.itemsToFile(res.getOutputStream(), fileItems);
@@ -120,4 +124,58 @@ public class ConfigsExportController {
       throw new ServiceException("export items failed:{}", e);
     }
   }
+
+  /**
+   * export all namespaces of the apps in the envs as a zip, one file per namespace:
+   * {appId}/{env}/{cluster}/{namespace}.{format}
+   */
+  @GetMapping("/configs/export")
+  public void exportAppConfigs(@RequestParam("appIds") String appIds,
+      @RequestParam(value = "envs", required = false) String envs, HttpServletResponse res) {
+    Set<String> exportAppIds = Sets.newLinkedHashSet(Splitter.on(",").omitEmptyStrings().trimResults().split(appIds));
+    if (exportAppIds.isEmpty()) {
+      throw new BadRequestException("appIds should not be empty.");
+    }
+    List<Env> exportEnvs = Lists.newArrayList();
+    if (envs == null) {
+      exportEnvs.addAll(portalSettings.getActiveEnvs());
+    } else {
+      for (String env : Splitter.on(",").omitEmptyStrings().trimResults().split(envs)) {
+        exportEnvs.add(Env.fromString(env));
+      }
+    }
+
+    String fileName = exportAppIds.size() == 1 ? exportAppIds.iterator().next() : "apollo-configs";
+    res.setContentType("application/zip");
+    res.setHeader("Content-Disposition", "attachment;filename=" + fileName + ".zip");
+
+    try {
+      configsExportService.exportAppConfigs(exportAppIds, exportEnvs,
+          (env, namespace) -> !permissionValidator.shouldHideConfigToCurrentUser(
+              namespace.getBaseInfo().getAppId(), env.name(), namespace.getBaseInfo().getNamespaceName()),
+          res.getOutputStream());
+    } catch (IOException e) {
+      throw new ServiceException("export configs failed:{}", e);
+    }
+  }
+
+  /**
+   * import the zip exported by {@link #exportAppConfigs}, all files are validated before any change is applied
+   *
+   * @return the imported files, if the import fails halfway the error lists the files already imported
+   */
+  @PostMapping("/configs/import")
+  public List<String> importAppConfigs(@RequestParam("file") MultipartFile file) {
+    if (file.isEmpty()) {
+      throw new BadRequestException("The file is empty.");
+    }
+
+    try {
+      return configsExportService.importAppConfigs(file,
+          model -> permissionValidator.hasModifyNamespacePermission(model.getAppId(), model.getNamespaceName(),
+              model.getEnv().name()));
+    } catch (IOException e) {
+      throw new ServiceException("import configs failed:{}", e);
+    }
+  }
 }
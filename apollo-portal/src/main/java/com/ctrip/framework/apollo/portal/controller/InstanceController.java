@@ -72,5 +72,23 @@ public class InstanceController {
         return instanceService.getByReleasesNotIn(Env.valueOf(env), appId, clusterName, namespaceName, releaseIdSet);
     }
 
+    @GetMapping("/envs/{env}/instances/by-namespace-and-releases-not-in/count")
+    public ResponseEntity<Number> getInstanceCountByReleasesNotIn(@PathVariable String env, @RequestParam String appId,
+                                                                  @RequestParam String clusterName,
+                                                                  @RequestParam String namespaceName,
+                                                                  @RequestParam String releaseIds) {
+
+        Set<Long> releaseIdSet = RELEASES_SPLITTER.splitToList(releaseIds).stream().map(Long::parseLong)
+            .collect(Collectors.toSet());
+
+        if (CollectionUtils.isEmpty(releaseIdSet)) {
+            throw new BadRequestException("release ids can not be empty");
+        }
+
+        int count = instanceService.getInstanceCountByReleasesNotIn(Env.valueOf(env), appId, clusterName,
+            namespaceName, releaseIdSet);
+        return ResponseEntity.ok(new Number(count));
+    }
+
 
 }
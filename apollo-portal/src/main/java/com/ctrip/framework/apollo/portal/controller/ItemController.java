@@ -11,13 +11,13 @@ import com.ctrip.framework.apollo.portal.entity.model.NamespaceSyncModel;
 import com.ctrip.framework.apollo.portal.entity.model.NamespaceTextModel;
 import com.ctrip.framework.apollo.portal.entity.vo.ItemDiffs;
 import com.ctrip.framework.apollo.portal.entity.vo.NamespaceIdentifier;
+import com.ctrip.framework.apollo.portal.entity.vo.NamespaceSyncResult;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.service.ItemService;
 import com.ctrip.framework.apollo.portal.service.NamespaceService;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
 import org.springframework.core.io.ByteArrayResource;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -196,8 +196,9 @@ public class ItemController {
     }
 
     @PutMapping(value = "/apps/{appId}/namespaces/{namespaceName}/items", consumes = {"application/json"})
-    public ResponseEntity<Void> update(@PathVariable String appId, @PathVariable String namespaceName,
-                                       @RequestBody NamespaceSyncModel model) {
+    public ResponseEntity<List<NamespaceSyncResult>> update(@PathVariable String appId,
+                                                            @PathVariable String namespaceName,
+                                                            @RequestBody NamespaceSyncModel model) {
         checkModel(!model.isInvalid());
         boolean hasPermission = permissionValidator.hasModifyNamespacePermission(appId, namespaceName);
         Env envNoPermission = null;
@@ -216,8 +217,9 @@ public class ItemController {
             }
         }
         if (hasPermission) {
-            configService.syncItems(model.getSyncToNamespaces(), model.getSyncItems());
-            return ResponseEntity.status(HttpStatus.OK).build();
+            List<NamespaceSyncResult> results =
+                    configService.syncItems(model.getSyncToNamespaces(), model.getSyncItems());
+            return ResponseEntity.ok(results);
         }
         throw new AccessDeniedException(String.format("You don't have the permission to modify environment: %s",
                 envNoPermission));
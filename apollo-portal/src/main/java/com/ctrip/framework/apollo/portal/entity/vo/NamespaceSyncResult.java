@@ -0,0 +1,37 @@
+package com.ctrip.framework.apollo.portal.entity.vo;
+
+import com.ctrip.framework.apollo.portal.enums.SyncStatus;
+
+public class NamespaceSyncResult {
+  private NamespaceIdentifier namespace;
+  private SyncStatus status;
+  private String message;
+
+  public NamespaceSyncResult(NamespaceIdentifier namespace) {
+    this.namespace = namespace;
+  }
+
+  public NamespaceIdentifier getNamespace() {
+    return namespace;
+  }
+
+  public void setNamespace(NamespaceIdentifier namespace) {
+    this.namespace = namespace;
+  }
+
+  public SyncStatus getStatus() {
+    return status;
+  }
+
+  public void setStatus(SyncStatus status) {
+    this.status = status;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+}
@@ -0,0 +1,5 @@
+package com.ctrip.framework.apollo.portal.enums;
+
+public enum SyncStatus {
+  SYNCED, UNCHANGED, NAMESPACE_NOT_FOUND, FAILED
+}
@@ -34,6 +34,16 @@ public interface PermissionRepository extends PagingAndSortingRepository<Permiss
     List<Permission> findByPermissionTypeInAndTargetId(Collection<String> permissionTypes,
                                                        String targetId);
 
+    /**
+     * 查找用户通过角色拥有的权限
+     *
+     * @param userId 用户id
+     * @return 权限集合
+     */
+    @Query("SELECT p FROM Permission p, RolePermission rp, UserRole ur "
+            + "WHERE ur.userId = ?1 AND rp.roleId = ur.roleId AND p.id = rp.permissionId")
+    List<Permission> findByUserId(String userId);
+
     /**
      * 查找权限id
      *
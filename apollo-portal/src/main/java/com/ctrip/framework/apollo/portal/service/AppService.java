@@ -6,6 +6,7 @@ import com.ctrip.framework.apollo.common.entity.App;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.AppSearchIndex;
 import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.portal.entity.bo.UserInfo;
 import com.ctrip.framework.apollo.portal.entity.vo.EnvClusterInfo;
@@ -46,6 +47,7 @@ public class AppService {
     private final RolePermissionService rolePermissionService;
     private final FavoriteService favoriteService;
     private final UserService userService;
+    private final AppSearchIndex appSearchIndex;
 
     public AppService(
             final UserInfoHolder userInfoHolder,
@@ -56,7 +58,8 @@ public class AppService {
             final RoleInitializationService roleInitializationService,
             final RolePermissionService rolePermissionService,
             final FavoriteService favoriteService,
-            final UserService userService) {
+            final UserService userService,
+            final AppSearchIndex appSearchIndex) {
         this.userInfoHolder = userInfoHolder;
         this.appAPI = appAPI;
         this.appRepository = appRepository;
@@ -66,6 +69,7 @@ public class AppService {
         this.rolePermissionService = rolePermissionService;
         this.favoriteService = favoriteService;
         this.userService = userService;
+        this.appSearchIndex = appSearchIndex;
     }
 
 
@@ -83,7 +87,17 @@ public class AppService {
         return new PageDTO<>(apps.getContent(), pageable, apps.getTotalElements());
     }
 
+    /**
+     * 按 appId 或应用名称模糊搜索，优先使用内存索引，索引未就绪或指定了排序时查询数据库
+     *
+     * @param query    搜索词
+     * @param pageable 分页
+     * @return 分页结果
+     */
     public PageDTO<App> searchByAppIdOrAppName(String query, Pageable pageable) {
+        if (appSearchIndex.isReady() && pageable.getSort().isUnsorted()) {
+            return appSearchIndex.search(query, pageable);
+        }
         Page<App> apps = appRepository.findByAppIdContainingOrNameContaining(query, query, pageable);
 
         return new PageDTO<>(apps.getContent(), pageable, apps.getTotalElements());
@@ -98,6 +112,9 @@ public class AppService {
     }
 
     public List<App> findByOwnerName(String ownerName, Pageable page) {
+        if (appSearchIndex.isReady() && page.getSort().isUnsorted()) {
+            return appSearchIndex.findByOwnerName(ownerName, page);
+        }
         return appRepository.findByOwnerName(ownerName, page);
     }
 
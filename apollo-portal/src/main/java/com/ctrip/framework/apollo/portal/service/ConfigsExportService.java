@@ -0,0 +1,377 @@
+package com.ctrip.framework.apollo.portal.service;
+
+import com.ctrip.framework.apollo.common.dto.ClusterDTO;
+import com.ctrip.framework.apollo.common.dto.ItemDTO;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.ctrip.framework.apollo.common.exception.ServiceException;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.portal.component.EnvFanOutExecutor;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.entity.bo.ItemBO;
+import com.ctrip.framework.apollo.portal.entity.bo.NamespaceBO;
+import com.ctrip.framework.apollo.portal.entity.model.NamespaceTextModel;
+import com.ctrip.framework.apollo.portal.environment.Env;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.CharStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 批量导出、导入应用配置
+ * <p>
+ * 导出的 zip 中每个命名空间一个文件，路径为 {appId}/{env}/{cluster}/{namespace}，
+ * 文件后缀为命名空间的格式，导入时按路径写回对应的环境、集群和命名空间，修改路径中的环境即可跨环境迁移。
+ * <p>
+ * 导出时按集群并发拉取，同时拉取的集群数有上限，拉取完成的集群立即写入 zip，内存占用与应用规模无关；
+ * 导入时先完整校验一遍 zip，全部通过后再逐个命名空间按变更集写入。
+ */
+@Service
+public class ConfigsExportService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigsExportService.class);
+
+    /**
+     * 导出失败的集群记录在此文件中，导入时忽略
+     */
+    public static final String EXPORT_ERRORS_FILE_NAME = "EXPORT_ERRORS.txt";
+
+    /**
+     * 校验失败时最多返回多少条错误
+     */
+    private static final int MAX_REPORTED_ERRORS = 50;
+
+    private static final Splitter PATH_SPLITTER = Splitter.on('/');
+
+    private final ClusterService clusterService;
+    private final NamespaceService namespaceService;
+    private final ItemService itemService;
+    private final EnvFanOutExecutor envFanOutExecutor;
+
+    private final ExecutorService fetchExecutor;
+
+    /**
+     * 同时拉取的集群数上限，见 {@link PortalConfig#configsExportParallelism()}
+     */
+    private final int maxParallelFetches;
+
+    public ConfigsExportService(
+            final ClusterService clusterService,
+            final @Lazy NamespaceService namespaceService,
+            final ItemService itemService,
+            final EnvFanOutExecutor envFanOutExecutor,
+            final PortalConfig portalConfig) {
+        this.clusterService = clusterService;
+        this.namespaceService = namespaceService;
+        this.itemService = itemService;
+        this.envFanOutExecutor = envFanOutExecutor;
+        this.maxParallelFetches = portalConfig.configsExportParallelism();
+        this.fetchExecutor = Executors.newFixedThreadPool(maxParallelFetches,
+                ApolloThreadFactory.create("ConfigsExport", true));
+    }
+
+    @Override
+    public void destroy() {
+        fetchExecutor.shutdownNow();
+    }
+
+    /**
+     * 导出多个应用在多个环境下的所有配置到 zip
+     *
+     * @param appIds  应用编号
+     * @param envs    环境
+     * @param visible 环境下的命名空间是否对当前用户可见，在调用线程中执行
+     * @param out     输出流，不会被关闭
+     * @return 导出的命名空间数
+     */
+    public int exportAppConfigs(Collection<String> appIds, Collection<Env> envs,
+                                BiPredicate<Env, NamespaceBO> visible, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        List<String> errors = Lists.newArrayList();
+
+        // 查找所有集群
+        List<ClusterTarget> targets = Lists.newArrayList();
+        for (String appId : appIds) {
+            Map<Env, EnvFanOutExecutor.Result<List<ClusterDTO>>> clusters =
+                    envFanOutExecutor.invokeAll(envs, env -> clusterService.findClusters(env, appId));
+            for (Map.Entry<Env, EnvFanOutExecutor.Result<List<ClusterDTO>>> entry : clusters.entrySet()) {
+                EnvFanOutExecutor.Result<List<ClusterDTO>> result = entry.getValue();
+                if (!result.isSuccess()) {
+                    errors.add(String.format("%s/%s: %s", appId, entry.getKey().name(),
+                            result.getError().getMessage()));
+                    continue;
+                }
+                for (ClusterDTO cluster : result.getValue()) {
+                    targets.add(new ClusterTarget(appId, entry.getKey(), cluster.getName()));
+                }
+            }
+        }
+
+        // 并发拉取集群的命名空间，同时进行中的请求不超过上限，完成一个写入一个
+        CompletionService<List<NamespaceBO>> completionService = new ExecutorCompletionService<>(fetchExecutor);
+        Map<Future<List<NamespaceBO>>, ClusterTarget> inFlight = Maps.newHashMap();
+        Iterator<ClusterTarget> pending = targets.iterator();
+        int exported = 0;
+        try {
+            while (pending.hasNext() || !inFlight.isEmpty()) {
+                while (pending.hasNext() && inFlight.size() < maxParallelFetches) {
+                    ClusterTarget target = pending.next();
+                    inFlight.put(completionService.submit(
+                            () -> namespaceService.findNamespaceBOs(target.appId, target.env, target.clusterName)),
+                            target);
+                }
+
+                Future<List<NamespaceBO>> done = completionService.take();
+                ClusterTarget target = inFlight.remove(done);
+                List<NamespaceBO> namespaces;
+                try {
+                    namespaces = done.get();
+                } catch (ExecutionException e) {
+                    logger.error("Export cluster {} failed", target, e.getCause());
+                    Tracer.logError(e.getCause());
+                    errors.add(String.format("%s: %s", target, e.getCause().getMessage()));
+                    continue;
+                }
+
+                for (NamespaceBO namespace : namespaces) {
+                    if (!visible.test(target.env, namespace)) {
+                        continue;
+                    }
+                    zip.putNextEntry(new ZipEntry(target + "/" + fileName(namespace)));
+                    writeItems(namespace, zip);
+                    zip.closeEntry();
+                    exported++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting configs", e);
+        } finally {
+            for (Future<List<NamespaceBO>> future : inFlight.keySet()) {
+                future.cancel(true);
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            zip.putNextEntry(new ZipEntry(EXPORT_ERRORS_FILE_NAME));
+            Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+            writer.write(Joiner.on(System.lineSeparator()).join(errors));
+            writer.flush();
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+        return exported;
+    }
+
+    /**
+     * 从 zip 导入配置，先校验所有文件，全部通过后再逐个命名空间写入
+     * <p>
+     * 每个命名空间单独提交，写入中途失败时已导入的命名空间不会回滚，抛出的异常中列出已导入的命名空间
+     *
+     * @param source     zip 文件，会被读取两次
+     * @param permission 当前用户是否有修改命名空间的权限，在调用线程中执行
+     * @return 导入的文件路径 {appId}/{env}/{cluster}/{namespace}.{format}
+     */
+    public List<String> importAppConfigs(InputStreamSource source, Predicate<NamespaceTextModel> permission)
+            throws IOException {
+        // 校验
+        List<String> errors = Lists.newArrayList();
+        Set<String> paths = Sets.newHashSet();
+        try (ZipInputStream zip = new ZipInputStream(source.getInputStream(), StandardCharsets.UTF_8)) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if (isIgnored(entry)) {
+                    continue;
+                }
+                String error = paths.add(entry.getName()) ? validate(entry.getName(), permission)
+                        : String.format("%s: duplicated file", entry.getName());
+                if (error != null) {
+                    errors.add(error);
+                    if (errors.size() >= MAX_REPORTED_ERRORS) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new BadRequestException("Invalid config files: " + Joiner.on("; ").join(errors));
+        }
+
+        // 写入，每个命名空间的修改作为一个变更集提交
+        List<String> imported = Lists.newArrayListWithCapacity(paths.size());
+        try (ZipInputStream zip = new ZipInputStream(source.getInputStream(), StandardCharsets.UTF_8)) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if (isIgnored(entry)) {
+                    continue;
+                }
+                NamespaceTextModel model = parsePath(entry.getName());
+                model.setConfigText(CharStreams.toString(new InputStreamReader(zip, StandardCharsets.UTF_8)));
+                try {
+                    itemService.updateConfigItemByText(model);
+                } catch (RuntimeException e) {
+                    logger.error("Import {} failed, {} namespaces imported before: {}", entry.getName(),
+                            imported.size(), imported, e);
+                    throw new ServiceException(String.format(
+                            "Import stopped at %s: %s. %d of %d namespaces were imported and are kept: [%s]",
+                            entry.getName(), e.getMessage(), imported.size(), paths.size(),
+                            Joiner.on(", ").join(imported)), e);
+                }
+                imported.add(entry.getName());
+            }
+        }
+        return imported;
+    }
+
+    /**
+     * 命名空间导出的文件内容，与单个命名空间导出的格式一致，不包含已删除未发布的项
+     *
+     * @param namespace 命名空间
+     * @return 文件的每一行
+     */
+    public static List<String> toFileLines(NamespaceBO namespace) {
+        List<String> lines = Lists.newArrayListWithCapacity(namespace.getItems().size());
+        for (ItemBO itemBO : namespace.getItems()) {
+            if (itemBO.isDeleted()) {
+                continue;
+            }
+            ItemDTO item = itemBO.getItem();
+            String key = item.getKey();
+            String value = item.getValue();
+            if (ConfigConsts.CONFIG_FILE_CONTENT_KEY.equals(key)) {
+                lines.add(value);
+            } else if ("".equals(key)) {
+                lines.add(Joiner.on("").join(key, value));
+            } else {
+                lines.add(Joiner.on(" = ").join(key, value));
+            }
+        }
+        return lines;
+    }
+
+    private void writeItems(NamespaceBO namespace, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        for (String line : toFileLines(namespace)) {
+            writer.write(line);
+            writer.write(System.lineSeparator());
+        }
+        writer.flush();
+    }
+
+    /**
+     * 文件名：properties 格式为命名空间名加 .properties 后缀，其它格式的命名空间名本身带有后缀
+     */
+    private String fileName(NamespaceBO namespace) {
+        String namespaceName = namespace.getBaseInfo().getNamespaceName();
+        String suffix = "." + namespace.getFormat();
+        return namespaceName.endsWith(suffix) ? namespaceName : namespaceName + suffix;
+    }
+
+    private boolean isIgnored(ZipEntry entry) {
+        return entry.isDirectory() || EXPORT_ERRORS_FILE_NAME.equals(entry.getName());
+    }
+
+    /**
+     * 校验文件路径、格式、权限和命名空间是否存在
+     *
+     * @return 错误信息，校验通过返回 null
+     */
+    private String validate(String path, Predicate<NamespaceTextModel> permission) {
+        NamespaceTextModel model;
+        try {
+            model = parsePath(path);
+        } catch (RuntimeException e) {
+            return String.format("%s: %s", path, e.getMessage());
+        }
+        if (!permission.test(model)) {
+            return String.format("%s: no permission to modify namespace", path);
+        }
+        try {
+            if (namespaceService.loadNamespaceBaseInfo(model.getAppId(), model.getEnv(), model.getClusterName(),
+                    model.getNamespaceName()) == null) {
+                return String.format("%s: namespace not exist", path);
+            }
+        } catch (RuntimeException e) {
+            return String.format("%s: %s", path, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 解析路径 {appId}/{env}/{cluster}/{namespace}.{format}
+     */
+    private NamespaceTextModel parsePath(String path) {
+        List<String> parts = PATH_SPLITTER.splitToList(path);
+        if (parts.size() != 4) {
+            throw new BadRequestException("path should be {appId}/{env}/{cluster}/{namespace}.{format}");
+        }
+        String fileName = parts.get(3);
+        int index = fileName.lastIndexOf('.');
+        if (index <= 0 || !ConfigFileFormat.isValidFormat(fileName.substring(index + 1))) {
+            throw new BadRequestException("the file format is invalid");
+        }
+        String format = fileName.substring(index + 1);
+        Env.fromString(parts.get(1));
+
+        NamespaceTextModel model = new NamespaceTextModel();
+        model.setAppId(parts.get(0));
+        model.setEnv(parts.get(1));
+        model.setClusterName(parts.get(2));
+        model.setNamespaceName(ConfigFileFormat.Properties.getValue().equals(format)
+                ? fileName.substring(0, index) : fileName);
+        model.setFormat(format);
+        return model;
+    }
+
+    /**
+     * 要导出的集群
+     */
+    private static class ClusterTarget {
+        private final String appId;
+        private final Env env;
+        private final String clusterName;
+
+        ClusterTarget(String appId, Env env, String clusterName) {
+            this.appId = appId;
+            this.env = env;
+            this.clusterName = clusterName;
+        }
+
+        @Override
+        public String toString() {
+            return appId + "/" + env.name() + "/" + clusterName;
+        }
+    }
+}
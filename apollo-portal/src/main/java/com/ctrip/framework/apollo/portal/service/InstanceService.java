@@ -36,6 +36,11 @@ public class InstanceService {
     return instanceAPI.getByReleasesNotIn(appId, env, clusterName, namespaceName, releaseIds);
   }
 
+  public int getInstanceCountByReleasesNotIn(Env env, String appId, String clusterName, String namespaceName,
+                                             Set<Long> releaseIds) {
+    return instanceAPI.getInstanceCountByReleasesNotIn(appId, env, clusterName, namespaceName, releaseIds);
+  }
+
 
 
 }
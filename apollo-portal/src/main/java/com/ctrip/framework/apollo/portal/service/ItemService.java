@@ -7,22 +7,32 @@ import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.ctrip.framework.apollo.common.exception.ServiceException;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI.ItemAPI;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI.NamespaceAPI;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI.ReleaseAPI;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.component.txtresolver.ConfigTextResolver;
 import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.portal.entity.model.NamespaceTextModel;
 import com.ctrip.framework.apollo.portal.entity.vo.ItemDiffs;
 import com.ctrip.framework.apollo.portal.entity.vo.NamespaceIdentifier;
+import com.ctrip.framework.apollo.portal.entity.vo.NamespaceSyncResult;
+import com.ctrip.framework.apollo.portal.enums.SyncStatus;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -30,16 +40,37 @@ import org.springframework.util.CollectionUtils;
 import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * 项服务
  */
 @Service
-public class ItemService {
+public class ItemService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItemService.class);
+
+    /**
+     * 同步配置的线程数，所有请求共享，每个环境的并发数由 {@link PortalConfig#itemSyncParallelismPerEnv()} 限制
+     */
+    private static final int SYNC_THREADS = 16;
+
+    /**
+     * 等待同步线程的任务数上限，超过时在请求线程中执行
+     */
+    private static final int SYNC_QUEUE_CAPACITY = 256;
+
     private final Gson gson = new Gson();
 
     private final UserInfoHolder userInfoHolder;
@@ -48,6 +79,9 @@ public class ItemService {
     private final AdminServiceAPI.ReleaseAPI releaseAPI;
     private final ConfigTextResolver fileTextResolver;
     private final ConfigTextResolver propertyResolver;
+    private final PortalConfig portalConfig;
+
+    private final ThreadPoolExecutor syncExecutor;
 
     public ItemService(
             final UserInfoHolder userInfoHolder,
@@ -55,13 +89,24 @@ public class ItemService {
             final ItemAPI itemAPI,
             final ReleaseAPI releaseAPI,
             final @Qualifier("fileTextResolver") ConfigTextResolver fileTextResolver,
-            final @Qualifier("propertyResolver") ConfigTextResolver propertyResolver) {
+            final @Qualifier("propertyResolver") ConfigTextResolver propertyResolver,
+            final PortalConfig portalConfig) {
         this.userInfoHolder = userInfoHolder;
         this.namespaceAPI = namespaceAPI;
         this.itemAPI = itemAPI;
         this.releaseAPI = releaseAPI;
         this.fileTextResolver = fileTextResolver;
         this.propertyResolver = propertyResolver;
+        this.portalConfig = portalConfig;
+        this.syncExecutor = new ThreadPoolExecutor(SYNC_THREADS, SYNC_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(SYNC_QUEUE_CAPACITY), ApolloThreadFactory.create("ItemSync", true),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.syncExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void destroy() {
+        syncExecutor.shutdownNow();
     }
 
 
@@ -185,26 +230,66 @@ public class ItemService {
         return item;
     }
 
-    public void syncItems(List<NamespaceIdentifier> comparedNamespaces, List<ItemDTO> sourceItems) {
-        List<ItemDiffs> itemDiffs = compare(comparedNamespaces, sourceItems);
-        for (ItemDiffs itemDiff : itemDiffs) {
-            NamespaceIdentifier namespaceIdentifier = itemDiff.getNamespace();
-            ItemChangeSets changeSets = itemDiff.getDiffs();
-            changeSets.setDataChangeLastModifiedBy(userInfoHolder.getUser().getUserId());
+    /**
+     * 同步配置项到多个命名空间
+     * <p>
+     * 按环境限制并发，每个命名空间比较出改变项后写入；单个命名空间失败不影响其它命名空间，
+     * 不存在的命名空间跳过，在结果中与失败分开说明
+     *
+     * @param comparedNamespaces 要同步到的命名空间
+     * @param sourceItems        要同步的项
+     * @return 每个命名空间的同步结果，顺序与传入的命名空间一致
+     */
+    public List<NamespaceSyncResult> syncItems(List<NamespaceIdentifier> comparedNamespaces,
+                                               List<ItemDTO> sourceItems) {
+        // 当前用户保存在请求线程中，需在提交任务前获取
+        String operator = userInfoHolder.getUser().getUserId();
+
+        List<NamespaceSyncResult> results = Lists.newArrayListWithCapacity(comparedNamespaces.size());
+        for (NamespaceIdentifier namespace : comparedNamespaces) {
+            results.add(new NamespaceSyncResult(namespace));
+        }
+
+        forEachInParallel(results, NamespaceSyncResult::getNamespace,
+                result -> syncNamespace(result, sourceItems, operator));
 
-            String appId = namespaceIdentifier.getAppId();
-            Env env = namespaceIdentifier.getEnv();
-            String clusterName = namespaceIdentifier.getClusterName();
-            String namespaceName = namespaceIdentifier.getNamespaceName();
+        return results;
+    }
+
+    /**
+     * 同步单个命名空间，结果记录在 result 中，不抛出异常
+     */
+    private void syncNamespace(NamespaceSyncResult result, List<ItemDTO> sourceItems, String operator) {
+        NamespaceIdentifier namespace = result.getNamespace();
+        String appId = namespace.getAppId();
+        Env env = namespace.getEnv();
+        String clusterName = namespace.getClusterName();
+        String namespaceName = namespace.getNamespaceName();
+        try {
+            ItemChangeSets changeSets = parseChangeSets(namespace, sourceItems);
+            if (changeSets.isEmpty()) {
+                result.setStatus(SyncStatus.UNCHANGED);
+                return;
+            }
+            changeSets.setDataChangeLastModifiedBy(operator);
 
             itemAPI.updateItemsByChangeSet(appId, env, clusterName, namespaceName, changeSets);
 
-            Tracer.logEvent(TracerEventType.SYNC_NAMESPACE, String.format("%s+%s+%s+%s", appId, env, clusterName,
-                    namespaceName));
+            Tracer.logEvent(TracerEventType.SYNC_NAMESPACE, String.format("%s+%s+%s+%s", appId, env,
+                    clusterName, namespaceName));
+            result.setStatus(SyncStatus.SYNCED);
+        } catch (BadRequestException e) {
+            // 目标命名空间不存在，不需要同步
+            result.setStatus(SyncStatus.NAMESPACE_NOT_FOUND);
+            result.setMessage(e.getMessage());
+        } catch (Throwable ex) {
+            logger.error("Sync items to {} failed", namespace, ex);
+            Tracer.logError(ex);
+            result.setStatus(SyncStatus.FAILED);
+            result.setMessage(ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName());
         }
     }
 
-
     public void revokeItem(String appId, Env env, String clusterName, String namespaceName) {
 
         NamespaceDTO namespace = namespaceAPI.loadNamespace(appId, env, clusterName, namespaceName);
@@ -255,25 +340,79 @@ public class ItemService {
                 namespaceName));
     }
 
+    /**
+     * 比较配置项与多个命名空间的区别，按环境限制并发
+     *
+     * @param comparedNamespaces 要比较的命名空间
+     * @param sourceItems        要同步的项
+     * @return 每个命名空间的改变项，顺序与传入的命名空间一致
+     */
     public List<ItemDiffs> compare(List<NamespaceIdentifier> comparedNamespaces, List<ItemDTO> sourceItems) {
 
-        List<ItemDiffs> result = new LinkedList<>();
-
+        List<ItemDiffs> result = Lists.newArrayListWithCapacity(comparedNamespaces.size());
         for (NamespaceIdentifier namespace : comparedNamespaces) {
+            result.add(new ItemDiffs(namespace));
+        }
 
-            ItemDiffs itemDiffs = new ItemDiffs(namespace);
+        forEachInParallel(result, ItemDiffs::getNamespace, itemDiffs -> {
+            NamespaceIdentifier namespace = itemDiffs.getNamespace();
             try {
                 itemDiffs.setDiffs(parseChangeSets(namespace, sourceItems));
             } catch (BadRequestException e) {
                 itemDiffs.setDiffs(new ItemChangeSets());
                 itemDiffs.setExtInfo("该集群下没有名为 " + namespace.getNamespaceName() + " 的namespace");
             }
-            result.add(itemDiffs);
-        }
+        });
 
         return result;
     }
 
+    /**
+     * 并发处理多个命名空间，每个环境同时处理的数量不超过上限，全部处理完后返回
+     * <p>
+     * 每个环境启动若干个任务，从该环境的队列中依次取出命名空间处理，任一处理失败时取消其它任务并抛出异常
+     *
+     * @param targets     要处理的对象
+     * @param namespaceOf 对象对应的命名空间
+     * @param action      处理单个对象，在同步线程中执行，不能依赖请求线程的 ThreadLocal
+     */
+    private <T> void forEachInParallel(List<T> targets, Function<T, NamespaceIdentifier> namespaceOf,
+                                       Consumer<T> action) {
+        Map<Env, Queue<T>> queues = Maps.newLinkedHashMap();
+        for (T target : targets) {
+            queues.computeIfAbsent(namespaceOf.apply(target).getEnv(), env -> new ConcurrentLinkedQueue<>())
+                    .add(target);
+        }
+
+        int parallelism = Math.max(portalConfig.itemSyncParallelismPerEnv(), 1);
+        List<Future<?>> futures = Lists.newArrayList();
+        for (Queue<T> queue : queues.values()) {
+            for (int i = Math.min(parallelism, queue.size()); i > 0; i--) {
+                futures.add(syncExecutor.submit(() -> {
+                    for (T target = queue.poll(); target != null; target = queue.poll()) {
+                        action.accept(target);
+                    }
+                }));
+            }
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new ServiceException("Interrupted while syncing items", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ServiceException("Sync items failed", e);
+        }
+    }
+
     private long getNamespaceId(NamespaceIdentifier namespaceIdentifier) {
         String appId = namespaceIdentifier.getAppId();
         String clusterName = namespaceIdentifier.getClusterName();
@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.portal.service;
 import com.ctrip.framework.apollo.common.constants.GsonType;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceDetailDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
@@ -10,6 +11,7 @@ import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.EnvFanOutExecutor;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.constant.RoleType;
@@ -26,8 +28,10 @@ import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.*;
 
@@ -47,6 +51,7 @@ public class NamespaceService {
     private final InstanceService instanceService;
     private final NamespaceBranchService branchService;
     private final RolePermissionService rolePermissionService;
+    private final EnvFanOutExecutor envFanOutExecutor;
 
     public NamespaceService(
             final PortalConfig portalConfig,
@@ -58,7 +63,8 @@ public class NamespaceService {
             final AppNamespaceService appNamespaceService,
             final InstanceService instanceService,
             final @Lazy NamespaceBranchService branchService,
-            final RolePermissionService rolePermissionService) {
+            final RolePermissionService rolePermissionService,
+            final EnvFanOutExecutor envFanOutExecutor) {
         this.portalConfig = portalConfig;
         this.portalSettings = portalSettings;
         this.userInfoHolder = userInfoHolder;
@@ -69,6 +75,7 @@ public class NamespaceService {
         this.instanceService = instanceService;
         this.branchService = branchService;
         this.rolePermissionService = rolePermissionService;
+        this.envFanOutExecutor = envFanOutExecutor;
     }
 
     /**
@@ -135,8 +142,42 @@ public class NamespaceService {
 
     /**
      * load cluster all namespace info with items
+     * <p>
+     * 优先通过 admin service 的命名空间详情接口一次获取整个集群的数据，
+     * 老版本的 admin service 不支持时退化为逐个命名空间查询
      */
     public List<NamespaceBO> findNamespaceBOs(String appId, Env env, String clusterName) {
+        List<NamespaceDetailDTO> namespaceDetails;
+        try {
+            namespaceDetails = namespaceAPI.findNamespaceDetailsByCluster(appId, env, clusterName);
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() != HttpStatus.NOT_FOUND) {
+                throw e;
+            }
+            return findNamespaceBOsOneByOne(appId, env, clusterName);
+        }
+        if (namespaceDetails == null || namespaceDetails.isEmpty()) {
+            throw new BadRequestException("namespaces not exist");
+        }
+
+        List<NamespaceBO> namespaceBOs = new LinkedList<>();
+        for (NamespaceDetailDTO namespaceDetail : namespaceDetails) {
+            try {
+                namespaceBOs.add(transformNamespaceDetail2BO(namespaceDetail));
+            } catch (Exception e) {
+                logger.error("parse namespace error. app id:{}, env:{}, clusterName:{}, namespace:{}",
+                        appId, env, clusterName, namespaceDetail.getBaseInfo().getNamespaceName(), e);
+                throw e;
+            }
+        }
+
+        return namespaceBOs;
+    }
+
+    /**
+     * 逐个命名空间查询并转换为bo
+     */
+    private List<NamespaceBO> findNamespaceBOsOneByOne(String appId, Env env, String clusterName) {
 
         List<NamespaceDTO> namespaces = namespaceAPI.findNamespaceByCluster(appId, env, clusterName);
         if (namespaces == null || namespaces.size() == 0) {
@@ -205,12 +246,24 @@ public class NamespaceService {
         Map<String, Map<String, Boolean>> result = Maps.newHashMap();
 
         Set<Env> envs = portalConfig.publishTipsSupportedEnvs();
+        List<Env> activeEnvs = new LinkedList<>();
         for (Env env : envs) {
             if (portalSettings.isEnvActive(env)) {
-                result.put(env.toString(), namespaceAPI.getNamespacePublishInfo(env, appId));
+                activeEnvs.add(env);
             }
         }
 
+        // 并发请求各环境，失败或超时的环境不返回发布提示
+        envFanOutExecutor.invokeAll(activeEnvs, env -> namespaceAPI.getNamespacePublishInfo(env, appId))
+                .forEach((env, publishInfo) -> {
+                    if (publishInfo.isSuccess()) {
+                        result.put(env.toString(), publishInfo.getValue());
+                    } else {
+                        logger.error("load namespace publish info error. app id:{}, env:{}", appId, env,
+                                publishInfo.getError());
+                    }
+                });
+
         return result;
     }
 
@@ -218,21 +271,13 @@ public class NamespaceService {
      * 转换dto为bo
      */
     private NamespaceBO transformNamespace2BO(Env env, NamespaceDTO namespace) {
-        NamespaceBO namespaceBO = new NamespaceBO();
-        // 基本的命名空间dto信息
-        namespaceBO.setBaseInfo(namespace);
-
         String appId = namespace.getAppId();
         String clusterName = namespace.getClusterName();
         String namespaceName = namespace.getNamespaceName();
 
-        // 填充命名空间bo属性
-        fillAppNamespaceProperties(namespaceBO);
-
         // 最新的命名空间发布配置dto
         ReleaseDTO latestRelease;
         Map<String, String> releaseItems = new HashMap<>();
-        Map<String, ItemDTO> deletedItemDTOs = new HashMap<>();
         latestRelease = releaseService.loadLatestRelease(appId, env, clusterName, namespaceName);
         if (latestRelease != null) {
             releaseItems = gson.fromJson(latestRelease.getConfigurations(), GsonType.CONFIG);
@@ -240,6 +285,43 @@ public class NamespaceService {
 
         // 获取最新的配置项
         List<ItemDTO> items = itemService.findItems(appId, env, clusterName, namespaceName);
+        // 获取删除的项
+        List<ItemDTO> deletedItems = itemService.findDeletedItems(appId, env, clusterName, namespaceName);
+
+        return assembleNamespaceBO(namespace, items, releaseItems, deletedItems);
+    }
+
+    /**
+     * 转换命名空间详情为bo
+     */
+    private NamespaceBO transformNamespaceDetail2BO(NamespaceDetailDTO namespaceDetail) {
+        Map<String, String> releaseItems = namespaceDetail.getReleaseConfigurations();
+        List<ItemDTO> items = namespaceDetail.getItems();
+        List<ItemDTO> deletedItems = namespaceDetail.getDeletedItems();
+        return assembleNamespaceBO(namespaceDetail.getBaseInfo(),
+                items == null ? Collections.emptyList() : items,
+                releaseItems == null ? new HashMap<>() : releaseItems,
+                deletedItems == null ? Collections.emptyList() : deletedItems);
+    }
+
+    /**
+     * 根据项、已发布的配置和已删除的项组装bo，计算修改状态
+     *
+     * @param namespace    命名空间dto
+     * @param items        最新的配置项
+     * @param releaseItems 最后发布的配置
+     * @param deletedItems 已删除的项
+     * @return 命名空间bo
+     */
+    private NamespaceBO assembleNamespaceBO(NamespaceDTO namespace, List<ItemDTO> items,
+                                            Map<String, String> releaseItems, List<ItemDTO> deletedItems) {
+        NamespaceBO namespaceBO = new NamespaceBO();
+        // 基本的命名空间dto信息
+        namespaceBO.setBaseInfo(namespace);
+
+        // 填充命名空间bo属性
+        fillAppNamespaceProperties(namespaceBO);
+
         int modifiedItemCnt = 0;
         List<ItemBO> itemBOs = new LinkedList<>();
         namespaceBO.setItems(itemBOs);
@@ -255,14 +337,15 @@ public class NamespaceService {
             itemBOs.add(itemBO);
         }
 
-        //获取删除的项，添加到已删除的dto map集合中
-        itemService.findDeletedItems(appId, env, clusterName, namespaceName).forEach(item -> {
+        //添加到已删除的dto map集合中
+        Map<String, ItemDTO> deletedItemDTOs = new HashMap<>();
+        deletedItems.forEach(item -> {
             deletedItemDTOs.put(item.getKey(), item);
         });
         // 解析已删除项，变更为bo，增加修改次数
-        List<ItemBO> deletedItems = parseDeletedItems(items, releaseItems, deletedItemDTOs);
-        itemBOs.addAll(deletedItems);
-        modifiedItemCnt += deletedItems.size();
+        List<ItemBO> deletedItemBOs = parseDeletedItems(items, releaseItems, deletedItemDTOs);
+        itemBOs.addAll(deletedItemBOs);
+        modifiedItemCnt += deletedItemBOs.size();
 
         // 设置命名空间bo的最终修改次数
         namespaceBO.setItemModifiedCnt(modifiedItemCnt);
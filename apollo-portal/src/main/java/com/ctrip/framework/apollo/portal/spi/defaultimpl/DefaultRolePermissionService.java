@@ -13,25 +13,37 @@ import com.ctrip.framework.apollo.portal.repository.RoleRepository;
 import com.ctrip.framework.apollo.portal.repository.UserRoleRepository;
 import com.ctrip.framework.apollo.portal.service.RolePermissionService;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 /**
  * 角色权限服务实现类
  * <p>
+ * 用户通过角色拥有的权限一次查询加载为快照并缓存，同一个页面的多次权限校验只查询一次数据库；
+ * 分配、移除角色和删除权限时使缓存失效。
+ * <p>
  * Created by timothy on 2017/4/26.
  */
 public class DefaultRolePermissionService implements RolePermissionService {
 
+    private static final int MAX_CACHED_USERS = 10000;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -50,6 +62,19 @@ public class DefaultRolePermissionService implements RolePermissionService {
     @Autowired
     private ConsumerRoleRepository consumerRoleRepository;
 
+    /**
+     * 用户id -> 用户拥有的权限（权限类型+目标id）
+     */
+    private Cache<String, Set<String>> userPermissionCache;
+
+    @PostConstruct
+    private void initialize() {
+        userPermissionCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(Math.max(portalConfig.permissionCacheExpireSeconds(), 0), TimeUnit.SECONDS)
+                .maximumSize(MAX_CACHED_USERS)
+                .build();
+    }
+
     @Transactional
     @Override
     public Role createRoleWithPermissions(Role role, Set<Long> permissionIds) {
@@ -92,7 +117,7 @@ public class DefaultRolePermissionService implements RolePermissionService {
                 .collect(Collectors.toSet());
 
         // 去除已拥有的角色，获取要添加的用户id
-        Set<String> toAssignUserIds = Sets.difference(userIds, existedUserIds);
+        Set<String> toAssignUserIds = Sets.newHashSet(Sets.difference(userIds, existedUserIds));
 
         // 要创建的用户角色集合
         Iterable<UserRole> toCreate = toAssignUserIds.stream()
@@ -105,6 +130,7 @@ public class DefaultRolePermissionService implements RolePermissionService {
                     return userRole;
                 }).collect(Collectors.toList());
         userRoleRepository.saveAll(toCreate);
+        invalidateUserPermissions(toAssignUserIds);
 
         // 返回本次添加的用户id
         return toAssignUserIds;
@@ -128,6 +154,7 @@ public class DefaultRolePermissionService implements RolePermissionService {
             userRole.setDataChangeLastModifiedBy(operatorUserId);
         }
         userRoleRepository.saveAll(existedUserRoles);
+        invalidateUserPermissions(userIds);
     }
 
     @Override
@@ -158,42 +185,66 @@ public class DefaultRolePermissionService implements RolePermissionService {
 
     @Override
     public boolean userHasPermission(String userId, String permissionType, String targetId) {
-        // 通过权限类型和目标id查找权限
-        Permission permission =
-                permissionRepository.findTopByPermissionTypeAndTargetId(permissionType, targetId);
-        // 未查找到权限
-        if (permission == null) {
-            return false;
-        }
-
-        // 超级用户
+        // 超级用户，只要权限存在即拥有
         if (isSuperAdmin(userId)) {
-            return true;
+            return permissionRepository.findTopByPermissionTypeAndTargetId(permissionType, targetId) != null;
         }
 
-        // 查找用户角色，如果用户无角色，则未查找到
-        List<UserRole> userRoles = userRoleRepository.findByUserId(userId);
-        if (CollectionUtils.isEmpty(userRoles)) {
-            return false;
-        }
+        // 判断用户的权限快照是否包含要查找的权限
+        return findUserPermissions(userId).contains(permissionKey(permissionType, targetId));
+    }
 
-        // 查找角色对应的权限
-        Set<Long> roleIds = userRoles.stream()
-                .map(UserRole::getRoleId)
-                .collect(Collectors.toSet());
-        List<RolePermission> rolePermissions = rolePermissionRepository.findByRoleIdIn(roleIds);
-        if (CollectionUtils.isEmpty(rolePermissions)) {
-            return false;
+    /**
+     * 查找用户通过角色拥有的权限，优先从缓存获取
+     *
+     * @param userId 用户id
+     * @return 权限类型+目标id集合
+     */
+    private Set<String> findUserPermissions(String userId) {
+        try {
+            return userPermissionCache.get(normalize(userId), () -> {
+                Set<String> permissions = Sets.newHashSet();
+                for (Permission permission : permissionRepository.findByUserId(userId)) {
+                    permissions.add(permissionKey(permission.getPermissionType(), permission.getTargetId()));
+                }
+                return permissions;
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(String.format("Load permissions of user %s failed", userId),
+                    e.getCause());
         }
+    }
 
-        // 遍历判断角色拥有的权限，是否和要查找的权限id相符合
-        for (RolePermission rolePermission : rolePermissions) {
-            if (rolePermission.getPermissionId() == permission.getId()) {
-                return true;
-            }
-        }
+    /**
+     * 权限表按不区分大小写的排序规则匹配目标id，快照中也统一转为小写后比较
+     */
+    private String permissionKey(String permissionType, String targetId) {
+        return permissionType + "#" + normalize(targetId);
+    }
 
-        return false;
+    private String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 使用户的权限快照失效，事务提交后再失效一次，避免并发请求在提交前重新加载旧的权限
+     *
+     * @param userIds 用户id集合，为 null 时全部失效
+     */
+    private void invalidateUserPermissions(Collection<String> userIds) {
+        Runnable invalidation = userIds == null
+                ? userPermissionCache::invalidateAll
+                : () -> userPermissionCache.invalidateAll(
+                        userIds.stream().map(this::normalize).collect(Collectors.toSet()));
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        }
     }
 
     @Override
@@ -279,6 +330,8 @@ public class DefaultRolePermissionService implements RolePermissionService {
             // 假删除第三方角色
             consumerRoleRepository.batchDeleteByRoleIds(roleIds, operator);
         }
+
+        invalidateUserPermissions(null);
     }
 
     @Transactional
@@ -308,5 +361,7 @@ public class DefaultRolePermissionService implements RolePermissionService {
             // 假删除第三方角色
             consumerRoleRepository.batchDeleteByRoleIds(roleIds, operator);
         }
+
+        invalidateUserPermissions(null);
     }
 }
@@ -149,8 +149,12 @@ sync_item_module.controller("SyncItemController",
                 ConfigService.sync_items($scope.pageContext.appId,
                     $scope.pageContext.namespaceName,
                     syncData).then(function (result) {
+                        // 单个集群同步失败不影响其它集群，逐个展示同步结果
+                        $scope.syncResults = result;
                         $scope.syncItemStep += 1;
-                        $scope.syncSuccess = true;
+                        $scope.syncSuccess = result.every(function (syncResult) {
+                            return syncResult.status != 'FAILED';
+                        });
                         $scope.syncBtnDisabled = false;
                     }, function (result) {
                         $scope.syncSuccess = false;
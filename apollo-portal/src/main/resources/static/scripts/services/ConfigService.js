@@ -32,7 +32,7 @@ appService.service("ConfigService", ['$resource', '$q', 'AppUtil', function ($re
         sync_item: {
             method: 'PUT',
             url: AppUtil.prefixPath() + '/apps/:appId/namespaces/:namespaceName/items',
-            isArray: false
+            isArray: true
         },
         create_item: {
             method: 'POST',
@@ -17,6 +17,8 @@ import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
@@ -80,4 +82,20 @@ public class ConsumerAuditUtilTest {
         assertEquals(someConsumerId, audit.getConsumerId());
     }
 
+    @Test
+    public void auditDroppedWhenQueueIsFull() throws Exception {
+        ConsumerAuditUtil notStartedAuditUtil = new ConsumerAuditUtil(consumerService);
+        long someConsumerId = 1;
+
+        when(request.getRequestURI()).thenReturn("someUri");
+        when(request.getMethod()).thenReturn("POST");
+
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(notStartedAuditUtil.audit(request, someConsumerId));
+        }
+        assertFalse(notStartedAuditUtil.audit(request, someConsumerId));
+
+        assertEquals(1, notStartedAuditUtil.getDroppedAudits());
+    }
+
 }
@@ -1,6 +1,5 @@
 package com.ctrip.framework.apollo.openapi.util;
 
-import com.ctrip.framework.apollo.openapi.service.ConsumerService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -19,13 +18,13 @@ import static org.mockito.Mockito.*;
 public class ConsumerAuthUtilTest {
   private ConsumerAuthUtil consumerAuthUtil;
   @Mock
-  private ConsumerService consumerService;
+  private ConsumerTokenCache consumerTokenCache;
   @Mock
   private HttpServletRequest request;
 
   @Before
   public void setUp() throws Exception {
-    consumerAuthUtil = new ConsumerAuthUtil(consumerService);
+    consumerAuthUtil = new ConsumerAuthUtil(consumerTokenCache);
   }
 
   @Test
@@ -33,10 +32,10 @@ public class ConsumerAuthUtilTest {
     String someToken = "someToken";
     Long someConsumerId = 1L;
 
-    when(consumerService.getConsumerIdByToken(someToken)).thenReturn(someConsumerId);
+    when(consumerTokenCache.getConsumerId(someToken)).thenReturn(someConsumerId);
 
     assertEquals(someConsumerId, consumerAuthUtil.getConsumerId(someToken));
-    verify(consumerService, times(1)).getConsumerIdByToken(someToken);
+    verify(consumerTokenCache, times(1)).getConsumerId(someToken);
   }
 
   @Test
@@ -0,0 +1,128 @@
+package com.ctrip.framework.apollo.openapi.util;
+
+import com.ctrip.framework.apollo.openapi.entity.ConsumerToken;
+import com.ctrip.framework.apollo.openapi.repository.ConsumerTokenRepository;
+import com.ctrip.framework.apollo.portal.AbstractUnitTest;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConsumerTokenCacheTest extends AbstractUnitTest {
+
+  @Mock
+  private ConsumerTokenRepository consumerTokenRepository;
+  @Mock
+  private PortalConfig portalConfig;
+
+  private ConsumerTokenCache consumerTokenCache;
+
+  private String someToken = "someToken";
+  private long someConsumerId = 1;
+
+  @Before
+  public void setUp() throws Exception {
+    when(portalConfig.consumerTokenCacheRefreshInterval()).thenReturn(60);
+    consumerTokenCache = new ConsumerTokenCache(consumerTokenRepository, portalConfig);
+  }
+
+  @Test
+  public void testGetConsumerIdFromCache() throws Exception {
+    String someExpiredToken = "someExpiredToken";
+    when(consumerTokenRepository.findAll()).thenReturn(Lists.newArrayList(
+        assembleToken(1, someToken, someConsumerId, new Date(System.currentTimeMillis() + 60000)),
+        assembleToken(2, someExpiredToken, 2, new Date(System.currentTimeMillis() - 1000))));
+
+    consumerTokenCache.refresh();
+
+    assertEquals(someConsumerId, consumerTokenCache.getConsumerId(someToken).longValue());
+    assertNull(consumerTokenCache.getConsumerId(someExpiredToken));
+    assertNull(consumerTokenCache.getConsumerId(null));
+    verify(consumerTokenRepository, never()).findTopByTokenAndExpiresAfter(anyString(), any(Date.class));
+  }
+
+  @Test
+  public void testInvalidTokenIsCached() throws Exception {
+    String someInvalidToken = "someInvalidToken";
+    when(consumerTokenRepository.findAll()).thenReturn(Collections.emptyList());
+
+    consumerTokenCache.refresh();
+
+    assertNull(consumerTokenCache.getConsumerId(someInvalidToken));
+    assertNull(consumerTokenCache.getConsumerId(someInvalidToken));
+    verify(consumerTokenRepository, times(1)).findTopByTokenAndExpiresAfter(anyString(), any(Date.class));
+  }
+
+  @Test
+  public void testIncrementalRefresh() throws Exception {
+    Date someModifiedTime = new Date(System.currentTimeMillis() - 60000);
+    ConsumerToken someConsumerToken = assembleToken(1, "anotherToken", 2,
+        new Date(System.currentTimeMillis() + 60000));
+    someConsumerToken.setDataChangeLastModifiedTime(someModifiedTime);
+    when(consumerTokenRepository.findAll()).thenReturn(Lists.newArrayList(someConsumerToken));
+
+    consumerTokenCache.refresh();
+
+    // created by another portal instance before the refresh
+    assertNull(consumerTokenCache.getConsumerId(someToken));
+
+    ConsumerToken newConsumerToken = assembleToken(2, someToken, someConsumerId,
+        new Date(System.currentTimeMillis() + 60000));
+    newConsumerToken.setDataChangeLastModifiedTime(new Date());
+    when(consumerTokenRepository.findChangedIncludingDeleted(someModifiedTime))
+        .thenReturn(Lists.newArrayList(newConsumerToken));
+
+    consumerTokenCache.refresh();
+
+    assertEquals(someConsumerId, consumerTokenCache.getConsumerId(someToken).longValue());
+    verify(consumerTokenRepository, times(1)).findAll();
+    verify(consumerTokenRepository, times(1)).findTopByTokenAndExpiresAfter(anyString(), any(Date.class));
+  }
+
+  @Test
+  public void testDeletedTokenIsEvictedByIncrementalRefresh() throws Exception {
+    Date someModifiedTime = new Date(System.currentTimeMillis() - 60000);
+    ConsumerToken someConsumerToken = assembleToken(1, someToken, someConsumerId,
+        new Date(System.currentTimeMillis() + 60000));
+    someConsumerToken.setDataChangeLastModifiedTime(someModifiedTime);
+    when(consumerTokenRepository.findAll()).thenReturn(Lists.newArrayList(someConsumerToken));
+
+    consumerTokenCache.refresh();
+
+    assertEquals(someConsumerId, consumerTokenCache.getConsumerId(someToken).longValue());
+
+    ConsumerToken deletedConsumerToken = assembleToken(1, someToken, someConsumerId,
+        new Date(System.currentTimeMillis() + 60000));
+    deletedConsumerToken.setDeleted(true);
+    deletedConsumerToken.setDataChangeLastModifiedTime(new Date());
+    when(consumerTokenRepository.findChangedIncludingDeleted(someModifiedTime))
+        .thenReturn(Lists.newArrayList(deletedConsumerToken));
+
+    consumerTokenCache.refresh();
+
+    assertNull(consumerTokenCache.getConsumerId(someToken));
+    verify(consumerTokenRepository, times(1)).findAll();
+  }
+
+  private ConsumerToken assembleToken(long id, String token, long consumerId, Date expires) {
+    ConsumerToken consumerToken = new ConsumerToken();
+    consumerToken.setId(id);
+    consumerToken.setToken(token);
+    consumerToken.setConsumerId(consumerId);
+    consumerToken.setExpires(expires);
+    return consumerToken;
+  }
+}
@@ -8,15 +8,19 @@ import static org.mockito.Mockito.when;
 import com.ctrip.framework.apollo.common.exception.ServiceException;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 import com.ctrip.framework.apollo.portal.component.AdminServiceAddressLocator;
+import com.ctrip.framework.apollo.portal.component.HttpRequestAborter;
 import com.ctrip.framework.apollo.portal.component.RetryableRestTemplate;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.environment.PortalMetaDomainService;
 import java.net.SocketTimeoutException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 import org.apache.http.HttpHost;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.HttpHostConnectException;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -24,6 +28,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
@@ -56,6 +61,13 @@ public class RetryableRestTemplateTest extends AbstractUnitTest {
     httpHostConnectException
         .initCause(new HttpHostConnectException(new ConnectTimeoutException(), new HttpHost(serviceOne, 80)));
     connectTimeoutException.initCause(new ConnectTimeoutException());
+
+    ReflectionTestUtils.setField(retryableRestTemplate, "restTemplate", restTemplate);
+  }
+
+  @After
+  public void tearDown() {
+    retryableRestTemplate.destroy();
   }
 
   @Test(expected = ServiceException.class)
@@ -138,6 +150,48 @@ public class RetryableRestTemplateTest extends AbstractUnitTest {
     verify(restTemplate).put(serviceOne + "/" + path, request);
   }
 
+  @Test
+  public void testHedgeSlowGet() {
+    Object result = new Object();
+    when(serviceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo), mockService(serviceThree)));
+    HttpGet slowRequest = new HttpGet(serviceOne + "/" + path);
+    when(restTemplate.getForObject(serviceOne + "/" + path, Object.class)).thenAnswer(invocation -> {
+      // the successful hedged request aborts the slow request on the calling thread
+      HttpRequestAborter.register(slowRequest);
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (!slowRequest.isAborted() && System.currentTimeMillis() < deadline) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+      throw new ResourceAccessException("aborted");
+    });
+    when(restTemplate.getForObject(serviceTwo + "/" + path, Object.class)).thenReturn(result);
+
+    long start = System.currentTimeMillis();
+    Object o = retryableRestTemplate.get(Env.DEV, path, Object.class);
+
+    Assert.assertEquals(result, o);
+    Assert.assertTrue(System.currentTimeMillis() - start < TimeUnit.SECONDS.toMillis(5));
+    Assert.assertTrue(slowRequest.isAborted());
+    verify(restTemplate, times(0)).getForObject(serviceThree + "/" + path, Object.class);
+  }
+
+  @Test
+  public void testFailedServerIsTriedLast() {
+    Object result = new Object();
+    when(serviceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo)));
+    when(restTemplate.getForObject(serviceOne + "/" + path, Object.class)).thenThrow(connectTimeoutException);
+    when(restTemplate.getForObject(serviceTwo + "/" + path, Object.class)).thenReturn(result);
+
+    retryableRestTemplate.get(Env.DEV, path, Object.class);
+    Object o = retryableRestTemplate.get(Env.DEV, path, Object.class);
+
+    Assert.assertEquals(result, o);
+    verify(restTemplate, times(1)).getForObject(serviceOne + "/" + path, Object.class);
+    verify(restTemplate, times(2)).getForObject(serviceTwo + "/" + path, Object.class);
+  }
+
   private ServiceDTO mockService(String homeUrl) {
     ServiceDTO serviceDTO = new ServiceDTO();
     serviceDTO.setHomepageUrl(homeUrl);
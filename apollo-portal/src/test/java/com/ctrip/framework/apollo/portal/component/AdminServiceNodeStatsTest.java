@@ -0,0 +1,52 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AdminServiceNodeStatsTest {
+
+  @Test
+  public void testCircuitOpenAndHalfOpenProbe() {
+    AdminServiceNodeStats stats = new AdminServiceNodeStats();
+    long now = 1000;
+
+    assertFalse(stats.recordFailure(now));
+    assertFalse(stats.recordFailure(now));
+    assertTrue(stats.recordFailure(now));
+    assertTrue(stats.isOpen());
+
+    assertFalse(stats.allowRequest(now + 1));
+
+    long probeTime = now + AdminServiceNodeStats.OPEN_DURATION_IN_MILLI;
+    assertTrue(stats.allowRequest(probeTime));
+    // only one probe until the probe result comes back
+    assertFalse(stats.allowRequest(probeTime + 1));
+
+    stats.recordFailure(probeTime + 2);
+    assertFalse(stats.allowRequest(probeTime + 3));
+
+    stats.recordSuccess(10);
+    assertTrue(stats.allowRequest(probeTime + 4));
+    assertFalse(stats.isOpen());
+    assertEquals(0, stats.consecutiveFailures());
+  }
+
+  @Test
+  public void testLatencyPercentile() {
+    AdminServiceNodeStats stats = new AdminServiceNodeStats();
+    stats.recordSuccess(100);
+
+    assertEquals(-1, stats.latencyPercentile(0.95));
+    assertEquals(100, stats.averageLatency());
+
+    for (int i = 1; i <= 100; i++) {
+      stats.recordSuccess(i);
+    }
+
+    assertEquals(95, stats.latencyPercentile(0.95));
+    assertEquals(50, stats.averageLatency());
+  }
+}
@@ -0,0 +1,104 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.common.dto.PageDTO;
+import com.ctrip.framework.apollo.common.entity.App;
+import com.ctrip.framework.apollo.portal.AbstractUnitTest;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.listener.AppCreationEvent;
+import com.ctrip.framework.apollo.portal.listener.AppDeletionEvent;
+import com.ctrip.framework.apollo.portal.listener.AppInfoChangedEvent;
+import com.ctrip.framework.apollo.portal.repository.AppRepository;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+public class AppSearchIndexTest extends AbstractUnitTest {
+  @Mock
+  private AppRepository appRepository;
+  @Mock
+  private PortalConfig portalConfig;
+
+  private AppSearchIndex appSearchIndex;
+
+  @Before
+  public void setUp() throws Exception {
+    appSearchIndex = new AppSearchIndex(appRepository, portalConfig);
+
+    when(appRepository.findAll()).thenReturn(Lists.newArrayList(
+        assembleApp("order-service", "Order Service", "someOwner"),
+        assembleApp("order", "Order", "anotherOwner"),
+        assembleApp("payment", "Payment for orders", "someOwner"),
+        assembleApp("user-service", "User", "anotherOwner")));
+  }
+
+  @Test
+  public void testSearchRankedAndPaged() throws Exception {
+    assertFalse(appSearchIndex.isReady());
+
+    appSearchIndex.rebuild();
+
+    assertTrue(appSearchIndex.isReady());
+
+    PageDTO<App> result = appSearchIndex.search("ORDER", PageRequest.of(0, 2));
+    assertEquals(3, result.getTotal());
+    assertEquals(Lists.newArrayList("order", "order-service"), appIds(result.getContent()));
+
+    result = appSearchIndex.search("order", PageRequest.of(1, 2));
+    assertEquals(Lists.newArrayList("payment"), appIds(result.getContent()));
+
+    assertEquals(Lists.newArrayList("order-service", "user-service"),
+        appIds(appSearchIndex.search("-serv", PageRequest.of(0, 10)).getContent()));
+    assertEquals(0, appSearchIndex.search("someMissingApp", PageRequest.of(0, 10)).getTotal());
+
+    assertEquals(Lists.newArrayList("order-service", "payment"),
+        appIds(appSearchIndex.findByOwnerName("someOwner", PageRequest.of(0, 10))));
+  }
+
+  @Test
+  public void testIncrementalChanges() throws Exception {
+    appSearchIndex.rebuild();
+
+    App someNewApp = assembleApp("order-admin", "Order Admin", "someOwner");
+    appSearchIndex.onAppCreation(new AppCreationEvent(someNewApp));
+    appSearchIndex.onAppInfoChange(new AppInfoChangedEvent(assembleApp("payment", "Payment", "someOwner")));
+    appSearchIndex.onAppDeletion(new AppDeletionEvent(assembleApp("order", "Order", "anotherOwner")));
+
+    assertEquals(Lists.newArrayList("order-admin", "order-service"),
+        appIds(appSearchIndex.search("order", PageRequest.of(0, 10)).getContent()));
+    assertEquals(Lists.newArrayList("order-admin", "order-service", "payment"),
+        appIds(appSearchIndex.findByOwnerName("someOwner", PageRequest.of(0, 10))));
+
+    // the changes are in the database when the index is rebuilt
+    when(appRepository.findAll()).thenReturn(Lists.newArrayList(
+        assembleApp("order-service", "Order Service", "someOwner"),
+        someNewApp,
+        assembleApp("payment", "Payment", "someOwner"),
+        assembleApp("user-service", "User", "anotherOwner")));
+    appSearchIndex.rebuild();
+
+    assertEquals(Lists.newArrayList("order-admin", "order-service"),
+        appIds(appSearchIndex.search("order", PageRequest.of(0, 10)).getContent()));
+  }
+
+  private List<String> appIds(List<App> apps) {
+    return apps.stream().map(App::getAppId).collect(Collectors.toList());
+  }
+
+  private App assembleApp(String appId, String name, String ownerName) {
+    App app = new App();
+    app.setAppId(appId);
+    app.setName(name);
+    app.setOwnerName(ownerName);
+    return app;
+  }
+}
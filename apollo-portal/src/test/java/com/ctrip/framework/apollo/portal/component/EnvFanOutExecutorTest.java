@@ -0,0 +1,111 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.common.exception.ServiceException;
+import com.ctrip.framework.apollo.portal.AbstractUnitTest;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.environment.Env;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class EnvFanOutExecutorTest extends AbstractUnitTest {
+  @Mock
+  private PortalConfig portalConfig;
+
+  private EnvFanOutExecutor envFanOutExecutor;
+
+  private List<Env> someEnvs;
+
+  @Before
+  public void setUp() throws Exception {
+    envFanOutExecutor = new EnvFanOutExecutor(portalConfig);
+    someEnvs = Lists.newArrayList(Env.DEV, Env.FAT, Env.UAT);
+    when(portalConfig.fanOutTimeout(any(Env.class))).thenReturn(500);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    envFanOutExecutor.destroy();
+  }
+
+  @Test
+  public void testInvokeAllWithSlowAndFailedEnvs() throws Exception {
+    String someValue = "someValue";
+
+    long start = System.currentTimeMillis();
+    Map<Env, EnvFanOutExecutor.Result<String>> results = envFanOutExecutor.invokeAll(someEnvs, env -> {
+      if (env == Env.FAT) {
+        try {
+          TimeUnit.SECONDS.sleep(5);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if (env == Env.UAT) {
+        throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+      }
+      return someValue;
+    });
+
+    assertTrue(System.currentTimeMillis() - start < 5000);
+    assertEquals(someEnvs, Lists.newArrayList(results.keySet()));
+    assertEquals(someValue, results.get(Env.DEV).getValue());
+    assertTrue(results.get(Env.FAT).getError() instanceof ServiceException);
+    assertTrue(results.get(Env.UAT).getError() instanceof HttpClientErrorException);
+  }
+
+  @Test
+  public void testSkipEnvWithOpenCircuit() throws Exception {
+    AtomicInteger invocations = new AtomicInteger();
+    List<Env> envs = Lists.newArrayList(Env.DEV);
+
+    for (int i = 0; i < 3; i++) {
+      envFanOutExecutor.invokeAll(envs, env -> {
+        invocations.incrementAndGet();
+        throw new ServiceException("Admin servers are unresponsive");
+      });
+    }
+    assertTrue(envFanOutExecutor.isCircuitOpen(Env.DEV));
+
+    Map<Env, EnvFanOutExecutor.Result<String>> results = envFanOutExecutor.invokeAll(envs, env -> {
+      invocations.incrementAndGet();
+      return "someValue";
+    });
+
+    assertFalse(results.get(Env.DEV).isSuccess());
+    assertEquals(3, invocations.get());
+
+    results = envFanOutExecutor.invokeAll(envs, env -> "someValue", false);
+
+    assertTrue(results.get(Env.DEV).isSuccess());
+    assertFalse(envFanOutExecutor.isCircuitOpen(Env.DEV));
+  }
+
+  @Test
+  public void testClientErrorNotOpenCircuit() throws Exception {
+    List<Env> envs = Lists.newArrayList(Env.DEV);
+
+    for (int i = 0; i < 5; i++) {
+      envFanOutExecutor.invokeAll(envs, env -> {
+        throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+      });
+    }
+
+    assertFalse(envFanOutExecutor.isCircuitOpen(Env.DEV));
+  }
+}
@@ -0,0 +1,145 @@
+package com.ctrip.framework.apollo.portal.component.txtresolver;
+
+import com.ctrip.framework.apollo.common.dto.ItemDTO;
+import com.ctrip.framework.apollo.portal.component.ItemsComparator;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves text edits of large generated properties namespaces with {@link PropertyResolver},
+ * and syncs them with {@link ItemsComparator}.
+ * <p>
+ * Every 10th line is a comment and every 25th line is blank. The edit inserts a comment on top, so every line
+ * moves, changes 1% of the values, removes 1% of the keys and appends 1% new keys.
+ * <p>
+ * Run with {@code main} from the IDE, or {@code java -cp <test classpath> org.openjdk.jmh.Main PropertyResolverBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyResolverBenchmark {
+
+  @Param({"5000", "20000"})
+  private int lines;
+
+  private PropertyResolver propertyResolver = new PropertyResolver();
+  private ItemsComparator itemsComparator = new ItemsComparator();
+
+  private List<ItemDTO> baseItems;
+  private String unchangedText;
+  private String editedText;
+
+  @Setup
+  public void setUp() {
+    baseItems = generateItems(lines);
+
+    StringBuilder unchanged = new StringBuilder();
+    StringBuilder edited = new StringBuilder("# edited\n");
+    for (ItemDTO item : baseItems) {
+      String line = toLine(item);
+      unchanged.append(line).append('\n');
+
+      int lineNum = item.getLineNum();
+      if (item.getKey().isEmpty()) {
+        edited.append(line).append('\n');
+      } else if (lineNum % 100 == 1) {
+        edited.append(item.getKey()).append(" = changed").append(lineNum).append('\n');
+      } else if (lineNum % 100 != 3) {
+        edited.append(line).append('\n');
+      }
+    }
+    for (int i = 0; i < lines / 100; i++) {
+      edited.append("new.key").append(i).append(" = value").append(i).append('\n');
+    }
+    unchangedText = unchanged.toString();
+    editedText = edited.toString();
+  }
+
+  @Benchmark
+  public Object resolveUnchanged() {
+    return propertyResolver.resolve(1, unchangedText, baseItems);
+  }
+
+  @Benchmark
+  public Object resolveEdited() {
+    return propertyResolver.resolve(1, editedText, baseItems);
+  }
+
+  @Benchmark
+  public Object compareItems(SyncState state) {
+    return itemsComparator.compareIgnoreBlankAndCommentItem(1, state.baseItems, state.targetItems);
+  }
+
+  /**
+   * {@link ItemsComparator} updates the base items in place, so they are regenerated for every invocation
+   */
+  @State(Scope.Thread)
+  public static class SyncState {
+    private List<ItemDTO> baseItems;
+    private List<ItemDTO> targetItems;
+
+    @Setup(Level.Invocation)
+    public void setUp(PropertyResolverBenchmark benchmark) {
+      baseItems = generateItems(benchmark.lines);
+      targetItems = Lists.newArrayListWithCapacity(baseItems.size());
+      for (ItemDTO item : generateItems(benchmark.lines)) {
+        if (item.getLineNum() % 100 == 1) {
+          item.setValue("changed");
+        }
+        if (item.getLineNum() % 100 != 3) {
+          targetItems.add(item);
+        }
+      }
+    }
+  }
+
+  private static List<ItemDTO> generateItems(int lines) {
+    List<ItemDTO> items = Lists.newArrayListWithCapacity(lines);
+    for (int lineNum = 1; lineNum <= lines; lineNum++) {
+      ItemDTO item;
+      if (lineNum % 10 == 0) {
+        item = new ItemDTO("", "", "# comment " + lineNum, lineNum);
+      } else if (lineNum % 25 == 0) {
+        item = new ItemDTO("", "", "", lineNum);
+      } else {
+        item = new ItemDTO("some.key" + lineNum, "someValue" + lineNum, "", lineNum);
+      }
+      item.setId(lineNum);
+      items.add(item);
+    }
+    return items;
+  }
+
+  private static String toLine(ItemDTO item) {
+    if (item.getKey().isEmpty()) {
+      return item.getComment();
+    }
+    return item.getKey() + " = " + item.getValue();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(PropertyResolverBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -9,6 +9,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -139,6 +140,42 @@ public class PropertyResolverTest extends AbstractUnitTest {
         Assert.assertEquals(2, changeSets.getUpdateItems().size());
     }
 
+    @Test
+    public void testDeleteBlankItemAfterLastLine() {
+        ItemChangeSets changeSets = resolver.resolve(1, "#qqqq\na=b\n", mockBaseItemWith2Key1Comment1Blank());
+        Assert.assertEquals(0, changeSets.getCreateItems().size());
+        Assert.assertEquals(0, changeSets.getUpdateItems().size());
+        Assert.assertEquals(2, changeSets.getDeleteItems().size());
+    }
+
+    @Test
+    public void testLargeNamespace() {
+        List<ItemDTO> baseItems = new ArrayList<>();
+        StringBuilder configText = new StringBuilder();
+        for (int lineNum = 1; lineNum <= 20000; lineNum++) {
+            if (lineNum % 10 == 0) {
+                baseItems.add(new ItemDTO("", "", "#comment" + lineNum, lineNum));
+                configText.append("#comment").append(lineNum).append("\n");
+            } else if (lineNum % 25 == 0) {
+                baseItems.add(new ItemDTO("", "", "", lineNum));
+                configText.append("\n");
+            } else {
+                baseItems.add(new ItemDTO("key" + lineNum, "value" + lineNum, "", lineNum));
+                configText.append("key").append(lineNum).append("=value").append(lineNum).append("\n");
+            }
+        }
+
+        ItemChangeSets changeSets = resolver.resolve(1, configText.toString(), baseItems);
+        Assert.assertTrue(changeSets.isEmpty());
+
+        changeSets = resolver.resolve(1, configText.toString().replace("key9999=value9999", "key9999=changed"),
+                baseItems);
+        Assert.assertEquals(0, changeSets.getCreateItems().size());
+        Assert.assertEquals(1, changeSets.getUpdateItems().size());
+        Assert.assertEquals("changed", changeSets.getUpdateItems().get(0).getValue());
+        Assert.assertEquals(0, changeSets.getDeleteItems().size());
+    }
+
     /**
      * a=b b=c c=d
      */
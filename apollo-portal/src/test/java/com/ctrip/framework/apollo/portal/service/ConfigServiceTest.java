@@ -10,23 +10,34 @@ import com.ctrip.framework.apollo.portal.AbstractUnitTest;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 import com.ctrip.framework.apollo.portal.entity.bo.UserInfo;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.component.txtresolver.PropertyResolver;
 import com.ctrip.framework.apollo.portal.entity.model.NamespaceTextModel;
 import com.ctrip.framework.apollo.portal.entity.vo.ItemDiffs;
 import com.ctrip.framework.apollo.portal.entity.vo.NamespaceIdentifier;
+import com.ctrip.framework.apollo.portal.entity.vo.NamespaceSyncResult;
+import com.ctrip.framework.apollo.portal.enums.SyncStatus;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ConfigServiceTest extends AbstractUnitTest {
@@ -41,6 +52,8 @@ public class ConfigServiceTest extends AbstractUnitTest {
   private PropertyResolver resolver;
   @Mock
   private UserInfoHolder userInfoHolder;
+  @Mock
+  private PortalConfig portalConfig;
 
   @InjectMocks
   private ItemService configService;
@@ -197,6 +210,66 @@ public class ConfigServiceTest extends AbstractUnitTest {
 
   }
 
+  @Test
+  public void testSyncItemsWithPartialFailure() {
+    ItemDTO sourceItem = new ItemDTO("a", "b", "comment", 1);
+    List<ItemDTO> sourceItems = Arrays.asList(sourceItem);
+
+    String appId = "6666", env = "LOCAL", namespaceName = ConfigConsts.NAMESPACE_APPLICATION;
+    String someClusterName = "someCluster", anotherClusterName = "anotherCluster",
+        missingClusterName = "missingCluster";
+    List<NamespaceIdentifier> namespaceIdentifiers = new ArrayList<>();
+    namespaceIdentifiers.addAll(generateNamespaceIdentifier(appId, env, someClusterName, namespaceName));
+    namespaceIdentifiers.addAll(generateNamespaceIdentifier(appId, env, anotherClusterName, namespaceName));
+    namespaceIdentifiers.addAll(generateNamespaceIdentifier(appId, env, missingClusterName, namespaceName));
+
+    when(namespaceAPI.loadNamespace(appId, Env.LOCAL, someClusterName, namespaceName))
+        .thenReturn(generateNamespaceDTO(appId, someClusterName, namespaceName));
+    when(namespaceAPI.loadNamespace(appId, Env.LOCAL, missingClusterName, namespaceName))
+        .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+    when(itemAPI.findItems(appId, Env.LOCAL, someClusterName, namespaceName)).thenReturn(null);
+    when(itemAPI.findItems(appId, Env.LOCAL, anotherClusterName, namespaceName))
+        .thenThrow(new ResourceAccessException("some error"));
+    when(itemAPI.findItems(appId, Env.LOCAL, missingClusterName, namespaceName)).thenReturn(null);
+    when(portalConfig.itemSyncParallelismPerEnv()).thenReturn(2);
+
+    UserInfo userInfo = new UserInfo();
+    userInfo.setUserId("test");
+    when(userInfoHolder.getUser()).thenReturn(userInfo);
+
+    List<NamespaceSyncResult> results = configService.syncItems(namespaceIdentifiers, sourceItems);
+
+    assertEquals(3, results.size());
+    assertEquals(SyncStatus.SYNCED, results.get(0).getStatus());
+    assertEquals(SyncStatus.FAILED, results.get(1).getStatus());
+    assertEquals("some error", results.get(1).getMessage());
+    assertEquals(SyncStatus.NAMESPACE_NOT_FOUND, results.get(2).getStatus());
+
+    verify(itemAPI).updateItemsByChangeSet(eq(appId), eq(Env.LOCAL), eq(someClusterName), eq(namespaceName),
+        any(ItemChangeSets.class));
+    verify(itemAPI, never()).updateItemsByChangeSet(eq(appId), eq(Env.LOCAL), eq(anotherClusterName),
+        eq(namespaceName), any(ItemChangeSets.class));
+    verify(itemAPI, never()).updateItemsByChangeSet(eq(appId), eq(Env.LOCAL), eq(missingClusterName),
+        eq(namespaceName), any(ItemChangeSets.class));
+  }
+
+  @Test(expected = ResourceAccessException.class)
+  public void testCompareWithFailure() {
+    ItemDTO sourceItem = new ItemDTO("a", "b", "comment", 1);
+    List<ItemDTO> sourceItems = Arrays.asList(sourceItem);
+
+    String appId = "6666", env = "LOCAL", clusterName = ConfigConsts.CLUSTER_NAME_DEFAULT,
+        namespaceName = ConfigConsts.NAMESPACE_APPLICATION;
+    List<NamespaceIdentifier> namespaceIdentifiers = generateNamespaceIdentifier(appId, env, clusterName,
+        namespaceName);
+
+    when(itemAPI.findItems(appId, Env.LOCAL, clusterName, namespaceName))
+        .thenThrow(new ResourceAccessException("some error"));
+    when(portalConfig.itemSyncParallelismPerEnv()).thenReturn(2);
+
+    configService.compare(namespaceIdentifiers, sourceItems);
+  }
+
   private NamespaceDTO generateNamespaceDTO(String appId, String clusterName, String namespaceName) {
     NamespaceDTO namespaceDTO = new NamespaceDTO();
     namespaceDTO.setAppId(appId);
@@ -0,0 +1,186 @@
+package com.ctrip.framework.apollo.portal.service;
+
+import com.ctrip.framework.apollo.common.dto.ClusterDTO;
+import com.ctrip.framework.apollo.common.dto.ItemDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.ctrip.framework.apollo.common.exception.ServiceException;
+import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.portal.AbstractUnitTest;
+import com.ctrip.framework.apollo.portal.component.EnvFanOutExecutor;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.entity.bo.ItemBO;
+import com.ctrip.framework.apollo.portal.entity.bo.NamespaceBO;
+import com.ctrip.framework.apollo.portal.entity.model.NamespaceTextModel;
+import com.ctrip.framework.apollo.portal.environment.Env;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConfigsExportServiceTest extends AbstractUnitTest {
+
+  @Mock
+  private ClusterService clusterService;
+  @Mock
+  private NamespaceService namespaceService;
+  @Mock
+  private ItemService itemService;
+  @Mock
+  private PortalConfig portalConfig;
+
+  private EnvFanOutExecutor envFanOutExecutor;
+
+  private ConfigsExportService configsExportService;
+
+  private String someAppId = "someAppId";
+  private String someClusterName = "default";
+
+  @Before
+  public void setUp() throws Exception {
+    when(portalConfig.fanOutTimeout(any(Env.class))).thenReturn(5000);
+    when(portalConfig.configsExportParallelism()).thenReturn(8);
+    envFanOutExecutor = new EnvFanOutExecutor(portalConfig);
+    configsExportService = new ConfigsExportService(clusterService, namespaceService, itemService,
+        envFanOutExecutor, portalConfig);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    configsExportService.destroy();
+    envFanOutExecutor.destroy();
+  }
+
+  @Test
+  public void testExportAndImport() throws Exception {
+    ClusterDTO cluster = new ClusterDTO();
+    cluster.setName(someClusterName);
+    when(clusterService.findClusters(Env.DEV, someAppId)).thenReturn(Collections.singletonList(cluster));
+
+    ItemBO deletedItem = assembleItem("deletedKey", "deletedValue");
+    deletedItem.setDeleted(true);
+    NamespaceBO application = assembleNamespace("application", ConfigFileFormat.Properties,
+        assembleItem("k1", "v1"), assembleItem("k2", "v2"), deletedItem);
+    NamespaceBO yaml = assembleNamespace("some.yml", ConfigFileFormat.YML, assembleItem("content", "a: b"));
+    NamespaceBO hidden = assembleNamespace("hidden", ConfigFileFormat.Properties, assembleItem("k", "v"));
+    when(namespaceService.findNamespaceBOs(someAppId, Env.DEV, someClusterName))
+        .thenReturn(Lists.newArrayList(application, yaml, hidden));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int exported = configsExportService.exportAppConfigs(Sets.newHashSet(someAppId),
+        Collections.singletonList(Env.DEV),
+        (env, namespace) -> !"hidden".equals(namespace.getBaseInfo().getNamespaceName()), out);
+
+    assertEquals(2, exported);
+    List<String> entries = Lists.newArrayList();
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+      for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+        entries.add(entry.getName());
+      }
+    }
+    assertEquals(Lists.newArrayList("someAppId/DEV/default/application.properties",
+        "someAppId/DEV/default/some.yml"), entries);
+
+    when(namespaceService.loadNamespaceBaseInfo(eq(someAppId), eq(Env.DEV), eq(someClusterName), any()))
+        .thenReturn(new NamespaceDTO());
+
+    List<String> imported = configsExportService.importAppConfigs(new ByteArrayResource(out.toByteArray()),
+        model -> true);
+
+    assertEquals(entries, imported);
+    ArgumentCaptor<NamespaceTextModel> captor = ArgumentCaptor.forClass(NamespaceTextModel.class);
+    verify(itemService, times(2)).updateConfigItemByText(captor.capture());
+    NamespaceTextModel applicationModel = captor.getAllValues().get(0);
+    assertEquals("application", applicationModel.getNamespaceName());
+    assertEquals(ConfigFileFormat.Properties, applicationModel.getFormat());
+    assertTrue(applicationModel.getConfigText().contains("k2 = v2"));
+    assertFalse(applicationModel.getConfigText().contains("deletedKey"));
+    NamespaceTextModel yamlModel = captor.getAllValues().get(1);
+    assertEquals("some.yml", yamlModel.getNamespaceName());
+    assertEquals(ConfigFileFormat.YML, yamlModel.getFormat());
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testImportWithoutPermission() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(out)) {
+      zip.putNextEntry(new ZipEntry("someAppId/DEV/default/application.properties"));
+      zip.write("k1 = v1".getBytes());
+      zip.closeEntry();
+    }
+
+    try {
+      configsExportService.importAppConfigs(new ByteArrayResource(out.toByteArray()), model -> false);
+    } finally {
+      verify(itemService, never()).updateConfigItemByText(any());
+    }
+  }
+
+  @Test
+  public void testImportFailsHalfway() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(out)) {
+      zip.putNextEntry(new ZipEntry("someAppId/DEV/default/application.properties"));
+      zip.write("k1 = v1".getBytes());
+      zip.closeEntry();
+      zip.putNextEntry(new ZipEntry("someAppId/DEV/default/another.properties"));
+      zip.write("k2 = v2".getBytes());
+      zip.closeEntry();
+    }
+    when(namespaceService.loadNamespaceBaseInfo(eq(someAppId), eq(Env.DEV), eq(someClusterName), any()))
+        .thenReturn(new NamespaceDTO());
+    doNothing().doThrow(new BadRequestException("some error")).when(itemService).updateConfigItemByText(any());
+
+    try {
+      configsExportService.importAppConfigs(new ByteArrayResource(out.toByteArray()), model -> true);
+      fail("the failure should be reported");
+    } catch (ServiceException e) {
+      assertTrue(e.getMessage().contains("another.properties: some error"));
+      assertTrue(e.getMessage().contains("1 of 2 namespaces were imported"));
+      assertTrue(e.getMessage().contains("[someAppId/DEV/default/application.properties]"));
+    }
+  }
+
+  private NamespaceBO assembleNamespace(String namespaceName, ConfigFileFormat format, ItemBO... items) {
+    NamespaceDTO baseInfo = new NamespaceDTO();
+    baseInfo.setAppId(someAppId);
+    baseInfo.setClusterName(someClusterName);
+    baseInfo.setNamespaceName(namespaceName);
+
+    NamespaceBO namespace = new NamespaceBO();
+    namespace.setBaseInfo(baseInfo);
+    namespace.setFormat(format.getValue());
+    namespace.setItems(Lists.newArrayList(items));
+    return namespace;
+  }
+
+  private ItemBO assembleItem(String key, String value) {
+    ItemBO item = new ItemBO();
+    item.setItem(new ItemDTO(key, value, null, 0));
+    return item;
+  }
+}
@@ -2,6 +2,7 @@ package com.ctrip.framework.apollo.portal.service;
 
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceDetailDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
@@ -13,18 +14,23 @@ import com.ctrip.framework.apollo.portal.component.txtresolver.PropertyResolver;
 import com.ctrip.framework.apollo.portal.entity.bo.NamespaceBO;
 import com.ctrip.framework.apollo.portal.entity.bo.UserInfo;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
+import com.google.common.collect.ImmutableMap;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -72,6 +78,60 @@ public class NamespaceServiceTest extends AbstractUnitTest {
     application.setAppId(testAppId);
     application.setNamespaceName(testNamespaceName);
 
+    NamespaceDTO hermes = new NamespaceDTO();
+    hermes.setId(2);
+    hermes.setClusterName("default");
+    hermes.setAppId(testAppId);
+    hermes.setNamespaceName("hermes");
+
+    Map<String, String> someReleaseConfigurations = ImmutableMap.of("a", "123", "b", "123", "d", "456");
+
+    ItemDTO i1 = new ItemDTO("a", "123", "", 1);
+    ItemDTO i2 = new ItemDTO("b", "1", "", 2);
+    ItemDTO i3 = new ItemDTO("", "", "#dddd", 3);
+    ItemDTO i4 = new ItemDTO("c", "1", "", 4);
+    List<ItemDTO> someItems = Arrays.asList(i1, i2, i3, i4);
+    ItemDTO someDeletedItem = new ItemDTO("d", "456", "some comment", 5);
+
+    when(applicationAppNamespace.getFormat()).thenReturn(ConfigFileFormat.Properties.getValue());
+    when(hermesAppNamespace.getFormat()).thenReturn(ConfigFileFormat.XML.getValue());
+    when(appNamespaceService.findByAppIdAndName(testAppId, testNamespaceName))
+        .thenReturn(applicationAppNamespace);
+    when(appNamespaceService.findPublicAppNamespace("hermes")).thenReturn(hermesAppNamespace);
+    when(namespaceAPI.findNamespaceDetailsByCluster(testAppId, Env.DEV, testClusterName)).thenReturn(Arrays.asList(
+        assembleNamespaceDetail(application, someItems, Collections.singletonList(someDeletedItem),
+            someReleaseConfigurations),
+        assembleNamespaceDetail(hermes, Collections.emptyList(), Collections.emptyList(),
+            someReleaseConfigurations)));
+
+    List<NamespaceBO> namespaceVOs = namespaceService.findNamespaceBOs(testAppId, Env.DEV, testClusterName);
+    assertEquals(2, namespaceVOs.size());
+    NamespaceBO namespaceVO = namespaceVOs.get(0);
+    assertEquals(5, namespaceVO.getItems().size());
+    assertEquals("a", namespaceVO.getItems().get(0).getItem().getKey());
+    assertEquals(3, namespaceVO.getItemModifiedCnt());
+    assertEquals("some comment", namespaceVO.getItems().get(4).getItem().getComment());
+    assertEquals(testAppId, namespaceVO.getBaseInfo().getAppId());
+    assertEquals(testClusterName, namespaceVO.getBaseInfo().getClusterName());
+    assertEquals(testNamespaceName, namespaceVO.getBaseInfo().getNamespaceName());
+    assertEquals(3, namespaceVOs.get(1).getItemModifiedCnt());
+    assertEquals(ConfigFileFormat.XML.getValue(), namespaceVOs.get(1).getFormat());
+
+    verify(namespaceAPI, never()).findNamespaceByCluster(testAppId, Env.DEV, testClusterName);
+  }
+
+  @Test
+  public void testFindNamespaceWithAdminServiceNotSupportingDetails() {
+
+    AppNamespace applicationAppNamespace = mock(AppNamespace.class);
+    AppNamespace hermesAppNamespace = mock(AppNamespace.class);
+
+    NamespaceDTO application = new NamespaceDTO();
+    application.setId(1);
+    application.setClusterName(testClusterName);
+    application.setAppId(testAppId);
+    application.setNamespaceName(testNamespaceName);
+
     NamespaceDTO hermes = new NamespaceDTO();
     hermes.setId(2);
     hermes.setClusterName("default");
@@ -93,6 +153,8 @@ public class NamespaceServiceTest extends AbstractUnitTest {
     when(appNamespaceService.findByAppIdAndName(testAppId, testNamespaceName))
         .thenReturn(applicationAppNamespace);
     when(appNamespaceService.findPublicAppNamespace("hermes")).thenReturn(hermesAppNamespace);
+    when(namespaceAPI.findNamespaceDetailsByCluster(testAppId, Env.DEV, testClusterName))
+        .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
     when(namespaceAPI.findNamespaceByCluster(testAppId, Env.DEV, testClusterName)).thenReturn(namespaces);
     when(releaseService.loadLatestRelease(testAppId, Env.DEV, testClusterName,
                                           testNamespaceName)).thenReturn(someRelease);
@@ -219,6 +281,17 @@ public class NamespaceServiceTest extends AbstractUnitTest {
     return instance;
   }
 
+  private NamespaceDetailDTO assembleNamespaceDetail(NamespaceDTO namespace, List<ItemDTO> items,
+                                                     List<ItemDTO> deletedItems,
+                                                     Map<String, String> releaseConfigurations) {
+    NamespaceDetailDTO namespaceDetail = new NamespaceDetailDTO();
+    namespaceDetail.setBaseInfo(namespace);
+    namespaceDetail.setItems(items);
+    namespaceDetail.setDeletedItems(deletedItems);
+    namespaceDetail.setReleaseConfigurations(releaseConfigurations);
+    return namespaceDetail;
+  }
+
   private UserInfo createUser(String userId) {
     UserInfo instance = new UserInfo();
 
@@ -297,12 +297,38 @@ public class RolePermissionServiceTest extends AbstractIntegrationTest {
     assertTrue(rolePermissionService.userHasPermission(someUser, anotherPermissionType, anotherTargetId));
     assertTrue(rolePermissionService.userHasPermission(anotherUser, somePermissionType, someTargetId));
     assertTrue(rolePermissionService.userHasPermission(anotherUser, anotherPermissionType, anotherTargetId));
+    // target ids match case-insensitively, like the MySQL collation of the permission table
+    assertTrue(rolePermissionService.userHasPermission(someUser, somePermissionType, someTargetId.toUpperCase()));
 
     assertFalse(rolePermissionService.userHasPermission(someUserWithNoPermission, somePermissionType, someTargetId));
     assertFalse(rolePermissionService.userHasPermission(someUserWithNoPermission, anotherPermissionType, anotherTargetId));
 
   }
 
+  @Test
+  @Sql(scripts = "/sql/permission/insert-test-permissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testUserHasPermissionAfterRoleChanged() throws Exception {
+    String someRoleName = "someRoleNameForPermissionCache";
+    String someTargetId = "someTargetId";
+    String somePermissionType = "somePermissionType";
+    String someUser = "someUserForPermissionCache";
+    String operator = "operator";
+    Set<String> users = Sets.newHashSet(someUser);
+
+    rolePermissionService.createRoleWithPermissions(assembleRole(someRoleName), Sets.newHashSet(990L));
+
+    assertFalse(rolePermissionService.userHasPermission(someUser, somePermissionType, someTargetId));
+
+    rolePermissionService.assignRoleToUsers(someRoleName, users, operator);
+
+    assertTrue(rolePermissionService.userHasPermission(someUser, somePermissionType, someTargetId));
+
+    rolePermissionService.removeRoleFromUsers(someRoleName, users, operator);
+
+    assertFalse(rolePermissionService.userHasPermission(someUser, somePermissionType, someTargetId));
+  }
+
   private Role assembleRole(String roleName) {
     Role role = new Role();
     role.setRoleName(roleName);